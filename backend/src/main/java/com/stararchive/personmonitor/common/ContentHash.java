@@ -0,0 +1,44 @@
+package com.stararchive.personmonitor.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 内容哈希工具：SHA-256 十六进制摘要，用于文件去重、抽取缓存键与模板编号
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    public static String sha256Hex(String text) {
+        return sha256Hex((text != null ? text : "").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256Hex(byte[] data) {
+        return HexFormat.of().formatHex(newDigest().digest(data != null ? data : new byte[0]));
+    }
+
+    /** 流式计算摘要，不在内存中缓存整个内容；调用方负责关闭流 */
+    public static String sha256Hex(InputStream in) throws IOException {
+        MessageDigest md = newDigest();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            md.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
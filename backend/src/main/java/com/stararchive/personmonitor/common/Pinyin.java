@@ -0,0 +1,72 @@
+package com.stararchive.personmonitor.common;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+/**
+ * 汉字转拼音（不带声调）：读音取自 pinyin4j 自带的 Unihan 读音表，覆盖 CJK 统一汉字（含 GB2312 二级字及 GBK 扩展字）。
+ * <p>
+ * 多音字取读音表中的第一个读音，ü 写作 v。文本中只要有一个汉字查不到读音就整体返回 null，
+ * 不生成缺字的截断拼音（截断的键会让“王婷”按“wang”被搜到）。
+ */
+public final class Pinyin {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private Pinyin() {
+    }
+
+    /** 单个汉字的拼音，非汉字或读音表中没有的字返回 null */
+    public static String of(char c) {
+        if (Character.UnicodeScript.of(c) != Character.UnicodeScript.HAN) return null;
+        try {
+            String[] readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return readings != null && readings.length > 0 && !readings[0].isEmpty() ? readings[0] : null;
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 全拼：汉字转拼音后连写，字母数字转小写保留，其余字符去掉；没有汉字或有汉字查不到读音时返回 null
+     */
+    public static String full(String text) {
+        return convert(text, false);
+    }
+
+    /** 首字母：每个汉字取拼音首字母，字母数字转小写保留；没有汉字或有汉字查不到读音时返回 null */
+    public static String initials(String text) {
+        return convert(text, true);
+    }
+
+    private static String convert(String text, boolean initialsOnly) {
+        if (text == null || text.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder(text.length() * (initialsOnly ? 1 : 4));
+        boolean converted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (Character.isLetterOrDigit(c)) sb.append(Character.toLowerCase(c));
+                continue;
+            }
+            // 扩展区汉字以代理对出现，读音表不覆盖，按查不到读音处理
+            if (Character.isSurrogate(c)) return null;
+            if (Character.UnicodeScript.of(c) != Character.UnicodeScript.HAN) continue;
+            String syllable = of(c);
+            if (syllable == null) return null;
+            sb.append(initialsOnly ? syllable.charAt(0) : syllable);
+            converted = true;
+        }
+        return converted ? sb.toString() : null;
+    }
+}
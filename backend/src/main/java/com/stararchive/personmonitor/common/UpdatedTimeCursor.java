@@ -0,0 +1,83 @@
+package com.stararchive.personmonitor.common;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 按 (updated_time, 主键) 推进的增量游标，供内存索引刷新与定时扫描拉取变更的行。
+ * <ul>
+ *   <li>每轮只读取 updated_time 不晚于“当前时间 - ingest-lag”的行：updated_time 由写入方在提交前取值，
+ *       同一时刻开始的事务可能在游标越过该时刻后才提交可见，留出这段时间再读，这些行不会落在游标之前被跳过；</li>
+ *   <li>行的 updated_time 为空时按 1970-01-01 排序（与查询中的 COALESCE 一致）。</li>
+ * </ul>
+ * 非线程安全，由调用方同步。
+ *
+ * @param <T> 行类型
+ */
+public final class UpdatedTimeCursor<T> {
+
+    public static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * 按游标查询一页：排在 (afterTime, afterId) 之后且 updated_time 不晚于 until 的行，按 (updated_time, 主键) 升序
+     */
+    @FunctionalInterface
+    public interface Query<T> {
+        List<T> fetch(LocalDateTime afterTime, String afterId, LocalDateTime until, int limit);
+    }
+
+    private final Function<T, LocalDateTime> timeOf;
+    private final Function<T, String> idOf;
+    private LocalDateTime time = EPOCH;
+    private String id = "";
+
+    public UpdatedTimeCursor(Function<T, LocalDateTime> timeOf, Function<T, String> idOf) {
+        this.timeOf = timeOf;
+        this.idOf = idOf;
+    }
+
+    /** 游标当前的更新时间 */
+    public LocalDateTime time() {
+        return time;
+    }
+
+    /** 把游标移到 time 之前（含 time 的行都会重新读取） */
+    public void rewindTo(LocalDateTime time) {
+        this.time = time != null ? time : EPOCH;
+        this.id = "";
+    }
+
+    /** 游标移到该行之后 */
+    public void advance(T row) {
+        LocalDateTime t = timeOf.apply(row);
+        time = t != null ? t : EPOCH;
+        id = idOf.apply(row);
+    }
+
+    /** 游标之后、入库已满 lagSeconds 的至多 limit 行；不推进游标，由调用方逐行 {@link #advance} */
+    public List<T> next(Query<T> query, long lagSeconds, int limit) {
+        return query.fetch(time, id, LocalDateTime.now().minusSeconds(lagSeconds), limit);
+    }
+
+    /**
+     * 逐页读取直到追平（本轮上界在开始时确定），每页交给 consumer 处理后推进游标
+     *
+     * @return 本轮读取的行数
+     */
+    public int drain(Query<T> query, long lagSeconds, int batchSize, Consumer<List<T>> consumer) {
+        LocalDateTime until = LocalDateTime.now().minusSeconds(lagSeconds);
+        int limit = Math.max(1, batchSize);
+        int total = 0;
+        while (true) {
+            List<T> batch = query.fetch(time, id, until, limit);
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+                advance(batch.get(batch.size() - 1));
+                total += batch.size();
+            }
+            if (batch.size() < limit) return total;
+        }
+    }
+}
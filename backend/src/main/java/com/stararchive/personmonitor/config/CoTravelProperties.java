@@ -0,0 +1,44 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 人物同行检测配置：增量批量与水位、同城时间窗、热点分组上限与查询返回上限
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "travel.co-travel")
+public class CoTravelProperties {
+
+    /** 关闭时定时任务不检测，已有结果仍可查询 */
+    private boolean enabled = true;
+
+    /** 检测间隔（毫秒） */
+    private long intervalMs = 300_000;
+
+    /** 每批处理的新行程条数 */
+    private int batchSize = 2000;
+
+    /** 单轮最多处理的批数，积压较多时分多轮追平 */
+    private int maxBatchesPerRun = 20;
+
+    /** 只处理入库已满该秒数的行程 */
+    private int ingestLagSeconds = 30;
+
+    /** 首次运行（无水位）时回溯的入库天数 */
+    private int initialLookbackDays = 30;
+
+    /** 租约时长（秒），每批开始前续约 */
+    private int leaseSeconds = 600;
+
+    /** 同城同行时间窗（分钟）：两人到达同一城市的时间差不超过该值；同时作为时间分桶宽度 */
+    private int cityWindowMinutes = 360;
+
+    /** 同一车次/航班或同城同一时间桶内超过该人数时视为热点，不产生同行（避免大站、大城市两两成对） */
+    private int maxGroupSize = 200;
+
+    /** 同行人查询最多返回的条数 */
+    private int maxLimit = 200;
+}
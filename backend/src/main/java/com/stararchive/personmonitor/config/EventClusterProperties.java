@@ -0,0 +1,35 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 新闻事件聚类配置：字符 shingle、MinHash 签名分段（LSH）与相似度阈值
+ * <p>
+ * 签名长度 = bands × rows；两条摘要相似度为 s 时成为候选的概率约为 1 - (1 - s^rows)^bands，
+ * 拐点约在 (1/bands)^(1/rows)，应略低于 threshold。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "event.cluster")
+public class EventClusterProperties {
+
+    /** 字符 shingle 长度（中文按字切分，2 即相邻两字） */
+    private int shingleSize = 2;
+
+    /** LSH 分段数 */
+    private int bands = 40;
+
+    /** 每段的 MinHash 行数 */
+    private int rows = 3;
+
+    /** 候选对按 shingle 集合 Jaccard 复核，不低于该值归为同一事件 */
+    private double threshold = 0.3;
+
+    /** 单个 LSH 桶内保留的代表条数上限，避免大量相同摘要落入同一桶时退化为两两比较 */
+    private int maxBucketRepresentatives = 32;
+
+    /** 按日期并行聚类的线程数，0 表示取 CPU 核数 */
+    private int parallelism = 0;
+}
@@ -0,0 +1,108 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 大模型网关配置：连接复用、超时、单端点并发上限、重试与熔断参数，以及多端点池的路由、健康检查与对冲请求参数
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "llm.gateway")
+public class LlmGatewayProperties {
+
+    /** 是否优先使用 HTTP/2（服务端不支持时自动回退 HTTP/1.1） */
+    private boolean http2 = true;
+
+    /** 建立连接超时（毫秒） */
+    private int connectTimeoutMs = 5_000;
+
+    /** 非流式请求等待响应超时（毫秒） */
+    private int requestTimeoutMs = 120_000;
+
+    /** 流式请求等待首个响应头超时（毫秒），响应开始后由 stream-idle-timeout-ms 计时 */
+    private int streamFirstByteTimeoutMs = 60_000;
+
+    /** 流式响应开始后连续无数据的最长时间（毫秒），超过即中止调用；小于等于 0 不限制 */
+    private int streamIdleTimeoutMs = 60_000;
+
+    /** 单个端点同时在途请求上限 */
+    private int maxConcurrentPerEndpoint = 16;
+
+    /** 获取并发槽位的最长等待（毫秒），超时视为端点繁忙 */
+    private int acquireTimeoutMs = 30_000;
+
+    /** 最多尝试次数（含首次），仅对网络异常、429 与 5xx 重试 */
+    private int maxAttempts = 3;
+
+    /** 重试退避基数（毫秒），按指数增长并取 [0, 上限] 内随机值 */
+    private int retryBaseDelayMs = 500;
+
+    /** 单次重试退避上限（毫秒） */
+    private int retryMaxDelayMs = 8_000;
+
+    /** 连续失败达到该次数后熔断 */
+    private int breakerFailureThreshold = 5;
+
+    /** 熔断持续时间（毫秒），到期后放行一次试探请求 */
+    private int breakerOpenMs = 30_000;
+
+    /**
+     * 多端点池（OpenAI 兼容，如本地推理服务 + 云端兜底）。
+     * 为空时仅使用系统配置 llm_* / bailian 的单一端点；不为空时系统配置端点作为兜底端点，仅在池内对应路由无可用端点时使用。
+     */
+    private List<EndpointConfig> endpoints = new ArrayList<>();
+
+    /** 系统配置 llm_* / bailian 端点是否作为兜底端点参与路由 */
+    private boolean includeSystemEndpoint = true;
+
+    /** 走 bulk 路由（吞吐型端点）的调用方，其余对话类调用走 interactive 路由 */
+    private List<String> bulkCallers = new ArrayList<>(List.of("archive-extract", "event-summary", "portrait-pregen", "qa-summary"));
+
+    /** 启用对冲请求的时延敏感调用方：首个端点超过对冲等待仍未返回响应头时，向另一端点并发同一请求，取先返回者 */
+    private List<String> hedgeCallers = new ArrayList<>(List.of(
+            "smart-qa", "smart-qa-stream", "portrait", "portrait-stream", "text2sql"));
+
+    /** 对冲等待上限（毫秒）；调用方样本足够时取其首包耗时 P95，且不超过该值 */
+    private int hedgeDelayMs = 2_000;
+
+    /** 对冲等待下限（毫秒），避免 P95 过小时几乎每次都发出重复请求 */
+    private int hedgeMinDelayMs = 200;
+
+    /** 对冲请求数占该调用方调用数的上限比例，防止端点整体变慢时请求量翻倍 */
+    private double hedgeMaxRatio = 0.1;
+
+    /** 端点健康检查间隔（毫秒），仅在配置了多端点池时执行 */
+    private int healthCheckIntervalMs = 30_000;
+
+    /** 健康检查请求超时（毫秒） */
+    private int healthCheckTimeoutMs = 3_000;
+
+    @Data
+    public static class EndpointConfig {
+
+        /** 端点名称，用于日志与指标 */
+        private String name;
+
+        private String baseUrl;
+
+        /** API Key；本地推理服务不校验时可填任意占位值 */
+        private String apiKey;
+
+        /** 该端点使用的对话模型，为空时使用系统配置模型 */
+        private String model;
+
+        /** 路由权重，在途请求数相同时权重越大越优先 */
+        private int weight = 1;
+
+        /** 服务的路由：interactive（对话、画像、Text2Sql）、bulk（批量抽取、摘要）、embedding（向量嵌入） */
+        private List<String> routes = new ArrayList<>(List.of("interactive", "bulk"));
+
+        /** 在途请求上限，0 表示使用 max-concurrent-per-endpoint */
+        private int maxConcurrent = 0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 新闻全文检索配置：候选窗口、BM25 参数与高亮片段长度
+ * <p>
+ * 检索由 Doris 倒排索引（MATCH_ANY / MATCH_PHRASE）过滤，相关度排序在最新的 candidate-limit 条命中内计算；
+ * 按时间排序时直接以 (publish_time, news_id) 游标翻页，不受该窗口限制。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "news.search")
+public class NewsSearchProperties {
+
+    /** 相关度排序时参与打分的最新命中条数上限 */
+    private int candidateLimit = 1000;
+
+    /** 单页最大条数 */
+    private int maxPageSize = 50;
+
+    /** BM25 词频饱和参数 */
+    private double k1 = 1.2;
+
+    /** BM25 文档长度归一化参数 */
+    private double b = 0.75;
+
+    /** 标题中的词频相对正文的权重 */
+    private double titleWeight = 2.0;
+
+    /** 正文高亮片段长度（字） */
+    private int snippetLength = 120;
+
+    /** 词的文档频率与总文档数的缓存时长（秒） */
+    private int termStatsTtlSeconds = 600;
+}
@@ -0,0 +1,35 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 人物关系图配置：加载批量、增量刷新与重建间隔、遍历跳数与返回节点上限
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "person.graph")
+public class PersonGraphProperties {
+
+    /** 关闭时关系图接口返回未就绪 */
+    private boolean enabled = true;
+
+    /** 全量加载与增量刷新每次查询的条数 */
+    private int loadBatchSize = 2000;
+
+    /** 增量刷新间隔（毫秒）；有变更时刷新后重建图快照 */
+    private long refreshIntervalMs = 30_000;
+
+    /** 增量刷新只读取更新时间早于该秒数之前的档案，留给晚提交的写入变为可见 */
+    private int ingestLagSeconds = 30;
+
+    /** 邻域查询允许的最大跳数 */
+    private int maxHops = 3;
+
+    /** 最短路径查询允许的最大跳数 */
+    private int maxPathHops = 6;
+
+    /** 邻域查询最多返回的节点数 */
+    private int maxNodes = 500;
+}
@@ -0,0 +1,29 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 人物标识反查配置：批量反查上限、手机号默认国家码与启动回填
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "person.identifier")
+public class PersonIdentifierProperties {
+
+    /** 单次批量反查最多接受的标识数 */
+    private int maxLookupSize = 5000;
+
+    /** 反查与同步时每条 IN 查询携带的值数 */
+    private int queryBatchSize = 1000;
+
+    /** 不带国际区号的手机号 / 座机号按该国家码补全为 E.164 */
+    private String defaultCountryCode = "86";
+
+    /** 启动时若反查表为空，则后台按 person_id 游标从 person 表全量回填 */
+    private boolean backfillOnStartup = true;
+
+    /** 回填时每批读取的档案数 */
+    private int backfillBatchSize = 2000;
+}
@@ -0,0 +1,32 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 人物检索与输入联想内存索引配置：加载批量、增量刷新间隔、重建阈值与联想条数
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "person.search")
+public class PersonSearchProperties {
+
+    /** 关闭时关键词检索走数据库 LIKE 查询 */
+    private boolean enabled = true;
+
+    /** 全量加载与增量刷新每次查询的条数 */
+    private int loadBatchSize = 2000;
+
+    /** 增量刷新间隔（毫秒），按 updated_time 拉取变更的档案 */
+    private long refreshIntervalMs = 10_000;
+
+    /** 增量刷新只读取更新时间早于该秒数之前的档案，留给晚提交的写入变为可见 */
+    private int ingestLagSeconds = 30;
+
+    /** 失效序号占比超过该值时在内存中重建索引 */
+    private double compactDeadRatio = 0.2;
+
+    /** 联想前缀树每个节点缓存的候选数，也是单次联想最多返回的条数 */
+    private int suggestTopK = 20;
+}
@@ -0,0 +1,38 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 人物行程时间线配置：翻页上限、热点人物判定与紧凑缓存的容量和有效期
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "person.timeline")
+public class PersonTimelineProperties {
+
+    /** 每页最多返回的行程数 */
+    private int maxPageSize = 100;
+
+    /** 统计接口最多返回的到达城市数 */
+    private int maxTopDestinations = 50;
+
+    /** 关闭时时间线与统计每次都查库 */
+    private boolean cacheEnabled = true;
+
+    /** hot-window-seconds 内被查看达到该次数的人物视为热点，整条时间线载入紧凑缓存 */
+    private int hotViews = 3;
+
+    /** 热点判定的计数窗口（秒） */
+    private int hotWindowSeconds = 600;
+
+    /** 紧凑缓存有效期（秒）；行程由外部批量入库，到期后重新载入 */
+    private int cacheTtlSeconds = 300;
+
+    /** 紧凑缓存最多保留的人物数（LRU） */
+    private int maxCachedPersons = 200;
+
+    /** 行程数超过该值的人物不进入紧凑缓存，仍按页查库 */
+    private int maxCachedRows = 20_000;
+}
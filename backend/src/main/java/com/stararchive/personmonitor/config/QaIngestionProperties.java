@@ -0,0 +1,38 @@
+package com.stararchive.personmonitor.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 智能问答文档入库流水线配置：各阶段并发数、阶段间队列容量与批量大小
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "qa.ingestion")
+public class QaIngestionProperties {
+
+    /** 等待入库的文档数上限，超出时上传的文档直接标记失败 */
+    private int pendingCapacity = 10_000;
+
+    /** 阶段间队列容量，下游处理不过来时上游阻塞（背压） */
+    private int queueCapacity = 32;
+
+    /** 下载（SeaweedFS）并发数 */
+    private int downloadWorkers = 4;
+
+    /** 解析并发数，0 表示取 CPU 核数 */
+    private int parseWorkers = 0;
+
+    /** 分块并发数 */
+    private int chunkWorkers = 1;
+
+    /** 嵌入并发数（每个请求携带一批分块） */
+    private int embedWorkers = 4;
+
+    /** 写库并发数 */
+    private int persistWorkers = 2;
+
+    /** 单次嵌入请求的分块数，同时也是单次 JDBC 批量写入的行数 */
+    private int embedBatchSize = 32;
+}
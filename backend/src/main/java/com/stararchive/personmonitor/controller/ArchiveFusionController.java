@@ -2,6 +2,7 @@ package com.stararchive.personmonitor.controller;
 
 import com.stararchive.personmonitor.common.ApiResponse;
 import com.stararchive.personmonitor.common.PageResponse;
+import com.stararchive.personmonitor.dto.ArchiveColumnMappingDTO;
 import com.stararchive.personmonitor.dto.ArchiveExtractResultDTO;
 import com.stararchive.personmonitor.config.OnlyOfficeProperties;
 import com.stararchive.personmonitor.dto.ArchiveFusionBatchCreateResultDTO;
@@ -10,11 +11,14 @@ import com.stararchive.personmonitor.dto.ArchiveImportTaskDTO;
 import com.stararchive.personmonitor.dto.OnlyOfficePreviewConfigDTO;
 import com.stararchive.personmonitor.entity.ArchiveImportTask;
 import com.stararchive.personmonitor.entity.SysUser;
+import com.stararchive.personmonitor.service.ArchiveColumnMappingService;
 import com.stararchive.personmonitor.service.ArchiveFusionService;
+import com.stararchive.personmonitor.service.ArchiveTaskProgressBus;
 import com.stararchive.personmonitor.service.OnlyOfficePreviewTokenService;
 import com.stararchive.personmonitor.service.SeaweedFSService;
 import com.stararchive.personmonitor.service.SystemConfigService;
 import com.stararchive.personmonitor.service.SysUserService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -22,6 +26,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -43,6 +48,8 @@ public class ArchiveFusionController {
     private final OnlyOfficeProperties onlyOfficeProperties;
     private final OnlyOfficePreviewTokenService onlyOfficePreviewTokenService;
     private final SystemConfigService systemConfigService;
+    private final ArchiveColumnMappingService columnMappingService;
+    private final ArchiveTaskProgressBus progressBus;
 
     /**
      * 上传文件并创建档案融合任务（解析 -> 大模型抽取 -> 相似匹配）
@@ -101,6 +108,24 @@ public class ArchiveFusionController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    /**
+     * 订阅当前用户任务进度（SSE）：连接后先推送 snapshot 事件（进行中任务列表），之后推送 progress 事件（单个任务状态与已提取数量变化）。
+     * 前端任务列表在有进行中任务时订阅，连接失败或断开时回退为定时轮询。
+     */
+    @GetMapping(value = "/tasks/progress-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter progressStream(
+            @RequestHeader(value = "X-Username", required = false) String currentUsername,
+            HttpServletResponse response) {
+        // 关闭反向代理（Nginx）响应缓冲，事件逐条到达浏览器
+        response.setHeader("X-Accel-Buffering", "no");
+        if (currentUsername == null || currentUsername.isBlank()) {
+            SseEmitter emitter = new SseEmitter(0L);
+            emitter.completeWithError(new IllegalArgumentException("请先登录"));
+            return emitter;
+        }
+        return progressBus.subscribe(currentUsername);
+    }
+
     /**
      * 失败任务重新导入：仅允许状态为 FAILED 的任务，仅任务创建人可操作。
      */
@@ -400,6 +425,66 @@ public class ArchiveFusionController {
         return ResponseEntity.ok(ApiResponse.success("已提交，共 " + totalQueued + " 条将后台导入", data));
     }
 
+    /**
+     * 已保存的表格列映射模板列表（按更新时间倒序）
+     */
+    @GetMapping("/column-mappings")
+    public ResponseEntity<ApiResponse<java.util.List<ArchiveColumnMappingDTO>>> listColumnMappings() {
+        return ResponseEntity.ok(ApiResponse.success(columnMappingService.listSaved()));
+    }
+
+    /**
+     * 查询表头对应的列映射：已保存模板优先，否则返回自动识别结果，供导入前确认与调整
+     */
+    @PostMapping("/column-mappings/detect")
+    public ResponseEntity<ApiResponse<ArchiveColumnMappingDTO>> detectColumnMapping(@RequestBody ColumnMappingRequest request) {
+        if (request == null || request.getHeaders() == null || request.getHeaders().isEmpty()) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("表头不能为空"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(columnMappingService.describe(request.getHeaders())));
+    }
+
+    /**
+     * 保存表头模板的列映射（同一表头覆盖保存）；映射值为人物字段名，_ignore 表示忽略该列
+     */
+    @PutMapping("/column-mappings")
+    public ResponseEntity<ApiResponse<ArchiveColumnMappingDTO>> saveColumnMapping(
+            @RequestBody ColumnMappingRequest request,
+            @RequestHeader(value = "X-Username", required = false) String currentUsername) {
+        if (request == null) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("请求体不能为空"));
+        }
+        try {
+            ArchiveColumnMappingDTO dto = columnMappingService.save(request.getHeaders(), request.getMapping(), currentUsername);
+            return ResponseEntity.ok(ApiResponse.success("保存成功", dto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * 删除列映射模板，删除后该表头恢复自动识别
+     */
+    @DeleteMapping("/column-mappings/{templateKey}")
+    public ResponseEntity<ApiResponse<Void>> deleteColumnMapping(@PathVariable String templateKey) {
+        try {
+            columnMappingService.delete(templateKey);
+            return ResponseEntity.ok(ApiResponse.success("删除成功", null));
+        } catch (java.util.NoSuchElementException e) {
+            return ResponseEntity.status(404).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @lombok.Data
+    @lombok.NoArgsConstructor
+    @lombok.AllArgsConstructor
+    public static class ColumnMappingRequest {
+        /** 表头列名（顺序与文件一致） */
+        private java.util.List<String> headers;
+        /** 列名 → 人物字段名（person-schema.json 字段，_ignore 表示忽略） */
+        private java.util.Map<String, String> mapping;
+    }
+
     @lombok.Data
     @lombok.NoArgsConstructor
     @lombok.AllArgsConstructor
@@ -39,7 +39,7 @@ public class EventController {
     }
 
     /**
-     * 手动触发事件聚合：从近期新闻中提取事件摘要并聚类落库（与定时任务逻辑一致）。
+     * 手动触发批量事件聚合：从近期新闻中提取事件摘要并聚类落库（补跑历史；日常由增量聚合定时处理新入库新闻）。
      * @param sinceDays 可选，取最近几天内的新闻（默认 1）；测试或补跑历史时可传 30、365 等。
      * @param useLlm 是否调用大模型生成摘要（默认 true）；传 false 时仅用标题聚类，适合测试或无 API Key 时。
      */
@@ -3,12 +3,17 @@ package com.stararchive.personmonitor.controller;
 import com.stararchive.personmonitor.common.ApiResponse;
 import com.stararchive.personmonitor.common.PageResponse;
 import com.stararchive.personmonitor.dto.NewsDTO;
+import com.stararchive.personmonitor.dto.NewsSearchResultDTO;
+import com.stararchive.personmonitor.service.NewsSearchService;
 import com.stararchive.personmonitor.service.NewsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+
 /**
  * 新闻控制器（态势感知-新闻动态）
  */
@@ -19,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 public class NewsController {
 
     private final NewsService newsService;
+    private final NewsSearchService newsSearchService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<PageResponse<NewsDTO>>> getNewsList(
@@ -31,6 +37,26 @@ public class NewsController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    /**
+     * 全文检索：mode=any 任一词命中 / phrase 短语；sort=relevance 按相关度 / time 按发布时间；
+     * 翻页时把上一页的 nextCursor 原样传回 cursor
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<NewsSearchResultDTO>> searchNews(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "any") String mode,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(defaultValue = NewsSearchService.SORT_RELEVANCE) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        NewsSearchResultDTO result = newsSearchService.search(q, "phrase".equalsIgnoreCase(mode), category,
+                startTime, endTime, sort, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @GetMapping("/{newsId}")
     public ResponseEntity<ApiResponse<NewsDTO>> getNewsDetail(@PathVariable String newsId) {
         NewsDTO dto = newsService.getNewsDetail(newsId);
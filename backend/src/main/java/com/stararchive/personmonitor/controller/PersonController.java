@@ -3,15 +3,29 @@ package com.stararchive.personmonitor.controller;
 import com.stararchive.personmonitor.common.ApiResponse;
 import com.stararchive.personmonitor.common.PageResponse;
 import com.stararchive.personmonitor.dto.PersonCardDTO;
+import com.stararchive.personmonitor.dto.PersonCoTravelEvidenceDTO;
+import com.stararchive.personmonitor.dto.PersonCompanionDTO;
 import com.stararchive.personmonitor.dto.PersonDetailDTO;
 import com.stararchive.personmonitor.dto.PersonEditHistoryDTO;
+import com.stararchive.personmonitor.dto.PersonGraphDTO;
+import com.stararchive.personmonitor.dto.PersonIdentifierLookupRequest;
+import com.stararchive.personmonitor.dto.PersonIdentifierLookupResultDTO;
+import com.stararchive.personmonitor.dto.PersonSuggestionDTO;
+import com.stararchive.personmonitor.dto.PersonTravelStatsDTO;
+import com.stararchive.personmonitor.dto.PersonTravelTimelineDTO;
 import com.stararchive.personmonitor.dto.PersonUpdateDTO;
 import com.stararchive.personmonitor.dto.TagCreateDTO;
 import com.stararchive.personmonitor.dto.TagDTO;
+import com.stararchive.personmonitor.service.CoTravelService;
+import com.stararchive.personmonitor.service.PersonGraphService;
+import com.stararchive.personmonitor.service.PersonIdentifierService;
 import com.stararchive.personmonitor.service.PersonPortraitService;
+import com.stararchive.personmonitor.service.PersonSearchService;
 import com.stararchive.personmonitor.service.PersonService;
+import com.stararchive.personmonitor.service.PersonTravelTimelineService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,6 +34,7 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -33,6 +48,11 @@ public class PersonController {
 
     private final PersonService personService;
     private final PersonPortraitService personPortraitService;
+    private final PersonSearchService personSearchService;
+    private final PersonIdentifierService personIdentifierService;
+    private final PersonGraphService personGraphService;
+    private final CoTravelService coTravelService;
+    private final PersonTravelTimelineService personTravelTimelineService;
     
     /**
      * 分页查询人员列表，支持按重点人员/机构/签证类型/所属群体筛选；支持标签 + 姓名/证件号检索（可同时使用）；按可见性过滤（公开档案或 X-Username 为创建人）
@@ -65,6 +85,28 @@ public class PersonController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
     
+    /**
+     * 输入联想：按前缀（汉字、原文或拼音 / 首字母）返回姓名、机构、标签候选，按可见性过滤（公开档案或 X-Username 为创建人）
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<PersonSuggestionDTO>>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(personSearchService.suggest(q, currentUser, limit)));
+    }
+
+    /**
+     * 按手机号、邮箱、护照号、社交账号批量反查人物（单次上限见 person.identifier.max-lookup-size），按可见性过滤
+     */
+    @PostMapping("/identifiers/lookup")
+    public ResponseEntity<ApiResponse<PersonIdentifierLookupResultDTO>> lookupIdentifiers(
+            @RequestBody PersonIdentifierLookupRequest request,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        PersonIdentifierLookupResultDTO result = personIdentifierService.lookup(request.getType(), request.getValues(), currentUser);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     /**
      * 根据标签查询人员（单个标签，兼容旧接口）
      */
@@ -168,6 +210,95 @@ public class PersonController {
         return ResponseEntity.ok(ApiResponse.success(list));
     }
 
+    /**
+     * 关系图：以该人物为起点的 k 跳邻域（关系来自各档案的关系人字段），按可见性过滤
+     */
+    @GetMapping("/{personId}/graph")
+    public ResponseEntity<ApiResponse<PersonGraphDTO>> getRelationGraph(
+            @PathVariable String personId,
+            @RequestParam(defaultValue = "2") int hops,
+            @RequestParam(defaultValue = "200") int limit,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(personGraphService.neighbourhood(personId, hops, limit, currentUser)));
+    }
+
+    /**
+     * 关系图：到另一人物的最短关系路径
+     */
+    @GetMapping("/{personId}/graph/path")
+    public ResponseEntity<ApiResponse<PersonGraphDTO>> getRelationPath(
+            @PathVariable String personId,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "4") int maxHops,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(personGraphService.shortestPath(personId, to, maxHops, currentUser)));
+    }
+
+    /**
+     * 关系图：与另一人物的共同联系人
+     */
+    @GetMapping("/{personId}/graph/common")
+    public ResponseEntity<ApiResponse<PersonGraphDTO>> getCommonContacts(
+            @PathVariable String personId,
+            @RequestParam String with,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(personGraphService.commonContacts(personId, with, currentUser)));
+    }
+
+    /**
+     * 行程时间线：按发生时间倒序游标翻页，可按时间范围过滤；翻页时把上一页的 nextCursor 原样传回 cursor
+     */
+    @GetMapping("/{personId}/travels")
+    public ResponseEntity<ApiResponse<PersonTravelTimelineDTO>> getTravelTimeline(
+            @PathVariable String personId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(
+                personTravelTimelineService.timeline(personId, startTime, endTime, cursor, size, currentUser)));
+    }
+
+    /**
+     * 行程统计：每月行程数（按类型拆分）与最常到达的城市
+     */
+    @GetMapping("/{personId}/travels/stats")
+    public ResponseEntity<ApiResponse<PersonTravelStatsDTO>> getTravelStats(
+            @PathVariable String personId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(defaultValue = "10") int top,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(
+                personTravelTimelineService.stats(personId, startTime, endTime, top, currentUser)));
+    }
+
+    /**
+     * 同行人：同车次/航班（SAME_TRIP）或同时段到达同城（SAME_CITY）的人物，按同行次数降序，按可见性过滤
+     */
+    @GetMapping("/{personId}/companions")
+    public ResponseEntity<ApiResponse<List<PersonCompanionDTO>>> getCompanions(
+            @PathVariable String personId,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "1") int minCount,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(coTravelService.companions(personId, type, minCount, limit, currentUser)));
+    }
+
+    /**
+     * 同行证据：与某同行人的每次同行及对应行程
+     */
+    @GetMapping("/{personId}/companions/{companionId}")
+    public ResponseEntity<ApiResponse<List<PersonCoTravelEvidenceDTO>>> getCoTravelEvidence(
+            @PathVariable String personId,
+            @PathVariable String companionId,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(coTravelService.evidence(personId, companionId, limit, currentUser)));
+    }
+
     /**
      * 获取智能画像（根据档案基本信息实时调用大模型生成，与档案融合使用同一大模型配置）。仅当档案对当前用户可见时可调用。
      */
@@ -188,6 +319,16 @@ public class PersonController {
             @RequestHeader(value = "X-Username", required = false) String currentUser) {
         return personPortraitService.generatePortraitAnalysisStream(personId, currentUser);
     }
+
+    /**
+     * 停止流式智能画像生成（前端关闭画像面板时调用）
+     */
+    @DeleteMapping("/{personId}/portrait-analysis/stream")
+    public ResponseEntity<ApiResponse<Boolean>> stopPortraitAnalysisStream(
+            @PathVariable String personId,
+            @RequestHeader(value = "X-Username", required = false) String currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(personPortraitService.stopStream(personId, currentUser)));
+    }
     
     /**
      * 获取标签树（明确 UTF-8 避免中文乱码）。
@@ -3,6 +3,7 @@ package com.stararchive.personmonitor.controller;
 import com.stararchive.personmonitor.common.ApiResponse;
 import com.stararchive.personmonitor.dto.*;
 import com.stararchive.personmonitor.service.QaDocumentService;
+import com.stararchive.personmonitor.service.QaIngestionPipeline;
 import com.stararchive.personmonitor.service.QaMessageService;
 import com.stararchive.personmonitor.service.QaSessionService;
 import com.stararchive.personmonitor.service.SmartQaChatService;
@@ -28,6 +29,7 @@ public class SmartQaController {
     private final QaSessionService qaSessionService;
     private final QaMessageService qaMessageService;
     private final SmartQaChatService smartQaChatService;
+    private final QaIngestionPipeline qaIngestionPipeline;
 
     // ==================== 文档 ====================
 
@@ -75,6 +77,12 @@ public class SmartQaController {
         return ResponseEntity.ok(ApiResponse.success(null));
     }
 
+    /** 文档入库流水线运行指标（本副本） */
+    @GetMapping("/ingestion/metrics")
+    public ResponseEntity<ApiResponse<QaIngestionMetricsDTO>> ingestionMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(qaIngestionPipeline.metrics()));
+    }
+
     // ==================== 会话 ====================
 
     @GetMapping("/sessions")
@@ -200,4 +208,21 @@ public class SmartQaController {
                 request.getContent(),
                 username);
     }
+
+    /**
+     * 停止会话中进行中的流式回复，已生成的内容保存为回复
+     */
+    @PostMapping("/sessions/{sessionId}/stop")
+    public ResponseEntity<ApiResponse<Boolean>> stopChat(
+            @RequestHeader(value = "X-Username", required = false) String username,
+            @PathVariable String sessionId) {
+        if (username == null || username.isBlank()) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("请先登录"));
+        }
+        try {
+            return ResponseEntity.ok(ApiResponse.success(smartQaChatService.stopStream(sessionId, username)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package com.stararchive.personmonitor.controller;
 
 import com.stararchive.personmonitor.common.ApiResponse;
+import com.stararchive.personmonitor.dto.LlmGatewayMetricsDTO;
 import com.stararchive.personmonitor.dto.SystemConfigDTO;
+import com.stararchive.personmonitor.service.LlmGatewayService;
 import com.stararchive.personmonitor.service.SeaweedFSService;
 import com.stararchive.personmonitor.service.SystemConfigService;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +26,7 @@ public class SystemConfigController {
 
     private final SystemConfigService systemConfigService;
     private final SeaweedFSService seaweedFSService;
+    private final LlmGatewayService llmGatewayService;
 
     /**
      * 获取公开配置（前端 Layout 使用，无需鉴权可放开）
@@ -49,6 +52,14 @@ public class SystemConfigController {
         return ResponseEntity.ok(ApiResponse.success(systemConfigService.updateConfig(dto)));
     }
 
+    /**
+     * 大模型网关运行指标（管理端）：按调用方的调用次数、耗时、Token、错误，及各端点熔断状态
+     */
+    @GetMapping("/llm-metrics")
+    public ResponseEntity<ApiResponse<LlmGatewayMetricsDTO>> getLlmMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(llmGatewayService.metrics()));
+    }
+
     /**
      * 上传系统 Logo 到 SeaweedFS（默认路径 archive-fusion/system/logo.{ext}），返回可用的 Logo URL。
      */
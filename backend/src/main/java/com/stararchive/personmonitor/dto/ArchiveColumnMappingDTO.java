@@ -0,0 +1,33 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表格列映射模板 DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveColumnMappingDTO {
+
+    /** 模板编号：规范化表头序列的 SHA-256 */
+    private String templateKey;
+    /** 表头列名序列 */
+    private List<String> headers;
+    /** 列名 → 人物字段（person-schema.json 字段名；_ignore 表示忽略该列；未出现的列交给大模型） */
+    private Map<String, String> mapping;
+    /** 是否为已保存的模板（false 表示自动识别结果） */
+    private Boolean saved;
+    /** 映射是否包含姓名列（包含时导入走列映射快速通道） */
+    private Boolean fastPathEligible;
+    private String creatorUsername;
+    private LocalDateTime updatedTime;
+}
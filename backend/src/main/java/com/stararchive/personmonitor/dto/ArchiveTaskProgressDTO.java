@@ -0,0 +1,28 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 档案融合任务实时进度（SSE 推送）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveTaskProgressDTO {
+
+    private String taskId;
+    private String status;
+    /** 待提取人物总数（Excel 流式读取过程中随读取行数增长） */
+    private Integer totalExtractCount;
+    /** 已提取人物数量 */
+    private Integer extractCount;
+    private String errorMessage;
+    private String creatorUsername;
+    private LocalDateTime updatedTime;
+}
@@ -0,0 +1,69 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 大模型网关运行指标：按调用方统计耗时、Token、错误、中止与对冲，按端点展示路由、健康、熔断状态与在途请求
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LlmGatewayMetricsDTO {
+
+    private List<CallerMetrics> callers;
+    private List<EndpointMetrics> endpoints;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class CallerMetrics {
+        /** 调用方，如 archive-extract、smart-qa */
+        private String caller;
+        private long calls;
+        private long errors;
+        /** 因熔断或端点繁忙被拒绝的调用数（已计入 errors） */
+        private long rejected;
+        /** 重试次数（不含首次） */
+        private long retries;
+        /** 发出的对冲请求数 */
+        private long hedges;
+        /** 对冲请求先于首个请求返回的次数 */
+        private long hedgeWins;
+        /** 调用方中止的调用数（前端断开、SSE 超时或主动停止，不计入 errors） */
+        private long aborted;
+        private long promptTokens;
+        private long completionTokens;
+        private long avgLatencyMs;
+        /** 最近若干次调用的 P95 耗时 */
+        private long p95LatencyMs;
+        private long maxLatencyMs;
+        private String lastError;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class EndpointMetrics {
+        /** 端点名称，system 为系统配置端点 */
+        private String name;
+        private String baseUrl;
+        private String model;
+        private int weight;
+        /** 显式服务的路由，为空表示兜底端点 */
+        private List<String> routes;
+        /** 最近一次健康检查或调用是否正常 */
+        private boolean healthy;
+        /** CLOSED / OPEN / HALF_OPEN */
+        private String breakerState;
+        private int consecutiveFailures;
+        private int inFlight;
+    }
+}
@@ -0,0 +1,32 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 新闻检索命中：新闻基本信息、相关度得分与高亮（命中词以 &lt;em&gt; 包裹，其余文本已做 HTML 转义）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NewsSearchHitDTO {
+
+    private String newsId;
+    private String mediaName;
+    private String title;
+    private LocalDateTime publishTime;
+    private String category;
+    private List<String> tags;
+    private String originalUrl;
+    /** BM25 得分 */
+    private double score;
+    private String highlightTitle;
+    /** 正文中首个命中附近的片段 */
+    private String highlightSnippet;
+}
@@ -0,0 +1,25 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 新闻检索结果：一页命中与下一页游标
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NewsSearchResultDTO {
+
+    private List<NewsSearchHitDTO> items;
+    /** 下一页游标，原样传回 cursor 参数；没有更多结果时为 null */
+    private String nextCursor;
+    private boolean hasMore;
+    /** 检索词切分后的词，用于前端自行高亮 */
+    private List<String> terms;
+}
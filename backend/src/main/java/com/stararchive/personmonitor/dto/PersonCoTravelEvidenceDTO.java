@@ -0,0 +1,26 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 同行证据：一次同行对应的两条行程
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonCoTravelEvidenceDTO {
+
+    /** SAME_TRIP / SAME_CITY */
+    private String coType;
+    private LocalDateTime occurTime;
+    /** 票据编号或到达城市 */
+    private String place;
+    private Long travelId;
+    private Long companionTravelId;
+}
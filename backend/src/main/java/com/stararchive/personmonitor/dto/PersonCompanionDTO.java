@@ -0,0 +1,26 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 同行人：与指定人物同车次/航班或同时段到达同城的人物及同行次数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonCompanionDTO {
+
+    private String personId;
+    private String name;
+    /** SAME_TRIP / SAME_CITY */
+    private String coType;
+    private int count;
+    private LocalDateTime firstTime;
+    private LocalDateTime lastTime;
+}
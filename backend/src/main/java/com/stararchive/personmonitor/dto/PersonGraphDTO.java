@@ -0,0 +1,46 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 人物关系子图：邻域、最短路径（节点按路径顺序）或共同联系人
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonGraphDTO {
+
+    private List<Node> nodes;
+    private List<Edge> edges;
+    /** 节点数达到上限被截断 */
+    private boolean truncated;
+
+    /** 关系图节点：外部联系人（关系人姓名未能唯一对应到档案）没有 personId，id 为 "~" + 规范化姓名（去空白、小写） */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Node {
+        private String id;
+        private String personId;
+        private String name;
+        private boolean external;
+        /** 距起点的跳数；共同联系人中两位查询人物为 0，联系人为 1 */
+        private int distance;
+    }
+
+    /** 关系图的边（无向） */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Edge {
+        private String from;
+        private String to;
+        private String relation;
+    }
+}
@@ -0,0 +1,18 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 人物标识批量反查请求：type 为空时按取值形态推断可能的标识类型
+ */
+@Data
+public class PersonIdentifierLookupRequest {
+
+    /** phone / email / passport / twitter / linkedin / facebook，可空 */
+    private String type;
+
+    /** 待反查的原始取值（手机号、邮箱、护照号、账号或主页链接） */
+    private List<String> values;
+}
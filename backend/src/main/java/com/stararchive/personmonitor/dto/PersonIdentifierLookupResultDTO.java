@@ -0,0 +1,21 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 人物标识批量反查结果：命中按请求顺序排列，未命中（含无法规范化）的取值单独列出
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonIdentifierLookupResultDTO {
+
+    private List<PersonIdentifierMatchDTO> matches;
+    private List<String> unmatched;
+}
@@ -0,0 +1,25 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 一条反查命中：原始取值按某一标识类型规范化后对应的可见人物
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonIdentifierMatchDTO {
+
+    /** 请求中的原始取值 */
+    private String value;
+    private String type;
+    /** 规范化后的标识（如 E.164 手机号、小写邮箱、账号名） */
+    private String identifier;
+    private List<String> personIds;
+}
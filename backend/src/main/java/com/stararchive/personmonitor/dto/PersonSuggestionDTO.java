@@ -0,0 +1,24 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 输入联想候选：类型为 name（对应单个人物）、organization 或 tag，权重越高越靠前
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonSuggestionDTO {
+
+    /** name / organization / tag */
+    private String type;
+    private String text;
+    /** 仅姓名候选有值 */
+    private String personId;
+    /** 姓名：重点人员为 2，其余为 1；机构 / 标签：引用的可见人数 */
+    private int weight;
+}
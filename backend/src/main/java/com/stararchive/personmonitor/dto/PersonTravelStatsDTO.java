@@ -0,0 +1,48 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 人物行程统计：总数与起止时间、每月行程数（按类型拆分）、最常到达的城市
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonTravelStatsDTO {
+
+    private long total;
+    private LocalDateTime firstTime;
+    private LocalDateTime lastTime;
+    /** 按月份升序，只含有行程的月份 */
+    private List<Month> months;
+    private List<Destination> topDestinations;
+
+    /** 某月行程数 */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Month {
+        /** yyyy-MM */
+        private String month;
+        private int count;
+        /** 行程类型 → 次数 */
+        private Map<String, Integer> byType;
+    }
+
+    /** 到达城市及次数 */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Destination {
+        private String city;
+        private int count;
+    }
+}
@@ -0,0 +1,23 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 人物行程时间线：一页行程（按发生时间倒序）与下一页游标
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonTravelTimelineDTO {
+
+    private List<PersonTravelDTO> items;
+    /** 下一页游标，原样传回 cursor 参数；没有更多行程时为 null */
+    private String nextCursor;
+    private boolean hasMore;
+}
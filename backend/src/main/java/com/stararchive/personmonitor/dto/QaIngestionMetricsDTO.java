@@ -0,0 +1,44 @@
+package com.stararchive.personmonitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 智能问答文档入库流水线运行指标：按阶段统计吞吐、耗时与队列积压，按文档统计完成情况
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QaIngestionMetricsDTO {
+
+    private long submittedDocuments;
+    private long readyDocuments;
+    private long failedDocuments;
+    /** 已进入流水线尚未结束的文档数 */
+    private long inProgressDocuments;
+    private long persistedChunks;
+    private List<StageMetrics> stages;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class StageMetrics {
+        /** download / parse / chunk / embed / persist */
+        private String stage;
+        private int workers;
+        /** 当前在该阶段输入队列中等待的任务数 */
+        private int queued;
+        private long processed;
+        private long failed;
+        /** 单个任务平均处理耗时 */
+        private long avgMs;
+        /** 按工作线程忙碌时间折算的吞吐（任务/秒/线程） */
+        private double throughputPerSecond;
+    }
+}
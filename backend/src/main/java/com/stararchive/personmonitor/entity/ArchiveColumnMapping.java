@@ -0,0 +1,43 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 表格列映射模板实体（Excel/CSV 表头 → 人物字段），按规范化表头序列区分模板
+ */
+@Entity
+@Table(name = "archive_column_mapping")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveColumnMapping {
+
+    /** 模板编号：规范化表头序列的 SHA-256 */
+    @Id
+    @Column(name = "template_key", length = 64, nullable = false)
+    private String templateKey;
+
+    /** 表头列名序列（JSON 数组） */
+    @Column(name = "header_signature", columnDefinition = "TEXT")
+    private String headerSignature;
+
+    /** 列映射 JSON：{"列名":"人物字段"} */
+    @Column(name = "mapping_json", columnDefinition = "TEXT")
+    private String mappingJson;
+
+    @Column(name = "creator_username", length = 200)
+    private String creatorUsername;
+
+    @Column(name = "created_time")
+    private LocalDateTime createdTime;
+
+    @Column(name = "updated_time")
+    private LocalDateTime updatedTime;
+}
@@ -0,0 +1,47 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 大模型抽取结果缓存实体：按（文本哈希、提示词指纹、Schema 指纹、模型）复用已抽取的人物 JSON
+ */
+@Entity
+@Table(name = "archive_extract_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveExtractCache {
+
+    /** 缓存键：SHA-256(text_hash|prompt_version|schema_version|model) */
+    @Id
+    @Column(name = "cache_key", length = 64, nullable = false)
+    private String cacheKey;
+
+    @Column(name = "text_hash", length = 64)
+    private String textHash;
+
+    /** 提示词指纹：系统提示词、参考标签表与文件名的 SHA-256 */
+    @Column(name = "prompt_version", length = 64)
+    private String promptVersion;
+
+    /** 人物 JSON Schema 内容 SHA-256 */
+    @Column(name = "schema_version", length = 64)
+    private String schemaVersion;
+
+    @Column(name = "model", length = 200)
+    private String model;
+
+    /** 大模型抽取的人物 JSON */
+    @Column(name = "result_json", columnDefinition = "TEXT")
+    private String resultJson;
+
+    @Column(name = "created_time")
+    private LocalDateTime createdTime;
+}
@@ -59,4 +59,8 @@ public class ArchiveExtractResult {
 
     @Column(name = "created_time")
     private LocalDateTime createdTime;
+
+    /** 来源数据行号（表格从 1 开始，文档为 1），断点续跑时跳过已有结果的行 */
+    @Column(name = "source_row_index")
+    private Integer sourceRowIndex;
 }
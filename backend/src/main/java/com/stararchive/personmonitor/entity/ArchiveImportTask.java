@@ -69,4 +69,20 @@ public class ArchiveImportTask {
     /** 相似档案判定使用的属性组合，逗号分隔，如 originalName,birthDate,gender,nationality；为空时默认四者均参与 */
     @Column(name = "similar_match_fields", length = 500)
     private String similarMatchFields;
+
+    /** 文件内容 SHA-256：相同内容的文件复用已上传的 SeaweedFS 路径 */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /** 断点：已处理的数据行数（含未提取到人物的行），进程重启后从下一行继续 */
+    @Column(name = "processed_row_count")
+    private Integer processedRowCount;
+
+    /** 工作队列租约持有实例；仅由租约语句（领取/续约/释放）写入，实体保存不覆盖 */
+    @Column(name = "lease_owner", length = 200, insertable = false, updatable = false)
+    private String leaseOwner;
+
+    /** 租约到期时间；到期未续约的任务可被其他实例领取 */
+    @Column(name = "lease_expire_time", insertable = false, updatable = false)
+    private LocalDateTime leaseExpireTime;
 }
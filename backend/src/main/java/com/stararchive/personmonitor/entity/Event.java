@@ -20,6 +20,9 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Event {
 
+    public static final String STATUS_OPEN = "OPEN";
+    public static final String STATUS_CLOSED = "CLOSED";
+
     @Id
     @Column(name = "event_id", length = 64, nullable = false)
     private String eventId;
@@ -42,6 +45,10 @@ public class Event {
     @Column(name = "last_publish_time")
     private LocalDateTime lastPublishTime;
 
+    /** 聚合状态：OPEN 仍接收新新闻，CLOSED 或空为已关闭 */
+    @Column(name = "status", length = 20)
+    private String status;
+
     @Column(name = "created_time")
     private LocalDateTime createdTime;
 
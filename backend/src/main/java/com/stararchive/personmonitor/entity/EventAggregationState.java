@@ -0,0 +1,38 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 事件增量聚合状态：新闻入库水位 (watermarkTime, watermarkNewsId) 与单副本执行租约
+ */
+@Entity
+@Table(name = "event_aggregation_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventAggregationState {
+
+    @Id
+    @Column(name = "state_key", length = 64, nullable = false)
+    private String stateKey;
+
+    @Column(name = "watermark_time")
+    private LocalDateTime watermarkTime;
+
+    @Column(name = "watermark_news_id", length = 64)
+    private String watermarkNewsId;
+
+    @Column(name = "lease_owner", length = 200)
+    private String leaseOwner;
+
+    @Column(name = "lease_expire_time")
+    private LocalDateTime leaseExpireTime;
+
+    @Column(name = "updated_time")
+    private LocalDateTime updatedTime;
+}
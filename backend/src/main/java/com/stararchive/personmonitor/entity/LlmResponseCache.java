@@ -0,0 +1,52 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 大模型响应缓存实体：按（调用方、模型、提示词指纹、输入指纹）复用确定性调用的响应
+ */
+@Entity
+@Table(name = "llm_response_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LlmResponseCache {
+
+    /** 缓存键：SHA-256(caller|model|prompt_hash|input_hash) */
+    @Id
+    @Column(name = "cache_key", length = 64, nullable = false)
+    private String cacheKey;
+
+    /** 调用方，如 text2sql、event-summary */
+    @Column(name = "caller", length = 64)
+    private String caller;
+
+    /** 失效范围，如 news:{newsId}、rule:{规则指纹}；同一范围仅保留最新一条 */
+    @Column(name = "scope_key", length = 200)
+    private String scopeKey;
+
+    @Column(name = "model", length = 200)
+    private String model;
+
+    @Column(name = "prompt_hash", length = 64)
+    private String promptHash;
+
+    @Column(name = "input_hash", length = 64)
+    private String inputHash;
+
+    @Column(name = "response", columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_time")
+    private LocalDateTime createdTime;
+
+    @Column(name = "expire_time")
+    private LocalDateTime expireTime;
+}
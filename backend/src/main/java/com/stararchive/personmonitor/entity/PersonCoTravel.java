@@ -0,0 +1,58 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 人物同行证据：同一车次/航班或时间窗内到达同一城市的两条行程，(A, B) 与 (B, A) 各存一行
+ */
+@Entity
+@Table(name = "person_co_travel")
+@IdClass(PersonCoTravelId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonCoTravel implements Serializable {
+
+    public static final String TYPE_SAME_TRIP = "SAME_TRIP";
+    public static final String TYPE_SAME_CITY = "SAME_CITY";
+
+    @Id
+    @Column(name = "person_id", length = 200, nullable = false)
+    private String personId;
+
+    @Id
+    @Column(name = "companion_id", length = 200, nullable = false)
+    private String companionId;
+
+    /** SAME_TRIP / SAME_CITY */
+    @Id
+    @Column(name = "co_type", length = 20, nullable = false)
+    private String coType;
+
+    /** SAME_TRIP：行程类型|票据编号|日期；SAME_CITY：城市|较小行程ID|较大行程ID */
+    @Id
+    @Column(name = "occur_key", length = 500, nullable = false)
+    private String occurKey;
+
+    @Column(name = "occur_time", nullable = false)
+    private LocalDateTime occurTime;
+
+    @Column(name = "travel_id")
+    private Long travelId;
+
+    @Column(name = "companion_travel_id")
+    private Long companionTravelId;
+
+    /** 票据编号或到达城市 */
+    @Column(name = "place", length = 300)
+    private String place;
+
+    @Column(name = "created_time")
+    private LocalDateTime createdTime;
+}
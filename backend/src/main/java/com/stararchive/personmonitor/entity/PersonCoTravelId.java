@@ -0,0 +1,21 @@
+package com.stararchive.personmonitor.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 人物同行证据表复合主键
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonCoTravelId implements Serializable {
+
+    private String personId;
+    private String companionId;
+    private String coType;
+    private String occurKey;
+}
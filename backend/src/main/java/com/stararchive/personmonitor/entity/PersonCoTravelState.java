@@ -0,0 +1,38 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 人物同行检测状态：行程入库水位 (watermarkTime, watermarkTravelId) 与单副本执行租约
+ */
+@Entity
+@Table(name = "person_co_travel_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonCoTravelState {
+
+    @Id
+    @Column(name = "state_key", length = 64, nullable = false)
+    private String stateKey;
+
+    @Column(name = "watermark_time")
+    private LocalDateTime watermarkTime;
+
+    @Column(name = "watermark_travel_id")
+    private Long watermarkTravelId;
+
+    @Column(name = "lease_owner", length = 200)
+    private String leaseOwner;
+
+    @Column(name = "lease_expire_time")
+    private LocalDateTime leaseExpireTime;
+
+    @Column(name = "updated_time")
+    private LocalDateTime updatedTime;
+}
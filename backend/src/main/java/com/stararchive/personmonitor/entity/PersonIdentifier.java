@@ -0,0 +1,43 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 人物标识反查：规范化后的手机号、邮箱、护照号、社交账号 → 人物，公开性与创建人冗余自 person
+ */
+@Entity
+@Table(name = "person_identifier")
+@IdClass(PersonIdentifierId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonIdentifier implements Serializable {
+
+    @Id
+    @Column(name = "identifier", length = 320, nullable = false)
+    private String identifier;
+
+    /** phone / email / passport / twitter / linkedin / facebook */
+    @Id
+    @Column(name = "id_type", length = 20, nullable = false)
+    private String idType;
+
+    @Id
+    @Column(name = "person_id", length = 200, nullable = false)
+    private String personId;
+
+    @Column(name = "is_public")
+    private Boolean isPublic;
+
+    @Column(name = "created_by", length = 100)
+    private String createdBy;
+
+    @Column(name = "updated_time")
+    private LocalDateTime updatedTime;
+}
@@ -0,0 +1,20 @@
+package com.stararchive.personmonitor.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 人物标识反查表复合主键
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonIdentifierId implements Serializable {
+
+    private String identifier;
+    private String idType;
+    private String personId;
+}
@@ -0,0 +1,51 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 智能画像结果实体：按（人物、档案版本、提示词版本）保存，档案内容或提示词变化后旧画像不再使用
+ */
+@Entity
+@Table(name = "person_portrait")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PersonPortrait {
+
+    /** 主键：SHA-256(person_id|person_version|prompt_version) */
+    @Id
+    @Column(name = "portrait_id", length = 64, nullable = false)
+    private String portraitId;
+
+    @Column(name = "person_id", length = 200)
+    private String personId;
+
+    /** 档案版本：组装后的人物基本信息 SHA-256，与画像无关的字段（如头像）变化不影响 */
+    @Column(name = "person_version", length = 64)
+    private String personVersion;
+
+    /** 提示词版本：画像系统提示词 SHA-256 */
+    @Column(name = "prompt_version", length = 64)
+    private String promptVersion;
+
+    /** 生成画像所用模型（仅记录，不参与版本判断） */
+    @Column(name = "model", length = 200)
+    private String model;
+
+    @Column(name = "content", columnDefinition = "TEXT")
+    private String content;
+
+    /** 生成来源：ON_DEMAND（用户查看时生成）、PREGEN（后台预生成） */
+    @Column(name = "source", length = 20)
+    private String source;
+
+    @Column(name = "generated_time")
+    private LocalDateTime generatedTime;
+}
@@ -0,0 +1,32 @@
+package com.stararchive.personmonitor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 智能问答 - 会话滚动摘要：会话中最早的 summarizedCount 条消息已折叠进 summary
+ */
+@Entity
+@Table(name = "qa_session_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QaSessionSummary {
+
+    @Id
+    @Column(name = "session_id", length = 64, nullable = false)
+    private String sessionId;
+
+    @Column(name = "summary", columnDefinition = "TEXT")
+    private String summary;
+
+    @Column(name = "summarized_count")
+    private Integer summarizedCount;
+
+    @Column(name = "updated_time")
+    private LocalDateTime updatedTime;
+}
@@ -0,0 +1,16 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.ArchiveColumnMapping;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 表格列映射模板数据访问接口
+ */
+@Repository
+public interface ArchiveColumnMappingRepository extends JpaRepository<ArchiveColumnMapping, String> {
+
+    List<ArchiveColumnMapping> findAllByOrderByUpdatedTimeDesc();
+}
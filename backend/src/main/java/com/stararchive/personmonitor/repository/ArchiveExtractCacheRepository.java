@@ -0,0 +1,12 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.ArchiveExtractCache;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 大模型抽取结果缓存数据访问接口
+ */
+@Repository
+public interface ArchiveExtractCacheRepository extends JpaRepository<ArchiveExtractCache, String> {
+}
@@ -28,4 +28,14 @@ public interface ArchiveExtractResultRepository extends JpaRepository<ArchiveExt
     /** 统计某任务下未导入的条数 */
     @Query("SELECT COUNT(r) FROM ArchiveExtractResult r WHERE r.taskId = :taskId AND (r.imported IS NULL OR r.imported = false)")
     long countByTaskIdAndImportedFalse(@Param("taskId") String taskId);
+
+    /** 某任务已有提取结果的来源行号（断点续跑时跳过） */
+    @Query("SELECT r.sourceRowIndex FROM ArchiveExtractResult r WHERE r.taskId = :taskId AND r.sourceRowIndex IS NOT NULL")
+    List<Integer> findSourceRowIndexesByTaskId(@Param("taskId") String taskId);
+
+    /** 某任务当前最大 extractIndex，无结果时为 null */
+    @Query("SELECT MAX(r.extractIndex) FROM ArchiveExtractResult r WHERE r.taskId = :taskId")
+    Integer findMaxExtractIndexByTaskId(@Param("taskId") String taskId);
+
+    long countByTaskId(String taskId);
 }
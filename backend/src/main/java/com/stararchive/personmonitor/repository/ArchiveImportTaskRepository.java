@@ -4,7 +4,16 @@ import com.stararchive.personmonitor.entity.ArchiveImportTask;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * 档案导入任务数据访问接口
@@ -26,4 +35,73 @@ public interface ArchiveImportTaskRepository extends JpaRepository<ArchiveImport
      * 分页查询全部任务，按创建时间倒序
      */
     Page<ArchiveImportTask> findAllByOrderByCreatedTimeDesc(Pageable pageable);
+
+    /**
+     * 按文件内容哈希查找最近一个已上传文件的任务（相同内容复用 SeaweedFS 文件）
+     */
+    Optional<ArchiveImportTask> findFirstByContentHashAndFilePathIdIsNotNullOrderByCreatedTimeDesc(String contentHash);
+
+    /**
+     * 工作队列候选：指定状态的任务按创建时间正序（含其他实例持有租约的任务，用于按用户统计在执行数）
+     */
+    List<ArchiveImportTask> findByStatusInOrderByCreatedTimeAsc(Collection<String> statuses, Pageable pageable);
+
+    /**
+     * 指定用户、指定状态的任务（进度推送按订阅用户同步其他实例执行中的任务）
+     */
+    List<ArchiveImportTask> findByCreatorUsernameAndStatusIn(String creatorUsername, Collection<String> statuses);
+
+    /**
+     * 领取租约：任务无租约、租约已过期或本实例已持有时写入租约，返回更新行数。
+     * 并发领取以最后写入为准，领取方需再读取 {@link #findLeaseOwner} 确认。
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ArchiveImportTask t SET t.leaseOwner = :owner, t.leaseExpireTime = :expire "
+            + "WHERE t.taskId = :taskId AND (t.leaseExpireTime IS NULL OR t.leaseExpireTime < :now OR t.leaseOwner = :owner)")
+    int tryAcquireLease(@Param("taskId") String taskId, @Param("owner") String owner,
+                        @Param("now") LocalDateTime now, @Param("expire") LocalDateTime expire);
+
+    /** 续约：仅当租约仍由 owner 持有时延长到期时间，返回 0 表示租约已被其他实例领取 */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ArchiveImportTask t SET t.leaseExpireTime = :expire WHERE t.taskId = :taskId AND t.leaseOwner = :owner")
+    int renewLease(@Param("taskId") String taskId, @Param("owner") String owner, @Param("expire") LocalDateTime expire);
+
+    /** 释放租约：任务执行结束（完成、失败或中止）后清空租约 */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ArchiveImportTask t SET t.leaseOwner = NULL, t.leaseExpireTime = NULL WHERE t.taskId = :taskId AND t.leaseOwner = :owner")
+    int releaseLease(@Param("taskId") String taskId, @Param("owner") String owner);
+
+    /**
+     * 提取进度写库：只更新进度列，不用读取时的实体快照整行覆盖；已处理行数只增不减，totalExtractCount 为空时保留原值
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ArchiveImportTask t SET t.extractCount = :extractCount, "
+            + "t.totalExtractCount = COALESCE(:totalExtractCount, t.totalExtractCount), "
+            + "t.processedRowCount = CASE WHEN t.processedRowCount IS NULL OR t.processedRowCount < :processedRows "
+            + "THEN :processedRows ELSE t.processedRowCount END, "
+            + "t.updatedTime = :updatedTime WHERE t.taskId = :taskId")
+    int updateProgress(@Param("taskId") String taskId, @Param("extractCount") Integer extractCount,
+                       @Param("totalExtractCount") Integer totalExtractCount, @Param("processedRows") int processedRows,
+                       @Param("updatedTime") LocalDateTime updatedTime);
+
+    /**
+     * 提取流程的状态写库（开始提取、完成、失败）：只更新状态、原文与进度列，租约列由租约语句单独维护
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ArchiveImportTask t SET t.status = :status, t.errorMessage = :errorMessage, t.originalText = :originalText, "
+            + "t.extractCount = :extractCount, t.totalExtractCount = :totalExtractCount, t.processedRowCount = :processedRowCount, "
+            + "t.updatedTime = :updatedTime, t.completedTime = :completedTime WHERE t.taskId = :taskId")
+    int updateExtractState(@Param("taskId") String taskId, @Param("status") String status,
+                           @Param("errorMessage") String errorMessage, @Param("originalText") String originalText,
+                           @Param("extractCount") Integer extractCount, @Param("totalExtractCount") Integer totalExtractCount,
+                           @Param("processedRowCount") Integer processedRowCount,
+                           @Param("updatedTime") LocalDateTime updatedTime, @Param("completedTime") LocalDateTime completedTime);
+
+    @Query("SELECT t.leaseOwner FROM ArchiveImportTask t WHERE t.taskId = :taskId")
+    String findLeaseOwner(@Param("taskId") String taskId);
 }
@@ -0,0 +1,48 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.EventAggregationState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 事件增量聚合状态数据访问
+ */
+@Repository
+public interface EventAggregationStateRepository extends JpaRepository<EventAggregationState, String> {
+
+    /**
+     * 领取或续约：租约为空、已过期或本就由 owner 持有时写入 owner 与新的到期时间。
+     * 并发领取以最后写入为准，领取方需再读取 {@link #findLeaseOwner} 确认。
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE EventAggregationState s SET s.leaseOwner = :owner, s.leaseExpireTime = :expire "
+            + "WHERE s.stateKey = :stateKey AND (s.leaseExpireTime IS NULL OR s.leaseExpireTime < :now OR s.leaseOwner = :owner)")
+    int tryAcquireLease(@Param("stateKey") String stateKey, @Param("owner") String owner,
+                        @Param("now") LocalDateTime now, @Param("expire") LocalDateTime expire);
+
+    @Query("SELECT s.leaseOwner FROM EventAggregationState s WHERE s.stateKey = :stateKey")
+    String findLeaseOwner(@Param("stateKey") String stateKey);
+
+    /** 推进水位：仅当租约仍由 owner 持有时写入，返回 0 表示租约已被其他实例领取 */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE EventAggregationState s SET s.watermarkTime = :watermarkTime, s.watermarkNewsId = :watermarkNewsId, "
+            + "s.updatedTime = :now WHERE s.stateKey = :stateKey AND s.leaseOwner = :owner")
+    int advanceWatermark(@Param("stateKey") String stateKey, @Param("owner") String owner,
+                         @Param("watermarkTime") LocalDateTime watermarkTime,
+                         @Param("watermarkNewsId") String watermarkNewsId, @Param("now") LocalDateTime now);
+
+    /** 释放租约：停机时清空，其他实例无需等待到期即可接手 */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE EventAggregationState s SET s.leaseOwner = NULL, s.leaseExpireTime = NULL "
+            + "WHERE s.stateKey = :stateKey AND s.leaseOwner = :owner")
+    int releaseLease(@Param("stateKey") String stateKey, @Param("owner") String owner);
+}
@@ -7,19 +7,25 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
  * 事件-新闻关联表数据访问
  */
 @Repository
-public interface EventNewsRepository extends JpaRepository<EventNews, EventNewsId> {
+public interface EventNewsRepository extends JpaRepository<EventNews, EventNewsId>, EventNewsRepositoryCustom {
 
     List<EventNews> findByEventIdOrderByPublishTimeDesc(String eventId);
 
     @Query("SELECT en.newsId FROM EventNews en WHERE en.eventId = :eventId")
     List<String> findNewsIdsByEventId(@Param("eventId") String eventId);
 
-    @Query("SELECT en.newsId FROM EventNews en")
-    List<String> findAllNewsIdsInEvents();
+    /** 给定新闻中已归入事件的新闻编号（按批检查，不加载全表） */
+    @Query("SELECT DISTINCT en.newsId FROM EventNews en WHERE en.newsId IN :newsIds")
+    List<String> findNewsIdsInEvents(@Param("newsIds") Collection<String> newsIds);
+
+    /** 给定事件已关联的新闻数，返回 [eventId, count]（聚合时按关联表重算 news_count） */
+    @Query("SELECT en.eventId, COUNT(en) FROM EventNews en WHERE en.eventId IN :eventIds GROUP BY en.eventId")
+    List<Object[]> countByEventIds(@Param("eventIds") Collection<String> eventIds);
 }
@@ -0,0 +1,18 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.EventNews;
+
+import java.util.List;
+
+/**
+ * 事件-新闻关联表数据访问扩展：JDBC 批量写入
+ */
+public interface EventNewsRepositoryCustom {
+
+    /**
+     * 以 JDBC batch 写入关联（不经 JPA merge）；event_news 为 Unique Key 模型，重复写入同一关联即覆盖
+     *
+     * @return 写入条数
+     */
+    int upsertBatch(List<EventNews> links);
+}
@@ -0,0 +1,34 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.EventNews;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * 事件-新闻关联表数据访问扩展实现：配合连接参数 rewriteBatchedStatements=true 合并为多值 INSERT
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventNewsRepositoryImpl implements EventNewsRepositoryCustom {
+
+    private static final String UPSERT_SQL = "INSERT INTO event_news (event_id, news_id, publish_time, created_time)"
+            + " VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int upsertBatch(List<EventNews> links) {
+        if (links == null || links.isEmpty()) return 0;
+        jdbcTemplate.batchUpdate(UPSERT_SQL, links, links.size(), (ps, l) -> {
+            ps.setString(1, l.getEventId());
+            ps.setString(2, l.getNewsId());
+            ps.setTimestamp(3, l.getPublishTime() != null ? Timestamp.valueOf(l.getPublishTime()) : null);
+            ps.setTimestamp(4, l.getCreatedTime() != null ? Timestamp.valueOf(l.getCreatedTime()) : null);
+        });
+        return links.size();
+    }
+}
@@ -6,11 +6,16 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * 事件表数据访问
  */
 @Repository
-public interface EventRepository extends JpaRepository<Event, String> {
+public interface EventRepository extends JpaRepository<Event, String>, EventRepositoryCustom {
 
     Page<Event> findAll(Pageable pageable);
+
+    /** 按聚合状态查询（增量聚合启动时加载仍在接收新闻的事件） */
+    List<Event> findByStatus(String status);
 }
@@ -0,0 +1,18 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.Event;
+
+import java.util.List;
+
+/**
+ * 事件表数据访问扩展：JDBC 批量写入
+ */
+public interface EventRepositoryCustom {
+
+    /**
+     * 以 JDBC batch 写入整行（不经 JPA merge，不逐条查询是否存在）；event 为 Unique Key 模型，同主键写入即覆盖
+     *
+     * @return 写入条数
+     */
+    int upsertBatch(List<Event> events);
+}
@@ -0,0 +1,47 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.Event;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 事件表数据访问扩展实现：配合连接参数 rewriteBatchedStatements=true 合并为多值 INSERT
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventRepositoryImpl implements EventRepositoryCustom {
+
+    private static final String UPSERT_SQL = "INSERT INTO event (event_id, title, summary, event_date, news_count,"
+            + " first_publish_time, last_publish_time, status, created_time, updated_time)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int upsertBatch(List<Event> events) {
+        if (events == null || events.isEmpty()) return 0;
+        jdbcTemplate.batchUpdate(UPSERT_SQL, events, events.size(), (ps, e) -> {
+            ps.setString(1, e.getEventId());
+            ps.setString(2, e.getTitle());
+            ps.setString(3, e.getSummary());
+            ps.setDate(4, e.getEventDate() != null ? Date.valueOf(e.getEventDate()) : null);
+            ps.setObject(5, e.getNewsCount());
+            ps.setTimestamp(6, timestamp(e.getFirstPublishTime()));
+            ps.setTimestamp(7, timestamp(e.getLastPublishTime()));
+            ps.setString(8, e.getStatus());
+            ps.setTimestamp(9, timestamp(e.getCreatedTime()));
+            ps.setTimestamp(10, timestamp(e.getUpdatedTime()));
+        });
+        return events.size();
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+}
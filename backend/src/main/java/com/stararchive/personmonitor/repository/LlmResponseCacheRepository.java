@@ -0,0 +1,28 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.LlmResponseCache;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 大模型响应缓存数据访问接口
+ */
+@Repository
+public interface LlmResponseCacheRepository extends JpaRepository<LlmResponseCache, String> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LlmResponseCache c WHERE c.scopeKey = :scopeKey")
+    int deleteByScopeKey(@Param("scopeKey") String scopeKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LlmResponseCache c WHERE c.expireTime < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
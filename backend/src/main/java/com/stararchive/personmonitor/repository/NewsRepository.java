@@ -15,7 +15,7 @@ import java.util.List;
  * 新闻数据访问接口
  */
 @Repository
-public interface NewsRepository extends JpaRepository<News, String> {
+public interface NewsRepository extends JpaRepository<News, String>, NewsRepositoryCustom {
     
     /**
      * 分页查询新闻(按发布时间倒序)
@@ -34,17 +34,32 @@ public interface NewsRepository extends JpaRepository<News, String> {
     long countByPublishTimeBetween(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
     
     /**
-     * 关键词搜索新闻
+     * 关键词搜索新闻（标题或正文倒排索引 MATCH_PHRASE：关键词分词后须在同一字段中相邻出现，
+     * 与原先的 LIKE 子串匹配一样随关键词变长而收窄；按发布时间倒序，Pageable 不带排序）
      */
-    @Query("SELECT n FROM News n WHERE n.title LIKE CONCAT('%', :keyword, '%') OR n.content LIKE CONCAT('%', :keyword, '%') ORDER BY n.publishTime DESC")
+    @Query(value = "SELECT * FROM news WHERE title MATCH_PHRASE :keyword OR content MATCH_PHRASE :keyword ORDER BY publish_time DESC",
+            countQuery = "SELECT COUNT(*) FROM news WHERE title MATCH_PHRASE :keyword OR content MATCH_PHRASE :keyword",
+            nativeQuery = true)
     Page<News> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
 
     /**
-     * 按分类 + 关键词筛选新闻（分类与关键词同时生效）
+     * 按分类 + 关键词筛选新闻（分类与关键词同时生效，关键词同上用 MATCH_PHRASE；Pageable 不带排序）
      */
-    @Query("SELECT n FROM News n WHERE n.category = :category AND (n.title LIKE CONCAT('%', :keyword, '%') OR n.content LIKE CONCAT('%', :keyword, '%')) ORDER BY n.publishTime DESC")
+    @Query(value = "SELECT * FROM news WHERE category = :category AND (title MATCH_PHRASE :keyword OR content MATCH_PHRASE :keyword) ORDER BY publish_time DESC",
+            countQuery = "SELECT COUNT(*) FROM news WHERE category = :category AND (title MATCH_PHRASE :keyword OR content MATCH_PHRASE :keyword)",
+            nativeQuery = true)
     Page<News> findByCategoryAndKeyword(@Param("category") String category, @Param("keyword") String keyword, Pageable pageable);
 
     /** 指定时间及之后发布的新闻（用于事件提取：未入事件的新闻） */
     List<News> findByPublishTimeGreaterThanEqualOrderByPublishTimeAsc(LocalDateTime since);
+
+    /**
+     * 按入库时间游标分页（事件增量聚合）：入库时间在 (afterTime, afterId) 之后且不晚于 until 的新闻，
+     * 按 (created_time, news_id) 升序
+     */
+    @Query(value = "SELECT * FROM news WHERE created_time <= :until "
+            + "AND (created_time > :afterTime OR (created_time = :afterTime AND news_id > :afterId)) "
+            + "ORDER BY created_time ASC, news_id ASC LIMIT :limit", nativeQuery = true)
+    List<News> findCreatedAfter(@Param("afterTime") LocalDateTime afterTime, @Param("afterId") String afterId,
+                                @Param("until") LocalDateTime until, @Param("limit") int limit);
 }
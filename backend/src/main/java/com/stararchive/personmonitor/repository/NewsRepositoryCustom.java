@@ -0,0 +1,34 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.News;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 新闻数据访问扩展：基于 Doris 倒排索引的全文检索
+ */
+public interface NewsRepositoryCustom {
+
+    /**
+     * 标题或正文命中关键词的新闻，按 (publish_time, news_id) 倒序
+     *
+     * @param keyword    检索词，由 Doris 按索引的中文分词器切词
+     * @param phrase     true 用 MATCH_PHRASE（词序相邻），false 用 MATCH_ANY（任一词命中）
+     * @param category   分类，为空不过滤
+     * @param startTime  发布时间下界（含），为空不过滤
+     * @param endTime    发布时间上界（含），为空不过滤
+     * @param beforeTime 游标：只取排在 (beforeTime, beforeId) 之后的新闻，为空从头开始
+     * @param beforeId   游标中的新闻编号
+     * @param limit      最大条数
+     */
+    List<News> searchMatching(String keyword, boolean phrase, String category,
+                              LocalDateTime startTime, LocalDateTime endTime,
+                              LocalDateTime beforeTime, String beforeId, int limit);
+
+    /** 标题或正文包含该词的新闻数（BM25 的文档频率） */
+    long countMatching(String term);
+
+    /** 用与新闻索引相同的中文分词器切词（Doris TOKENIZE） */
+    List<String> tokenize(String text);
+}
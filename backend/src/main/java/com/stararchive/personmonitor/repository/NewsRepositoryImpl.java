@@ -0,0 +1,78 @@
+package com.stararchive.personmonitor.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.entity.News;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 新闻数据访问扩展实现：MATCH_ANY / MATCH_PHRASE 走 title、content 上的中文倒排索引，发布时间条件可裁剪分区
+ */
+@Repository
+public class NewsRepositoryImpl implements NewsRepositoryCustom {
+
+    /** 与 01-init-schema.sql 中 idx_title / idx_content 的分词配置一致 */
+    private static final String TOKENIZE_PROPERTIES = "\"parser\"=\"chinese\",\"parser_mode\"=\"fine_grained\"";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<News> searchMatching(String keyword, boolean phrase, String category,
+                                     LocalDateTime startTime, LocalDateTime endTime,
+                                     LocalDateTime beforeTime, String beforeId, int limit) {
+        String op = phrase ? "MATCH_PHRASE" : "MATCH_ANY";
+        List<String> conditions = new ArrayList<>();
+        conditions.add("(title " + op + " :keyword OR content " + op + " :keyword)");
+        if (category != null) conditions.add("category = :category");
+        if (startTime != null) conditions.add("publish_time >= :startTime");
+        if (endTime != null) conditions.add("publish_time <= :endTime");
+        if (beforeTime != null) {
+            conditions.add("(publish_time < :beforeTime OR (publish_time = :beforeTime AND news_id < :beforeId))");
+        }
+        String sql = "SELECT * FROM news WHERE " + String.join(" AND ", conditions)
+                + " ORDER BY publish_time DESC, news_id DESC LIMIT " + Math.max(1, limit);
+        Query query = entityManager.createNativeQuery(sql, News.class);
+        query.setParameter("keyword", keyword);
+        if (category != null) query.setParameter("category", category);
+        if (startTime != null) query.setParameter("startTime", startTime);
+        if (endTime != null) query.setParameter("endTime", endTime);
+        if (beforeTime != null) {
+            query.setParameter("beforeTime", beforeTime);
+            query.setParameter("beforeId", beforeId != null ? beforeId : "");
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public long countMatching(String term) {
+        Query query = entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM news WHERE title MATCH_ANY :term OR content MATCH_ANY :term");
+        query.setParameter("term", term);
+        Object result = query.getSingleResult();
+        return result instanceof Number n ? n.longValue() : 0L;
+    }
+
+    @Override
+    public List<String> tokenize(String text) {
+        Query query = entityManager.createNativeQuery("SELECT TOKENIZE(:text, '" + TOKENIZE_PROPERTIES + "')");
+        query.setParameter("text", text);
+        Object result = query.getSingleResult();
+        if (result == null) return List.of();
+        try {
+            return objectMapper.readValue(result.toString(), new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("TOKENIZE 结果无法解析: " + result, e);
+        }
+    }
+}
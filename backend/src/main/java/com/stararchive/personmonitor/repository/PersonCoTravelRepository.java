@@ -0,0 +1,35 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.PersonCoTravel;
+import com.stararchive.personmonitor.entity.PersonCoTravelId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 人物同行证据与同行次数数据访问
+ */
+@Repository
+public interface PersonCoTravelRepository extends JpaRepository<PersonCoTravel, PersonCoTravelId>, PersonCoTravelRepositoryCustom {
+
+    /**
+     * 某人的同行人（按同行次数降序）：person_co_travel_stat 按 person_id 前缀读取单个分桶，关联同行人档案过滤可见性。
+     * 返回列：companion_id, chinese_name, co_type, co_count, first_time, last_time；coType 为空时不限类型
+     */
+    @Query(value = "SELECT s.companion_id, p.chinese_name, s.co_type, s.co_count, s.first_time, s.last_time "
+            + "FROM person_co_travel_stat s INNER JOIN person p ON p.person_id = s.companion_id "
+            + "WHERE s.person_id = :personId AND (LENGTH(COALESCE(:coType, '')) = 0 OR s.co_type = :coType) "
+            + "AND s.co_count >= :minCount "
+            + "AND (p.is_public = 1 OR (LENGTH(COALESCE(:user, '')) > 0 AND p.created_by = :user)) AND (p.deleted = 0 OR p.deleted IS NULL) "
+            + "ORDER BY s.co_count DESC, s.last_time DESC, s.companion_id ASC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findCompanionsVisible(@Param("personId") String personId, @Param("coType") String coType,
+                                         @Param("minCount") int minCount, @Param("user") String user,
+                                         @Param("limit") int limit);
+
+    /** 两人之间的同行证据（按发生时间倒序） */
+    List<PersonCoTravel> findByPersonIdAndCompanionIdOrderByOccurTimeDesc(String personId, String companionId, Pageable pageable);
+}
@@ -0,0 +1,26 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.PersonCoTravel;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 人物同行证据数据访问扩展：JDBC 批量写入证据与重算同行次数
+ */
+public interface PersonCoTravelRepositoryCustom {
+
+    /**
+     * 以 JDBC batch 写入同行证据；person_co_travel 为 Unique Key 模型，同一同行事件重复写入即覆盖
+     *
+     * @return 写入条数
+     */
+    int upsertBatch(List<PersonCoTravel> rows);
+
+    /**
+     * 按人物重算 person_co_travel_stat：对这些人物的证据按 (companion_id, co_type) 分组计数后整体覆盖写入
+     *
+     * @return 重算的人物数
+     */
+    int refreshStats(Collection<String> personIds);
+}
@@ -0,0 +1,61 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.PersonCoTravel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 人物同行证据数据访问扩展实现：证据配合连接参数 rewriteBatchedStatements=true 合并为多值 INSERT；
+ * 次数由 Doris 端 INSERT ... SELECT 按人物分组重算，两张表都按 person_id 分桶，重算只读写涉及人物所在的分桶
+ */
+@Repository
+@RequiredArgsConstructor
+public class PersonCoTravelRepositoryImpl implements PersonCoTravelRepositoryCustom {
+
+    private static final int STATS_CHUNK_SIZE = 500;
+    private static final String UPSERT_SQL = "INSERT INTO person_co_travel"
+            + " (person_id, companion_id, co_type, occur_key, occur_time, travel_id, companion_travel_id, place, created_time)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String REFRESH_STATS_SQL = "INSERT INTO person_co_travel_stat"
+            + " (person_id, companion_id, co_type, co_count, first_time, last_time, updated_time)"
+            + " SELECT person_id, companion_id, co_type, COUNT(*), MIN(occur_time), MAX(occur_time), NOW()"
+            + " FROM person_co_travel WHERE person_id IN (%s) GROUP BY person_id, companion_id, co_type";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int upsertBatch(List<PersonCoTravel> rows) {
+        if (rows == null || rows.isEmpty()) return 0;
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, r) -> {
+            ps.setString(1, r.getPersonId());
+            ps.setString(2, r.getCompanionId());
+            ps.setString(3, r.getCoType());
+            ps.setString(4, r.getOccurKey());
+            ps.setTimestamp(5, Timestamp.valueOf(r.getOccurTime()));
+            ps.setObject(6, r.getTravelId());
+            ps.setObject(7, r.getCompanionTravelId());
+            ps.setString(8, r.getPlace());
+            ps.setTimestamp(9, r.getCreatedTime() != null ? Timestamp.valueOf(r.getCreatedTime()) : null);
+        });
+        return rows.size();
+    }
+
+    @Override
+    public int refreshStats(Collection<String> personIds) {
+        if (personIds == null || personIds.isEmpty()) return 0;
+        List<String> ids = new ArrayList<>(personIds);
+        for (int from = 0; from < ids.size(); from += STATS_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + STATS_CHUNK_SIZE));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.update(String.format(REFRESH_STATS_SQL, placeholders), chunk.toArray());
+        }
+        return ids.size();
+    }
+}
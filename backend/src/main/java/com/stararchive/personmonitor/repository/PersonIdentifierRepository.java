@@ -0,0 +1,26 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.PersonIdentifier;
+import com.stararchive.personmonitor.entity.PersonIdentifierId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 人物标识反查表数据访问
+ */
+@Repository
+public interface PersonIdentifierRepository extends JpaRepository<PersonIdentifier, PersonIdentifierId>, PersonIdentifierRepositoryCustom {
+
+    /** 按规范化标识值批量反查（identifier 为分桶列与前缀键，按值点查） */
+    @Query("SELECT pi FROM PersonIdentifier pi WHERE pi.identifier IN :identifiers")
+    List<PersonIdentifier> findByIdentifiers(@Param("identifiers") Collection<String> identifiers);
+
+    /** 给定人物当前的全部标识 */
+    @Query("SELECT pi FROM PersonIdentifier pi WHERE pi.personId IN :personIds")
+    List<PersonIdentifier> findByPersonIds(@Param("personIds") Collection<String> personIds);
+}
@@ -0,0 +1,25 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.PersonIdentifier;
+
+import java.util.List;
+
+/**
+ * 人物标识反查表数据访问扩展：JDBC 批量写入与删除
+ */
+public interface PersonIdentifierRepositoryCustom {
+
+    /**
+     * 以 JDBC batch 写入标识（不经 JPA merge）；person_identifier 为 Unique Key 模型，重复写入即覆盖公开性与创建人
+     *
+     * @return 写入条数
+     */
+    int upsertBatch(List<PersonIdentifier> rows);
+
+    /**
+     * 按主键批量删除不再属于人物的标识
+     *
+     * @return 删除条数
+     */
+    int deleteBatch(List<PersonIdentifier> rows);
+}
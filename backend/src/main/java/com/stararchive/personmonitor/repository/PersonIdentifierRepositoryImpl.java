@@ -0,0 +1,49 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.PersonIdentifier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * 人物标识反查表数据访问扩展实现：配合连接参数 rewriteBatchedStatements=true 合并为多值 INSERT
+ */
+@Repository
+@RequiredArgsConstructor
+public class PersonIdentifierRepositoryImpl implements PersonIdentifierRepositoryCustom {
+
+    private static final String UPSERT_SQL = "INSERT INTO person_identifier"
+            + " (identifier, id_type, person_id, is_public, created_by, updated_time) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM person_identifier"
+            + " WHERE identifier = ? AND id_type = ? AND person_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int upsertBatch(List<PersonIdentifier> rows) {
+        if (rows == null || rows.isEmpty()) return 0;
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, r) -> {
+            ps.setString(1, r.getIdentifier());
+            ps.setString(2, r.getIdType());
+            ps.setString(3, r.getPersonId());
+            ps.setBoolean(4, Boolean.TRUE.equals(r.getIsPublic()));
+            ps.setString(5, r.getCreatedBy());
+            ps.setTimestamp(6, r.getUpdatedTime() != null ? Timestamp.valueOf(r.getUpdatedTime()) : null);
+        });
+        return rows.size();
+    }
+
+    @Override
+    public int deleteBatch(List<PersonIdentifier> rows) {
+        if (rows == null || rows.isEmpty()) return 0;
+        jdbcTemplate.batchUpdate(DELETE_SQL, rows, rows.size(), (ps, r) -> {
+            ps.setString(1, r.getIdentifier());
+            ps.setString(2, r.getIdType());
+            ps.setString(3, r.getPersonId());
+        });
+        return rows.size();
+    }
+}
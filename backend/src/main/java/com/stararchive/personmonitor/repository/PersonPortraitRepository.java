@@ -0,0 +1,22 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.PersonPortrait;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 智能画像结果数据访问接口
+ */
+@Repository
+public interface PersonPortraitRepository extends JpaRepository<PersonPortrait, String> {
+
+    /** 删除该人物除指定画像外的旧版本画像 */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PersonPortrait p WHERE p.personId = :personId AND p.portraitId <> :keepId")
+    int deleteOtherVersions(@Param("personId") String personId, @Param("keepId") String keepId);
+}
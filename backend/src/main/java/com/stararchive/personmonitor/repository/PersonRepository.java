@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -44,6 +45,36 @@ public interface PersonRepository extends JpaRepository<Person, String>, PersonR
     @Query(value = "SELECT COUNT(DISTINCT p.person_id) FROM person p INNER JOIN tag t ON t.key_tag = 1 AND JSON_CONTAINS(p.person_tags, JSON_ARRAY(t.tag_name)) = 1", nativeQuery = true)
     long countDistinctByKeyTagMatch();
 
+    /**
+     * 按更新时间游标查询重点人员（is_key_person=1 或命中重点标签，排除已软删），用于画像预生成。
+     * 游标为 (COALESCE(updated_time, '1970-01-01'), person_id)，只取更新时间不晚于 until 的行（见 UpdatedTimeCursor），按其升序返回 limit 条。
+     */
+    @Query(value = "SELECT * FROM person p WHERE (p.deleted = 0 OR p.deleted IS NULL)"
+            + " AND (p.is_key_person = 1 OR EXISTS (SELECT 1 FROM tag t WHERE t.key_tag = 1 AND JSON_CONTAINS(p.person_tags, JSON_ARRAY(t.tag_name)) = 1))"
+            + " AND COALESCE(p.updated_time, '1970-01-01 00:00:00') <= :until"
+            + " AND (COALESCE(p.updated_time, '1970-01-01 00:00:00') > :since"
+            + " OR (COALESCE(p.updated_time, '1970-01-01 00:00:00') = :since AND p.person_id > :afterId))"
+            + " ORDER BY COALESCE(p.updated_time, '1970-01-01 00:00:00'), p.person_id LIMIT :limit", nativeQuery = true)
+    List<Person> findKeyPersonsUpdatedBetween(@Param("since") LocalDateTime since, @Param("afterId") String afterId,
+                                              @Param("until") LocalDateTime until, @Param("limit") int limit);
+
+    /**
+     * 按 person_id 游标全量遍历（人物检索索引加载，含已软删），按 person_id 升序返回 limit 条
+     */
+    @Query(value = "SELECT * FROM person WHERE person_id > :afterId ORDER BY person_id LIMIT :limit", nativeQuery = true)
+    List<Person> findPageAfterId(@Param("afterId") String afterId, @Param("limit") int limit);
+
+    /**
+     * 按更新时间游标增量查询（内存索引刷新，含已软删）：游标为 (COALESCE(updated_time, '1970-01-01'), person_id)，
+     * 只取更新时间不晚于 until 的行（见 UpdatedTimeCursor）
+     */
+    @Query(value = "SELECT * FROM person WHERE COALESCE(updated_time, '1970-01-01 00:00:00') <= :until"
+            + " AND (COALESCE(updated_time, '1970-01-01 00:00:00') > :since"
+            + " OR (COALESCE(updated_time, '1970-01-01 00:00:00') = :since AND person_id > :afterId))"
+            + " ORDER BY COALESCE(updated_time, '1970-01-01 00:00:00'), person_id LIMIT :limit", nativeQuery = true)
+    List<Person> findUpdatedBetween(@Param("since") LocalDateTime since, @Param("afterId") String afterId,
+                                    @Param("until") LocalDateTime until, @Param("limit") int limit);
+
     /**
      * 根据标签查询人员
      */
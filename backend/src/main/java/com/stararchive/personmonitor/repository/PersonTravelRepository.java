@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -23,9 +24,43 @@ public interface PersonTravelRepository extends JpaRepository<PersonTravel, Long
     Page<PersonTravel> findByPersonIdOrderByEventTimeDesc(String personId, Pageable pageable);
     
     /**
-     * 查询指定人物的所有行程记录
+     * 人物行程时间线游标翻页：[start, end] 内排在游标 (beforeTime, beforeId) 之后的行程，按 (event_time, travel_id) 倒序
      */
-    List<PersonTravel> findByPersonIdOrderByEventTimeDesc(String personId);
+    @Query(value = "SELECT * FROM person_travel WHERE person_id = :personId AND event_time >= :start AND event_time <= :end "
+            + "AND (event_time < :beforeTime OR (event_time = :beforeTime AND travel_id < :beforeId)) "
+            + "ORDER BY event_time DESC, travel_id DESC LIMIT :limit", nativeQuery = true)
+    List<PersonTravel> findTimelinePage(@Param("personId") String personId,
+                                        @Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                        @Param("beforeTime") LocalDateTime beforeTime, @Param("beforeId") Long beforeId,
+                                        @Param("limit") int limit);
+
+    /**
+     * 人物行程时间线概况，返回 [count, min(event_time), max(event_time)]
+     */
+    @Query(value = "SELECT COUNT(*), MIN(event_time), MAX(event_time) FROM person_travel "
+            + "WHERE person_id = :personId AND event_time >= :start AND event_time <= :end", nativeQuery = true)
+    List<Object[]> findTimelineSummary(@Param("personId") String personId,
+                                       @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * 人物每月行程数按类型统计，返回 [yyyy-MM, travel_type, count]
+     */
+    @Query(value = "SELECT DATE_FORMAT(event_time, '%Y-%m') AS ym, travel_type, COUNT(*) FROM person_travel "
+            + "WHERE person_id = :personId AND event_time >= :start AND event_time <= :end "
+            + "GROUP BY ym, travel_type ORDER BY ym", nativeQuery = true)
+    List<Object[]> findMonthlyCountsByPerson(@Param("personId") String personId,
+                                             @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * 人物最常到达的城市，返回 [destination_city, count]
+     */
+    @Query(value = "SELECT destination_city, COUNT(*) AS cnt FROM person_travel "
+            + "WHERE person_id = :personId AND event_time >= :start AND event_time <= :end "
+            + "AND destination_city IS NOT NULL AND destination_city != '' "
+            + "GROUP BY destination_city ORDER BY cnt DESC, destination_city ASC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findTopDestinationCitiesByPerson(@Param("personId") String personId,
+                                                    @Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                                    @Param("limit") int limit);
     
     /**
      * 查询指定人物在指定时间范围内的行程
@@ -240,4 +275,29 @@ public interface PersonTravelRepository extends JpaRepository<PersonTravel, Long
             nativeQuery = true
     )
     Page<Object[]> findPersonIdsByDestinationProvinceAndBelongingGroupVisible(@Param("province") String province, @Param("belongingGroup") String belongingGroup, @Param("user") String user, Pageable pageable);
+
+    /**
+     * 同行检测增量读取：(created_time, travel_id) 水位之后、入库时间不晚于 until 的行程，按水位顺序
+     */
+    @Query(value = "SELECT * FROM person_travel WHERE created_time <= :until "
+            + "AND (created_time > :afterTime OR (created_time = :afterTime AND travel_id > :afterId)) "
+            + "ORDER BY created_time ASC, travel_id ASC LIMIT :limit", nativeQuery = true)
+    List<PersonTravel> findCreatedAfter(@Param("afterTime") LocalDateTime afterTime, @Param("afterId") Long afterId,
+                                        @Param("until") LocalDateTime until, @Param("limit") int limit);
+
+    /**
+     * 同行检测候选：规范化（去首尾空白、转大写）后的票据编号在 tickets 中、且发生时间在 [start, end) 内的行程。
+     * tickets 须已规范化；Doris 不支持表达式索引，函数包裹的 ticket_number 用不上 idx_ticket，由 event_time 分区裁剪与 idx_event_time 限定扫描范围
+     */
+    @Query(value = "SELECT * FROM person_travel WHERE event_time >= :start AND event_time < :end "
+            + "AND UPPER(TRIM(ticket_number)) IN (:tickets)", nativeQuery = true)
+    List<PersonTravel> findByTicketNumbersBetween(@Param("tickets") Collection<String> tickets,
+                                                  @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * 同行检测候选：到达指定城市且发生时间在 [start, end] 内的行程（destination_city 倒排索引，event_time 分区裁剪）
+     */
+    @Query(value = "SELECT * FROM person_travel WHERE destination_city IN (:cities) AND event_time >= :start AND event_time <= :end", nativeQuery = true)
+    List<PersonTravel> findByDestinationCitiesBetween(@Param("cities") Collection<String> cities,
+                                                      @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
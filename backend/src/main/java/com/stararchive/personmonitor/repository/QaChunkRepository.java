@@ -2,16 +2,24 @@ package com.stararchive.personmonitor.repository;
 
 import com.stararchive.personmonitor.entity.QaChunk;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
-public interface QaChunkRepository extends JpaRepository<QaChunk, String> {
+public interface QaChunkRepository extends JpaRepository<QaChunk, String>, QaChunkRepositoryCustom {
 
     List<QaChunk> findByKbIdOrderBySeqAsc(String kbId);
 
     List<QaChunk> findByDocIdOrderBySeqAsc(String docId);
 
-    void deleteByDocId(String docId);
+    /** 按文档删除分块（单条 DELETE，入库流水线线程上无外层事务时也可调用） */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM QaChunk c WHERE c.docId = :docId")
+    int deleteByDocId(@Param("docId") String docId);
 
     void deleteByKbId(String kbId);
 }
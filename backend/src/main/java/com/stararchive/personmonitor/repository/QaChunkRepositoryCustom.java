@@ -0,0 +1,18 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.QaChunk;
+
+import java.util.List;
+
+/**
+ * 文档分块数据访问扩展：JDBC 批量写入
+ */
+public interface QaChunkRepositoryCustom {
+
+    /**
+     * 以 JDBC batch 插入分块（不经 JPA merge，不逐条查询是否存在）；调用方保证主键为新生成
+     *
+     * @return 插入条数
+     */
+    int insertBatch(List<QaChunk> chunks);
+}
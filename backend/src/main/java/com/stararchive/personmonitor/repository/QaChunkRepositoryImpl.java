@@ -0,0 +1,37 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.QaChunk;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * 文档分块数据访问扩展实现：配合连接参数 rewriteBatchedStatements=true 合并为多值 INSERT
+ */
+@Repository
+@RequiredArgsConstructor
+public class QaChunkRepositoryImpl implements QaChunkRepositoryCustom {
+
+    private static final String INSERT_SQL = "INSERT INTO qa_chunk (id, doc_id, kb_id, content, embedding, seq, created_time)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int insertBatch(List<QaChunk> chunks) {
+        if (chunks == null || chunks.isEmpty()) return 0;
+        jdbcTemplate.batchUpdate(INSERT_SQL, chunks, chunks.size(), (ps, c) -> {
+            ps.setString(1, c.getId());
+            ps.setString(2, c.getDocId());
+            ps.setString(3, c.getKbId());
+            ps.setString(4, c.getContent());
+            ps.setString(5, c.getEmbedding());
+            ps.setObject(6, c.getSeq());
+            ps.setTimestamp(7, c.getCreatedTime() != null ? Timestamp.valueOf(c.getCreatedTime()) : null);
+        });
+        return chunks.size();
+    }
+}
@@ -2,6 +2,10 @@ package com.stararchive.personmonitor.repository;
 
 import com.stararchive.personmonitor.entity.QaDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -10,4 +14,11 @@ public interface QaDocumentRepository extends JpaRepository<QaDocument, String>
     List<QaDocument> findByKbIdOrderByCreatedTimeDesc(String kbId);
 
     void deleteByKbId(String kbId);
+
+    /** 只更新处理状态（入库流水线各阶段使用，不读取、不合并整行） */
+    @Transactional
+    @Modifying
+    @Query("UPDATE QaDocument d SET d.status = :status, d.chunkCount = :chunkCount, d.errorMessage = :errorMessage WHERE d.id = :id")
+    int updateStatus(@Param("id") String id, @Param("status") String status, @Param("chunkCount") Integer chunkCount,
+                     @Param("errorMessage") String errorMessage);
 }
@@ -2,6 +2,8 @@ package com.stararchive.personmonitor.repository;
 
 import com.stararchive.personmonitor.entity.QaMessage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -9,5 +11,15 @@ public interface QaMessageRepository extends JpaRepository<QaMessage, String> {
 
     List<QaMessage> findBySessionIdOrderByCreatedTimeAsc(String sessionId);
 
+    long countBySessionId(String sessionId);
+
+    /**
+     * 按 (created_time, id) 升序取会话中第 offset 条起的 limit 条消息，用于只读取历史窗口或待折叠的消息
+     */
+    @Query(value = "SELECT * FROM qa_message WHERE session_id = :sessionId ORDER BY created_time, id LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<QaMessage> findSliceBySessionId(@Param("sessionId") String sessionId, @Param("offset") long offset,
+                                         @Param("limit") int limit);
+
     void deleteBySessionId(String sessionId);
 }
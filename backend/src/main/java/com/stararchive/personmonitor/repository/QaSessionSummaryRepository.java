@@ -0,0 +1,7 @@
+package com.stararchive.personmonitor.repository;
+
+import com.stararchive.personmonitor.entity.QaSessionSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface QaSessionSummaryRepository extends JpaRepository<QaSessionSummary, String> {
+}
@@ -0,0 +1,45 @@
+package com.stararchive.personmonitor.scheduler;
+
+import com.stararchive.personmonitor.service.ArchiveTaskQueueService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 档案融合工作队列调度：定期拉取可领取任务（含租约过期的遗留任务，按断点续跑），并为本实例持有的租约心跳续约。
+ * 进程重启后遗留的 PENDING/EXTRACTING 任务在租约到期后由任一实例领取。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ArchiveTaskQueueScheduler {
+
+    private final ArchiveTaskQueueService taskQueueService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void pollOnStartup() {
+        log.info("【档案融合-工作队列】启动拉取: instance={}", taskQueueService.instanceId());
+        poll();
+    }
+
+    @Scheduled(fixedDelayString = "${archive.queue.poll-interval-ms:5000}")
+    public void poll() {
+        try {
+            taskQueueService.pollAndDispatch();
+        } catch (Exception e) {
+            log.error("【档案融合-工作队列】拉取异常", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${archive.queue.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        try {
+            taskQueueService.heartbeat();
+        } catch (Exception e) {
+            log.error("【档案融合-工作队列】心跳异常", e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.stararchive.personmonitor.scheduler;
+
+import com.stararchive.personmonitor.service.CoTravelService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 人物同行检测定时任务：按行程入库水位处理新行程，写入同行证据并重算同行次数（多副本由租约保证单实例执行）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CoTravelScheduler {
+
+    private final CoTravelService coTravelService;
+
+    @Scheduled(fixedDelayString = "${travel.co-travel.interval-ms:300000}", initialDelayString = "${travel.co-travel.interval-ms:300000}")
+    public void detect() {
+        try {
+            coTravelService.runOnce();
+        } catch (Exception e) {
+            log.error("【同行检测】定时任务异常", e);
+        }
+    }
+}
@@ -1,30 +1,27 @@
 package com.stararchive.personmonitor.scheduler;
 
-import com.stararchive.personmonitor.service.EventService;
+import com.stararchive.personmonitor.service.EventAggregationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
- * 事件提取定时任务：每日凌晨 2 点从新闻中提取事件并聚类落库
+ * 事件提取定时任务：每隔几分钟对新入库的新闻做一轮增量聚合（归入进行中的事件或新建事件）
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class EventExtractionScheduler {
 
-    private final EventService eventService;
+    private final EventAggregationService eventAggregationService;
 
-    /** 每天 02:00 执行 */
-    @Scheduled(cron = "${event.extraction.cron:0 0 2 * * ?}")
-    public void runDailyExtraction() {
-        log.info("【事件提取】定时任务开始");
+    @Scheduled(fixedDelayString = "${event.aggregation.interval-ms:180000}", initialDelayString = "${event.aggregation.interval-ms:180000}")
+    public void aggregate() {
         try {
-            eventService.runDailyExtraction();
+            eventAggregationService.runOnce();
         } catch (Exception e) {
-            log.error("【事件提取】定时任务异常", e);
+            log.error("【事件聚合】定时任务异常", e);
         }
-        log.info("【事件提取】定时任务结束");
     }
 }
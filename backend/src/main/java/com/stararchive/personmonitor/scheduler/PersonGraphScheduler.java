@@ -0,0 +1,27 @@
+package com.stararchive.personmonitor.scheduler;
+
+import com.stararchive.personmonitor.service.PersonGraphService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 人物关系图增量刷新定时任务：按 updated_time 拉取变更的档案，有变更时重建图快照
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PersonGraphScheduler {
+
+    private final PersonGraphService personGraphService;
+
+    @Scheduled(fixedDelayString = "${person.graph.refresh-interval-ms:30000}", initialDelayString = "${person.graph.refresh-interval-ms:30000}")
+    public void refresh() {
+        try {
+            personGraphService.refresh();
+        } catch (Exception e) {
+            log.error("【人物关系图】增量刷新异常", e);
+        }
+    }
+}
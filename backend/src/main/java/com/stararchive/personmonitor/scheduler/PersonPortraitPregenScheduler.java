@@ -0,0 +1,90 @@
+package com.stararchive.personmonitor.scheduler;
+
+import com.stararchive.personmonitor.common.UpdatedTimeCursor;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import com.stararchive.personmonitor.service.PersonPortraitService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 智能画像预生成定时任务：按更新时间游标扫描重点人员，为档案变更后尚无当前版本画像的人物生成画像。
+ * 游标仅保存在内存，重启后从头扫描；已有当前版本画像的人物直接跳过，多副本同时执行时不会重复生成已保存的版本。
+ * 只扫描更新已满 ingest-lag-seconds 的人物，避免游标越过尚未提交可见的更新（见 {@link UpdatedTimeCursor}）。
+ * 生成失败（超时、限流、熔断等）时本轮停在该人物之前，下轮重试；同一人物连续失败 max-attempts 次后跳过，档案再次变更时重新尝试。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PersonPortraitPregenScheduler {
+
+    private final PersonRepository personRepository;
+    private final PersonPortraitService personPortraitService;
+
+    @Value("${portrait.pregen.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${portrait.pregen.batch-size:20}")
+    private int batchSize = 20;
+
+    @Value("${portrait.pregen.ingest-lag-seconds:30}")
+    private long ingestLagSeconds = 30;
+
+    @Value("${portrait.pregen.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    /** 游标停住的人物及其连续失败次数 */
+    private String failingId;
+    private int failures;
+
+    private final UpdatedTimeCursor<Person> cursor = new UpdatedTimeCursor<>(Person::getUpdatedTime, Person::getPersonId);
+
+    @Scheduled(fixedDelayString = "${portrait.pregen.interval-ms:60000}", initialDelayString = "${portrait.pregen.interval-ms:60000}")
+    public void pregenerate() {
+        if (!enabled || !personPortraitService.isGenerationAvailable()) return;
+        List<Person> persons;
+        try {
+            persons = cursor.next(personRepository::findKeyPersonsUpdatedBetween, ingestLagSeconds, batchSize);
+        } catch (Exception e) {
+            log.error("【智能画像-预生成】查询重点人员失败", e);
+            return;
+        }
+        if (persons.isEmpty()) return;
+        int generated = 0;
+        for (Person person : persons) {
+            try {
+                if (personPortraitService.pregeneratePortrait(person)) {
+                    generated++;
+                }
+            } catch (Exception e) {
+                if (!giveUp(person.getPersonId())) {
+                    log.warn("【智能画像-预生成】生成失败，下轮重试: personId={}, 连续失败={}, error={}",
+                            person.getPersonId(), failures, e.getMessage());
+                    break;
+                }
+                log.warn("【智能画像-预生成】连续失败 {} 次，跳过至档案再次变更: personId={}, error={}",
+                        failures, person.getPersonId(), e.getMessage());
+            }
+            if (person.getPersonId().equals(failingId)) {
+                failingId = null;
+                failures = 0;
+            }
+            cursor.advance(person);
+        }
+        log.info("【智能画像-预生成】本轮扫描={}, 生成={}, 游标={}", persons.size(), generated, cursor.time());
+    }
+
+    /** 记一次失败，返回是否已达到最多尝试次数（放弃该人物） */
+    private boolean giveUp(String personId) {
+        if (!personId.equals(failingId)) {
+            failingId = personId;
+            failures = 0;
+        }
+        return ++failures >= Math.max(1, maxAttempts);
+    }
+}
@@ -0,0 +1,27 @@
+package com.stararchive.personmonitor.scheduler;
+
+import com.stararchive.personmonitor.service.PersonSearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 人物检索索引增量刷新定时任务：按 updated_time 拉取变更的档案写入内存索引
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PersonSearchIndexScheduler {
+
+    private final PersonSearchService personSearchService;
+
+    @Scheduled(fixedDelayString = "${person.search.refresh-interval-ms:10000}", initialDelayString = "${person.search.refresh-interval-ms:10000}")
+    public void refresh() {
+        try {
+            personSearchService.refresh();
+        } catch (Exception e) {
+            log.error("【人物检索】增量刷新异常", e);
+        }
+    }
+}
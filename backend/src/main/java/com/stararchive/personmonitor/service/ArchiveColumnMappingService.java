@@ -0,0 +1,408 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.common.ContentHash;
+import com.stararchive.personmonitor.dto.ArchiveColumnMappingDTO;
+import com.stararchive.personmonitor.entity.ArchiveColumnMapping;
+import com.stararchive.personmonitor.repository.ArchiveColumnMappingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 档案融合表格列映射服务：将 Excel/CSV 表头映射为 person-schema.json 字段。
+ * 优先使用按表头模板保存的映射，否则按内置别名与 Schema 字段描述自动识别；
+ * 映射包含姓名列时，数据行可直接转换为人物 Map，只有未映射的非空列才交给大模型补充抽取。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveColumnMappingService {
+
+    /** 映射值为此常量时忽略该列（既不直接转换，也不交给大模型） */
+    public static final String IGNORE = "_ignore";
+
+    /** 可直接由列值转换的人物字段（JSON 数组类经历字段需大模型结构化，不在此列） */
+    private static final Set<String> STRING_FIELDS = Set.of(
+            "chinese_name", "original_name", "organization", "belonging_group", "gender", "marital_status",
+            "id_number", "birth_date", "nationality", "nationality_code", "household_address", "highest_education",
+            "passport_number", "passport_type", "id_card_number", "visa_type", "visa_number", "remark");
+    private static final Set<String> ARRAY_FIELDS = Set.of(
+            "alias_names", "phone_numbers", "emails", "passport_numbers", "twitter_accounts", "linkedin_accounts",
+            "facebook_accounts", "person_tags");
+
+    /** 内置表头别名（规范化后比较：小写、去空白与标点） */
+    private static final Map<String, List<String>> BUILTIN_ALIASES = new LinkedHashMap<>();
+
+    static {
+        BUILTIN_ALIASES.put("original_name", List.of("姓名", "名字", "人员姓名", "原始姓名", "原名", "外文名", "外文姓名", "英文名", "英文姓名", "name", "fullname", "originalname"));
+        BUILTIN_ALIASES.put("chinese_name", List.of("中文姓名", "中文名", "chinesename"));
+        BUILTIN_ALIASES.put("alias_names", List.of("别名", "曾用名", "化名", "alias", "aliases", "aliasnames"));
+        BUILTIN_ALIASES.put("organization", List.of("机构", "机构名称", "单位", "单位名称", "工作单位", "所在单位", "公司", "institution", "organization", "company"));
+        BUILTIN_ALIASES.put("belonging_group", List.of("所属群体", "群体", "职业", "group", "occupation", "belonginggroup"));
+        BUILTIN_ALIASES.put("gender", List.of("性别", "gender", "sex"));
+        BUILTIN_ALIASES.put("marital_status", List.of("婚姻状况", "婚姻现状", "婚姻状态", "婚否", "maritalstatus"));
+        BUILTIN_ALIASES.put("id_number", List.of("证件号", "证件号码", "证件", "idnumber", "idno"));
+        BUILTIN_ALIASES.put("id_card_number", List.of("身份证", "身份证号", "身份证号码", "公民身份号码", "idcard", "idcardnumber"));
+        BUILTIN_ALIASES.put("birth_date", List.of("出生日期", "生日", "出生年月", "出生年月日", "birthdate", "birthday", "dob", "dateofbirth"));
+        BUILTIN_ALIASES.put("nationality", List.of("国籍", "国家", "nationality", "country"));
+        BUILTIN_ALIASES.put("nationality_code", List.of("国籍代码", "国籍三字码", "国家代码", "nationalitycode", "countrycode"));
+        BUILTIN_ALIASES.put("household_address", List.of("户籍地址", "户籍地", "户籍", "住址", "地址", "家庭住址", "常住地址", "现住址", "address", "householdaddress"));
+        BUILTIN_ALIASES.put("highest_education", List.of("学历", "最高学历", "education", "highesteducation"));
+        BUILTIN_ALIASES.put("phone_numbers", List.of("手机", "手机号", "手机号码", "电话", "电话号码", "联系电话", "联系方式", "phone", "mobile", "tel", "phonenumbers"));
+        BUILTIN_ALIASES.put("emails", List.of("邮箱", "电子邮箱", "电子邮件", "邮件", "email", "mail", "emails"));
+        BUILTIN_ALIASES.put("passport_numbers", List.of("护照号码列表", "历史护照号", "passportnumbers"));
+        BUILTIN_ALIASES.put("passport_number", List.of("护照", "护照号", "护照号码", "主护照号", "passport", "passportnumber", "passportno"));
+        BUILTIN_ALIASES.put("passport_type", List.of("护照类型", "passporttype"));
+        BUILTIN_ALIASES.put("visa_type", List.of("签证类型", "签证种类", "visatype"));
+        BUILTIN_ALIASES.put("visa_number", List.of("签证号", "签证号码", "visanumber", "visano"));
+        BUILTIN_ALIASES.put("twitter_accounts", List.of("twitter", "推特", "twitter账号", "twitteraccounts"));
+        BUILTIN_ALIASES.put("linkedin_accounts", List.of("linkedin", "领英", "领英账号", "linkedinaccounts"));
+        BUILTIN_ALIASES.put("facebook_accounts", List.of("facebook", "脸书", "facebook账号", "facebookaccounts"));
+        BUILTIN_ALIASES.put("person_tags", List.of("标签", "人物标签", "tags", "tag", "persontags"));
+        BUILTIN_ALIASES.put("remark", List.of("备注", "备注信息", "remark", "remarks", "note", "notes"));
+    }
+
+    private static final Pattern NORMALIZE_STRIP = Pattern.compile("[\\s\\p{Punct}（）【】：，。、；“”‘’·]+");
+    private static final Pattern LIST_SPLIT = Pattern.compile("[,，;；、|\\n]+");
+    private static final Pattern HAS_CJK = Pattern.compile("\\p{IsHan}");
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("yyyy-M-d"),
+            DateTimeFormatter.ofPattern("yyyy/M/d"),
+            DateTimeFormatter.ofPattern("yyyy.M.d"),
+            DateTimeFormatter.ofPattern("yyyy年M月d日"),
+            DateTimeFormatter.ofPattern("yyyyMMdd"),
+            twoDigitYearFormat());
+
+    private final ArchiveColumnMappingRepository mappingRepository;
+    private final ObjectMapper objectMapper;
+
+    /** 与大模型抽取共用同一份人物 JSON Schema，字段描述首段（如「出生日期」）作为额外别名 */
+    @Value("${person.schema.path:/config/person-schema.json}")
+    private String personSchemaPath;
+
+    /**
+     * 一次导入内解析后的列映射：fieldByColumn[i] 为第 i 列的人物字段、{@link #IGNORE} 或 null（交给大模型）。
+     */
+    public record ColumnMapping(String templateKey, List<String> headers, String[] fieldByColumn, boolean saved) {
+
+        /** 包含姓名列才走快速通道，否则整行交给大模型 */
+        public boolean isFastPathEligible() {
+            for (String f : fieldByColumn) {
+                if ("original_name".equals(f) || "chinese_name".equals(f)) return true;
+            }
+            return false;
+        }
+
+        public String fieldAt(int column) {
+            return column < fieldByColumn.length ? fieldByColumn[column] : null;
+        }
+    }
+
+    /**
+     * 解析表头对应的列映射：已保存模板优先，否则自动识别。
+     */
+    public ColumnMapping resolve(List<String> headers) {
+        List<String> cols = headers != null ? headers : List.of();
+        String key = templateKey(cols);
+        Map<String, String> saved = loadSavedMapping(key);
+        Map<String, String> byHeader = saved != null ? saved : detect(cols);
+        String[] fields = new String[cols.size()];
+        for (int i = 0; i < cols.size(); i++) {
+            String f = byHeader.get(cols.get(i));
+            fields[i] = isAllowedTarget(f) ? f : null;
+        }
+        ColumnMapping mapping = new ColumnMapping(key, List.copyOf(cols), fields, saved != null);
+        log.info("【档案融合-列映射】templateKey={}, 已保存模板={}, 快速通道={}, 映射={}",
+                key, saved != null, mapping.isFastPathEligible(), byHeader);
+        return mapping;
+    }
+
+    /**
+     * 自动识别表头：内置别名 → Schema 字段名 → Schema 字段描述首段；同一字段只映射到第一个命中的列。
+     *
+     * @return 列名 → 人物字段（未识别的列不出现）
+     */
+    public Map<String, String> detect(List<String> headers) {
+        Map<String, String> aliasToField = buildAliasIndex();
+        Map<String, String> result = new LinkedHashMap<>();
+        Set<String> used = new HashSet<>();
+        if (headers == null) return result;
+        for (String header : headers) {
+            String field = aliasToField.get(normalize(header));
+            if (field != null && used.add(field)) {
+                result.put(header, field);
+            }
+        }
+        return result;
+    }
+
+    /** 查询表头对应的映射（已保存模板或自动识别结果），供前端确认与调整 */
+    public ArchiveColumnMappingDTO describe(List<String> headers) {
+        List<String> cols = headers != null ? headers : List.of();
+        String key = templateKey(cols);
+        Optional<ArchiveColumnMapping> saved = mappingRepository.findById(key);
+        if (saved.isPresent()) {
+            return toDTO(saved.get());
+        }
+        Map<String, String> detected = detect(cols);
+        return ArchiveColumnMappingDTO.builder()
+                .templateKey(key)
+                .headers(cols)
+                .mapping(detected)
+                .saved(false)
+                .fastPathEligible(detected.containsValue("original_name") || detected.containsValue("chinese_name"))
+                .build();
+    }
+
+    /**
+     * 保存（覆盖）表头模板的列映射。映射值须为可直接转换的人物字段或 {@link #IGNORE}。
+     */
+    public ArchiveColumnMappingDTO save(List<String> headers, Map<String, String> mapping, String username) {
+        if (headers == null || headers.isEmpty()) {
+            throw new IllegalArgumentException("表头不能为空");
+        }
+        Map<String, String> clean = new LinkedHashMap<>();
+        if (mapping != null) {
+            for (Map.Entry<String, String> e : mapping.entrySet()) {
+                String field = e.getValue() != null ? e.getValue().trim() : "";
+                if (field.isEmpty()) continue;
+                if (!isAllowedTarget(field)) {
+                    throw new IllegalArgumentException("不支持映射的人物字段: " + field);
+                }
+                if (!headers.contains(e.getKey())) {
+                    throw new IllegalArgumentException("映射列不在表头中: " + e.getKey());
+                }
+                clean.put(e.getKey(), field);
+            }
+        }
+        String key = templateKey(headers);
+        LocalDateTime now = LocalDateTime.now();
+        ArchiveColumnMapping entity = mappingRepository.findById(key).orElseGet(() -> ArchiveColumnMapping.builder()
+                .templateKey(key)
+                .createdTime(now)
+                .build());
+        try {
+            entity.setHeaderSignature(objectMapper.writeValueAsString(headers));
+            entity.setMappingJson(objectMapper.writeValueAsString(clean));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("列映射序列化失败: " + e.getMessage());
+        }
+        entity.setCreatorUsername(username);
+        entity.setUpdatedTime(now);
+        mappingRepository.save(entity);
+        log.info("【档案融合-列映射】保存模板: templateKey={}, user={}, 映射={}", key, username, clean);
+        return toDTO(entity);
+    }
+
+    public List<ArchiveColumnMappingDTO> listSaved() {
+        return mappingRepository.findAllByOrderByUpdatedTimeDesc().stream().map(this::toDTO).collect(Collectors.toList());
+    }
+
+    public void delete(String templateKey) {
+        if (!mappingRepository.existsById(templateKey)) {
+            throw new NoSuchElementException("列映射模板不存在: " + templateKey);
+        }
+        mappingRepository.deleteById(templateKey);
+    }
+
+    /**
+     * 将一行单元格按映射直接转换为人物 Map（与大模型返回结构一致，键为 person-schema.json 字段名）。
+     * 空值不写入；仅有中文姓名时以中文姓名作为原始姓名（人物编号依赖原始姓名）。
+     */
+    public Map<String, Object> toPersonMap(ColumnMapping mapping, List<String> cells) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int c = 0; c < cells.size(); c++) {
+            String field = mapping.fieldAt(c);
+            String v = cells.get(c) != null ? cells.get(c).trim() : "";
+            if (field == null || IGNORE.equals(field) || v.isEmpty()) continue;
+            if (ARRAY_FIELDS.contains(field)) {
+                @SuppressWarnings("unchecked")
+                List<String> list = (List<String>) map.computeIfAbsent(field, k -> new ArrayList<String>());
+                for (String part : LIST_SPLIT.split(v)) {
+                    String p = part.trim();
+                    if (!p.isEmpty() && !list.contains(p)) list.add(p);
+                }
+            } else {
+                map.putIfAbsent(field, normalizeValue(field, v));
+            }
+        }
+        Object original = map.get("original_name");
+        Object chinese = map.get("chinese_name");
+        if (original == null && chinese != null) {
+            map.put("original_name", chinese);
+        } else if (chinese == null && original != null && HAS_CJK.matcher(original.toString()).find()) {
+            map.put("chinese_name", original);
+        }
+        return map;
+    }
+
+    /** 未映射列的「列名: 值」文本（仅非空值），为空表示本行无需调用大模型 */
+    public String unmappedText(ColumnMapping mapping, List<String> cells) {
+        return columnText(mapping, cells, false);
+    }
+
+    /** 已映射列的「列名: 值」文本，作为大模型补充抽取的上下文 */
+    public String mappedText(ColumnMapping mapping, List<String> cells) {
+        return columnText(mapping, cells, true);
+    }
+
+    private String columnText(ColumnMapping mapping, List<String> cells, boolean mapped) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < cells.size(); c++) {
+            String field = mapping.fieldAt(c);
+            if (IGNORE.equals(field) || (field != null) != mapped) continue;
+            String v = cells.get(c) != null ? cells.get(c).trim() : "";
+            if (v.isEmpty()) continue;
+            String name = c < mapping.headers().size() ? mapping.headers().get(c) : "列" + (c + 1);
+            if (sb.length() > 0) sb.append("\n");
+            sb.append(name).append(": ").append(v);
+        }
+        return sb.toString();
+    }
+
+    private static Object normalizeValue(String field, String v) {
+        switch (field) {
+            case "birth_date":
+                return normalizeDate(v);
+            case "gender":
+                String g = v.toLowerCase();
+                if (g.equals("男") || g.equals("m") || g.equals("male") || g.equals("男性")) return "男";
+                if (g.equals("女") || g.equals("f") || g.equals("female") || g.equals("女性")) return "女";
+                return v;
+            case "nationality_code":
+                return v.toUpperCase();
+            default:
+                return v;
+        }
+    }
+
+    /** 常见日期写法统一为 yyyy-MM-dd；无法识别时原样返回 */
+    static String normalizeDate(String v) {
+        String s = v.trim();
+        int space = s.indexOf(' ');
+        if (space > 0) s = s.substring(0, space);
+        int t = s.indexOf('T');
+        if (t > 0) s = s.substring(0, t);
+        for (DateTimeFormatter f : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(s, f).toString();
+            } catch (Exception ignored) {
+                // 尝试下一种格式
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Excel 日期单元格经 DataFormatter 输出为 m/d/yy：两位年份按“不晚于今年”的百年窗口还原（如 85 → 1985、24 → 2024），
+     * 出生日期等历史日期不会被解析到未来
+     */
+    private static DateTimeFormatter twoDigitYearFormat() {
+        return new DateTimeFormatterBuilder()
+                .appendPattern("M/d/")
+                .appendValueReduced(ChronoField.YEAR, 2, 2, LocalDate.now().getYear() - 99)
+                .toFormatter();
+    }
+
+    static String normalize(String header) {
+        if (header == null) return "";
+        return NORMALIZE_STRIP.matcher(header.toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+
+    /** 模板编号：规范化表头序列的 SHA-256（列顺序相关） */
+    static String templateKey(List<String> headers) {
+        return ContentHash.sha256Hex(headers.stream().map(ArchiveColumnMappingService::normalize).collect(Collectors.joining("\u0001")));
+    }
+
+    private static boolean isAllowedTarget(String field) {
+        return field != null && (IGNORE.equals(field) || STRING_FIELDS.contains(field) || ARRAY_FIELDS.contains(field));
+    }
+
+    private Map<String, String> loadSavedMapping(String key) {
+        try {
+            return mappingRepository.findById(key)
+                    .map(m -> readMapping(m.getMappingJson()))
+                    .orElse(null);
+        } catch (Exception e) {
+            log.warn("【档案融合-列映射】读取已保存模板失败，改为自动识别: templateKey={}, error={}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, String> readMapping(String json) {
+        if (json == null || json.isBlank()) return new LinkedHashMap<>();
+        try {
+            return objectMapper.readValue(json, new TypeReference<LinkedHashMap<String, String>>() {});
+        } catch (Exception e) {
+            log.warn("【档案融合-列映射】映射 JSON 解析失败: {}", e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    private ArchiveColumnMappingDTO toDTO(ArchiveColumnMapping m) {
+        List<String> headers;
+        try {
+            headers = m.getHeaderSignature() != null
+                    ? objectMapper.readValue(m.getHeaderSignature(), new TypeReference<List<String>>() {})
+                    : List.of();
+        } catch (Exception e) {
+            headers = List.of();
+        }
+        Map<String, String> mapping = readMapping(m.getMappingJson());
+        return ArchiveColumnMappingDTO.builder()
+                .templateKey(m.getTemplateKey())
+                .headers(headers)
+                .mapping(mapping)
+                .saved(true)
+                .fastPathEligible(mapping.containsValue("original_name") || mapping.containsValue("chinese_name"))
+                .creatorUsername(m.getCreatorUsername())
+                .updatedTime(m.getUpdatedTime())
+                .build();
+    }
+
+    /** 别名索引：内置别名优先，其次 Schema 字段名与字段描述首段（如「出生日期，推荐格式…」取「出生日期」） */
+    private Map<String, String> buildAliasIndex() {
+        Map<String, String> index = new HashMap<>();
+        BUILTIN_ALIASES.forEach((field, aliases) -> aliases.forEach(a -> index.putIfAbsent(normalize(a), field)));
+        JsonNode props = loadSchemaProperties();
+        if (props != null) {
+            props.fields().forEachRemaining(e -> {
+                String field = e.getKey();
+                if (!STRING_FIELDS.contains(field) && !ARRAY_FIELDS.contains(field)) return;
+                index.putIfAbsent(normalize(field), field);
+                String desc = e.getValue().path("description").asText("");
+                String head = desc.split("[（(，,：:；;]", 2)[0];
+                if (!head.isBlank()) index.putIfAbsent(normalize(head), field);
+            });
+        }
+        return index;
+    }
+
+    private JsonNode loadSchemaProperties() {
+        if (personSchemaPath == null || personSchemaPath.isBlank()) return null;
+        try {
+            Path path = Path.of(personSchemaPath.trim());
+            if (!Files.exists(path)) return null;
+            return objectMapper.readTree(Files.readString(path, StandardCharsets.UTF_8)).path("properties");
+        } catch (Exception e) {
+            log.debug("【档案融合-列映射】读取 JSON Schema 失败: path={}, error={}", personSchemaPath, e.getMessage());
+            return null;
+        }
+    }
+}
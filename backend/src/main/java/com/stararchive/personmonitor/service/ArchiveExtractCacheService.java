@@ -0,0 +1,87 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.common.ContentHash;
+import com.stararchive.personmonitor.entity.ArchiveExtractCache;
+import com.stararchive.personmonitor.repository.ArchiveExtractCacheRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 档案融合大模型抽取结果缓存：相同文本在相同提示词、Schema 与模型下的抽取结果直接复用，
+ * 失败任务重试、重复上传与内容重叠的表格不再重复调用大模型。
+ * 缓存读写失败只记录日志，不影响抽取流程。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveExtractCacheService {
+
+    private final ArchiveExtractCacheRepository cacheRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${archive.extract-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 缓存键组成：抽取文本、提示词指纹、Schema 指纹均为 SHA-256，model 为模型名称。
+     */
+    public record Key(String textHash, String promptVersion, String schemaVersion, String model) {
+
+        public static Key of(String text, String prompt, String schema, String model) {
+            return new Key(ContentHash.sha256Hex(text), ContentHash.sha256Hex(prompt),
+                    ContentHash.sha256Hex(schema), model != null ? model : "");
+        }
+
+        public String cacheKey() {
+            return ContentHash.sha256Hex(textHash + "|" + promptVersion + "|" + schemaVersion + "|" + model);
+        }
+    }
+
+    /** 命中返回人物 Map 副本，未命中或缓存关闭返回 empty */
+    public Optional<Map<String, Object>> get(Key key) {
+        if (!enabled) return Optional.empty();
+        try {
+            return cacheRepository.findById(key.cacheKey())
+                    .map(ArchiveExtractCache::getResultJson)
+                    .map(this::readMap);
+        } catch (Exception e) {
+            log.warn("【档案融合-抽取缓存】读取失败: textHash={}, error={}", key.textHash(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(Key key, Map<String, Object> person) {
+        if (!enabled || person == null || person.isEmpty()) return;
+        try {
+            cacheRepository.save(ArchiveExtractCache.builder()
+                    .cacheKey(key.cacheKey())
+                    .textHash(key.textHash())
+                    .promptVersion(key.promptVersion())
+                    .schemaVersion(key.schemaVersion())
+                    .model(key.model())
+                    .resultJson(objectMapper.writeValueAsString(person))
+                    .createdTime(LocalDateTime.now())
+                    .build());
+        } catch (Exception e) {
+            log.warn("【档案融合-抽取缓存】写入失败: textHash={}, error={}", key.textHash(), e.getMessage());
+        }
+    }
+
+    private Map<String, Object> readMap(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<LinkedHashMap<String, Object>>() {});
+        } catch (Exception e) {
+            log.warn("【档案融合-抽取缓存】缓存 JSON 解析失败，忽略: {}", e.getMessage());
+            return null;
+        }
+    }
+}
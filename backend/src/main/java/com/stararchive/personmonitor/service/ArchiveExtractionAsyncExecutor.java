@@ -3,7 +3,7 @@ package com.stararchive.personmonitor.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stararchive.personmonitor.common.ByteArrayMultipartFile;
-import com.stararchive.personmonitor.config.BailianProperties;
+import com.stararchive.personmonitor.dto.ArchiveTaskProgressDTO;
 import com.stararchive.personmonitor.dto.SystemConfigDTO;
 import com.stararchive.personmonitor.entity.*;
 import com.stararchive.personmonitor.repository.*;
@@ -23,41 +23,45 @@ import org.apache.poi.hwpf.model.PicturesTable;
 import org.apache.poi.hwpf.usermodel.CharacterRun;
 import org.apache.poi.hwpf.usermodel.Picture;
 import org.apache.poi.hwpf.usermodel.Range;
-import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.apache.poi.xwpf.usermodel.XWPFPictureData;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.http.*;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
-import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 
 /**
- * 档案融合异步提取执行器：负责异步执行大模型抽取任务。
+ * 档案融合提取执行器：负责执行大模型抽取任务（由 {@link ArchiveTaskQueueService} 领取租约后调用）及异步全部导入。
  * 从 ArchiveFusionService 分离出来，确保 @Async 注解能正确生效。
  */
 @Slf4j
@@ -71,6 +75,8 @@ public class ArchiveExtractionAsyncExecutor {
     private static final String STATUS_SUCCESS = "SUCCESS";
     private static final String STATUS_FAILED = "FAILED";
     private static final String STATUS_IMPORTED = "IMPORTED";
+    /** 大模型网关调用方标识（走 bulk 路由） */
+    private static final String EXTRACT_CALLER = "archive-extract";
 
     private final ArchiveImportTaskRepository taskRepository;
     private final ArchiveExtractResultRepository extractResultRepository;
@@ -78,11 +84,14 @@ public class ArchiveExtractionAsyncExecutor {
     private final PersonRepository personRepository;
     private final TagRepository tagRepository;
     private final PersonService personService;
-    private final BailianProperties bailianProperties;
+    private final LlmGatewayService llmGateway;
     private final SystemConfigService systemConfigService;
     private final SeaweedFSService seaweedFSService;
+    private final ExcelStreamingReader excelStreamingReader;
+    private final ArchiveColumnMappingService columnMappingService;
+    private final ArchiveExtractCacheService extractCacheService;
+    private final ArchiveTaskProgressBus progressBus;
     private final ObjectMapper objectMapper;
-    private final RestTemplate restTemplate = new RestTemplate();
 
     /**
      * 人物 JSON Schema 文件路径（可通过挂载外部配置文件灵活调整，支持运行时修改）。
@@ -91,18 +100,66 @@ public class ArchiveExtractionAsyncExecutor {
     @Value("${person.schema.path:/config/person-schema.json}")
     private String personSchemaPath;
 
+    /** 表格类文件（Excel/CSV）是否启用列映射快速通道：姓名等结构化列直接转换，仅剩余自由文本列调用大模型 */
+    @Value("${archive.column-mapping.enabled:true}")
+    private boolean columnMappingEnabled;
+
+    /** 任务进度写库的合并间隔（毫秒）：逐行进度先在内存累加并实时推送，按此间隔写入一次任务表 */
+    @Value("${archive.progress.flush-interval-ms:2000}")
+    private long progressFlushIntervalMs;
+
     @Lazy
     @Autowired
     private ArchiveFusionService archiveFusionService;
 
-    private static final AtomicLong matchIdGenerator = new AtomicLong(System.currentTimeMillis() * 1000);
+    /** 本进程内正在执行的任务，避免同一任务被重复执行 */
+    private static final Set<String> RUNNING_TASKS = ConcurrentHashMap.newKeySet();
+    /** 已失去租约的任务：提取循环在下一行前停止，保留断点交由新的租约持有实例继续 */
+    private static final Set<String> STOP_REQUESTED = ConcurrentHashMap.newKeySet();
+
+    /** 执行中任务的内存进度（每个任务仅由一个工作线程更新） */
+    private final Map<String, TaskProgress> progressByTask = new ConcurrentHashMap<>();
 
     /**
-     * 异步执行大模型提取：从 SeaweedFS 拉取文件，解析并抽取，更新任务状态与提取结果。
-     * 此方法必须从其他 Bean 调用才能触发 @Async 代理。
+     * 执行大模型提取（在调用线程中同步执行）：从 SeaweedFS 拉取文件，解析并抽取，更新任务状态与提取结果。
+     * 由 {@link ArchiveTaskQueueService} 在领取租约后于工作线程中调用。
      */
-    @Async
-    public void executeExtractionAsync(String taskId) {
+    public void executeExtraction(String taskId) {
+        if (!RUNNING_TASKS.add(taskId)) {
+            log.info("【档案融合】任务已在本进程执行中，跳过重复触发: taskId={}", taskId);
+            return;
+        }
+        try {
+            runExtraction(taskId);
+        } finally {
+            // 正常结束时进度已随最终状态写入；失去租约时丢弃未写入部分，由新持有者按断点继续
+            progressByTask.remove(taskId);
+            RUNNING_TASKS.remove(taskId);
+            STOP_REQUESTED.remove(taskId);
+        }
+    }
+
+    /** 任务是否正在本进程中执行 */
+    public boolean isRunningLocally(String taskId) {
+        return RUNNING_TASKS.contains(taskId);
+    }
+
+    /** 请求停止本进程中正在执行的任务（租约被其他实例领取时），在处理下一行前生效 */
+    public void requestStop(String taskId) {
+        if (RUNNING_TASKS.contains(taskId)) {
+            STOP_REQUESTED.add(taskId);
+        }
+    }
+
+    private static boolean stopRequested(String taskId) {
+        if (STOP_REQUESTED.contains(taskId)) {
+            log.warn("【档案融合】任务租约已失效，停止本实例提取并保留断点: taskId={}", taskId);
+            return true;
+        }
+        return false;
+    }
+
+    private void runExtraction(String taskId) {
         log.info("【档案融合】开始异步提取任务: taskId={}, 线程={}", taskId, Thread.currentThread().getName());
         
         ArchiveImportTask task = taskRepository.findById(taskId).orElse(null);
@@ -123,7 +180,8 @@ public class ArchiveExtractionAsyncExecutor {
         if (STATUS_PENDING.equals(status)) {
             task.setStatus(STATUS_EXTRACTING);
             task.setUpdatedTime(LocalDateTime.now());
-            taskRepository.save(task);
+            saveTaskState(task);
+            progressBus.publish(task);
             log.info("【档案融合】任务状态更新为 EXTRACTING: taskId={}", taskId);
         }
         
@@ -135,6 +193,12 @@ public class ArchiveExtractionAsyncExecutor {
             return;
         }
         
+        String fileTypeUpper = task.getFileType() != null ? task.getFileType().toUpperCase() : "";
+        if ("XLSX".equals(fileTypeUpper) || "XLS".equals(fileTypeUpper)) {
+            executeExcelExtraction(task, path, fileTypeUpper);
+            return;
+        }
+
         log.info("【档案融合】开始从 SeaweedFS 下载文件: taskId={}, path={}", taskId, path);
         byte[] fileBytes;
         try {
@@ -175,50 +239,7 @@ public class ArchiveExtractionAsyncExecutor {
             List<Tag> allTags = tagRepository.findAllOrderByHierarchy();
             log.info("【档案融合】已加载参考标签数量: {}", allTags.size());
 
-            if ("XLSX".equals(fileTypeUpper) || "XLS".equals(fileTypeUpper)) {
-                log.info("【档案融合】开始解析 Excel 文件: taskId={}", taskId);
-                List<String> rowTexts = parseExcelToRowTexts(file);
-                log.info("【档案融合】Excel 解析完成: taskId={}, 行数={}", taskId, rowTexts.size());
-                
-                if (rowTexts.isEmpty()) {
-                    log.error("【档案融合】Excel 解析后无有效行: taskId={}", taskId);
-                    markTaskFailed(task, "Excel 解析后无有效行");
-                    return;
-                }
-                task.setOriginalText(String.join("\n\n------\n\n", rowTexts));
-                int totalRows = rowTexts.size() - 1;
-                task.setTotalExtractCount(totalRows > 0 ? totalRows : 0);
-                task.setExtractCount(0);
-                taskRepository.save(task);
-                
-                int savedIndex = 0;
-                for (int i = 1; i < rowTexts.size(); i++) {
-                    String rowText = rowTexts.get(i);
-                    if (rowText == null || rowText.isBlank()) continue;
-                    
-                    log.info("【档案融合】开始提取 Excel 第{}行: taskId={}", i + 1, taskId);
-                    try {
-                        List<Map<String, Object>> one = extractOnePersonByQwen(rowText, fileName, allTags, taskId);
-                        if (!one.isEmpty()) {
-                            task = taskRepository.findById(taskId).orElse(task);
-                            saveOneExtractAndUpdateProgress(task, savedIndex, rowText, one.get(0));
-                            savedIndex++;
-                            log.info("【档案融合】Excel 第{}行提取成功: taskId={}, 提取姓名={}", i + 1, taskId, one.get(0).get("original_name"));
-                        } else {
-                            log.warn("【档案融合】Excel 第{}行未提取到人物: taskId={}", i + 1, taskId);
-                        }
-                    } catch (Exception e) {
-                        log.warn("【档案融合】Excel 第{}行提取失败，已跳过: taskId={}, 错误={}", i + 1, taskId, e.getMessage(), e);
-                    }
-                }
-                task = taskRepository.findById(taskId).orElse(task);
-                task.setStatus(STATUS_SUCCESS);
-                LocalDateTime now = LocalDateTime.now();
-                task.setUpdatedTime(now);
-                task.setCompletedTime(now);
-                taskRepository.save(task);
-                log.info("【档案融合】任务完成: taskId={}, extractCount={}", taskId, task.getExtractCount());
-            } else if ("CSV".equals(fileTypeUpper)) {
+            if ("CSV".equals(fileTypeUpper)) {
                 log.info("【档案融合】开始解析 CSV 文件: taskId={}", taskId);
                 List<String> lineTexts = parseCsvToLines(file);
                 log.info("【档案融合】CSV 解析完成: taskId={}, 行数={}", taskId, lineTexts.size());
@@ -231,36 +252,38 @@ public class ArchiveExtractionAsyncExecutor {
                 task.setOriginalText(String.join("\n\n--- 下一行 ---\n\n", lineTexts));
                 int totalLines = lineTexts.size() - 1;
                 task.setTotalExtractCount(totalLines > 0 ? totalLines : 0);
-                task.setExtractCount(0);
-                taskRepository.save(task);
+                ResumePoint resume = loadResumePoint(task);
+                task.setExtractCount(resume.extractCount());
+                saveTaskState(task);
+                startProgress(task);
+                ArchiveColumnMappingService.ColumnMapping mapping = columnMappingEnabled
+                        ? columnMappingService.resolve(splitCsvLine(lineTexts.get(0)))
+                        : null;
                 
-                int savedIndex = 0;
+                int savedIndex = resume.nextExtractIndex();
                 for (int i = 1; i < lineTexts.size(); i++) {
+                    if (stopRequested(taskId)) return;
                     String lineText = lineTexts.get(i);
-                    if (lineText == null || lineText.isBlank()) continue;
+                    if (lineText == null || lineText.isBlank() || resume.shouldSkip(i)) continue;
                     
                     log.info("【档案融合】开始提取 CSV 第{}行: taskId={}", i + 1, taskId);
                     try {
-                        List<Map<String, Object>> one = extractOnePersonByQwen(lineText, fileName, allTags, taskId);
+                        List<Map<String, Object>> one = extractOneRow(lineText, mapping != null ? splitCsvLine(lineText) : null,
+                                mapping, fileName, allTags, taskId);
                         if (!one.isEmpty()) {
-                            task = taskRepository.findById(taskId).orElse(task);
-                            saveOneExtractAndUpdateProgress(task, savedIndex, lineText, one.get(0));
+                            saveOneExtractAndUpdateProgress(task, savedIndex, i, lineText, one.get(0));
                             savedIndex++;
                             log.info("【档案融合】CSV 第{}行提取成功: taskId={}, 提取姓名={}", i + 1, taskId, one.get(0).get("original_name"));
                         } else {
                             log.warn("【档案融合】CSV 第{}行未提取到人物: taskId={}", i + 1, taskId);
+                            recordRowProcessed(taskId, i, false);
                         }
                     } catch (Exception e) {
                         log.warn("【档案融合】CSV 第{}行提取失败，已跳过: taskId={}, 错误={}", i + 1, taskId, e.getMessage(), e);
+                        recordRowProcessed(taskId, i, false);
                     }
                 }
-                task = taskRepository.findById(taskId).orElse(task);
-                task.setStatus(STATUS_SUCCESS);
-                LocalDateTime now = LocalDateTime.now();
-                task.setUpdatedTime(now);
-                task.setCompletedTime(now);
-                taskRepository.save(task);
-                log.info("【档案融合】任务完成: taskId={}, extractCount={}", taskId, task.getExtractCount());
+                markTaskSuccess(taskRepository.findById(taskId).orElse(task));
             } else {
                 log.info("【档案融合】开始解析文档文件: taskId={}, fileType={}", taskId, fileTypeUpper);
                 String text = parseFileToText(file, task.getFileType());
@@ -274,30 +297,31 @@ public class ArchiveExtractionAsyncExecutor {
                 log.info("【档案融合】文档解析完成: taskId={}, 文本长度={}", taskId, text.length());
                 task.setOriginalText(text);
                 task.setTotalExtractCount(1);
-                task.setExtractCount(0);
-                taskRepository.save(task);
+                ResumePoint resume = loadResumePoint(task);
+                task.setExtractCount(resume.extractCount());
+                saveTaskState(task);
+                startProgress(task);
                 
-                List<String> avatarPaths = extractAndUploadImagesFromFile(file, task.getFileType(), taskId);
-                log.info("【档案融合】开始大模型提取人物信息: taskId={}", taskId);
-                List<Map<String, Object>> one = extractOnePersonByQwen(text, fileName, allTags, taskId);
+                List<String> avatarPaths = resume.shouldSkip(1) ? List.of()
+                        : extractAndUploadImagesFromFile(file, task.getFileType(), taskId);
+                List<Map<String, Object>> one = List.of();
+                if (resume.shouldSkip(1)) {
+                    log.info("【档案融合】文档已有提取结果，跳过大模型提取: taskId={}", taskId);
+                } else {
+                    log.info("【档案融合】开始大模型提取人物信息: taskId={}", taskId);
+                    one = extractOnePersonByQwen(text, fileName, allTags, taskId);
+                }
                 if (!one.isEmpty()) {
                     Map<String, Object> personMap = one.get(0);
                     if (!avatarPaths.isEmpty()) {
                         personMap.put("avatar_files", avatarPaths);
                     }
-                    task = taskRepository.findById(taskId).orElse(task);
-                    saveOneExtractAndUpdateProgress(task, 0, text, personMap);
+                    saveOneExtractAndUpdateProgress(task, resume.nextExtractIndex(), 1, text, personMap);
                     log.info("【档案融合】文档提取成功: taskId={}, 提取姓名={}", taskId, personMap.get("original_name"));
-                } else {
+                } else if (!resume.shouldSkip(1)) {
                     log.warn("【档案融合】文档未提取到人物信息: taskId={}", taskId);
                 }
-                task = taskRepository.findById(taskId).orElse(task);
-                task.setStatus(STATUS_SUCCESS);
-                LocalDateTime now = LocalDateTime.now();
-                task.setUpdatedTime(now);
-                task.setCompletedTime(now);
-                taskRepository.save(task);
-                log.info("【档案融合】任务完成: taskId={}, extractCount={}", taskId, task.getExtractCount());
+                markTaskSuccess(taskRepository.findById(taskId).orElse(task));
             }
             
         } catch (Exception e) {
@@ -318,6 +342,219 @@ public class ArchiveExtractionAsyncExecutor {
         }
     }
 
+    /** Excel 行流水线中读取线程与提取线程之间的有界队列容量：读取快于大模型时阻塞读取线程，内存占用恒定 */
+    private static final int EXCEL_ROW_QUEUE_CAPACITY = 256;
+    /** Excel 任务 original_text 仅保留表头及前若干行原文（每行原文已随提取结果单独保存） */
+    private static final int EXCEL_ORIGINAL_TEXT_PREVIEW_CHARS = 100_000;
+    private static final String EXCEL_ROW_SEPARATOR = "\n\n------\n\n";
+
+    private static final ExecutorService EXCEL_READER_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "archive-excel-reader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Excel 行队列元素：text 为「列名: 值」文本，cells 为原始单元格（供列映射）；end=true 为读取结束标记 */
+    private record ExcelRowItem(String text, List<String> cells, boolean end) {
+        static final ExcelRowItem END = new ExcelRowItem(null, null, true);
+    }
+
+    /**
+     * 向行队列放入一项，队列满时等待；提取线程已退出时放弃并返回 false
+     */
+    private static boolean offerRow(BlockingQueue<ExcelRowItem> queue, ExcelRowItem item, AtomicBoolean consumerDone)
+            throws InterruptedException {
+        while (!consumerDone.get()) {
+            if (queue.offer(item, 1, TimeUnit.SECONDS)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Excel 提取：文件流式下载到本地临时文件，由读取线程以事件模型逐行解析并放入有界队列，
+     * 当前线程边读边抽取，首行抽取无需等待整表解析完成。
+     */
+    private void executeExcelExtraction(ArchiveImportTask task, String path, String fileTypeUpper) {
+        String taskId = task.getTaskId();
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile("archive-fusion-" + taskId + "-", "." + fileTypeUpper.toLowerCase());
+            log.info("【档案融合】开始从 SeaweedFS 流式下载 Excel: taskId={}, path={}", taskId, path);
+            if (!seaweedFSService.downloadToFile(path, tmp)) {
+                log.error("【档案融合】SeaweedFS 下载 Excel 失败或为空: taskId={}, path={}", taskId, path);
+                markTaskFailed(task, "无法从存储下载文件");
+                return;
+            }
+            log.info("【档案融合】Excel 下载完成: taskId={}, 文件大小={}字节", taskId, Files.size(tmp));
+            performExcelExtraction(taskId, tmp, fileTypeUpper);
+        } catch (Exception e) {
+            log.error("【档案融合】Excel 任务执行异常: taskId={}", taskId, e);
+            ArchiveImportTask latest = taskRepository.findById(taskId).orElse(task);
+            markTaskFailed(latest, e.getMessage() != null ? e.getMessage() : "未知错误");
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (Exception e) {
+                    log.debug("【档案融合】删除临时文件失败: {}", tmp, e);
+                }
+            }
+        }
+    }
+
+    private void performExcelExtraction(String taskId, Path excelFile, String fileTypeUpper) throws Exception {
+        ArchiveImportTask task = taskRepository.findById(taskId).orElse(null);
+        if (task == null) {
+            log.warn("【档案融合】执行提取时任务不存在: taskId={}", taskId);
+            return;
+        }
+        String fileName = task.getFileName() != null ? task.getFileName() : "（未知）";
+        List<Tag> allTags = tagRepository.findAllOrderByHierarchy();
+        log.info("【档案融合】已加载参考标签数量: {}", allTags.size());
+
+        task.setTotalExtractCount(0);
+        ResumePoint resume = loadResumePoint(task);
+        task.setExtractCount(resume.extractCount());
+        saveTaskState(task);
+        startProgress(task);
+
+        BlockingQueue<ExcelRowItem> queue = new ArrayBlockingQueue<>(EXCEL_ROW_QUEUE_CAPACITY);
+        ExcelRowFormatter formatter = new ExcelRowFormatter();
+        AtomicInteger rowsRead = new AtomicInteger();
+        AtomicReference<Exception> readError = new AtomicReference<>();
+        // 提取线程已退出（停止、异常或读完）：读取线程不再向队列放入，避免在无人消费的满队列上永久阻塞
+        AtomicBoolean consumerDone = new AtomicBoolean();
+        StringBuilder preview = new StringBuilder();
+
+        log.info("【档案融合】开始流式解析 Excel 文件: taskId={}", taskId);
+        Future<?> reader = EXCEL_READER_EXECUTOR.submit(() -> {
+            try {
+                excelStreamingReader.read(excelFile, fileTypeUpper, (sheetIndex, rowIndex, cells) -> {
+                    String rowText = formatter.accept(sheetIndex, rowIndex, cells);
+                    if (rowText == null) return;
+                    if (preview.length() < EXCEL_ORIGINAL_TEXT_PREVIEW_CHARS) {
+                        preview.append(EXCEL_ROW_SEPARATOR).append(rowText);
+                    }
+                    rowsRead.incrementAndGet();
+                    if (!offerRow(queue, new ExcelRowItem(rowText, cells, false), consumerDone)) {
+                        throw new CancellationException("提取已结束，停止读取 Excel");
+                    }
+                });
+            } catch (Exception e) {
+                if (!consumerDone.get()) readError.set(e);
+            } finally {
+                try {
+                    offerRow(queue, ExcelRowItem.END, consumerDone);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        int savedIndex = resume.nextExtractIndex();
+        int rowNo = 0;
+        ArchiveColumnMappingService.ColumnMapping mapping = null;
+        try {
+            while (true) {
+                ExcelRowItem item = queue.take();
+                if (item.end()) break;
+                if (stopRequested(taskId)) return;
+                rowNo++;
+                if (resume.shouldSkip(rowNo)) continue;
+                String rowText = item.text();
+                if (mapping == null && columnMappingEnabled) {
+                    mapping = columnMappingService.resolve(formatter.headerNames());
+                }
+                log.info("【档案融合】开始提取 Excel 第{}行: taskId={}", rowNo + 1, taskId);
+                try {
+                    List<Map<String, Object>> one = extractOneRow(rowText, item.cells(), mapping, fileName, allTags, taskId);
+                    if (!one.isEmpty()) {
+                        updateProgressTotal(taskId, rowsRead.get());
+                        saveOneExtractAndUpdateProgress(task, savedIndex, rowNo, rowText, one.get(0));
+                        savedIndex++;
+                        log.info("【档案融合】Excel 第{}行提取成功: taskId={}, 提取姓名={}", rowNo + 1, taskId, one.get(0).get("original_name"));
+                    } else {
+                        log.warn("【档案融合】Excel 第{}行未提取到人物: taskId={}", rowNo + 1, taskId);
+                        recordRowProcessed(taskId, rowNo, false);
+                    }
+                } catch (Exception e) {
+                    log.warn("【档案融合】Excel 第{}行提取失败，已跳过: taskId={}, 错误={}", rowNo + 1, taskId, e.getMessage(), e);
+                    recordRowProcessed(taskId, rowNo, false);
+                }
+            }
+        } finally {
+            consumerDone.set(true);
+            queue.clear();
+            if (!reader.isDone()) {
+                reader.cancel(true);
+            }
+        }
+
+        task = taskRepository.findById(taskId).orElse(task);
+        if (readError.get() != null) {
+            log.error("【档案融合】Excel 解析异常: taskId={}, 已读取行数={}", taskId, rowsRead.get(), readError.get());
+            markTaskFailed(task, "Excel 解析失败: " + readError.get().getMessage());
+            return;
+        }
+        if (formatter.headerLine() == null) {
+            log.error("【档案融合】Excel 解析后无有效行: taskId={}", taskId);
+            markTaskFailed(task, "Excel 解析后无有效行");
+            return;
+        }
+        log.info("【档案融合】Excel 解析完成: taskId={}, 数据行数={}", taskId, rowsRead.get());
+        String originalText = formatter.headerLine() + preview;
+        if (preview.length() >= EXCEL_ORIGINAL_TEXT_PREVIEW_CHARS) {
+            originalText = originalText + EXCEL_ROW_SEPARATOR + "……（共 " + rowsRead.get() + " 行，仅保留前部原文预览，每行原文见提取结果）";
+        }
+        task.setOriginalText(originalText);
+        updateProgressTotal(taskId, rowsRead.get());
+        markTaskSuccess(task);
+    }
+
+    /**
+     * Excel 行格式化：第一个 sheet 的首行作为表头（列名），所有 sheet 的数据行格式化为「列名: 值」便于大模型理解。
+     * 单线程使用（读取线程内），逐行调用 {@link #accept}。
+     */
+    private static final class ExcelRowFormatter {
+
+        private List<String> headerNames;
+        private String headerLine;
+
+        /** @return 数据行文本；表头行或全空行返回 null */
+        String accept(int sheetIndex, int rowIndex, List<String> cells) {
+            if (headerNames == null) {
+                headerNames = new ArrayList<>();
+                boolean fromHeaderRow = sheetIndex == 0 && rowIndex == 0;
+                for (int c = 0; c < cells.size(); c++) {
+                    String name = fromHeaderRow ? cells.get(c) : null;
+                    headerNames.add(name == null || name.isBlank() ? "列" + (c + 1) : name.trim());
+                }
+                String line = String.join(" ", headerNames);
+                headerLine = fromHeaderRow && line.isBlank() ? "(表头)" : line;
+                return null;
+            }
+            boolean allBlank = true;
+            StringBuilder sb = new StringBuilder();
+            for (int c = 0; c < headerNames.size(); c++) {
+                String v = c < cells.size() ? cells.get(c) : null;
+                v = v != null ? v.trim() : "";
+                if (!v.isEmpty()) allBlank = false;
+                if (sb.length() > 0) sb.append("\n");
+                sb.append(headerNames.get(c)).append(": ").append(v);
+            }
+            return allBlank ? null : sb.toString();
+        }
+
+        String headerLine() {
+            return headerLine;
+        }
+
+        /** 表头列名；读取线程写入首行后才会有数据行入队，消费线程经队列可见 */
+        List<String> headerNames() {
+            return headerNames != null ? headerNames : List.of();
+        }
+    }
+
     private static final int CONFIRM_IMPORT_CHUNK_SIZE = 100;
 
     /**
@@ -348,7 +585,7 @@ public class ArchiveExtractionAsyncExecutor {
             taskRepository.findById(taskId).ifPresent(t -> {
                 t.setStatus(STATUS_IMPORTED);
                 t.setUpdatedTime(java.time.LocalDateTime.now());
-                taskRepository.save(t);
+                saveTaskState(t);
             });
         }
     }
@@ -357,15 +594,31 @@ public class ArchiveExtractionAsyncExecutor {
      * 标记任务失败
      */
     private void markTaskFailed(ArchiveImportTask task, String errorMessage) {
+        applyProgress(task);
         task.setStatus(STATUS_FAILED);
         task.setErrorMessage(errorMessage);
         LocalDateTime now = LocalDateTime.now();
         task.setUpdatedTime(now);
         task.setCompletedTime(now);
-        taskRepository.save(task);
+        saveTaskState(task);
+        progressBus.publish(task);
         log.error("【档案融合】任务标记为失败: taskId={}, errorMessage={}", task.getTaskId(), errorMessage);
     }
 
+    /**
+     * 标记任务完成：合并内存进度后与最终状态一次写入
+     */
+    private void markTaskSuccess(ArchiveImportTask task) {
+        applyProgress(task);
+        task.setStatus(STATUS_SUCCESS);
+        LocalDateTime now = LocalDateTime.now();
+        task.setUpdatedTime(now);
+        task.setCompletedTime(now);
+        saveTaskState(task);
+        progressBus.publish(task);
+        log.info("【档案融合】任务完成: taskId={}, extractCount={}", task.getTaskId(), task.getExtractCount());
+    }
+
     /**
      * 从一段文本中抽取一个人物档案
      */
@@ -381,6 +634,43 @@ public class ArchiveExtractionAsyncExecutor {
         throw new IllegalArgumentException("大模型提取错误");
     }
 
+    /**
+     * 表格数据行抽取：列映射包含姓名列时，已映射列直接转换为人物字段；
+     * 未映射列全部为空则不调用大模型，否则仅将未映射列交给大模型补充抽取，结果中已映射字段以列值为准。
+     * 无映射、映射无姓名列或本行姓名为空时，整行交给大模型。
+     */
+    private List<Map<String, Object>> extractOneRow(String rowText, List<String> cells,
+                                                    ArchiveColumnMappingService.ColumnMapping mapping,
+                                                    String fileName, List<Tag> allTags, String taskId) {
+        if (mapping == null || cells == null || !mapping.isFastPathEligible()) {
+            return extractOnePersonByQwen(rowText, fileName, allTags, taskId);
+        }
+        Map<String, Object> mapped = columnMappingService.toPersonMap(mapping, cells);
+        if (mapped.get("original_name") == null) {
+            return extractOnePersonByQwen(rowText, fileName, allTags, taskId);
+        }
+        String freeText = columnMappingService.unmappedText(mapping, cells);
+        if (freeText.isBlank()) {
+            log.info("【档案融合-列映射】快速通道，无需大模型: taskId={}, 姓名={}", taskId, mapped.get("original_name"));
+            List<Map<String, Object>> list = new ArrayList<>();
+            list.add(mapped);
+            return list;
+        }
+        String prompt = "已结构化字段（仅供参考，无需重复输出）：\n" + columnMappingService.mappedText(mapping, cells)
+                + "\n\n待抽取内容：\n" + freeText;
+        List<Map<String, Object>> fromLlm = callLlmExtractOnePerson(prompt, fileName, allTags != null ? allTags : List.of(), taskId);
+        Map<String, Object> merged = new LinkedHashMap<>();
+        if (!fromLlm.isEmpty() && fromLlm.get(0) != null) {
+            merged.putAll(fromLlm.get(0));
+        } else {
+            log.warn("【档案融合-列映射】补充抽取无结果，仅保留已映射字段: taskId={}", taskId);
+        }
+        merged.putAll(mapped);
+        List<Map<String, Object>> list = new ArrayList<>();
+        list.add(merged);
+        return list;
+    }
+
     /**
      * 调用大模型接口提取人物信息
      */
@@ -390,30 +680,39 @@ public class ArchiveExtractionAsyncExecutor {
             return Collections.emptyList();
         }
         
-        String apiKey = resolveLlmApiKey();
-        String baseUrl = resolveLlmBaseUrl();
-        String model = resolveLlmModel();
+        // 抽取走 bulk 路由，缓存键使用该路由可能用到的模型
+        String model = llmGateway.resolveModel(EXTRACT_CALLER);
+
+        String promptText = text.substring(0, Math.min(12000, text.length()));
+        String userPrefix = "本批上传文件名：" + (fileName != null ? fileName : "（未知）") + "\n\n"
+                + "参考标签表（person_tags 只能从以下标签名中选择，可多选，标签名需与下表完全一致）：\n"
+                + formatTagListForLlm(allTags) + "\n\n"
+                + "请结合【文件名】与【下方人物档案文本】抽取一个人物档案，重点根据文件名和档案内容推断 person_tags，并严格按照上方提供的 JSON Schema 返回一个人物档案 JSON 对象，所有生成的数据必须在上下文中有依据，严禁捏造、猜测任何不实的信息：\n\n";
+        String basePrompt = resolveExtractPrompt();
+        String jsonSchema = loadPersonJsonSchema();
+
+        // 抽取缓存：行内容、系统提示词、Schema、模型一致时直接复用。文件名与标签表不计入缓存键，
+        // 否则同一行换个文件名或标签表有任何增删都会整批重新调用；命中时只保留当前标签表中仍存在的 person_tags
+        ArchiveExtractCacheService.Key cacheKey = ArchiveExtractCacheService.Key.of(promptText, basePrompt, jsonSchema, model);
+        Optional<Map<String, Object>> cached = extractCacheService.get(cacheKey);
+        if (cached.isPresent()) {
+            log.info("【档案融合-大模型】命中抽取缓存，跳过调用: taskId={}, textHash={}, 姓名={}",
+                    taskId, cacheKey.textHash(), cached.get().get("original_name"));
+            return List.of(retainKnownTags(cached.get(), allTags));
+        }
         
-        log.info("【档案融合-大模型】准备调用: taskId={}, baseUrl={}, model={}, apiKey已配置={}", 
-                taskId, baseUrl, model, apiKey != null && !apiKey.isBlank());
+        boolean configured = llmGateway.isConfigured();
+        log.info("【档案融合-大模型】准备调用: taskId={}, route={}, model={}, 已配置={}",
+                taskId, llmGateway.routeOf(EXTRACT_CALLER), model, configured);
         
-        if (apiKey == null || apiKey.isBlank()) {
+        if (!configured) {
             log.warn("【档案融合-大模型】未配置 API Key（系统配置与 bailian 均未配置），跳过大模型抽取: taskId={}", taskId);
             return Collections.emptyList();
         }
         
-        String url = baseUrl.replaceAll("/$", "") + "/chat/completions";
-        StringBuilder userContent = new StringBuilder();
-        userContent.append("本批上传文件名：").append(fileName != null ? fileName : "（未知）").append("\n\n");
-        userContent.append("参考标签表（person_tags 只能从以下标签名中选择，可多选，标签名需与下表完全一致）：\n");
-        userContent.append(formatTagListForLlm(allTags)).append("\n\n");
-        userContent.append("请结合【文件名】与【下方人物档案文本】抽取一个人物档案，重点根据文件名和档案内容推断 person_tags，并严格按照上方提供的 JSON Schema 返回一个人物档案 JSON 对象，所有生成的数据必须在上下文中有依据，严禁捏造、猜测任何不实的信息：\n\n");
-        userContent.append(text.substring(0, Math.min(12000, text.length())));
+        String userContent = userPrefix + promptText;
 
         Map<String, Object> body = new HashMap<>();
-        body.put("model", model);
-        String basePrompt = resolveExtractPrompt();
-        String jsonSchema = loadPersonJsonSchema();
         if (jsonSchema == null || jsonSchema.isBlank()) {
             log.warn("【档案融合-大模型】未找到人物 JSON Schema，提示词中将不包含字段定义: path={}", personSchemaPath);
         }
@@ -422,49 +721,35 @@ public class ArchiveExtractionAsyncExecutor {
                 + (jsonSchema != null ? jsonSchema : "{}");
         body.put("messages", List.of(
                 Map.of("role", "system", "content", systemPrompt),
-                Map.of("role", "user", "content", userContent.toString())
+                Map.of("role", "user", "content", userContent)
         ));
         body.put("response_format", Map.of("type", "json_object"));
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-
-        log.info("【档案融合-大模型】发送请求: taskId={}, url={}, 内容长度={}", taskId, url, userContent.length());
+        log.info("【档案融合-大模型】发送请求: taskId={}, 内容长度={}", taskId, userContent.length());
         long startTime = System.currentTimeMillis();
         
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            String content = llmGateway.chat(EXTRACT_CALLER, body);
             long elapsed = System.currentTimeMillis() - startTime;
-            log.info("【档案融合-大模型】收到响应: taskId={}, 状态码={}, 耗时={}ms", taskId, response.getStatusCode(), elapsed);
+            log.info("【档案融合-大模型】收到响应: taskId={}, 耗时={}ms", taskId, elapsed);
             
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                log.debug("【档案融合-大模型】响应体: taskId={}, body={}", taskId, 
-                        response.getBody().length() > 500 ? response.getBody().substring(0, 500) + "..." : response.getBody());
+            if (content != null) {
+                content = unwrapJsonFromMarkdown(content);
+                log.debug("【档案融合-大模型】解析 content: taskId={}, content={}", taskId, 
+                        content.length() > 500 ? content.substring(0, 500) + "..." : content);
                         
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode choices = root.path("choices");
-                if (choices.isArray() && choices.size() > 0) {
-                    String content = choices.get(0).path("message").path("content").asText();
-                    content = unwrapJsonFromMarkdown(content);
-                    log.debug("【档案融合-大模型】解析 content: taskId={}, content={}", taskId, 
-                            content.length() > 500 ? content.substring(0, 500) + "..." : content);
-                            
-                    JsonNode data = objectMapper.readTree(content);
-                    JsonNode personNode = data.has("person") ? data.path("person") : data;
-                    if (personNode.isObject()) {
-                        Map<String, Object> map = objectMapper.convertValue(personNode, Map.class);
-                        log.info("【档案融合-大模型】提取成功: taskId={}, 姓名={}", taskId, map.get("original_name"));
-                        return List.of(map);
-                    } else {
-                        log.warn("【档案融合-大模型】响应格式异常，personNode 不是对象: taskId={}", taskId);
-                    }
+                JsonNode data = objectMapper.readTree(content);
+                JsonNode personNode = data.has("person") ? data.path("person") : data;
+                if (personNode.isObject()) {
+                    Map<String, Object> map = objectMapper.convertValue(personNode, Map.class);
+                    log.info("【档案融合-大模型】提取成功: taskId={}, 姓名={}", taskId, map.get("original_name"));
+                    extractCacheService.put(cacheKey, map);
+                    return List.of(map);
                 } else {
-                    log.warn("【档案融合-大模型】响应 choices 为空: taskId={}", taskId);
+                    log.warn("【档案融合-大模型】响应格式异常，personNode 不是对象: taskId={}", taskId);
                 }
             } else {
-                log.warn("【档案融合-大模型】响应非 2xx 或 body 为空: taskId={}, status={}", taskId, response.getStatusCode());
+                log.warn("【档案融合-大模型】响应 choices 为空: taskId={}", taskId);
             }
         } catch (Exception e) {
             long elapsed = System.currentTimeMillis() - startTime;
@@ -486,6 +771,23 @@ public class ArchiveExtractionAsyncExecutor {
         return s;
     }
 
+    /** 缓存命中的人物档案只保留当前标签表中存在的 person_tags（缓存写入时的标签表可能已变化） */
+    private static Map<String, Object> retainKnownTags(Map<String, Object> person, List<Tag> tags) {
+        if (!(person.get("person_tags") instanceof List<?> cachedTags)) return person;
+        Set<String> known = new HashSet<>();
+        if (tags != null) {
+            for (Tag t : tags) {
+                if (t.getTagName() != null && !t.getTagName().isBlank()) known.add(t.getTagName().trim());
+            }
+        }
+        List<Object> kept = new ArrayList<>();
+        for (Object tag : cachedTags) {
+            if (tag != null && known.contains(tag.toString().trim())) kept.add(tag);
+        }
+        person.put("person_tags", kept);
+        return person;
+    }
+
     /** 将标签表格式化为大模型可读的参考列表 */
     private static String formatTagListForLlm(List<Tag> tags) {
         if (tags == null || tags.isEmpty()) {
@@ -508,31 +810,6 @@ public class ArchiveExtractionAsyncExecutor {
         return sb.length() > 0 ? sb.toString() : "（当前无参考标签，person_tags 请返回 []）";
     }
 
-    /** 大模型配置优先使用系统配置，为空时回退到 application.yml 的 bailian 配置 */
-    private String resolveLlmApiKey() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmApiKey() != null && !cfg.getLlmApiKey().isBlank()) {
-            return cfg.getLlmApiKey();
-        }
-        return bailianProperties.getApiKey() != null ? bailianProperties.getApiKey() : "";
-    }
-
-    private String resolveLlmBaseUrl() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmBaseUrl() != null && !cfg.getLlmBaseUrl().isBlank()) {
-            return cfg.getLlmBaseUrl().trim();
-        }
-        return bailianProperties.getBaseUrl() != null ? bailianProperties.getBaseUrl() : "";
-    }
-
-    private String resolveLlmModel() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmModel() != null && !cfg.getLlmModel().isBlank()) {
-            return cfg.getLlmModel().trim();
-        }
-        return bailianProperties.getModel() != null ? bailianProperties.getModel() : "qwen-plus";
-    }
-
     /** 人物档案提取提示词：使用系统配置中的默认提示词，未配置则使用代码内置默认 */
     private String resolveExtractPrompt() {
         SystemConfigDTO cfg = systemConfigService.getConfig();
@@ -565,12 +842,133 @@ public class ArchiveExtractionAsyncExecutor {
     }
 
     /**
-     * 保存单条提取结果、相似匹配，并更新任务已提取数量与进度（立即入库）
+     * 断点续跑状态：processedRows 之前的行（含未提取到人物的行）与已有提取结果的行不再抽取。
+     * 行号与 {@link ArchiveExtractResult#getSourceRowIndex()} 一致：表格数据行从 1 开始，文档为 1。
+     */
+    private record ResumePoint(int processedRows, Set<Integer> doneRows, int nextExtractIndex, int extractCount) {
+
+        boolean shouldSkip(int row) {
+            return row <= processedRows || doneRows.contains(row);
+        }
+    }
+
+    private ResumePoint loadResumePoint(ArchiveImportTask task) {
+        String taskId = task.getTaskId();
+        int processed = task.getProcessedRowCount() != null ? task.getProcessedRowCount() : 0;
+        Set<Integer> done = new HashSet<>(extractResultRepository.findSourceRowIndexesByTaskId(taskId));
+        Integer maxIndex = extractResultRepository.findMaxExtractIndexByTaskId(taskId);
+        int count = (int) extractResultRepository.countByTaskId(taskId);
+        if (processed > 0 || !done.isEmpty()) {
+            log.info("【档案融合】断点续跑: taskId={}, 已处理行数={}, 已有提取结果={}", taskId, processed, count);
+        }
+        return new ResumePoint(processed, done, maxIndex != null ? maxIndex + 1 : 0, count);
+    }
+
+    /**
+     * 执行中任务的内存进度：逐行累加并推送，按 {@code archive.progress.flush-interval-ms} 合并写库，
+     * 避免每行读写一次任务表；写库内容即断点续跑依据，崩溃时至多重跑一个合并间隔内的行。
+     */
+    private static final class TaskProgress {
+        final String taskId;
+        final String creatorUsername;
+        int extractCount;
+        int processedRows;
+        Integer totalExtractCount;
+        long lastFlushMillis;
+
+        TaskProgress(ArchiveImportTask task) {
+            this.taskId = task.getTaskId();
+            this.creatorUsername = task.getCreatorUsername();
+            this.extractCount = task.getExtractCount() != null ? task.getExtractCount() : 0;
+            this.processedRows = task.getProcessedRowCount() != null ? task.getProcessedRowCount() : 0;
+            this.totalExtractCount = task.getTotalExtractCount();
+            this.lastFlushMillis = System.currentTimeMillis();
+        }
+    }
+
+    private void startProgress(ArchiveImportTask task) {
+        TaskProgress progress = new TaskProgress(task);
+        progressByTask.put(task.getTaskId(), progress);
+        publishProgress(progress);
+    }
+
+    private void updateProgressTotal(String taskId, int total) {
+        TaskProgress progress = progressByTask.get(taskId);
+        if (progress != null) {
+            progress.totalExtractCount = total;
+        }
+    }
+
+    /** 记录一行处理完毕（未提取到人物或提取失败的行也记录断点，重启后不再重复调用大模型） */
+    private void recordRowProcessed(String taskId, int sourceRow, boolean extracted) {
+        TaskProgress progress = progressByTask.get(taskId);
+        if (progress == null) return;
+        if (extracted) {
+            progress.extractCount++;
+        }
+        progress.processedRows = Math.max(progress.processedRows, sourceRow);
+        publishProgress(progress);
+        if (System.currentTimeMillis() - progress.lastFlushMillis >= progressFlushIntervalMs) {
+            flushProgress(progress);
+        }
+    }
+
+    private void flushProgress(TaskProgress progress) {
+        progress.lastFlushMillis = System.currentTimeMillis();
+        try {
+            taskRepository.updateProgress(progress.taskId, progress.extractCount, progress.totalExtractCount,
+                    progress.processedRows, LocalDateTime.now());
+        } catch (Exception e) {
+            log.warn("【档案融合】进度写库失败（下个间隔重试）: taskId={}, error={}", progress.taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * 任务状态写库：按列更新而非整行保存，执行期间读到的实体快照不会覆盖租约等由其他语句维护的列
+     */
+    private void saveTaskState(ArchiveImportTask task) {
+        taskRepository.updateExtractState(task.getTaskId(), task.getStatus(), task.getErrorMessage(), task.getOriginalText(),
+                task.getExtractCount(), task.getTotalExtractCount(), task.getProcessedRowCount(),
+                task.getUpdatedTime(), task.getCompletedTime());
+    }
+
+    /** 最终状态写库前合并内存进度 */
+    private void applyProgress(ArchiveImportTask task) {
+        TaskProgress progress = progressByTask.remove(task.getTaskId());
+        if (progress != null) {
+            copyProgress(progress, task);
+        }
+    }
+
+    private static void copyProgress(TaskProgress progress, ArchiveImportTask task) {
+        task.setExtractCount(progress.extractCount);
+        int current = task.getProcessedRowCount() != null ? task.getProcessedRowCount() : 0;
+        task.setProcessedRowCount(Math.max(current, progress.processedRows));
+        if (progress.totalExtractCount != null) {
+            task.setTotalExtractCount(progress.totalExtractCount);
+        }
+    }
+
+    private void publishProgress(TaskProgress progress) {
+        progressBus.publish(ArchiveTaskProgressDTO.builder()
+                .taskId(progress.taskId)
+                .status(STATUS_EXTRACTING)
+                .totalExtractCount(progress.totalExtractCount)
+                .extractCount(progress.extractCount)
+                .creatorUsername(progress.creatorUsername)
+                .updatedTime(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * 保存单条提取结果、相似匹配（立即入库），并累加任务进度（合并写库）
      */
-    private void saveOneExtractAndUpdateProgress(ArchiveImportTask task, int extractIndex, String originalText,
+    private void saveOneExtractAndUpdateProgress(ArchiveImportTask task, int extractIndex, int sourceRow, String originalText,
                                                  Map<String, Object> personMap) {
         String taskId = task.getTaskId();
-        String resultId = UUID.randomUUID().toString().replace("-", "");
+        // 结果编号由任务与来源行确定：中断后重跑同一行会覆盖而不是重复插入
+        String resultId = UUID.nameUUIDFromBytes((taskId + ":" + sourceRow).getBytes(StandardCharsets.UTF_8))
+                .toString().replace("-", "");
         String originalName = stringOrNull(personMap.get("original_name"));
         String birthDateStr = stringOrNull(personMap.get("birth_date"));
         String gender = stringOrNull(personMap.get("gender"));
@@ -594,6 +992,7 @@ public class ArchiveExtractionAsyncExecutor {
                     .imported(false)
                     .importedPersonId(null)
                     .createdTime(LocalDateTime.now())
+                    .sourceRowIndex(sourceRow)
                     .build();
             extractResultRepository.save(result);
             log.info("【档案融合】保存提取结果: taskId={}, resultId={}, originalName={}, index={}", taskId, resultId, originalName, extractIndex);
@@ -602,7 +1001,7 @@ public class ArchiveExtractionAsyncExecutor {
             List<Person> similar = findSimilarPersons(matchFields, originalName, birthDate, gender, nationality, idNumber, task.getCreatorUsername());
             for (Person person : similar) {
                 ArchiveSimilarMatch match = ArchiveSimilarMatch.builder()
-                        .matchId(matchIdGenerator.incrementAndGet())
+                        .matchId(matchId(resultId, person.getPersonId()))
                         .taskId(taskId)
                         .resultId(resultId)
                         .personId(person.getPersonId())
@@ -611,16 +1010,20 @@ public class ArchiveExtractionAsyncExecutor {
                 similarMatchRepository.save(match);
             }
 
-            int newCount = (task.getExtractCount() != null ? task.getExtractCount() : 0) + 1;
-            task.setExtractCount(newCount);
-            task.setUpdatedTime(LocalDateTime.now());
-            taskRepository.save(task);
-            log.info("【档案融合】进度更新: taskId={}, 已提取={}/{}", taskId, newCount, task.getTotalExtractCount() != null ? task.getTotalExtractCount() : "?");
+            recordRowProcessed(taskId, sourceRow, true);
         } catch (Exception e) {
             log.warn("【档案融合】保存单条结果失败: taskId={}, index={}, error={}", taskId, extractIndex, e.getMessage());
         }
     }
 
+    /**
+     * 匹配记录编号由提取结果与库内人物确定：重跑同一行时覆盖原记录，不会产生重复的相似匹配
+     */
+    static long matchId(String resultId, String personId) {
+        return UUID.nameUUIDFromBytes((resultId + ":" + personId).getBytes(StandardCharsets.UTF_8))
+                .getMostSignificantBits() & Long.MAX_VALUE;
+    }
+
     private static final Set<String> SIMILAR_MATCH_ALLOWED = Set.of("originalName", "birthDate", "gender", "nationality");
 
     private static Set<String> parseSimilarMatchFields(String similarMatchFields) {
@@ -705,68 +1108,6 @@ public class ArchiveExtractionAsyncExecutor {
         }
     }
 
-    /**
-     * 解析 Excel 为多行文本。第一个 sheet 的首行作为表头（列名），所有 sheet 的数据行格式化为「列名: 值」便于大模型理解。
-     * 返回：第 0 项为表头行（空格拼接，用于原文展示），第 1..n 项为数据行（列名: 值，换行分隔）。
-     */
-    private List<String> parseExcelToRowTexts(MultipartFile file) throws Exception {
-        List<String> rowTexts = new ArrayList<>();
-        List<String> headerNames = null;
-        int maxCol = 0;
-        try (Workbook wb = WorkbookFactory.create(file.getInputStream())) {
-            for (int s = 0; s < wb.getNumberOfSheets(); s++) {
-                Sheet sheet = wb.getSheetAt(s);
-                for (int r = 0; r <= sheet.getLastRowNum(); r++) {
-                    Row row = sheet.getRow(r);
-                    if (row == null) continue;
-                    int lastCellNum = row.getLastCellNum() <= 0 ? 0 : row.getLastCellNum();
-                    if (headerNames == null && s == 0 && r == 0) {
-                        headerNames = new ArrayList<>();
-                        for (int c = 0; c < lastCellNum; c++) {
-                            Cell cell = row.getCell(c);
-                            String name = cell != null ? getCellString(cell) : null;
-                            if (name == null || name.isBlank()) {
-                                name = "列" + (c + 1);
-                            } else {
-                                name = name.trim();
-                            }
-                            headerNames.add(name);
-                        }
-                        maxCol = headerNames.size();
-                        String headerLine = String.join(" ", headerNames);
-                        rowTexts.add(headerLine.isBlank() ? "(表头)" : headerLine);
-                        continue;
-                    }
-                    if (headerNames == null || headerNames.isEmpty()) {
-                        headerNames = new ArrayList<>();
-                        for (int c = 0; c < lastCellNum; c++) headerNames.add("列" + (c + 1));
-                        maxCol = headerNames.size();
-                        rowTexts.add(String.join(" ", headerNames));
-                        continue;
-                    }
-                    StringBuilder sb = new StringBuilder();
-                    for (int c = 0; c < maxCol; c++) {
-                        String colName = c < headerNames.size() ? headerNames.get(c) : ("列" + (c + 1));
-                        Cell cell = row.getCell(c);
-                        String v = cell != null ? getCellString(cell) : null;
-                        if (v != null) v = v.trim();
-                        if (v == null) v = "";
-                        if (sb.length() > 0) sb.append("\n");
-                        sb.append(colName).append(": ").append(v);
-                    }
-                    String rowText = sb.toString();
-                    if (!rowText.isBlank()) {
-                        rowTexts.add(rowText);
-                    }
-                }
-            }
-        }
-        if (rowTexts.isEmpty() && headerNames != null && !headerNames.isEmpty()) {
-            rowTexts.add(String.join(" ", headerNames));
-        }
-        return rowTexts;
-    }
-
     /**
      * 解析 CSV 为多行文本。优先 UTF-8 解码，若出现替换符或解码异常则使用 GBK（常见于 Windows 导出的中文 CSV），避免中文乱码。
      */
@@ -786,6 +1127,36 @@ public class ArchiveExtractionAsyncExecutor {
         return lines;
     }
 
+    /** 按逗号切分 CSV 行（支持双引号包裹与 "" 转义），用于表头识别与列映射 */
+    private static List<String> splitCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        if (line == null) return cells;
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cur.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    cur.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                cells.add(cur.toString().trim());
+                cur.setLength(0);
+            } else {
+                cur.append(ch);
+            }
+        }
+        cells.add(cur.toString().trim());
+        return cells;
+    }
+
     /** 常见中文 CSV 编码：先 UTF-8，含替换符或异常时用 GBK */
     private static final Charset GBK = Charset.forName("GBK");
 
@@ -807,48 +1178,6 @@ public class ArchiveExtractionAsyncExecutor {
         return s != null ? s : "";
     }
 
-    private static final DataFormatter DATA_FORMATTER = new DataFormatter();
-
-    /** 数字单元格不用科学计数法，支持18位证件号等长数字完整显示 */
-    private static final DecimalFormat NUMERIC_NO_SCIENTIFIC = createNumericNoScientific();
-
-    private static DecimalFormat createNumericNoScientific() {
-        DecimalFormat df = new DecimalFormat("0.##########", DecimalFormatSymbols.getInstance(Locale.US));
-        df.setGroupingUsed(false);
-        df.setDecimalSeparatorAlwaysShown(false);
-        // 保证不以科学计数法输出（18位证件号等长数字）
-        df.setMaximumIntegerDigits(20);
-        return df;
-    }
-
-    /** 取单元格显示值，避免公式/数字按公式或整数取导致中文或格式丢失；数字以完整数字串输出，支持18位证件号且保证不出现科学计数法。 */
-    private String getCellString(Cell cell) {
-        if (cell == null) return null;
-        CellType type = cell.getCellType();
-        if (type == CellType.FORMULA) {
-            type = cell.getCachedFormulaResultType();
-        }
-        switch (type) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-            case FORMULA:
-                if (org.apache.poi.ss.usermodel.DateUtil.isCellDateFormatted(cell)) {
-                    return DATA_FORMATTER.formatCellValue(cell);
-                }
-                try {
-                    double v = cell.getNumericCellValue();
-                    return NUMERIC_NO_SCIENTIFIC.format(v);
-                } catch (Exception e) {
-                    return DATA_FORMATTER.formatCellValue(cell);
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            default:
-                return null;
-        }
-    }
-
     private String parseDocx(MultipartFile file) throws Exception {
         StringBuilder sb = new StringBuilder();
         try (XWPFDocument doc = new XWPFDocument(file.getInputStream())) {
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.stararchive.personmonitor.common.ContentHash;
 import com.stararchive.personmonitor.common.PageResponse;
 import com.stararchive.personmonitor.dto.*;
 import com.stararchive.personmonitor.entity.*;
@@ -21,6 +22,7 @@ import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.nio.charset.StandardCharsets;
@@ -49,18 +51,21 @@ public class ArchiveFusionService {
     private final ArchiveSimilarMatchRepository similarMatchRepository;
     private final PersonRepository personRepository;
     private final PersonService personService;
+    private final PersonIdentifierService personIdentifierService;
     private final SeaweedFSService seaweedFSService;
     private final ObjectMapper objectMapper;
     
     /** 异步提取执行器（从其他 Bean 调用以确保 @Async 代理生效） */
     private final ArchiveExtractionAsyncExecutor asyncExecutor;
+    /** 提取工作队列（多副本按租约领取任务） */
+    private final ArchiveTaskQueueService taskQueueService;
 
     @Value("${page.default-size:20}")
     private int defaultPageSize;
 
     /**
      * 批量上传：上传文件至 SeaweedFS、新建任务（状态 PENDING），接口立即返回。
-     * 大模型提取由异步任务执行，执行成功后更新任务状态为 SUCCESS/FAILED 及提取人数。
+     * 大模型提取由工作队列领取后执行（任一后端实例），执行成功后更新任务状态为 SUCCESS/FAILED 及提取人数。
      */
     @Transactional(rollbackFor = Exception.class)
     public ArchiveImportTaskDTO createTaskAndExtract(MultipartFile file, Integer creatorUserId, String creatorUsername,
@@ -73,10 +78,20 @@ public class ArchiveFusionService {
         log.info("【档案融合】创建任务开始: taskId={}, fileName={}, fileType={}, creatorUsername={}, similarMatchFields={}",
                 taskId, fileName, fileType, creatorUsername, normalizedMatchFields);
 
+        String contentHash;
         String filePathId;
         try {
-            filePathId = seaweedFSService.upload(file, taskId);
-            log.info("【档案融合】文件上传成功: taskId={}, filePathId={}", taskId, filePathId);
+            try (InputStream in = file.getInputStream()) {
+                contentHash = ContentHash.sha256Hex(in);
+            }
+            filePathId = findReusableFilePath(contentHash);
+            if (filePathId != null) {
+                log.info("【档案融合】文件内容已存在，复用已上传文件: taskId={}, contentHash={}, filePathId={}",
+                        taskId, contentHash, filePathId);
+            } else {
+                filePathId = seaweedFSService.uploadContentAddressed(file, contentHash);
+                log.info("【档案融合】文件上传成功: taskId={}, filePathId={}", taskId, filePathId);
+            }
         } catch (Exception e) {
             log.error("【档案融合】上传文件至 SeaweedFS 失败: taskId={}", taskId, e);
             throw new RuntimeException("上传文件失败: " + (e.getMessage() != null ? e.getMessage() : "未知错误"));
@@ -93,30 +108,28 @@ public class ArchiveFusionService {
                 .totalExtractCount(0)
                 .extractCount(0)
                 .similarMatchFields(normalizedMatchFields)
+                .contentHash(contentHash)
                 .createdTime(LocalDateTime.now())
                 .updatedTime(LocalDateTime.now())
                 .build();
         taskRepository.save(task);
         log.info("【档案融合】任务已保存: taskId={}, status={}", taskId, STATUS_PENDING);
 
-        // 有事务时在提交后触发异步提取；无事务时（如批量上传内部调用）直接触发，避免 Transaction synchronization is not active
-        final String taskIdForAsync = taskId;
-        if (TransactionSynchronizationManager.isSynchronizationActive()) {
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    log.info("【档案融合】事务已提交，触发异步提取: taskId={}", taskIdForAsync);
-                    asyncExecutor.executeExtractionAsync(taskIdForAsync);
-                }
-            });
-        } else {
-            log.info("【档案融合】无活动事务，直接触发异步提取: taskId={}", taskIdForAsync);
-            asyncExecutor.executeExtractionAsync(taskIdForAsync);
-        }
-
+        signalQueueAfterCommit(taskId);
         return toTaskDTO(task);
     }
 
+    /**
+     * 相同内容的文件已由其他任务上传且 Filer 上仍存在时返回其路径，否则返回 null（需重新上传）。
+     * 删除任务不删除 SeaweedFS 文件，因此已删除任务的文件同样可复用。
+     */
+    private String findReusableFilePath(String contentHash) {
+        return taskRepository.findFirstByContentHashAndFilePathIdIsNotNullOrderByCreatedTimeDesc(contentHash)
+                .map(ArchiveImportTask::getFilePathId)
+                .filter(seaweedFSService::exists)
+                .orElse(null);
+    }
+
     /**
      * 批量上传：对每个文件上传至 SeaweedFS 并创建任务（状态 PENDING），接口立即返回；
      * 大模型提取由异步任务执行，完成后更新任务状态。
@@ -155,7 +168,8 @@ public class ArchiveFusionService {
 
     /**
      * 失败任务重新导入：仅允许状态为 FAILED 的任务重试。
-     * 清空该任务的提取结果、重置状态为 PENDING 并重新触发异步提取。
+     * 保留已有提取结果，只重新抽取没有结果的行（含此前提取失败的行）；重置状态为 PENDING 并重新触发异步提取。
+     * 无来源行号的历史结果无法与数据行对应，仍按原方式清空后全部重新提取（已抽取过的行命中抽取缓存）。
      */
     @Transactional(rollbackFor = Exception.class)
     public ArchiveImportTaskDTO retryTask(String taskId) {
@@ -164,30 +178,41 @@ public class ArchiveFusionService {
         if (!STATUS_FAILED.equals(task.getStatus())) {
             throw new IllegalArgumentException("仅失败状态的任务支持重新导入，当前状态: " + task.getStatus());
         }
-        // 清空该任务已有的提取结果
         List<ArchiveExtractResult> existing = extractResultRepository.findByTaskIdOrderByExtractIndexAsc(taskId);
-        if (!existing.isEmpty()) {
+        if (existing.stream().anyMatch(r -> r.getSourceRowIndex() == null)) {
             extractResultRepository.deleteAll(existing);
+            existing = List.of();
         }
         task.setStatus(STATUS_PENDING);
         task.setErrorMessage(null);
-        task.setExtractCount(0);
+        // 断点归零：已处理但无结果的行需重新尝试，有结果的行由提取流程按来源行号跳过
+        task.setProcessedRowCount(0);
+        task.setExtractCount(existing.size());
         task.setTotalExtractCount(0);
         task.setUpdatedTime(LocalDateTime.now());
         taskRepository.save(task);
-        log.info("【档案融合】失败任务重新导入: taskId={}", taskId);
-        final String taskIdForAsync = taskId;
+        log.info("【档案融合】失败任务重新导入: taskId={}, 保留提取结果={}", taskId, existing.size());
+        signalQueueAfterCommit(taskId);
+        return toTaskDTO(task);
+    }
+
+    /**
+     * 任务已入队（PENDING）：通知工作队列立即拉取，本实例无空闲槽位时由其他实例或下一轮调度领取。
+     * 有事务时在提交后通知，确保任务对拉取可见；无事务时（如批量上传内部调用）直接通知，避免 Transaction synchronization is not active。
+     */
+    private void signalQueueAfterCommit(String taskId) {
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
-                    asyncExecutor.executeExtractionAsync(taskIdForAsync);
+                    log.info("【档案融合】事务已提交，通知工作队列: taskId={}", taskId);
+                    taskQueueService.pollAndDispatch();
                 }
             });
         } else {
-            asyncExecutor.executeExtractionAsync(taskIdForAsync);
+            log.info("【档案融合】无活动事务，直接通知工作队列: taskId={}", taskId);
+            taskQueueService.pollAndDispatch();
         }
-        return toTaskDTO(task);
     }
 
     /**
@@ -438,6 +463,7 @@ public class ArchiveFusionService {
         ArchiveImportTask task = taskRepository.findById(taskId).orElse(null);
         String creatorUsername = task != null ? task.getCreatorUsername() : null;
         List<String> importedPersonIds = new ArrayList<>();
+        List<Person> importedPersons = new ArrayList<>();
         LocalDateTime now = LocalDateTime.now();
         for (String resultId : resultIds) {
             ArchiveExtractResult result = extractResultRepository.findById(resultId)
@@ -491,10 +517,13 @@ public class ArchiveFusionService {
                 result.setImportedPersonId(person.getPersonId());
                 extractResultRepository.save(result);
                 importedPersonIds.add(person.getPersonId());
+                importedPersons.add(person);
             } catch (Exception e) {
                 log.warn("导入提取结果失败: resultId={}", resultId, e);
             }
         }
+        // 新建与合并后的档案一并同步标识反查表（合并可能为已有档案带来新的手机号、邮箱等）
+        personIdentifierService.sync(importedPersons);
         if (!importedPersonIds.isEmpty() && task != null) {
             long unimported = extractResultRepository.countByTaskIdAndImportedFalse(taskId);
             if (unimported == 0) {
@@ -0,0 +1,199 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.dto.ArchiveTaskProgressDTO;
+import com.stararchive.personmonitor.entity.ArchiveImportTask;
+import com.stararchive.personmonitor.repository.ArchiveImportTaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 档案融合任务进度总线：按用户维护 SSE 订阅，提取执行器每处理一行即推送进度，前端无需轮询任务列表。
+ * <ul>
+ *   <li>订阅时先推送一次该用户进行中任务的快照（snapshot），之后仅推送变化（progress）；</li>
+ *   <li>任务可能由其他副本执行，定期从库中同步订阅用户的进行中任务，只推送比已推送更新的进度；</li>
+ *   <li>长时间无进度时发送注释行保活，避免网关断开空闲连接。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveTaskProgressBus {
+
+    private static final List<String> ACTIVE_STATUSES = List.of("PENDING", "EXTRACTING");
+    private static final Set<String> FINAL_STATUSES = Set.of("SUCCESS", "FAILED", "IMPORTED");
+    private static final long KEEP_ALIVE_MS = 25_000L;
+
+    private final ArchiveImportTaskRepository taskRepository;
+
+    /** SSE 连接超时（毫秒），超时后前端 EventSource 自动重连并重新获取快照 */
+    @Value("${archive.progress.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    private final Map<String, List<SseEmitter>> emittersByUser = new ConcurrentHashMap<>();
+    /** 各任务最近一次推送的进度：用于去重，以及同步时识别已结束的任务；任务结束后移除 */
+    private final Map<String, ArchiveTaskProgressDTO> lastPublished = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastSentMillisByUser = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅当前用户的任务进度
+     */
+    public SseEmitter subscribe(String username) {
+        String user = username.trim();
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emittersByUser.computeIfAbsent(user, k -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> removeEmitter(user, emitter));
+        emitter.onTimeout(() -> removeEmitter(user, emitter));
+        emitter.onError(e -> removeEmitter(user, emitter));
+
+        List<ArchiveTaskProgressDTO> snapshot = new ArrayList<>();
+        try {
+            for (ArchiveImportTask task : taskRepository.findByCreatorUsernameAndStatusIn(user, ACTIVE_STATUSES)) {
+                ArchiveTaskProgressDTO progress = toProgress(task);
+                lastPublished.merge(progress.getTaskId(), progress, ArchiveTaskProgressBus::newer);
+                snapshot.add(lastPublished.getOrDefault(progress.getTaskId(), progress));
+            }
+        } catch (Exception e) {
+            log.warn("【档案融合-进度推送】加载进行中任务失败: user={}, error={}", user, e.getMessage());
+        }
+        send(user, emitter, SseEmitter.event().name("snapshot").data(snapshot));
+        log.info("【档案融合-进度推送】用户订阅: user={}, 连接数={}, 进行中任务={}",
+                user, emittersByUser.getOrDefault(user, List.of()).size(), snapshot.size());
+        return emitter;
+    }
+
+    /**
+     * 发布任务进度；与上次推送相同时不重复发送，任务结束后清除记录
+     */
+    public void publish(ArchiveTaskProgressDTO progress) {
+        if (progress == null || progress.getTaskId() == null) return;
+        ArchiveTaskProgressDTO previous = lastPublished.put(progress.getTaskId(), progress);
+        if (FINAL_STATUSES.contains(progress.getStatus())) {
+            lastPublished.remove(progress.getTaskId());
+        }
+        if (sameProgress(previous, progress)) return;
+        String user = progress.getCreatorUsername();
+        if (user == null) return;
+        List<SseEmitter> emitters = emittersByUser.get(user);
+        if (emitters == null || emitters.isEmpty()) return;
+        for (SseEmitter emitter : emitters) {
+            send(user, emitter, SseEmitter.event().name("progress").data(progress));
+        }
+    }
+
+    public void publish(ArchiveImportTask task) {
+        publish(toProgress(task));
+    }
+
+    /**
+     * 从库中同步订阅用户的任务进度（覆盖其他副本执行的任务），并为空闲连接保活
+     */
+    @Scheduled(fixedDelayString = "${archive.progress.sync-interval-ms:3000}")
+    public void syncFromDatabase() {
+        if (emittersByUser.isEmpty()) return;
+        for (String user : new ArrayList<>(emittersByUser.keySet())) {
+            try {
+                syncUser(user);
+            } catch (Exception e) {
+                log.warn("【档案融合-进度推送】同步任务进度失败: user={}, error={}", user, e.getMessage());
+            }
+            keepAlive(user);
+        }
+    }
+
+    public int subscriberCount(String username) {
+        List<SseEmitter> emitters = emittersByUser.get(username);
+        return emitters != null ? emitters.size() : 0;
+    }
+
+    private void syncUser(String user) {
+        Set<String> active = new HashSet<>();
+        for (ArchiveImportTask task : taskRepository.findByCreatorUsernameAndStatusIn(user, ACTIVE_STATUSES)) {
+            active.add(task.getTaskId());
+            publishIfNewer(toProgress(task));
+        }
+        // 上次推送时仍在进行、本次不在进行中列表的任务：读取最终状态推送一次
+        List<String> ended = lastPublished.values().stream()
+                .filter(p -> user.equals(p.getCreatorUsername()) && !active.contains(p.getTaskId()))
+                .map(ArchiveTaskProgressDTO::getTaskId)
+                .toList();
+        if (ended.isEmpty()) return;
+        Set<String> found = new HashSet<>();
+        for (ArchiveImportTask task : taskRepository.findAllById(ended)) {
+            found.add(task.getTaskId());
+            publishIfNewer(toProgress(task));
+        }
+        // 已删除的任务
+        ended.stream().filter(id -> !found.contains(id)).forEach(lastPublished::remove);
+    }
+
+    /** 库中进度按合并间隔写入，可能落后于本实例已推送的进度，仅推送更新时间更晚的快照，避免进度回退 */
+    private void publishIfNewer(ArchiveTaskProgressDTO progress) {
+        ArchiveTaskProgressDTO previous = lastPublished.get(progress.getTaskId());
+        if (previous != null && newer(previous, progress) == previous) return;
+        publish(progress);
+    }
+
+    private void keepAlive(String user) {
+        long now = System.currentTimeMillis();
+        if (now - lastSentMillisByUser.getOrDefault(user, 0L) < KEEP_ALIVE_MS) return;
+        for (SseEmitter emitter : emittersByUser.getOrDefault(user, List.of())) {
+            send(user, emitter, SseEmitter.event().comment("keep-alive"));
+        }
+    }
+
+    private void send(String user, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            lastSentMillisByUser.put(user, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.debug("【档案融合-进度推送】发送失败，移除连接: user={}, error={}", user, e.getMessage());
+            removeEmitter(user, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void removeEmitter(String user, SseEmitter emitter) {
+        emittersByUser.computeIfPresent(user, (k, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+        if (!emittersByUser.containsKey(user)) {
+            lastSentMillisByUser.remove(user);
+        }
+    }
+
+    private static ArchiveTaskProgressDTO newer(ArchiveTaskProgressDTO a, ArchiveTaskProgressDTO b) {
+        if (a.getUpdatedTime() == null) return b;
+        if (b.getUpdatedTime() == null) return a;
+        return b.getUpdatedTime().isAfter(a.getUpdatedTime()) ? b : a;
+    }
+
+    private static boolean sameProgress(ArchiveTaskProgressDTO a, ArchiveTaskProgressDTO b) {
+        return a != null
+                && Objects.equals(a.getStatus(), b.getStatus())
+                && Objects.equals(a.getExtractCount(), b.getExtractCount())
+                && Objects.equals(a.getTotalExtractCount(), b.getTotalExtractCount())
+                && Objects.equals(a.getErrorMessage(), b.getErrorMessage());
+    }
+
+    static ArchiveTaskProgressDTO toProgress(ArchiveImportTask task) {
+        return ArchiveTaskProgressDTO.builder()
+                .taskId(task.getTaskId())
+                .status(task.getStatus())
+                .totalExtractCount(task.getTotalExtractCount())
+                .extractCount(task.getExtractCount())
+                .errorMessage(task.getErrorMessage())
+                .creatorUsername(task.getCreatorUsername())
+                .updatedTime(task.getUpdatedTime() != null ? task.getUpdatedTime() : LocalDateTime.now())
+                .build();
+    }
+}
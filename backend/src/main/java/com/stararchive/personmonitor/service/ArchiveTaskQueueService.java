@@ -0,0 +1,268 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.entity.ArchiveImportTask;
+import com.stararchive.personmonitor.repository.ArchiveImportTaskRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 档案融合工作队列：以 archive_import_task 表为队列，多个后端副本通过租约（lease_owner / lease_expire_time）领取任务。
+ * <ul>
+ *   <li>各实例定期拉取 PENDING/EXTRACTING 且无租约或租约已过期的任务，空闲槽位不超过 max-concurrent-tasks；</li>
+ *   <li>按用户公平调度：优先领取当前在执行任务最少的用户的任务，同一用户内按创建时间先后；</li>
+ *   <li>执行期间定期心跳续约，续约失败（租约被其他实例领取）时停止本实例提取，由新持有者按断点继续；</li>
+ *   <li>实例崩溃后租约到期，任务自动被其他实例领取，无需单独的恢复流程；正常停机时先停止并等待工作线程，再释放仍持有的租约。</li>
+ * </ul>
+ * Doris 不支持行锁，领取采用「条件更新 + 回读确认」：并发领取以最后写入为准，落败方回读后放弃；
+ * 极端情况下两实例短暂重叠执行同一行，提取结果编号由任务与来源行确定，重复写入会覆盖而不会重复。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveTaskQueueService {
+
+    private static final List<String> QUEUED_STATUSES = List.of("PENDING", "EXTRACTING");
+    /** 每次拉取的候选任务数上限（含其他实例执行中的任务，用于统计各用户在执行数） */
+    private static final int CANDIDATE_LIMIT = 200;
+
+    private final ArchiveImportTaskRepository taskRepository;
+    private final ArchiveExtractionAsyncExecutor extractionExecutor;
+
+    @Value("${archive.queue.enabled:true}")
+    private boolean enabled;
+
+    /** 单实例同时执行的提取任务数 */
+    @Value("${archive.queue.max-concurrent-tasks:2}")
+    private int maxConcurrentTasks;
+
+    /** 租约时长（秒），需明显大于心跳间隔 */
+    @Value("${archive.queue.lease-seconds:90}")
+    private int leaseSeconds;
+
+    /** 停机时等待工作线程停止的最长时间（秒），超时后仍释放租约 */
+    @Value("${archive.queue.shutdown-wait-seconds:30}")
+    private int shutdownWaitSeconds = 30;
+
+    /** 实例编号，默认取主机名（K8s 下为 Pod 名）加随机后缀 */
+    @Value("${archive.queue.instance-id:}")
+    private String configuredInstanceId;
+
+    private volatile String instanceId;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final Set<String> heldLeases = Collections.synchronizedSet(new LinkedHashSet<>());
+    /** 拉取与领取串行执行，避免同一实例内并发拉取超出槽位 */
+    private final Object pollLock = new Object();
+    private volatile boolean shuttingDown;
+
+    private final ExecutorService workerExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "archive-extract-worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 拉取并领取任务，提交到本实例工作线程执行。由定时调度周期调用，新建或重试任务提交后也会立即调用一次。
+     *
+     * @return 本次领取的任务数
+     */
+    public int pollAndDispatch() {
+        if (!enabled || shuttingDown) return 0;
+        synchronized (pollLock) {
+            if (shuttingDown) return 0;
+            int free = maxConcurrentTasks - activeCount.get();
+            if (free <= 0) return 0;
+            LocalDateTime now = LocalDateTime.now();
+            List<ArchiveImportTask> candidates = taskRepository.findByStatusInOrderByCreatedTimeAsc(
+                    QUEUED_STATUSES, PageRequest.of(0, CANDIDATE_LIMIT));
+            List<ArchiveImportTask> claimable = claimable(candidates, now);
+            Map<String, Integer> runningByUser = countRunningByUser(candidates, now);
+            int claimed = 0;
+            while (claimed < free && !claimable.isEmpty()) {
+                // 每次按最新的各用户在执行数挑选，保证多个用户的任务交替领取
+                ArchiveImportTask next = claimable.stream()
+                        .min(Comparator.comparingInt((ArchiveImportTask t) -> runningByUser.getOrDefault(userKey(t), 0))
+                                .thenComparing(ArchiveImportTask::getCreatedTime, Comparator.nullsFirst(Comparator.naturalOrder())))
+                        .get();
+                claimable.remove(next);
+                if (extractionExecutor.isRunningLocally(next.getTaskId())) continue;
+                if (tryAcquire(next.getTaskId(), now)) {
+                    runningByUser.merge(userKey(next), 1, Integer::sum);
+                    dispatch(next.getTaskId());
+                    claimed++;
+                }
+            }
+            if (claimed > 0) {
+                log.info("【档案融合-工作队列】本实例领取任务: instance={}, 领取={}, 执行中={}/{}",
+                        instanceId(), claimed, activeCount.get(), maxConcurrentTasks);
+            }
+            return claimed;
+        }
+    }
+
+    /**
+     * 心跳：为本实例持有的租约续约；续约失败说明租约已被其他实例领取，通知执行器停止该任务。
+     */
+    public void heartbeat() {
+        List<String> held;
+        synchronized (heldLeases) {
+            held = new ArrayList<>(heldLeases);
+        }
+        if (held.isEmpty()) return;
+        LocalDateTime expire = LocalDateTime.now().plusSeconds(leaseSeconds);
+        for (String taskId : held) {
+            try {
+                if (taskRepository.renewLease(taskId, instanceId(), expire) == 0) {
+                    log.warn("【档案融合-工作队列】续约失败，租约已被其他实例领取: taskId={}, instance={}", taskId, instanceId());
+                    heldLeases.remove(taskId);
+                    extractionExecutor.requestStop(taskId);
+                }
+            } catch (Exception e) {
+                log.warn("【档案融合-工作队列】续约异常: taskId={}, error={}", taskId, e.getMessage());
+            }
+        }
+    }
+
+    public int activeCount() {
+        return activeCount.get();
+    }
+
+    public String instanceId() {
+        String id = instanceId;
+        if (id == null) {
+            id = configuredInstanceId != null && !configuredInstanceId.isBlank() ? configuredInstanceId.trim() : defaultInstanceId();
+            instanceId = id;
+        }
+        return id;
+    }
+
+    /**
+     * 停机：不再领取新任务，通知执行中的任务停止并等待工作线程结束（正常结束的任务在工作线程中自行释放租约），
+     * 之后只释放仍持有的租约（等待超时未停下的任务），其他实例无需等待租约到期即可接手。
+     * 先释放再停线程会让其他实例在本实例仍在写入时接手同一任务。
+     */
+    @PreDestroy
+    public void releaseAll() {
+        synchronized (pollLock) {
+            shuttingDown = true;
+        }
+        List<String> held;
+        synchronized (heldLeases) {
+            held = new ArrayList<>(heldLeases);
+        }
+        held.forEach(extractionExecutor::requestStop);
+        workerExecutor.shutdown();
+        try {
+            if (!workerExecutor.awaitTermination(Math.max(0, shutdownWaitSeconds), TimeUnit.SECONDS)) {
+                log.warn("【档案融合-工作队列】停机等待超时，仍有任务未停止: instance={}, 执行中={}", instanceId(), activeCount.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (heldLeases) {
+            held = new ArrayList<>(heldLeases);
+        }
+        held.forEach(this::release);
+        if (!held.isEmpty()) {
+            log.info("【档案融合-工作队列】停机释放租约: instance={}, 任务={}", instanceId(), held);
+        }
+    }
+
+    private boolean tryAcquire(String taskId, LocalDateTime now) {
+        try {
+            String owner = instanceId();
+            if (taskRepository.tryAcquireLease(taskId, owner, now, now.plusSeconds(leaseSeconds)) == 0) {
+                return false;
+            }
+            // 条件更新在 Doris 上不是原子 CAS，回读确认最终持有者
+            if (!owner.equals(taskRepository.findLeaseOwner(taskId))) {
+                log.info("【档案融合-工作队列】领取落败，任务已由其他实例持有: taskId={}", taskId);
+                return false;
+            }
+            heldLeases.add(taskId);
+            return true;
+        } catch (Exception e) {
+            log.warn("【档案融合-工作队列】领取租约异常: taskId={}, error={}", taskId, e.getMessage());
+            return false;
+        }
+    }
+
+    private void dispatch(String taskId) {
+        activeCount.incrementAndGet();
+        workerExecutor.submit(() -> {
+            try {
+                extractionExecutor.executeExtraction(taskId);
+            } catch (Exception e) {
+                log.error("【档案融合-工作队列】任务执行异常: taskId={}", taskId, e);
+            } finally {
+                release(taskId);
+                activeCount.decrementAndGet();
+                // 槽位空出后立即拉取下一个任务，不必等待下一轮调度
+                try {
+                    pollAndDispatch();
+                } catch (Exception e) {
+                    log.warn("【档案融合-工作队列】任务结束后拉取失败: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void release(String taskId) {
+        heldLeases.remove(taskId);
+        try {
+            taskRepository.releaseLease(taskId, instanceId());
+        } catch (Exception e) {
+            log.warn("【档案融合-工作队列】释放租约异常（到期后自动失效）: taskId={}, error={}", taskId, e.getMessage());
+        }
+    }
+
+    /** 可领取的任务：无租约或租约已过期 */
+    private static List<ArchiveImportTask> claimable(List<ArchiveImportTask> candidates, LocalDateTime now) {
+        List<ArchiveImportTask> claimable = new ArrayList<>();
+        for (ArchiveImportTask t : candidates) {
+            if (t.getLeaseExpireTime() == null || t.getLeaseExpireTime().isBefore(now)) {
+                claimable.add(t);
+            }
+        }
+        return claimable;
+    }
+
+    /** 各用户当前在执行（持有有效租约）的任务数 */
+    private static Map<String, Integer> countRunningByUser(List<ArchiveImportTask> candidates, LocalDateTime now) {
+        Map<String, Integer> running = new HashMap<>();
+        for (ArchiveImportTask t : candidates) {
+            if (t.getLeaseExpireTime() != null && !t.getLeaseExpireTime().isBefore(now)) {
+                running.merge(userKey(t), 1, Integer::sum);
+            }
+        }
+        return running;
+    }
+
+    private static String userKey(ArchiveImportTask task) {
+        return task.getCreatorUsername() != null ? task.getCreatorUsername() : "";
+    }
+
+    private static String defaultInstanceId() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "backend";
+            }
+        }
+        return host + "-" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    }
+}
@@ -0,0 +1,398 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.CoTravelProperties;
+import com.stararchive.personmonitor.dto.PersonCoTravelEvidenceDTO;
+import com.stararchive.personmonitor.dto.PersonCompanionDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.entity.PersonCoTravel;
+import com.stararchive.personmonitor.entity.PersonCoTravelId;
+import com.stararchive.personmonitor.entity.PersonCoTravelState;
+import com.stararchive.personmonitor.entity.PersonTravel;
+import com.stararchive.personmonitor.repository.PersonCoTravelRepository;
+import com.stararchive.personmonitor.repository.PersonCoTravelStateRepository;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import com.stararchive.personmonitor.repository.PersonTravelRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * 人物同行检测：按行程入库时间水位分批处理新入库的行程，与库中同一时间桶的行程做哈希分区连接，产生同行证据。
+ * <ul>
+ *   <li>SAME_TRIP：行程类型、票据编号（去首尾空白、大写）与发生日期相同，按规范化后的票据编号读取候选后以 类型|票据|日期 分区；</li>
+ *   <li>SAME_CITY：到达城市相同且发生时间差不超过 city-window-minutes，新行程按发生时间排序后合并为若干时间段（排序归并），
+ *       每段按城市读取候选，以 城市|时间桶 分区（桶宽即时间窗），每条新行程只与本桶及相邻两桶比较；同车次的两条行程不重复计入；</li>
+ *   <li>人数超过 max-group-size 的分区视为热点（大站、大城市），不产生同行；</li>
+ *   <li>证据双向写入 person_co_travel（Unique Key，重放幂等），随后按涉及人物重算 person_co_travel_stat 中的同行次数，
+ *       查询某人的同行人只按 person_id 前缀读取次数表。</li>
+ * </ul>
+ * 水位、租约与失败重放语义同 {@link EventAggregationService}。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CoTravelService {
+
+    static final String STATE_KEY = "person-co-travel";
+    /** 同城候选按时间段读取，单段跨度上限，避免积压时一次读取过多行程 */
+    private static final Duration MAX_RANGE_SPAN = Duration.ofHours(24);
+
+    private final PersonTravelRepository personTravelRepository;
+    private final PersonCoTravelRepository coTravelRepository;
+    private final PersonCoTravelStateRepository stateRepository;
+    private final PersonRepository personRepository;
+    private final CoTravelProperties properties;
+
+    private final String instanceId = defaultInstanceId();
+
+    /**
+     * 执行一轮增量检测
+     *
+     * @return 本轮推进水位的行程条数
+     */
+    public synchronized int runOnce() {
+        if (!properties.isEnabled()) return 0;
+        LocalDateTime now = LocalDateTime.now();
+        PersonCoTravelState state = acquire(now);
+        if (state == null) return 0;
+
+        LocalDateTime watermarkTime = state.getWatermarkTime() != null
+                ? state.getWatermarkTime()
+                : now.toLocalDate().minusDays(properties.getInitialLookbackDays()).atStartOfDay();
+        long watermarkId = state.getWatermarkTravelId() != null ? state.getWatermarkTravelId() : Long.MIN_VALUE;
+        LocalDateTime until = now.minusSeconds(properties.getIngestLagSeconds());
+        int batchSize = Math.max(1, properties.getBatchSize());
+        int processed = 0;
+        int pairs = 0;
+        for (int batchNo = 0; batchNo < properties.getMaxBatchesPerRun(); batchNo++) {
+            if (batchNo > 0 && acquire(LocalDateTime.now()) == null) break;
+            List<PersonTravel> batch = personTravelRepository.findCreatedAfter(watermarkTime, watermarkId, until, batchSize);
+            if (batch.isEmpty()) break;
+            pairs += detect(batch);
+            PersonTravel last = batch.get(batch.size() - 1);
+            watermarkTime = last.getCreatedTime();
+            watermarkId = last.getTravelId();
+            if (stateRepository.advanceWatermark(STATE_KEY, instanceId, watermarkTime, watermarkId, LocalDateTime.now()) == 0) {
+                log.warn("【同行检测】租约已被其他实例领取，停止本轮: instance={}", instanceId);
+                break;
+            }
+            processed += batch.size();
+            if (batch.size() < batchSize) break;
+        }
+        if (processed > 0) {
+            log.info("【同行检测】本轮行程={}, 同行对={}, 水位={}", processed, pairs, watermarkTime);
+        }
+        return processed;
+    }
+
+    /**
+     * 检测一批新行程与库中行程的同行关系，写入证据并重算涉及人物的同行次数
+     *
+     * @return 本批产生的同行对数（同一对人物的每次同行计一对）
+     */
+    int detect(List<PersonTravel> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<PersonCoTravelId, PersonCoTravel> evidence = new LinkedHashMap<>();
+        Set<String> hotspots = new HashSet<>();
+        List<PersonTravel> usable = batch.stream().filter(CoTravelService::usable).toList();
+        detectSameTrip(usable, evidence, hotspots, now);
+        detectSameCity(usable, evidence, hotspots, now);
+        if (!hotspots.isEmpty()) {
+            log.debug("【同行检测】跳过热点分组: {} 个", hotspots.size());
+        }
+        if (evidence.isEmpty()) return 0;
+
+        coTravelRepository.upsertBatch(new ArrayList<>(evidence.values()));
+        Set<String> touched = new LinkedHashSet<>();
+        for (PersonCoTravel row : evidence.values()) touched.add(row.getPersonId());
+        coTravelRepository.refreshStats(touched);
+        return evidence.size() / 2;
+    }
+
+    /** 同车次/航班：按票据编号读取候选，以 类型|票据|日期 哈希分区后与新行程连接 */
+    private void detectSameTrip(List<PersonTravel> batch, Map<PersonCoTravelId, PersonCoTravel> evidence,
+                                Set<String> hotspots, LocalDateTime now) {
+        Map<String, List<PersonTravel>> fresh = new LinkedHashMap<>();
+        Set<String> tickets = new LinkedHashSet<>();
+        LocalDate minDate = null;
+        LocalDate maxDate = null;
+        for (PersonTravel t : batch) {
+            String key = tripKey(t);
+            if (key == null) continue;
+            fresh.computeIfAbsent(key, k -> new ArrayList<>()).add(t);
+            tickets.add(t.getTicketNumber().trim().toUpperCase(Locale.ROOT));
+            LocalDate date = t.getEventTime().toLocalDate();
+            if (minDate == null || date.isBefore(minDate)) minDate = date;
+            if (maxDate == null || date.isAfter(maxDate)) maxDate = date;
+        }
+        if (fresh.isEmpty()) return;
+
+        List<PersonTravel> candidates = personTravelRepository.findByTicketNumbersBetween(
+                tickets, minDate.atStartOfDay(), maxDate.plusDays(1).atStartOfDay());
+        Map<String, Map<Long, PersonTravel>> partitions = partition(candidates, batch, CoTravelService::tripKey, fresh.keySet());
+        for (Map.Entry<String, List<PersonTravel>> e : fresh.entrySet()) {
+            Map<Long, PersonTravel> members = partitions.get(e.getKey());
+            if (members.size() > properties.getMaxGroupSize()) {
+                hotspots.add(e.getKey());
+                continue;
+            }
+            for (PersonTravel t : e.getValue()) {
+                for (PersonTravel other : members.values()) {
+                    if (t.getPersonId().equals(other.getPersonId())) continue;
+                    emit(evidence, PersonCoTravel.TYPE_SAME_TRIP, e.getKey(), t, other,
+                            t.getTicketNumber().trim().toUpperCase(Locale.ROOT), now);
+                }
+            }
+        }
+    }
+
+    /** 同时段到达同城：新行程按时间排序归并为时间段，每段读取候选后以 城市|时间桶 哈希分区，与本桶及相邻桶比较 */
+    private void detectSameCity(List<PersonTravel> batch, Map<PersonCoTravelId, PersonCoTravel> evidence,
+                                Set<String> hotspots, LocalDateTime now) {
+        long windowMinutes = Math.max(1, properties.getCityWindowMinutes());
+        List<PersonTravel> fresh = batch.stream()
+                .filter(t -> city(t) != null)
+                .sorted(Comparator.comparing(PersonTravel::getEventTime))
+                .toList();
+        int from = 0;
+        while (from < fresh.size()) {
+            LocalDateTime rangeStart = fresh.get(from).getEventTime();
+            int to = from + 1;
+            while (to < fresh.size()) {
+                LocalDateTime t = fresh.get(to).getEventTime();
+                if (Duration.between(fresh.get(to - 1).getEventTime(), t).toMinutes() > 2 * windowMinutes
+                        || Duration.between(rangeStart, t).compareTo(MAX_RANGE_SPAN) > 0) break;
+                to++;
+            }
+            joinSameCity(fresh.subList(from, to), windowMinutes, evidence, hotspots, now);
+            from = to;
+        }
+    }
+
+    private void joinSameCity(List<PersonTravel> range, long windowMinutes, Map<PersonCoTravelId, PersonCoTravel> evidence,
+                              Set<String> hotspots, LocalDateTime now) {
+        Set<String> cities = new LinkedHashSet<>();
+        for (PersonTravel t : range) cities.add(city(t));
+        LocalDateTime start = range.get(0).getEventTime().minusMinutes(windowMinutes);
+        LocalDateTime end = range.get(range.size() - 1).getEventTime().plusMinutes(windowMinutes);
+        List<PersonTravel> candidates = personTravelRepository.findByDestinationCitiesBetween(cities, start, end);
+        Map<String, Map<Long, PersonTravel>> partitions = partition(candidates, range,
+                t -> city(t) != null ? city(t) + "|" + bucket(t, windowMinutes) : null, null);
+
+        for (PersonTravel t : range) {
+            String city = city(t);
+            long bucket = bucket(t, windowMinutes);
+            String own = city + "|" + bucket;
+            if (partitions.get(own).size() > properties.getMaxGroupSize()) {
+                hotspots.add(own);
+                continue;
+            }
+            for (long b = bucket - 1; b <= bucket + 1; b++) {
+                Map<Long, PersonTravel> members = partitions.get(city + "|" + b);
+                if (members == null) continue;
+                if (members.size() > properties.getMaxGroupSize()) {
+                    hotspots.add(city + "|" + b);
+                    continue;
+                }
+                for (PersonTravel other : members.values()) {
+                    if (t.getPersonId().equals(other.getPersonId())) continue;
+                    if (Math.abs(Duration.between(t.getEventTime(), other.getEventTime()).toMinutes()) > windowMinutes) continue;
+                    String trip = tripKey(t);
+                    if (trip != null && trip.equals(tripKey(other))) continue;
+                    long low = Math.min(t.getTravelId(), other.getTravelId());
+                    long high = Math.max(t.getTravelId(), other.getTravelId());
+                    emit(evidence, PersonCoTravel.TYPE_SAME_CITY, city + "|" + low + "|" + high, t, other, city, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * 候选与新行程（新行程已入库，通常也在候选中）按分区键哈希分组，分组内按行程 ID 去重；keys 非空时只保留这些分区
+     */
+    private static Map<String, Map<Long, PersonTravel>> partition(List<PersonTravel> candidates, List<PersonTravel> fresh,
+                                                                  Function<PersonTravel, String> keyOf,
+                                                                  Set<String> keys) {
+        Map<String, Map<Long, PersonTravel>> partitions = new LinkedHashMap<>();
+        List<PersonTravel> all = new ArrayList<>(candidates.size() + fresh.size());
+        all.addAll(candidates);
+        all.addAll(fresh);
+        for (PersonTravel t : all) {
+            if (!usable(t)) continue;
+            String key = keyOf.apply(t);
+            if (key == null || (keys != null && !keys.contains(key))) continue;
+            partitions.computeIfAbsent(key, k -> new LinkedHashMap<>()).putIfAbsent(t.getTravelId(), t);
+        }
+        return partitions;
+    }
+
+    private static void emit(Map<PersonCoTravelId, PersonCoTravel> evidence, String type, String occurKey,
+                             PersonTravel a, PersonTravel b, String place, LocalDateTime now) {
+        LocalDateTime occurTime = a.getEventTime().isBefore(b.getEventTime()) ? a.getEventTime() : b.getEventTime();
+        evidence.putIfAbsent(new PersonCoTravelId(a.getPersonId(), b.getPersonId(), type, occurKey),
+                new PersonCoTravel(a.getPersonId(), b.getPersonId(), type, occurKey, occurTime,
+                        a.getTravelId(), b.getTravelId(), place, now));
+        evidence.putIfAbsent(new PersonCoTravelId(b.getPersonId(), a.getPersonId(), type, occurKey),
+                new PersonCoTravel(b.getPersonId(), a.getPersonId(), type, occurKey, occurTime,
+                        b.getTravelId(), a.getTravelId(), place, now));
+    }
+
+    private static boolean usable(PersonTravel t) {
+        return t.getTravelId() != null && t.getPersonId() != null && t.getEventTime() != null;
+    }
+
+    /** 车次/航班键：行程类型|大写票据编号|发生日期；无票据编号时为 null */
+    static String tripKey(PersonTravel t) {
+        if (t.getTicketNumber() == null || t.getTicketNumber().isBlank() || t.getEventTime() == null) return null;
+        String type = t.getTravelType() != null ? t.getTravelType().trim().toUpperCase(Locale.ROOT) : "";
+        return type + "|" + t.getTicketNumber().trim().toUpperCase(Locale.ROOT) + "|" + t.getEventTime().toLocalDate();
+    }
+
+    private static String city(PersonTravel t) {
+        if (t.getDestinationCity() == null || t.getDestinationCity().isBlank() || t.getEventTime() == null) return null;
+        return t.getDestinationCity().trim();
+    }
+
+    private static long bucket(PersonTravel t, long windowMinutes) {
+        return Math.floorDiv(t.getEventTime().toEpochSecond(ZoneOffset.UTC) / 60, windowMinutes);
+    }
+
+    /**
+     * 某人的同行人，按同行次数降序
+     *
+     * @param coType   SAME_TRIP / SAME_CITY，为空时不限
+     * @param minCount 最少同行次数
+     * @throws IllegalArgumentException 同行类型不合法
+     * @throws EntityNotFoundException  人物不存在或不可见
+     */
+    public List<PersonCompanionDTO> companions(String personId, String coType, int minCount, int limit, String currentUser) {
+        String type = coType(coType);
+        String user = user(currentUser);
+        requireVisible(personId, user);
+        int size = Math.min(Math.max(1, limit), properties.getMaxLimit());
+        List<PersonCompanionDTO> result = new ArrayList<>();
+        for (Object[] row : coTravelRepository.findCompanionsVisible(personId, type, Math.max(1, minCount), user, size)) {
+            result.add(PersonCompanionDTO.builder()
+                    .personId((String) row[0])
+                    .name((String) row[1])
+                    .coType((String) row[2])
+                    .count(((Number) row[3]).intValue())
+                    .firstTime(toTime(row[4]))
+                    .lastTime(toTime(row[5]))
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * 两人之间的同行证据，按发生时间倒序
+     *
+     * @throws EntityNotFoundException 任一人物不存在或不可见
+     */
+    public List<PersonCoTravelEvidenceDTO> evidence(String personId, String companionId, int limit, String currentUser) {
+        String user = user(currentUser);
+        requireVisible(personId, user);
+        requireVisible(companionId, user);
+        int size = Math.min(Math.max(1, limit), properties.getMaxLimit());
+        return coTravelRepository.findByPersonIdAndCompanionIdOrderByOccurTimeDesc(personId, companionId, PageRequest.of(0, size))
+                .stream()
+                .map(c -> PersonCoTravelEvidenceDTO.builder()
+                        .coType(c.getCoType())
+                        .occurTime(c.getOccurTime())
+                        .place(c.getPlace())
+                        .travelId(c.getTravelId())
+                        .companionTravelId(c.getCompanionTravelId())
+                        .build())
+                .toList();
+    }
+
+    private void requireVisible(String personId, String user) {
+        Person person = personRepository.findById(personId).orElse(null);
+        boolean visible = person != null && !Boolean.TRUE.equals(person.getDeleted())
+                && (Boolean.TRUE.equals(person.getIsPublic()) || (user != null && user.equals(person.getCreatedBy())));
+        if (!visible) {
+            throw new EntityNotFoundException("人员不存在: " + personId);
+        }
+    }
+
+    private static String coType(String coType) {
+        if (coType == null || coType.isBlank()) return null;
+        String type = coType.trim().toUpperCase(Locale.ROOT);
+        if (!PersonCoTravel.TYPE_SAME_TRIP.equals(type) && !PersonCoTravel.TYPE_SAME_CITY.equals(type)) {
+            throw new IllegalArgumentException("同行类型须为 SAME_TRIP 或 SAME_CITY");
+        }
+        return type;
+    }
+
+    private static String user(String currentUser) {
+        return currentUser != null && !currentUser.isBlank() ? currentUser.trim() : null;
+    }
+
+    private static LocalDateTime toTime(Object value) {
+        if (value instanceof Timestamp ts) return ts.toLocalDateTime();
+        if (value instanceof LocalDateTime time) return time;
+        return null;
+    }
+
+    /** 领取或续约租约，返回最新状态；未取得时返回 null */
+    private PersonCoTravelState acquire(LocalDateTime now) {
+        try {
+            if (!stateRepository.existsById(STATE_KEY)) {
+                stateRepository.save(new PersonCoTravelState(STATE_KEY, null, null, null, null, now));
+            }
+            if (stateRepository.tryAcquireLease(STATE_KEY, instanceId, now, now.plusSeconds(properties.getLeaseSeconds())) == 0) {
+                return null;
+            }
+            // 条件更新在 Doris 上不是原子 CAS，回读确认最终持有者
+            if (!instanceId.equals(stateRepository.findLeaseOwner(STATE_KEY))) {
+                return null;
+            }
+            return stateRepository.findById(STATE_KEY).orElse(null);
+        } catch (Exception e) {
+            log.warn("【同行检测】领取租约异常: error={}", e.getMessage());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        try {
+            stateRepository.releaseLease(STATE_KEY, instanceId);
+        } catch (Exception e) {
+            log.warn("【同行检测】释放租约异常（到期后自动失效）: error={}", e.getMessage());
+        }
+    }
+
+    private static String defaultInstanceId() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "backend";
+            }
+        }
+        return host + "-" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    }
+}
@@ -0,0 +1,304 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.entity.Event;
+import com.stararchive.personmonitor.entity.EventAggregationState;
+import com.stararchive.personmonitor.entity.EventNews;
+import com.stararchive.personmonitor.entity.News;
+import com.stararchive.personmonitor.repository.EventAggregationStateRepository;
+import com.stararchive.personmonitor.repository.EventNewsRepository;
+import com.stararchive.personmonitor.repository.EventRepository;
+import com.stararchive.personmonitor.repository.NewsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 事件增量聚合：按新闻入库时间水位分批处理新入库的新闻，归入仍在进行中的事件或创建新事件。
+ * <ul>
+ *   <li>水位 (created_time, news_id) 持久化在 event_aggregation_state，每批落库后推进，重启或换副本后从水位继续；</li>
+ *   <li>只取入库满 ingest-lag-seconds 的新闻，避免同一秒内晚提交的新闻落在水位之前被跳过；</li>
+ *   <li>进行中（OPEN）的事件在内存中维护 MinHash/LSH 签名索引，新新闻的摘要与事件的代表摘要复核 Jaccard 后归入；</li>
+ *   <li>最晚新闻发布时间超过 close-after-hours 的事件关闭，不再接收新新闻；</li>
+ *   <li>多副本通过状态行上的租约保证同一时间只有一个实例聚合，取得租约时从库中重建索引。</li>
+ * </ul>
+ * 每批先写事件再写关联，最后推进水位；中途失败时该批在下一轮重放，已归入事件的新闻会被跳过。
+ * 事件的 news_count 按 event_news 已有关联数加本批新关联数写入，不在旧值上累加，重放不会重复计数。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventAggregationService {
+
+    static final String STATE_KEY = "news-event";
+    private static final int TITLE_MAX_LENGTH = 500;
+
+    private final NewsRepository newsRepository;
+    private final EventRepository eventRepository;
+    private final EventNewsRepository eventNewsRepository;
+    private final EventAggregationStateRepository stateRepository;
+    private final EventService eventService;
+    private final EventSummaryService eventSummaryService;
+    private final NewsClusteringService newsClusteringService;
+
+    @Value("${event.aggregation.enabled:true}")
+    private boolean enabled = true;
+
+    /** 每批处理的新闻条数 */
+    @Value("${event.aggregation.batch-size:200}")
+    private int batchSize = 200;
+
+    /** 单轮最多处理的批数，积压较多时分多轮追平 */
+    @Value("${event.aggregation.max-batches-per-run:50}")
+    private int maxBatchesPerRun = 50;
+
+    /** 只处理入库已满该秒数的新闻 */
+    @Value("${event.aggregation.ingest-lag-seconds:30}")
+    private int ingestLagSeconds = 30;
+
+    /** 事件最晚新闻发布时间距今超过该小时数即关闭 */
+    @Value("${event.aggregation.close-after-hours:24}")
+    private int closeAfterHours = 24;
+
+    /** 首次运行（无水位）时回溯的天数 */
+    @Value("${event.aggregation.initial-lookback-days:1}")
+    private int initialLookbackDays = 1;
+
+    /** 租约时长（秒），每批开始前续约 */
+    @Value("${event.aggregation.lease-seconds:600}")
+    private int leaseSeconds = 600;
+
+    /** 是否调用大模型生成摘要（未配置时自动回退为标题） */
+    @Value("${event.aggregation.use-llm:true}")
+    private boolean useLlm = true;
+
+    private final String instanceId = defaultInstanceId();
+
+    /** 进行中事件的签名索引，未持有租约时置空，下次取得租约时重建 */
+    private NewsClusteringService.SignatureIndex<String> index;
+    private final Map<String, Event> openEvents = new HashMap<>();
+
+    /**
+     * 执行一轮增量聚合
+     *
+     * @return 本轮推进水位的新闻条数（含已归入事件被跳过的）
+     */
+    public synchronized int runOnce() {
+        if (!enabled) return 0;
+        LocalDateTime now = LocalDateTime.now();
+        EventAggregationState state = acquire(now);
+        if (state == null) {
+            index = null;
+            return 0;
+        }
+        int processed = 0;
+        int created = 0;
+        LocalDateTime watermarkTime = null;
+        try {
+            if (index == null) {
+                loadOpenEvents();
+            }
+            closeInactive(now);
+
+            watermarkTime = state.getWatermarkTime() != null
+                    ? state.getWatermarkTime()
+                    : now.toLocalDate().minusDays(initialLookbackDays).atStartOfDay();
+            String watermarkId = state.getWatermarkNewsId() != null ? state.getWatermarkNewsId() : "";
+            LocalDateTime until = now.minusSeconds(ingestLagSeconds);
+            for (int batchNo = 0; batchNo < maxBatchesPerRun; batchNo++) {
+                if (batchNo > 0 && acquire(LocalDateTime.now()) == null) break;
+                List<News> batch = newsRepository.findCreatedAfter(watermarkTime, watermarkId, until, batchSize);
+                if (batch.isEmpty()) break;
+                created += aggregate(eventService.withoutLinkedNews(batch));
+                News last = batch.get(batch.size() - 1);
+                watermarkTime = last.getCreatedTime();
+                watermarkId = last.getNewsId();
+                if (stateRepository.advanceWatermark(STATE_KEY, instanceId, watermarkTime, watermarkId, LocalDateTime.now()) == 0) {
+                    log.warn("【事件聚合】租约已被其他实例领取，停止本轮: instance={}", instanceId);
+                    index = null;
+                    break;
+                }
+                processed += batch.size();
+                if (batch.size() < batchSize) break;
+            }
+        } catch (RuntimeException e) {
+            // 内存中的事件可能已修改但未落库，下一轮从库中重建
+            index = null;
+            throw e;
+        }
+        if (processed > 0) {
+            log.info("【事件聚合】本轮新闻={}, 新建事件={}, 进行中事件={}, 水位={}", processed, created, openEvents.size(), watermarkTime);
+        }
+        return processed;
+    }
+
+    /**
+     * 新闻逐条匹配进行中的事件，未匹配则新建；本批涉及的事件与关联各批量写入一次。
+     * 新闻数按关联表重算：上一批写入事件后关联写入失败时，事件的 news_count 已多计，重放时以关联表为准
+     *
+     * @return 新建事件数
+     */
+    int aggregate(List<News> news) {
+        Map<String, Event> touched = new LinkedHashMap<>();
+        List<EventNews> links = new ArrayList<>();
+        int created = 0;
+        LocalDateTime now = LocalDateTime.now();
+        // 本批摘要并发生成，匹配与归入仍按入库顺序逐条进行
+        Map<String, String> summaries = eventSummaryService.summarize(
+                news.stream().filter(n -> n.getPublishTime() != null).toList(), useLlm);
+        for (News n : news) {
+            if (n.getPublishTime() == null) continue;
+            String summary = summaries.get(n.getNewsId());
+            if (summary == null) continue;
+            String eventId = index.match(summary);
+            Event event = eventId != null ? openEvents.get(eventId) : null;
+            if (event == null) {
+                event = newEvent(n, summary, now);
+                openEvents.put(event.getEventId(), event);
+                created++;
+            } else {
+                attach(event, n, summary, now);
+            }
+            index.add(event.getEventId(), summary);
+            touched.put(event.getEventId(), event);
+            links.add(new EventNews(event.getEventId(), n.getNewsId(), n.getPublishTime(), now));
+        }
+        if (!touched.isEmpty()) {
+            recountNews(touched, links);
+            eventRepository.upsertBatch(new ArrayList<>(touched.values()));
+            eventNewsRepository.upsertBatch(links);
+        }
+        return created;
+    }
+
+    /** 事件新闻数 = event_news 中已有关联数 + 本批新关联数（本批新闻均未归入过事件） */
+    private void recountNews(Map<String, Event> touched, List<EventNews> links) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Object[] row : eventNewsRepository.countByEventIds(touched.keySet())) {
+            counts.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        for (EventNews link : links) {
+            counts.merge(link.getEventId(), 1, Integer::sum);
+        }
+        for (Event event : touched.values()) {
+            event.setNewsCount(counts.getOrDefault(event.getEventId(), 0));
+        }
+    }
+
+    /** 关闭最晚新闻发布时间早于 now - close-after-hours 的事件 */
+    void closeInactive(LocalDateTime now) {
+        LocalDateTime cutoff = now.minusHours(closeAfterHours);
+        List<Event> closing = new ArrayList<>();
+        for (Event event : openEvents.values()) {
+            if (event.getLastPublishTime() == null || event.getLastPublishTime().isBefore(cutoff)) {
+                event.setStatus(Event.STATUS_CLOSED);
+                event.setUpdatedTime(now);
+                closing.add(event);
+            }
+        }
+        if (closing.isEmpty()) return;
+        eventRepository.upsertBatch(closing);
+        for (Event event : closing) {
+            openEvents.remove(event.getEventId());
+            index.remove(event.getEventId());
+        }
+        log.info("【事件聚合】关闭不活跃事件: {} 个", closing.size());
+    }
+
+    private void loadOpenEvents() {
+        NewsClusteringService.SignatureIndex<String> rebuilt = newsClusteringService.newIndex();
+        openEvents.clear();
+        for (Event event : eventRepository.findByStatus(Event.STATUS_OPEN)) {
+            openEvents.put(event.getEventId(), event);
+            rebuilt.add(event.getEventId(), event.getTitle());
+        }
+        index = rebuilt;
+        log.info("【事件聚合】已加载进行中事件: {} 个, instance={}", openEvents.size(), instanceId);
+    }
+
+    private static Event newEvent(News news, String summary, LocalDateTime now) {
+        return Event.builder()
+                .eventId("evt-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12))
+                .title(truncateTitle(summary))
+                .eventDate(news.getPublishTime().toLocalDate())
+                .newsCount(1)
+                .firstPublishTime(news.getPublishTime())
+                .lastPublishTime(news.getPublishTime())
+                .status(Event.STATUS_OPEN)
+                .createdTime(now)
+                .updatedTime(now)
+                .build();
+    }
+
+    /** 归入已有事件：更新时间范围（新闻数在写库前按关联表重算）；与批量提取一致，取最长的摘要作为标题 */
+    private static void attach(Event event, News news, String summary, LocalDateTime now) {
+        LocalDateTime publishTime = news.getPublishTime();
+        if (event.getFirstPublishTime() == null || publishTime.isBefore(event.getFirstPublishTime())) {
+            event.setFirstPublishTime(publishTime);
+            event.setEventDate(publishTime.toLocalDate());
+        }
+        if (event.getLastPublishTime() == null || publishTime.isAfter(event.getLastPublishTime())) {
+            event.setLastPublishTime(publishTime);
+        }
+        if (event.getTitle() == null || summary.length() > event.getTitle().length()) {
+            event.setTitle(truncateTitle(summary));
+        }
+        event.setUpdatedTime(now);
+    }
+
+    private static String truncateTitle(String summary) {
+        return summary.length() > TITLE_MAX_LENGTH ? summary.substring(0, TITLE_MAX_LENGTH) : summary;
+    }
+
+    /** 领取或续约状态行上的租约，失败返回 null */
+    private EventAggregationState acquire(LocalDateTime now) {
+        try {
+            if (!stateRepository.existsById(STATE_KEY)) {
+                stateRepository.save(new EventAggregationState(STATE_KEY, null, null, null, null, now));
+            }
+            if (stateRepository.tryAcquireLease(STATE_KEY, instanceId, now, now.plusSeconds(leaseSeconds)) == 0) {
+                return null;
+            }
+            // 条件更新在 Doris 上不是原子 CAS，回读确认最终持有者
+            if (!instanceId.equals(stateRepository.findLeaseOwner(STATE_KEY))) {
+                return null;
+            }
+            return stateRepository.findById(STATE_KEY).orElse(null);
+        } catch (Exception e) {
+            log.warn("【事件聚合】领取租约异常: error={}", e.getMessage());
+            return null;
+        }
+    }
+
+    /** 停机时释放租约，其他实例无需等待到期即可接手 */
+    @PreDestroy
+    public void release() {
+        try {
+            stateRepository.releaseLease(STATE_KEY, instanceId);
+        } catch (Exception e) {
+            log.warn("【事件聚合】释放租约异常（到期后自动失效）: error={}", e.getMessage());
+        }
+    }
+
+    private static String defaultInstanceId() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "backend";
+            }
+        }
+        return host + "-" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    }
+}
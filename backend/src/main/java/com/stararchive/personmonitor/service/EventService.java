@@ -1,13 +1,9 @@
 package com.stararchive.personmonitor.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stararchive.personmonitor.common.PageResponse;
-import com.stararchive.personmonitor.config.BailianProperties;
 import com.stararchive.personmonitor.dto.EventDetailDTO;
 import com.stararchive.personmonitor.dto.EventDTO;
 import com.stararchive.personmonitor.dto.NewsDTO;
-import com.stararchive.personmonitor.dto.SystemConfigDTO;
 import com.stararchive.personmonitor.entity.Event;
 import com.stararchive.personmonitor.entity.EventNews;
 import com.stararchive.personmonitor.entity.News;
@@ -19,10 +15,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -30,34 +24,31 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * 事件服务：事件列表/详情、每日定时从新闻中提取事件（大模型摘要 + 流式聚类）
+ * 事件服务：事件列表/详情、按时间范围批量从新闻中提取事件（大模型摘要 + 相似性聚类）
  */
 @Slf4j
 @Service
 public class EventService {
 
-    private static final String DEFAULT_EVENT_EXTRACT_SYSTEM_PROMPT =
-            "你是一个新闻事件摘要助手。根据用户提供的新闻标题和正文，用一句话（不超过50字）概括该新闻所描述的事件，仅输出这一句话，不要其他解释。";
+    /** 检查新闻是否已归入事件时单次 IN 查询的条数 */
+    private static final int LINK_CHECK_BATCH = 1_000;
+    /** 事件与关联单次 JDBC 批量写入的行数 */
+    private static final int PERSIST_BATCH = 500;
 
     private final EventRepository eventRepository;
     private final EventNewsRepository eventNewsRepository;
     private final NewsRepository newsRepository;
-    private final SystemConfigService systemConfigService;
-    private final BailianProperties bailianProperties;
-    private final ObjectMapper objectMapper;
-    private final RestTemplate restTemplate;
+    private final EventSummaryService eventSummaryService;
+    private final NewsClusteringService newsClusteringService;
 
     public EventService(EventRepository eventRepository, EventNewsRepository eventNewsRepository,
-                        NewsRepository newsRepository, SystemConfigService systemConfigService,
-                        BailianProperties bailianProperties, ObjectMapper objectMapper,
-                        RestTemplate restTemplate) {
+                        NewsRepository newsRepository, EventSummaryService eventSummaryService,
+                        NewsClusteringService newsClusteringService) {
         this.eventRepository = eventRepository;
         this.eventNewsRepository = eventNewsRepository;
         this.newsRepository = newsRepository;
-        this.systemConfigService = systemConfigService;
-        this.bailianProperties = bailianProperties;
-        this.objectMapper = objectMapper;
-        this.restTemplate = restTemplate != null ? restTemplate : new RestTemplate();
+        this.eventSummaryService = eventSummaryService;
+        this.newsClusteringService = newsClusteringService;
     }
 
     public PageResponse<EventDTO> getEventList(int page, int size) {
@@ -94,7 +85,8 @@ public class EventService {
     }
 
     /**
-     * 每日定时执行：从近期新闻中提取事件摘要，按相似性流式聚类后写入事件表。
+     * 批量提取（管理接口补跑历史日期用）：从近期新闻中提取事件摘要，按相似性聚类后写入事件表。
+     * 日常的新闻入库后聚合由 {@link EventAggregationService} 增量完成。
      * 流程：1）取未入事件的近期新闻 2）大模型提取每条新闻的事件摘要 3）按日期+摘要相似度聚类 4）落库 Event 与 EventNews。
      */
     @Transactional
@@ -116,31 +108,25 @@ public class EventService {
     @Transactional
     public void runDailyExtraction(int sinceDays, boolean useLlm) {
         LocalDateTime since = LocalDate.now().minusDays(sinceDays).atStartOfDay();
-        Set<String> existingNewsIds = new HashSet<>(eventNewsRepository.findAllNewsIdsInEvents());
-        List<News> candidates = newsRepository.findByPublishTimeGreaterThanEqualOrderByPublishTimeAsc(since).stream()
-                .filter(n -> !existingNewsIds.contains(n.getNewsId()))
-                .collect(Collectors.toList());
+        List<News> candidates = withoutLinkedNews(newsRepository.findByPublishTimeGreaterThanEqualOrderByPublishTimeAsc(since));
         if (candidates.isEmpty()) {
             log.info("【事件提取】近{}天无未处理新闻，跳过", sinceDays);
             return;
         }
         if (useLlm) {
-            String apiKey = resolveLlmApiKey();
-            if (apiKey == null || apiKey.isBlank()) {
+            if (!eventSummaryService.isLlmAvailable()) {
                 log.info("【事件提取】未配置大模型 API Key，使用标题作为摘要进行聚类");
                 useLlm = false;
             }
         } else {
             log.info("【事件提取】使用标题作为摘要进行聚类（未启用大模型）");
         }
+        Map<String, String> summaries = eventSummaryService.summarize(candidates, useLlm);
         List<NewsWithSummary> withSummaries = new ArrayList<>();
         for (News n : candidates) {
-            String summary = useLlm ? extractEventSummaryByLlm(n, resolveLlmApiKey()) : null;
-            if (summary == null || summary.isBlank()) {
-                summary = fallbackSummaryFromTitle(n);
-            }
-            if (summary != null && !summary.isBlank()) {
-                withSummaries.add(new NewsWithSummary(n, summary.trim()));
+            String summary = summaries.get(n.getNewsId());
+            if (summary != null) {
+                withSummaries.add(new NewsWithSummary(n, summary));
             }
         }
         if (withSummaries.isEmpty()) {
@@ -148,6 +134,8 @@ public class EventService {
             return;
         }
         List<List<NewsWithSummary>> clusters = clusterByDateAndSimilarity(withSummaries);
+        List<Event> events = new ArrayList<>(clusters.size());
+        List<EventNews> links = new ArrayList<>(withSummaries.size());
         for (List<NewsWithSummary> cluster : clusters) {
             if (cluster.isEmpty()) continue;
             NewsWithSummary first = cluster.get(0);
@@ -167,124 +155,44 @@ public class EventService {
                     .newsCount(cluster.size())
                     .firstPublishTime(firstTime)
                     .lastPublishTime(lastTime)
+                    // 批量提取的事件不进入增量聚合的匹配索引
+                    .status(Event.STATUS_CLOSED)
                     .createdTime(LocalDateTime.now())
                     .updatedTime(LocalDateTime.now())
                     .build();
-            eventRepository.save(event);
+            events.add(event);
             for (NewsWithSummary ns : cluster) {
-                eventNewsRepository.save(new EventNews(eventId, ns.news.getNewsId(), ns.news.getPublishTime(), LocalDateTime.now()));
-            }
-            log.info("【事件提取】创建事件: eventId={}, title={}, newsCount={}", eventId, title.substring(0, Math.min(30, title.length())), cluster.size());
-        }
-    }
-
-    private String extractEventSummaryByLlm(News news, String apiKey) {
-        String baseUrl = resolveLlmBaseUrl();
-        String model = resolveLlmModel();
-        String url = baseUrl.replaceAll("/$", "") + "/chat/completions";
-        String userContent = "标题：" + (news.getTitle() != null ? news.getTitle() : "") + "\n正文：" + (news.getContent() != null ? news.getContent().substring(0, Math.min(2000, news.getContent().length())) : "");
-        Map<String, Object> body = new HashMap<>();
-        body.put("model", model);
-        String systemPrompt = resolveEventExtractPrompt();
-        body.put("messages", List.of(
-                Map.of("role", "system", "content", systemPrompt),
-                Map.of("role", "user", "content", userContent)
-        ));
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(body, headers), String.class);
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode choices = root.path("choices");
-                if (choices.isArray() && choices.size() > 0) {
-                    return choices.get(0).path("message").path("content").asText().trim();
-                }
+                links.add(new EventNews(eventId, ns.news.getNewsId(), ns.news.getPublishTime(), LocalDateTime.now()));
             }
-        } catch (Exception e) {
-            log.warn("【事件提取】LLM 调用失败: newsId={}, error={}", news.getNewsId(), e.getMessage());
+            log.debug("【事件提取】创建事件: eventId={}, title={}, newsCount={}", eventId, title.substring(0, Math.min(30, title.length())), cluster.size());
         }
-        return null;
-    }
-
-    /** 无 LLM 或调用失败时，用标题作为摘要（截断至 50 字便于聚类） */
-    private String fallbackSummaryFromTitle(News news) {
-        if (news.getTitle() == null) return "";
-        String t = news.getTitle().trim();
-        return t.length() > 50 ? t.substring(0, 50) : t;
-    }
-
-    /** 按事件日期分组，同日内按摘要相似度聚类（简单词集合 Jaccard） */
-    private List<List<NewsWithSummary>> clusterByDateAndSimilarity(List<NewsWithSummary> withSummaries) {
-        Map<LocalDate, List<NewsWithSummary>> byDate = withSummaries.stream().collect(Collectors.groupingBy(ns -> ns.news.getPublishTime().toLocalDate()));
-        List<List<NewsWithSummary>> result = new ArrayList<>();
-        for (List<NewsWithSummary> dayList : byDate.values()) {
-            result.addAll(clusterBySimilarity(dayList, 0.25));
+        // 先写事件再写关联，各按批 JDBC 写入
+        for (int from = 0; from < events.size(); from += PERSIST_BATCH) {
+            eventRepository.upsertBatch(events.subList(from, Math.min(from + PERSIST_BATCH, events.size())));
         }
-        return result;
-    }
-
-    private List<List<NewsWithSummary>> clusterBySimilarity(List<NewsWithSummary> list, double threshold) {
-        if (list.size() <= 1) return list.stream().map(Collections::singletonList).collect(Collectors.toList());
-        List<List<NewsWithSummary>> clusters = new ArrayList<>();
-        for (NewsWithSummary ns : list) {
-            Set<String> ws = summaryWords(ns.summary);
-            List<NewsWithSummary> found = null;
-            for (List<NewsWithSummary> cluster : clusters) {
-                for (NewsWithSummary c : cluster) {
-                    if (jaccardSimilarity(ws, summaryWords(c.summary)) >= threshold) {
-                        found = cluster;
-                        break;
-                    }
-                }
-                if (found != null) break;
-            }
-            if (found != null) found.add(ns);
-            else clusters.add(new ArrayList<>(List.of(ns)));
+        for (int from = 0; from < links.size(); from += PERSIST_BATCH) {
+            eventNewsRepository.upsertBatch(links.subList(from, Math.min(from + PERSIST_BATCH, links.size())));
         }
-        return clusters;
-    }
-
-    private static Set<String> summaryWords(String s) {
-        if (s == null || s.isBlank()) return Collections.emptySet();
-        return Arrays.stream(s.replaceAll("\\p{P}", " ").split("\\s+")).filter(w -> w.length() >= 2).collect(Collectors.toSet());
-    }
-
-    private static double jaccardSimilarity(Set<String> a, Set<String> b) {
-        if (a.isEmpty() && b.isEmpty()) return 1.0;
-        Set<String> union = new HashSet<>(a);
-        union.addAll(b);
-        Set<String> inter = new HashSet<>(a);
-        inter.retainAll(b);
-        return (double) inter.size() / union.size();
-    }
-
-    private String resolveLlmApiKey() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmApiKey() != null && !cfg.getLlmApiKey().isBlank()) return cfg.getLlmApiKey();
-        return bailianProperties.getApiKey() != null ? bailianProperties.getApiKey() : "";
-    }
-
-    /** 事件摘要提取使用的 system 提示词（优先从系统配置读取，为空则用默认） */
-    private String resolveEventExtractPrompt() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getSituationEventExtractPrompt() != null && !cfg.getSituationEventExtractPrompt().isBlank()) {
-            return cfg.getSituationEventExtractPrompt().trim();
+        log.info("【事件提取】完成: 新闻={}, 创建事件={}", withSummaries.size(), events.size());
+    }
+
+    /** 去掉已归入事件的新闻（按批查询 event_news，不加载全表） */
+    List<News> withoutLinkedNews(List<News> news) {
+        if (news.isEmpty()) return news;
+        Set<String> linked = new HashSet<>();
+        for (int from = 0; from < news.size(); from += LINK_CHECK_BATCH) {
+            List<String> ids = news.subList(from, Math.min(from + LINK_CHECK_BATCH, news.size())).stream()
+                    .map(News::getNewsId)
+                    .collect(Collectors.toList());
+            linked.addAll(eventNewsRepository.findNewsIdsInEvents(ids));
         }
-        return DEFAULT_EVENT_EXTRACT_SYSTEM_PROMPT;
+        return news.stream().filter(n -> !linked.contains(n.getNewsId())).collect(Collectors.toList());
     }
 
-    private String resolveLlmBaseUrl() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmBaseUrl() != null && !cfg.getLlmBaseUrl().isBlank()) return cfg.getLlmBaseUrl().trim();
-        return bailianProperties.getBaseUrl() != null ? bailianProperties.getBaseUrl() : "";
-    }
-
-    private String resolveLlmModel() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmModel() != null && !cfg.getLlmModel().isBlank()) return cfg.getLlmModel().trim();
-        return bailianProperties.getModel() != null ? bailianProperties.getModel() : "qwen-plus";
+    /** 按事件日期分组，同日内按摘要字符片段相似度聚类（MinHash + LSH，见 {@link NewsClusteringService}） */
+    private List<List<NewsWithSummary>> clusterByDateAndSimilarity(List<NewsWithSummary> withSummaries) {
+        return newsClusteringService.clusterByDate(withSummaries,
+                ns -> ns.news.getPublishTime().toLocalDate(), ns -> ns.summary);
     }
 
     private EventDTO toDTO(Event e) {
@@ -0,0 +1,283 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.dto.SystemConfigDTO;
+import com.stararchive.personmonitor.entity.News;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 新闻事件摘要：先查响应缓存，未命中的新闻在有界线程池中并发调用大模型，可选多条新闻合并为一次请求。
+ * <ul>
+ *   <li>并发数 concurrency 限制同时在途的摘要请求，requests-per-second 控制请求发起速率，给交互类调用留出端点余量；</li>
+ *   <li>news-per-request 大于 1 时多条新闻合并到一个提示词，要求按编号返回 JSON 数组，缺失或解析失败的条目逐条重试；</li>
+ *   <li>合并请求的结果按单条新闻的缓存键写入缓存，与逐条调用互相复用；</li>
+ *   <li>未配置大模型、调用失败或摘要为空时取标题（截断至 50 字）。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventSummaryService {
+
+    static final String SUMMARY_CALLER = "event-summary";
+    private static final String DEFAULT_EVENT_EXTRACT_SYSTEM_PROMPT =
+            "你是一个新闻事件摘要助手。根据用户提供的新闻标题和正文，用一句话（不超过50字）概括该新闻所描述的事件，仅输出这一句话，不要其他解释。";
+    private static final String BATCH_INSTRUCTION = "\n\n本次提供多条新闻，每条以【编号】开头。请对每条新闻分别按上述要求概括，"
+            + "只输出 JSON 数组，形如 [{\"id\":1,\"summary\":\"...\"}]，数组长度与新闻条数一致，不要输出其他内容。";
+    private static final int CONTENT_PREVIEW = 2_000;
+    private static final int TITLE_SUMMARY_MAX = 50;
+
+    private final SystemConfigService systemConfigService;
+    private final LlmGatewayService llmGateway;
+    private final LlmResponseCacheService responseCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 同时在途的摘要请求数 */
+    @Value("${event.summary.concurrency:8}")
+    private int concurrency = 8;
+
+    /** 每秒最多发起的摘要请求数，0 表示不限 */
+    @Value("${event.summary.requests-per-second:10}")
+    private double requestsPerSecond = 10;
+
+    /** 单次请求合并的新闻条数，1 表示逐条调用 */
+    @Value("${event.summary.news-per-request:1}")
+    private int newsPerRequest = 1;
+
+    private ExecutorService executor;
+    /** 下一个请求可发起的时间（纳秒） */
+    private long nextRequestNanos;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger seq = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread t = new Thread(r, "event-summary-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    public boolean isLlmAvailable() {
+        return llmGateway.isConfigured();
+    }
+
+    /**
+     * 为一批新闻生成事件摘要
+     *
+     * @param useLlm false 或未配置大模型时只取标题
+     * @return newsId → 摘要（去掉首尾空白），按输入顺序；标题也为空的新闻不在结果中
+     */
+    public Map<String, String> summarize(List<News> news, boolean useLlm) {
+        Map<String, String> llmSummaries = useLlm && llmGateway.isConfigured() ? summarizeByLlm(news) : Map.of();
+        Map<String, String> result = new LinkedHashMap<>();
+        for (News n : news) {
+            String summary = llmSummaries.get(n.getNewsId());
+            if (summary == null || summary.isBlank()) {
+                summary = fallbackSummaryFromTitle(n);
+            }
+            if (summary != null && !summary.isBlank()) {
+                result.put(n.getNewsId(), summary.trim());
+            }
+        }
+        return result;
+    }
+
+    private Map<String, String> summarizeByLlm(List<News> news) {
+        String systemPrompt = resolveEventExtractPrompt();
+        String model = llmGateway.resolveModel(SUMMARY_CALLER);
+        Map<String, String> summaries = new ConcurrentHashMap<>();
+        List<News> misses = new ArrayList<>();
+        for (News n : news) {
+            String cached = responseCache.get(cacheKey(n, model, systemPrompt)).orElse(null);
+            if (cached != null && !cached.isBlank()) {
+                summaries.put(n.getNewsId(), cached);
+            } else {
+                misses.add(n);
+            }
+        }
+        if (misses.isEmpty()) return summaries;
+
+        int groupSize = Math.max(1, newsPerRequest);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < misses.size(); from += groupSize) {
+            List<News> group = misses.subList(from, Math.min(from + groupSize, misses.size()));
+            futures.add(executor.submit(() -> summarizeGroup(group, model, systemPrompt, summaries)));
+        }
+        // 逐个等待：单组失败只影响该组（取标题兜底），其余组照常收集；被中断时取消尚未完成的组
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.subList(i, futures.size()).forEach(f -> f.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                failed++;
+                log.warn("【事件提取】摘要任务异常: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            }
+        }
+        log.info("【事件提取】摘要完成: 新闻={}, 缓存命中={}, 请求={}, 失败={}", news.size(), news.size() - misses.size(), futures.size(), failed);
+        return summaries;
+    }
+
+    private void summarizeGroup(List<News> group, String model, String systemPrompt, Map<String, String> summaries) {
+        List<News> remaining = group;
+        if (group.size() > 1) {
+            Map<String, String> batch = summarizeBatch(group, systemPrompt);
+            remaining = new ArrayList<>();
+            for (News n : group) {
+                String summary = batch.get(n.getNewsId());
+                if (summary != null) {
+                    summaries.put(n.getNewsId(), summary);
+                    responseCache.put(cacheKey(n, model, systemPrompt), summary);
+                } else {
+                    remaining.add(n);
+                }
+            }
+        }
+        for (News n : remaining) {
+            String summary = summarizeOne(n, model, systemPrompt);
+            if (summary != null && !summary.isBlank()) {
+                summaries.put(n.getNewsId(), summary);
+            }
+        }
+    }
+
+    private String summarizeOne(News news, String model, String systemPrompt) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("messages", List.of(
+                Map.of("role", "system", "content", systemPrompt),
+                Map.of("role", "user", "content", userContent(news))
+        ));
+        try {
+            // 同一新闻在提示词与内容不变时复用摘要（重跑聚合、补跑历史日期）
+            return responseCache.getOrCompute(cacheKey(news, model, systemPrompt), () -> {
+                pace();
+                String content = llmGateway.chat(SUMMARY_CALLER, body);
+                return content != null ? content.trim() : null;
+            });
+        } catch (Exception e) {
+            log.warn("【事件提取】LLM 调用失败: newsId={}, error={}", news.getNewsId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /** 多条新闻合并为一次请求，返回解析成功的 newsId → 摘要 */
+    private Map<String, String> summarizeBatch(List<News> group, String systemPrompt) {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < group.size(); i++) {
+            input.append("【").append(i + 1).append("】").append(userContent(group.get(i))).append("\n\n");
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("messages", List.of(
+                Map.of("role", "system", "content", systemPrompt + BATCH_INSTRUCTION),
+                Map.of("role", "user", "content", input.toString())
+        ));
+        Map<String, String> result = new HashMap<>();
+        try {
+            pace();
+            String content = llmGateway.chat(SUMMARY_CALLER, body);
+            JsonNode array = parseJsonArray(content);
+            if (array == null) {
+                log.warn("【事件提取】合并摘要结果无法解析，逐条重试: 条数={}", group.size());
+                return result;
+            }
+            for (JsonNode item : array) {
+                int id = item.path("id").asInt(-1);
+                String summary = item.path("summary").asText("").trim();
+                if (id >= 1 && id <= group.size() && !summary.isEmpty()) {
+                    result.put(group.get(id - 1).getNewsId(), summary);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("【事件提取】合并摘要调用失败，逐条重试: 条数={}, error={}", group.size(), e.getMessage());
+        }
+        return result;
+    }
+
+    private JsonNode parseJsonArray(String content) {
+        if (content == null) return null;
+        int start = content.indexOf('[');
+        int end = content.lastIndexOf(']');
+        if (start < 0 || end <= start) return null;
+        try {
+            JsonNode node = objectMapper.readTree(content.substring(start, end + 1));
+            return node.isArray() ? node : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** 按 requests-per-second 间隔发起请求；等待中被中断时保留中断标记直接返回 */
+    private void pace() {
+        if (requestsPerSecond <= 0) return;
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextRequestNanos);
+            nextRequestNanos = slot + interval;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private LlmResponseCacheService.Key cacheKey(News news, String model, String systemPrompt) {
+        return LlmResponseCacheService.Key.of(SUMMARY_CALLER, model, systemPrompt, userContent(news), "news:" + news.getNewsId());
+    }
+
+    private static String userContent(News news) {
+        String content = news.getContent() != null
+                ? news.getContent().substring(0, Math.min(CONTENT_PREVIEW, news.getContent().length()))
+                : "";
+        return "标题：" + (news.getTitle() != null ? news.getTitle() : "") + "\n正文：" + content;
+    }
+
+    /** 无 LLM 或调用失败时，用标题作为摘要（截断至 50 字便于聚类） */
+    private static String fallbackSummaryFromTitle(News news) {
+        if (news.getTitle() == null) return "";
+        String t = news.getTitle().trim();
+        return t.length() > TITLE_SUMMARY_MAX ? t.substring(0, TITLE_SUMMARY_MAX) : t;
+    }
+
+    /** 事件摘要提取使用的 system 提示词（优先从系统配置读取，为空则用默认） */
+    private String resolveEventExtractPrompt() {
+        SystemConfigDTO cfg = systemConfigService.getConfig();
+        if (cfg.getSituationEventExtractPrompt() != null && !cfg.getSituationEventExtractPrompt().isBlank()) {
+            return cfg.getSituationEventExtractPrompt().trim();
+        }
+        return DEFAULT_EVENT_EXTRACT_SYSTEM_PROMPT;
+    }
+}
@@ -0,0 +1,278 @@
+package com.stararchive.personmonitor.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.MissingCellDummyRecord;
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Excel 流式读取器：基于 POI 事件模型逐行回调，不构建整个工作簿对象。
+ * XLSX 使用 XSSF SAX 解析（{@link XSSFSheetXMLHandler}），XLS 使用 HSSF 事件模型（{@link HSSFEventFactory}），
+ * 内存占用只与单行宽度及共享字符串表有关，与行数无关。
+ */
+@Slf4j
+@Component
+public class ExcelStreamingReader {
+
+    /**
+     * 行回调：sheetIndex 为工作表序号（从 0 开始），rowIndex 为表内行号（从 0 开始），
+     * cells 为按列号对齐的单元格显示值（缺失单元格为 null）。回调可阻塞以形成背压。
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void onRow(int sheetIndex, int rowIndex, List<String> cells) throws Exception;
+    }
+
+    /** 数字单元格不用科学计数法，支持18位证件号等长数字完整显示（与原 usermodel 解析保持一致） */
+    private static final class NoScientificDataFormatter extends DataFormatter {
+
+        private final DecimalFormat numeric;
+
+        NoScientificDataFormatter() {
+            numeric = new DecimalFormat("0.##########", DecimalFormatSymbols.getInstance(Locale.US));
+            numeric.setGroupingUsed(false);
+            numeric.setDecimalSeparatorAlwaysShown(false);
+            numeric.setMaximumIntegerDigits(20);
+        }
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+            }
+            return numeric.format(value);
+        }
+    }
+
+    /**
+     * 按文件类型流式读取 Excel，每解析完一行即回调一次。
+     *
+     * @param file     本地临时文件（XLSX 通过 ZipFile 随机访问，避免整体解压进内存）
+     * @param fileType XLSX 或 XLS
+     */
+    public void read(Path file, String fileType, RowHandler handler) throws Exception {
+        String type = fileType != null ? fileType.toUpperCase() : "";
+        try {
+            if ("XLSX".equals(type)) {
+                readXlsx(file, handler);
+            } else if ("XLS".equals(type)) {
+                readXls(file, handler);
+            } else {
+                throw new IllegalArgumentException("不支持的 Excel 类型: " + fileType);
+            }
+        } catch (RowHandlerException e) {
+            throw e.getCause() instanceof Exception ex ? ex : e;
+        }
+    }
+
+    // ==================== XLSX：XSSF SAX ====================
+
+    private void readXlsx(Path file, RowHandler handler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            reader.setUseReadOnlySharedStringsTable(true);
+            SharedStrings strings = reader.getSharedStringsTable();
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new NoScientificDataFormatter();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            int sheetIndex = 0;
+            while (sheets.hasNext()) {
+                try (InputStream sheetStream = sheets.next()) {
+                    XlsxSheetHandler contents = new XlsxSheetHandler(sheetIndex, handler);
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, contents, formatter, false));
+                    parser.parse(new InputSource(sheetStream));
+                }
+                sheetIndex++;
+            }
+        }
+    }
+
+    private static final class XlsxSheetHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final int sheetIndex;
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+        private int nextColumn;
+
+        XlsxSheetHandler(int sheetIndex, RowHandler handler) {
+            this.sheetIndex = sheetIndex;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+            nextColumn = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            while (cells.size() < col) {
+                cells.add(null);
+            }
+            cells.add(formattedValue);
+            nextColumn = col + 1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            dispatch(handler, sheetIndex, rowNum, cells);
+        }
+    }
+
+    // ==================== XLS：HSSF 事件模型 ====================
+
+    private void readXls(Path file, RowHandler handler) throws Exception {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file.toFile(), true)) {
+            XlsRecordHandler recordHandler = new XlsRecordHandler(handler);
+            MissingRecordAwareHSSFListener listener = new MissingRecordAwareHSSFListener(recordHandler);
+            FormatTrackingHSSFListener formatListener = new FormatTrackingHSSFListener(listener, Locale.US);
+            recordHandler.formatListener = formatListener;
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(formatListener);
+            new HSSFEventFactory().processWorkbookEvents(request, fs);
+        }
+    }
+
+    private static final class XlsRecordHandler implements HSSFListener {
+
+        private final RowHandler handler;
+        private final NoScientificDataFormatter formatter = new NoScientificDataFormatter();
+        private final List<String> cells = new ArrayList<>();
+        private FormatTrackingHSSFListener formatListener;
+        private SSTRecord sstRecord;
+        private int sheetIndex = -1;
+        private int currentRow = -1;
+        /** 字符串公式的结果在紧随其后的 StringRecord 中 */
+        private boolean expectStringForFormula;
+        private int formulaColumn;
+
+        XlsRecordHandler(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void processRecord(org.apache.poi.hssf.record.Record record) {
+            switch (record.getSid()) {
+                case BOFRecord.sid -> {
+                    BOFRecord bof = (BOFRecord) record;
+                    if (bof.getType() == BOFRecord.TYPE_WORKSHEET) {
+                        sheetIndex++;
+                        cells.clear();
+                        currentRow = -1;
+                    }
+                }
+                case SSTRecord.sid -> sstRecord = (SSTRecord) record;
+                case LabelSSTRecord.sid -> {
+                    LabelSSTRecord r = (LabelSSTRecord) record;
+                    String v = sstRecord != null ? sstRecord.getString(r.getSSTIndex()).toString() : null;
+                    put(r.getRow(), r.getColumn(), v);
+                }
+                case LabelRecord.sid -> {
+                    LabelRecord r = (LabelRecord) record;
+                    put(r.getRow(), r.getColumn(), r.getValue());
+                }
+                case NumberRecord.sid -> {
+                    NumberRecord r = (NumberRecord) record;
+                    put(r.getRow(), r.getColumn(), formatNumber(r, r.getValue()));
+                }
+                case BoolErrRecord.sid -> {
+                    BoolErrRecord r = (BoolErrRecord) record;
+                    put(r.getRow(), r.getColumn(), r.isBoolean() ? String.valueOf(r.getBooleanValue()) : null);
+                }
+                case FormulaRecord.sid -> {
+                    FormulaRecord r = (FormulaRecord) record;
+                    if (r.hasCachedResultString()) {
+                        expectStringForFormula = true;
+                        formulaColumn = r.getColumn();
+                        currentRow = r.getRow();
+                    } else {
+                        put(r.getRow(), r.getColumn(), formatNumber(r, r.getValue()));
+                    }
+                }
+                case StringRecord.sid -> {
+                    if (expectStringForFormula) {
+                        put(currentRow, formulaColumn, ((StringRecord) record).getString());
+                        expectStringForFormula = false;
+                    }
+                }
+                default -> {
+                    if (record instanceof MissingCellDummyRecord missing) {
+                        put(missing.getRow(), missing.getColumn(), null);
+                    } else if (record instanceof LastCellOfRowDummyRecord last) {
+                        dispatch(handler, Math.max(sheetIndex, 0), last.getRow(), cells);
+                        cells.clear();
+                        currentRow = -1;
+                    }
+                }
+            }
+        }
+
+        private String formatNumber(CellValueRecordInterface cell, double value) {
+            return formatter.formatRawCellContents(value, formatListener.getFormatIndex(cell),
+                    formatListener.getFormatString(cell), false);
+        }
+
+        private void put(int row, int col, String value) {
+            currentRow = row;
+            while (cells.size() < col) {
+                cells.add(null);
+            }
+            if (cells.size() == col) {
+                cells.add(value);
+            } else {
+                cells.set(col, value);
+            }
+        }
+    }
+
+    // ==================== 公共 ====================
+
+    /** 包装回调异常：SAX / HSSF 监听器接口不允许抛出受检异常 */
+    private static final class RowHandlerException extends RuntimeException {
+        RowHandlerException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private static void dispatch(RowHandler handler, int sheetIndex, int rowIndex, List<String> cells) {
+        try {
+            handler.onRow(sheetIndex, rowIndex, new ArrayList<>(cells));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RowHandlerException(e);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.stararchive.personmonitor.repository.QaChunkRepository;
 import com.stararchive.personmonitor.repository.QaDocumentRepository;
 import com.stararchive.personmonitor.repository.QaMessageRepository;
 import com.stararchive.personmonitor.repository.QaSessionRepository;
+import com.stararchive.personmonitor.repository.QaSessionSummaryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -30,6 +31,7 @@ public class KnowledgeBaseService {
     private final QaChunkRepository qaChunkRepository;
     private final QaSessionRepository qaSessionRepository;
     private final QaMessageRepository qaMessageRepository;
+    private final QaSessionSummaryRepository qaSessionSummaryRepository;
 
     public List<KnowledgeBaseDTO> listByUser(String creatorUsername) {
         return knowledgeBaseRepository.findByCreatorUsernameOrderByUpdatedTimeDesc(creatorUsername)
@@ -85,6 +87,7 @@ public class KnowledgeBaseService {
         List<com.stararchive.personmonitor.entity.QaSession> sessions = qaSessionRepository.findByKbId(id);
         for (com.stararchive.personmonitor.entity.QaSession s : sessions) {
             qaMessageRepository.deleteBySessionId(s.getId());
+            qaSessionSummaryRepository.deleteById(s.getId());
         }
         qaSessionRepository.deleteByKbId(id);
         qaChunkRepository.deleteByKbId(id);
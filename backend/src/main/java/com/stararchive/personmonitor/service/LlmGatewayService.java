@@ -0,0 +1,1101 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.config.BailianProperties;
+import com.stararchive.personmonitor.config.LlmGatewayProperties;
+import com.stararchive.personmonitor.dto.LlmGatewayMetricsDTO;
+import com.stararchive.personmonitor.dto.SystemConfigDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 大模型网关：各业务统一经此调用 OpenAI 兼容接口（chat/completions、embeddings）。
+ * <ul>
+ *   <li>端点配置优先使用系统配置 llm_*，为空时回退到 application.yml 的 bailian 配置；</li>
+ *   <li>可配置多端点池（llm.gateway.endpoints），按路由分组：interactive（对话、画像、Text2Sql）、
+ *       bulk（批量抽取、摘要）、embedding；池内无可用端点时回退到系统配置端点；</li>
+ *   <li>同一路由内按「在途请求数 / 权重」最小选择端点，跳过健康检查失败与熔断中的端点，重试时优先换端点；</li>
+ *   <li>时延敏感调用方启用对冲请求：首个端点超过对冲等待仍未返回响应头时，向另一端点发出同一请求，取先返回者并取消另一路；</li>
+ *   <li>共享一个 HttpClient（连接复用，优先 HTTP/2），连接与响应超时可配置；流式响应开始后中途停顿超过空闲超时即中止；</li>
+ *   <li>单端点在途请求数有上限，超出时等待槽位；</li>
+ *   <li>网络异常、429 与 5xx 按指数退避加随机抖动重试，流式响应开始输出后不再重试；</li>
+ *   <li>端点连续失败后熔断一段时间，期间直接拒绝，到期放行一次试探；</li>
+ *   <li>按调用方（caller）统计调用次数、耗时、Token 与错误。</li>
+ * </ul>
+ * 调用失败抛出 {@link LlmCallException}，调用方按各自业务降级。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LlmGatewayService {
+
+    public static final String ROUTE_INTERACTIVE = "interactive";
+    public static final String ROUTE_BULK = "bulk";
+    public static final String ROUTE_EMBEDDING = "embedding";
+
+    private static final String DEFAULT_MODEL = "qwen-plus";
+    private static final String SYSTEM_ENDPOINT_NAME = "system";
+    private static final int LATENCY_SAMPLES = 256;
+    private static final int HEDGE_MIN_SAMPLES = 20;
+    private static final int ERROR_BODY_PREVIEW = 300;
+
+    /** 流式响应空闲检查（只做计时与关闭响应流，不执行读取） */
+    private static final ScheduledExecutorService STREAM_WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "llm-stream-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final SystemConfigService systemConfigService;
+    private final BailianProperties bailianProperties;
+    private final LlmGatewayProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, EndpointState> endpointStates = new ConcurrentHashMap<>();
+    private final Map<String, CallerStats> callerStats = new ConcurrentHashMap<>();
+    private volatile HttpClient httpClient;
+
+    /**
+     * 已解析的端点配置
+     *
+     * @param routes 显式服务的路由；为空表示兜底端点，各路由在池内无可用端点时使用
+     */
+    public record Endpoint(String name, String baseUrl, String apiKey, String model, int weight,
+                           Set<String> routes, int maxConcurrent) {
+
+        public boolean isConfigured() {
+            return baseUrl != null && !baseUrl.isBlank() && apiKey != null && !apiKey.isBlank();
+        }
+
+        String url(String path) {
+            return baseUrl.replaceAll("/$", "") + path;
+        }
+
+        String key() {
+            return name + "@" + baseUrl;
+        }
+    }
+
+    /** 大模型调用失败 */
+    public static class LlmCallException extends IllegalStateException {
+
+        private final boolean retryable;
+        private final boolean rejected;
+        private final boolean callerAborted;
+        private final long retryAfterMs;
+
+        LlmCallException(String message, boolean retryable, boolean rejected, boolean callerAborted,
+                         long retryAfterMs, Throwable cause) {
+            super(message, cause);
+            this.retryable = retryable;
+            this.rejected = rejected;
+            this.callerAborted = callerAborted;
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        static LlmCallException rejected(String message) {
+            return new LlmCallException(message, false, true, false, 0, null);
+        }
+
+        static LlmCallException cancelled(Throwable cause) {
+            return new LlmCallException("调用方已取消", false, false, true, 0, cause);
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+
+        /** 因熔断或端点繁忙未发出请求 */
+        public boolean isRejected() {
+            return rejected;
+        }
+
+        /** 调用方处理流式输出时中止（如前端断开） */
+        public boolean isCallerAborted() {
+            return callerAborted;
+        }
+    }
+
+    /**
+     * 调用取消句柄：前端断开、SSE 超时或用户主动停止时由调用方 {@link #cancel()}，
+     * 网关随即取消上游请求并关闭响应流，阻塞在读取上的线程立即以 isCallerAborted 异常返回。
+     */
+    public static final class Cancellation {
+        private final List<Runnable> aborts = new ArrayList<>();
+        private boolean cancelled;
+
+        public void cancel() {
+            List<Runnable> pending;
+            synchronized (this) {
+                if (cancelled) return;
+                cancelled = true;
+                pending = new ArrayList<>(aborts);
+                aborts.clear();
+            }
+            pending.forEach(Runnable::run);
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** 登记中止动作；已取消时立即执行 */
+        void onCancel(Runnable abort) {
+            synchronized (this) {
+                if (!cancelled) {
+                    aborts.add(abort);
+                    return;
+                }
+            }
+            abort.run();
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    /** 某一路由的候选端点：池内显式服务该路由的端点优先，兜底端点其次 */
+    private record Candidates(List<Endpoint> preferred, List<Endpoint> fallback) {
+
+        boolean isEmpty() {
+            return preferred.isEmpty() && fallback.isEmpty();
+        }
+
+        List<Endpoint> all() {
+            List<Endpoint> all = new ArrayList<>(preferred);
+            all.addAll(fallback);
+            return all;
+        }
+    }
+
+    // ==================== 端点配置 ====================
+
+    /** 系统配置端点（llm_*，为空时回退 bailian），作为单端点部署的唯一端点或多端点池的兜底端点 */
+    public Endpoint resolveEndpoint() {
+        SystemConfigDTO cfg = systemConfigService.getConfig();
+        String apiKey = cfg.getLlmApiKey() != null && !cfg.getLlmApiKey().isBlank()
+                ? cfg.getLlmApiKey()
+                : (bailianProperties.getApiKey() != null ? bailianProperties.getApiKey() : "");
+        String baseUrl = cfg.getLlmBaseUrl() != null && !cfg.getLlmBaseUrl().isBlank()
+                ? cfg.getLlmBaseUrl().trim()
+                : (bailianProperties.getBaseUrl() != null ? bailianProperties.getBaseUrl() : "");
+        String model = cfg.getLlmModel() != null && !cfg.getLlmModel().isBlank()
+                ? cfg.getLlmModel().trim()
+                : (bailianProperties.getModel() != null ? bailianProperties.getModel() : DEFAULT_MODEL);
+        return new Endpoint(SYSTEM_ENDPOINT_NAME, baseUrl, apiKey, model, 1, Set.of(), 0);
+    }
+
+    /** 是否已配置可用的大模型（系统配置端点或池内任一端点的 base URL 与 API Key 均不为空） */
+    public boolean isConfigured() {
+        return !candidates(ROUTE_INTERACTIVE).isEmpty() || !candidates(ROUTE_BULK).isEmpty();
+    }
+
+    /**
+     * 调用方所在路由可能使用的模型（多个时按字典序以逗号拼接），用于结果缓存键：
+     * 池内模型变化时缓存自然失效。
+     */
+    public String resolveModel(String caller) {
+        Candidates candidates = candidates(routeOf(caller));
+        List<Endpoint> pool = candidates.preferred().isEmpty() ? candidates.fallback() : candidates.preferred();
+        if (pool.isEmpty()) {
+            return resolveEndpoint().model();
+        }
+        return String.join(",", new TreeSet<>(pool.stream().map(Endpoint::model).toList()));
+    }
+
+    /** 调用方所属路由：bulk-callers 中的调用方走 bulk，其余走 interactive */
+    public String routeOf(String caller) {
+        return properties.getBulkCallers().contains(caller) ? ROUTE_BULK : ROUTE_INTERACTIVE;
+    }
+
+    // ==================== 调用 ====================
+
+    /**
+     * 非流式对话：body 为 chat/completions 请求体（未指定 model 时使用所选端点的模型）。
+     *
+     * @return choices[0].message.content；响应无 choices 时返回 null
+     */
+    public String chat(String caller, Map<String, Object> body) {
+        return call(caller, routeOf(caller), "/chat/completions", body, false, null, in -> {
+            JsonNode root = objectMapper.readTree(in);
+            recordUsage(caller, root.path("usage"));
+            JsonNode choices = root.path("choices");
+            if (choices.isArray() && choices.size() > 0) {
+                return choices.get(0).path("message").path("content").asText("");
+            }
+            log.warn("【大模型网关】响应无 choices: caller={}", caller);
+            return null;
+        });
+    }
+
+    /**
+     * 流式对话：逐个增量回调 onDelta，返回完整内容。在调用线程中阻塞直到流结束。
+     * onDelta 抛出异常时中止读取并抛出 {@link LlmCallException}（isCallerAborted 为 true）。
+     */
+    public String chatStream(String caller, Map<String, Object> body, Consumer<String> onDelta) {
+        return chatStream(caller, body, onDelta, null);
+    }
+
+    /**
+     * 可取消的流式对话：cancellation 被取消时立即中止上游请求，抛出 isCallerAborted 的 {@link LlmCallException}；
+     * 已收到的增量均已回调 onDelta，由调用方决定如何保存。
+     */
+    public String chatStream(String caller, Map<String, Object> body, Consumer<String> onDelta,
+                             Cancellation cancellation) {
+        Map<String, Object> request = new HashMap<>(body);
+        request.put("stream", true);
+        return call(caller, routeOf(caller), "/chat/completions", request, true, cancellation, in -> {
+            StringBuilder full = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("data:")) continue;
+                String payload = line.substring(5).trim();
+                if ("[DONE]".equals(payload)) break;
+                JsonNode chunk = readTreeQuietly(payload);
+                if (chunk == null) continue;
+                recordUsage(caller, chunk.path("usage"));
+                JsonNode choices = chunk.path("choices");
+                if (!choices.isArray() || choices.size() == 0) continue;
+                String delta = choices.get(0).path("delta").path("content").asText(null);
+                if (delta == null || delta.isEmpty()) continue;
+                full.append(delta);
+                try {
+                    onDelta.accept(delta);
+                } catch (RuntimeException e) {
+                    throw new LlmCallException("调用方中止流式输出: " + e.getMessage(), false, false, true, 0, e);
+                }
+            }
+            return full.toString();
+        });
+    }
+
+    /**
+     * 文本嵌入（/embeddings），走 embedding 路由
+     *
+     * @return 向量；响应无 data 时返回 null
+     */
+    public float[] embed(String caller, String model, String text) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("input", text);
+        request.put("model", model);
+        return call(caller, ROUTE_EMBEDDING, "/embeddings", request, false, null, in -> {
+            JsonNode root = objectMapper.readTree(in);
+            recordUsage(caller, root.path("usage"));
+            JsonNode data = root.path("data");
+            if (!data.isArray() || data.size() == 0 || !data.get(0).path("embedding").isArray()) {
+                return null;
+            }
+            return toVector(data.get(0).path("embedding"));
+        });
+    }
+
+    /**
+     * 批量文本嵌入：一次请求传入多段文本（input 为数组），按响应中的 index 对齐
+     *
+     * @return 与 texts 等长的向量列表，缺失的位置为 null
+     */
+    public List<float[]> embedBatch(String caller, String model, List<String> texts) {
+        if (texts.isEmpty()) return List.of();
+        Map<String, Object> request = new HashMap<>();
+        request.put("input", texts);
+        request.put("model", model);
+        return call(caller, ROUTE_EMBEDDING, "/embeddings", request, false, null, in -> {
+            JsonNode root = objectMapper.readTree(in);
+            recordUsage(caller, root.path("usage"));
+            List<float[]> vectors = new ArrayList<>(Collections.nCopies(texts.size(), null));
+            JsonNode data = root.path("data");
+            if (!data.isArray()) return vectors;
+            for (int i = 0; i < data.size(); i++) {
+                JsonNode item = data.get(i);
+                int index = item.path("index").asInt(i);
+                if (index >= 0 && index < vectors.size() && item.path("embedding").isArray()) {
+                    vectors.set(index, toVector(item.path("embedding")));
+                }
+            }
+            return vectors;
+        });
+    }
+
+    private static float[] toVector(JsonNode emb) {
+        float[] arr = new float[emb.size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = (float) emb.get(i).asDouble();
+        }
+        return arr;
+    }
+
+    // ==================== 健康检查 ====================
+
+    /**
+     * 定时探测池内端点（GET /models）：网络异常、5xx、401/403 视为不健康，路由时跳过；
+     * 未配置多端点池时不执行，单端点由熔断器兜底。
+     */
+    @Scheduled(fixedDelayString = "${llm.gateway.health-check-interval-ms:30000}",
+            initialDelayString = "${llm.gateway.health-check-interval-ms:30000}")
+    public void checkEndpointHealth() {
+        if (properties.getEndpoints().isEmpty()) return;
+        Map<Endpoint, CompletableFuture<Boolean>> probes = new LinkedHashMap<>();
+        for (Endpoint endpoint : allEndpoints()) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint.url("/models")))
+                    .timeout(Duration.ofMillis(properties.getHealthCheckTimeoutMs()))
+                    .header("Authorization", "Bearer " + endpoint.apiKey())
+                    .GET()
+                    .build();
+            probes.put(endpoint, client().sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(r -> r.statusCode() < 500 && r.statusCode() != 401 && r.statusCode() != 403)
+                    .exceptionally(e -> false));
+        }
+        probes.forEach((endpoint, probe) -> {
+            boolean healthy = probe.join();
+            EndpointState state = state(endpoint);
+            if (state.healthy != healthy) {
+                log.warn("【大模型网关】端点健康状态变化: endpoint={}, baseUrl={}, healthy={}",
+                        endpoint.name(), endpoint.baseUrl(), healthy);
+            }
+            state.healthy = healthy;
+        });
+    }
+
+    /** 系统配置端点变更后移除旧地址的并发与熔断状态，避免指标中残留已废弃端点 */
+    @EventListener
+    public void onSystemConfigChanged(SystemConfigService.ConfigChangedEvent event) {
+        String currentKey = resolveEndpoint().key();
+        endpointStates.entrySet().removeIf(e -> SYSTEM_ENDPOINT_NAME.equals(e.getValue().endpoint.name())
+                && !e.getKey().equals(currentKey)
+                && e.getValue().inFlight.get() == 0);
+    }
+
+    // ==================== 指标 ====================
+
+    public LlmGatewayMetricsDTO metrics() {
+        List<LlmGatewayMetricsDTO.CallerMetrics> callers = new ArrayList<>();
+        callerStats.forEach((caller, stats) -> callers.add(stats.snapshot(caller)));
+        callers.sort(Comparator.comparing(LlmGatewayMetricsDTO.CallerMetrics::getCaller));
+        List<LlmGatewayMetricsDTO.EndpointMetrics> endpoints = new ArrayList<>();
+        endpointStates.forEach((key, state) -> endpoints.add(LlmGatewayMetricsDTO.EndpointMetrics.builder()
+                .name(state.endpoint.name())
+                .baseUrl(state.endpoint.baseUrl())
+                .model(state.endpoint.model())
+                .weight(state.endpoint.weight())
+                .routes(new ArrayList<>(state.endpoint.routes()))
+                .healthy(state.healthy)
+                .breakerState(state.breaker.state().name())
+                .consecutiveFailures(state.breaker.consecutiveFailures())
+                .inFlight(state.inFlight.get())
+                .build()));
+        endpoints.sort(Comparator.comparing(LlmGatewayMetricsDTO.EndpointMetrics::getName));
+        return LlmGatewayMetricsDTO.builder().callers(callers).endpoints(endpoints).build();
+    }
+
+    // ==================== 内部实现 ====================
+
+    /** 池内端点与系统配置端点（已配置的） */
+    private List<Endpoint> allEndpoints() {
+        List<Endpoint> all = new ArrayList<>();
+        List<LlmGatewayProperties.EndpointConfig> configs = properties.getEndpoints();
+        String defaultModel = null;
+        for (int i = 0; i < configs.size(); i++) {
+            LlmGatewayProperties.EndpointConfig c = configs.get(i);
+            String model = c.getModel();
+            if (model == null || model.isBlank()) {
+                if (defaultModel == null) defaultModel = resolveEndpoint().model();
+                model = defaultModel;
+            }
+            Endpoint endpoint = new Endpoint(
+                    c.getName() != null && !c.getName().isBlank() ? c.getName() : "endpoint-" + (i + 1),
+                    c.getBaseUrl() != null ? c.getBaseUrl().trim() : "",
+                    c.getApiKey(),
+                    model.trim(),
+                    Math.max(1, c.getWeight()),
+                    c.getRoutes() != null ? Set.copyOf(c.getRoutes()) : Set.of(),
+                    c.getMaxConcurrent());
+            if (endpoint.isConfigured()) all.add(endpoint);
+        }
+        if (configs.isEmpty() || properties.isIncludeSystemEndpoint()) {
+            Endpoint system = resolveEndpoint();
+            if (system.isConfigured()) all.add(system);
+        }
+        return all;
+    }
+
+    private Candidates candidates(String route) {
+        List<Endpoint> preferred = new ArrayList<>();
+        List<Endpoint> fallback = new ArrayList<>();
+        for (Endpoint endpoint : allEndpoints()) {
+            if (endpoint.routes().isEmpty()) {
+                fallback.add(endpoint);
+            } else if (endpoint.routes().contains(route)) {
+                preferred.add(endpoint);
+            }
+        }
+        return new Candidates(preferred, fallback);
+    }
+
+    /**
+     * 选择端点：依次在优先端点、兜底端点中取健康且未熔断、未被排除的「(在途 + 1) / 权重」最小者；
+     * 都不可用时忽略健康状态与排除项选在途最少者，由熔断器决定是否放行。
+     */
+    private Endpoint select(Candidates candidates, Set<String> excluded) {
+        Endpoint best = leastOutstanding(candidates.preferred(), excluded, true);
+        if (best == null) best = leastOutstanding(candidates.fallback(), excluded, true);
+        if (best == null) best = leastOutstanding(candidates.all(), Set.of(), false);
+        return best;
+    }
+
+    private Endpoint leastOutstanding(List<Endpoint> endpoints, Set<String> excluded, boolean availableOnly) {
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        // 打乱顺序使得分相同的端点随机分摊
+        List<Endpoint> shuffled = new ArrayList<>(endpoints);
+        Collections.shuffle(shuffled, ThreadLocalRandom.current());
+        for (Endpoint endpoint : shuffled) {
+            if (excluded.contains(endpoint.key())) continue;
+            EndpointState state = state(endpoint);
+            if (availableOnly && (!state.healthy || !state.breaker.isAvailable())) continue;
+            double score = (state.inFlight.get() + 1.0) / endpoint.weight();
+            if (score < bestScore) {
+                bestScore = score;
+                best = endpoint;
+            }
+        }
+        return best;
+    }
+
+    private EndpointState state(Endpoint endpoint) {
+        return endpointStates.computeIfAbsent(endpoint.key(), k -> new EndpointState(endpoint,
+                endpoint.maxConcurrent() > 0 ? endpoint.maxConcurrent() : properties.getMaxConcurrentPerEndpoint(),
+                properties));
+    }
+
+    private <T> T call(String caller, String route, String path, Map<String, Object> body, boolean stream,
+                       Cancellation cancellation, BodyReader<T> reader) {
+        Candidates candidates = candidates(route);
+        if (candidates.isEmpty()) {
+            throw new LlmCallException("未配置大模型 base URL 或 API Key", false, false, false, 0, null);
+        }
+        CallerStats stats = callerStats.computeIfAbsent(caller, k -> new CallerStats());
+        boolean hedge = properties.getHedgeCallers().contains(caller);
+        Set<String> failed = new HashSet<>();
+        long start = System.nanoTime();
+        int maxAttempts = Math.max(1, properties.getMaxAttempts());
+        LlmCallException last = null;
+        Endpoint endpoint = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            Endpoint next = select(candidates, failed);
+            if (attempt > 1) {
+                stats.retries.increment();
+                // 换到其他端点时无需退避
+                if (next.key().equals(endpoint.key())) {
+                    sleepBeforeRetry(attempt, last);
+                }
+            }
+            endpoint = next;
+            try {
+                if (cancellation != null && cancellation.isCancelled()) {
+                    throw LlmCallException.cancelled(null);
+                }
+                T result;
+                if (hedge) {
+                    result = attemptHedged(caller, stats, candidates, endpoint, path, body, stream, cancellation, reader);
+                } else {
+                    Exchange exchange = track(start(endpoint, path, body, stream, true), cancellation);
+                    result = finish(exchange, reader, stream, awaitResponse(exchange, -1, stats));
+                }
+                stats.recordSuccess(elapsedMs(start));
+                return result;
+            } catch (LlmCallException e) {
+                last = e;
+                if (!e.isRetryable() || attempt == maxAttempts) break;
+                failed.add(endpoint.key());
+                log.warn("【大模型网关】调用失败，准备重试: caller={}, endpoint={}, attempt={}/{}, error={}",
+                        caller, endpoint.name(), attempt, maxAttempts, e.getMessage());
+            }
+        }
+        if (last.isCallerAborted()) {
+            stats.recordAborted(elapsedMs(start));
+            throw last;
+        }
+        stats.recordFailure(elapsedMs(start), last);
+        log.warn("【大模型网关】调用失败: caller={}, endpoint={}, 耗时={}ms, error={}",
+                caller, endpoint.baseUrl(), elapsedMs(start), last.getMessage());
+        throw last;
+    }
+
+    /**
+     * 对冲调用：首个端点在对冲等待内未返回响应头时，向另一可用端点发出同一请求，
+     * 先返回 2xx 响应头者胜出，另一路取消；先返回者失败则继续等待另一路。
+     */
+    private <T> T attemptHedged(String caller, CallerStats stats, Candidates candidates, Endpoint primary,
+                                String path, Map<String, Object> body, boolean stream, Cancellation cancellation,
+                                BodyReader<T> reader) {
+        Exchange first = track(start(primary, path, body, stream, true), cancellation);
+        HttpResponse<InputStream> response = awaitResponse(first, hedgeDelayMs(stats), stats);
+        if (response != null) {
+            return finish(first, reader, stream, response);
+        }
+        Endpoint secondary = leastOutstanding(candidates.preferred(), Set.of(primary.key()), true);
+        if (secondary == null) secondary = leastOutstanding(candidates.fallback(), Set.of(primary.key()), true);
+        Exchange second = secondary != null && stats.allowHedge(properties.getHedgeMaxRatio())
+                ? track(start(secondary, path, body, stream, false), cancellation)
+                : null;
+        if (second == null) {
+            return finish(first, reader, stream, awaitResponse(first, -1, stats));
+        }
+        stats.hedges.increment();
+        log.info("【大模型网关】发出对冲请求: caller={}, primary={}, hedge={}", caller, primary.name(), secondary.name());
+        try {
+            CompletableFuture.anyOf(first.future, second.future).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            first.abandon();
+            second.abandon();
+            throw new LlmCallException("大模型调用被中断", false, false, false, 0, e);
+        } catch (ExecutionException ignored) {
+            // 失败的一路在 awaitResponse 中处理
+        }
+        Exchange winner = first.future.isDone() ? first : second;
+        Exchange other = winner == first ? second : first;
+        HttpResponse<InputStream> winnerResponse;
+        try {
+            winnerResponse = awaitResponse(winner, -1, stats);
+        } catch (LlmCallException e) {
+            if (e.isCallerAborted()) throw e;
+            log.warn("【大模型网关】对冲请求一路失败，等待另一路: caller={}, failed={}, error={}",
+                    caller, winner.endpoint.name(), e.getMessage());
+            return finish(other, reader, stream, awaitResponse(other, -1, stats));
+        }
+        other.abandon();
+        if (winner == second) stats.hedgeWins.increment();
+        return finish(winner, reader, stream, winnerResponse);
+    }
+
+    /**
+     * 获取并发槽位、检查熔断后异步发出请求。
+     *
+     * @param blocking true 时等待槽位，繁忙或熔断抛出拒绝异常；false 时（对冲请求）不等待，不可用返回 null
+     */
+    private Exchange start(Endpoint endpoint, String path, Map<String, Object> body, boolean stream, boolean blocking) {
+        EndpointState state = state(endpoint);
+        String json = serialize(body, endpoint.model());
+        HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint.url(path)))
+                .timeout(Duration.ofMillis(stream ? properties.getStreamFirstByteTimeoutMs() : properties.getRequestTimeoutMs()))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + endpoint.apiKey())
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+        try {
+            boolean acquired = blocking
+                    ? state.permits.tryAcquire(properties.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS)
+                    : state.permits.tryAcquire();
+            if (!acquired) {
+                if (!blocking) return null;
+                throw LlmCallException.rejected("大模型端点繁忙（在途请求已达上限）: " + endpoint.baseUrl());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmCallException("等待大模型端点时被中断", false, false, false, 0, e);
+        }
+        state.inFlight.incrementAndGet();
+        if (!state.breaker.allowRequest()) {
+            state.inFlight.decrementAndGet();
+            state.permits.release();
+            if (!blocking) return null;
+            throw LlmCallException.rejected("大模型端点熔断中: " + endpoint.baseUrl());
+        }
+        return new Exchange(endpoint, state, client().sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()));
+    }
+
+    /** 将请求登记到取消句柄，取消时放弃该请求（exchange 为 null 时原样返回） */
+    private static Exchange track(Exchange exchange, Cancellation cancellation) {
+        if (exchange != null && cancellation != null) {
+            cancellation.onCancel(exchange::abandon);
+        }
+        return exchange;
+    }
+
+    /**
+     * 等待响应头并检查状态码；非 2xx 或网络异常时更新熔断、释放槽位并抛出异常。
+     *
+     * @param timeoutMs 小于 0 时一直等待；超时返回 null（请求仍在进行）
+     */
+    private HttpResponse<InputStream> awaitResponse(Exchange exchange, long timeoutMs, CallerStats stats) {
+        EndpointState state = exchange.state;
+        HttpResponse<InputStream> response;
+        try {
+            response = timeoutMs < 0
+                    ? exchange.future.get()
+                    : exchange.future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (CancellationException e) {
+            // 仅在调用方取消时放弃等待中的请求
+            throw LlmCallException.cancelled(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.abandon();
+            throw new LlmCallException("大模型调用被中断", false, false, false, 0, e);
+        } catch (ExecutionException e) {
+            if (exchange.isAbandoned()) {
+                throw LlmCallException.cancelled(e.getCause());
+            }
+            state.breaker.onFailure();
+            exchange.release();
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new LlmCallException("网络异常: " + cause, true, false, false, 0, cause);
+        }
+        stats.firstByteLatencies.record(elapsedMs(exchange.startNanos));
+        int status = response.statusCode();
+        if (status < 200 || status >= 300) {
+            String error = readErrorBody(response);
+            boolean retryable = status == 429 || status >= 500;
+            // 4xx 说明端点可达，不计入熔断
+            if (retryable) state.breaker.onFailure(); else state.breaker.onSuccess();
+            exchange.release();
+            throw new LlmCallException("HTTP " + status + ": " + error, retryable, false, false,
+                    retryAfterMs(response), null);
+        }
+        return response;
+    }
+
+    private <T> T finish(Exchange exchange, BodyReader<T> reader, boolean stream, HttpResponse<InputStream> response) {
+        EndpointState state = exchange.state;
+        IdleWatchdog watchdog = stream && properties.getStreamIdleTimeoutMs() > 0
+                ? new IdleWatchdog(response.body(), properties.getStreamIdleTimeoutMs())
+                : null;
+        try (InputStream in = watchdog != null ? watchdog : response.body()) {
+            T result = reader.read(in);
+            if (exchange.isAbandoned()) {
+                // 响应流被取消关闭时读取可能以 EOF 正常结束，内容并不完整
+                throw LlmCallException.cancelled(null);
+            }
+            if (watchdog != null && watchdog.timedOut()) {
+                throw idleTimeout(state, null);
+            }
+            state.breaker.onSuccess();
+            state.healthy = true;
+            return result;
+        } catch (LlmCallException e) {
+            if (!exchange.isAbandoned() && (watchdog == null || !watchdog.timedOut())) state.breaker.onSuccess();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            if (exchange.isAbandoned()) {
+                // 调用方取消时响应流被主动关闭，不计入熔断
+                throw LlmCallException.cancelled(e);
+            }
+            if (watchdog != null && watchdog.timedOut()) {
+                throw idleTimeout(state, e);
+            }
+            state.breaker.onFailure();
+            // 流式响应可能已向调用方输出部分内容，不再重试
+            throw new LlmCallException("读取响应失败: " + e.getMessage(), !stream, false, false, 0, e);
+        } finally {
+            exchange.release();
+        }
+    }
+
+    /** 流式响应中途停顿超时：计入熔断；已向调用方输出部分内容，不重试 */
+    private LlmCallException idleTimeout(EndpointState state, Throwable cause) {
+        state.breaker.onFailure();
+        return new LlmCallException("流式响应超过 " + properties.getStreamIdleTimeoutMs() + "ms 无数据", false, false, false, 0, cause);
+    }
+
+    /** 对冲等待：调用方首包耗时样本足够时取 P95，限制在 [hedge-min-delay-ms, hedge-delay-ms] */
+    private long hedgeDelayMs(CallerStats stats) {
+        long max = properties.getHedgeDelayMs();
+        long min = Math.min(properties.getHedgeMinDelayMs(), max);
+        if (stats.firstByteLatencies.count() < HEDGE_MIN_SAMPLES) return max;
+        return Math.max(min, Math.min(max, stats.firstByteLatencies.percentile(0.95)));
+    }
+
+    private String serialize(Map<String, Object> body, String model) {
+        Map<String, Object> request = new HashMap<>(body);
+        request.putIfAbsent("model", model);
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (Exception e) {
+            throw new LlmCallException("请求体序列化失败: " + e.getMessage(), false, false, false, 0, e);
+        }
+    }
+
+    private HttpClient client() {
+        HttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    client = HttpClient.newBuilder()
+                            .version(properties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                            .connectTimeout(Duration.ofMillis(properties.getConnectTimeoutMs()))
+                            .build();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private void sleepBeforeRetry(int attempt, LlmCallException last) {
+        long cap = Math.min(properties.getRetryMaxDelayMs(),
+                (long) properties.getRetryBaseDelayMs() << Math.min(attempt - 2, 20));
+        long delay = ThreadLocalRandom.current().nextLong(Math.max(cap, 0) + 1);
+        if (last != null && last.retryAfterMs > 0) {
+            delay = Math.max(delay, Math.min(last.retryAfterMs, properties.getRetryMaxDelayMs()));
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmCallException("重试等待被中断", false, false, false, 0, e);
+        }
+    }
+
+    private static long retryAfterMs(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After").map(v -> {
+            try {
+                return Long.parseLong(v.trim()) * 1000L;
+            } catch (NumberFormatException e) {
+                return 0L;
+            }
+        }).orElse(0L);
+    }
+
+    private static String readErrorBody(HttpResponse<InputStream> response) {
+        try (InputStream in = response.body()) {
+            byte[] bytes = in.readNBytes(ERROR_BODY_PREVIEW);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private JsonNode readTreeQuietly(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void recordUsage(String caller, JsonNode usage) {
+        if (usage == null || !usage.isObject()) return;
+        CallerStats stats = callerStats.computeIfAbsent(caller, k -> new CallerStats());
+        stats.promptTokens.add(usage.path("prompt_tokens").asLong(0));
+        stats.completionTokens.add(usage.path("completion_tokens").asLong(0));
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 流式响应空闲看门狗：超过 idleMs 未读到数据时关闭响应流，阻塞在读取上的线程随即返回（EOF 或 IOException），
+     * 由 {@link #finish} 按 {@link #timedOut()} 转为空闲超时异常
+     */
+    private static final class IdleWatchdog extends FilterInputStream {
+        private final long idleNanos;
+        private final ScheduledFuture<?> check;
+        private volatile long lastReadNanos = System.nanoTime();
+        private volatile boolean timedOut;
+
+        IdleWatchdog(InputStream in, long idleMs) {
+            super(in);
+            this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMs);
+            long periodMs = Math.max(10, idleMs / 4);
+            this.check = STREAM_WATCHDOG.scheduleWithFixedDelay(this::check, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+
+        boolean timedOut() {
+            return timedOut;
+        }
+
+        private void check() {
+            if (timedOut || System.nanoTime() - lastReadNanos < idleNanos) return;
+            timedOut = true;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // 连接已关闭
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            lastReadNanos = System.nanoTime();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            lastReadNanos = System.nanoTime();
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            check.cancel(false);
+            super.close();
+        }
+    }
+
+    /** 一次已发出的请求：持有端点槽位，结束或放弃时释放 */
+    private static final class Exchange {
+        final Endpoint endpoint;
+        final EndpointState state;
+        final CompletableFuture<HttpResponse<InputStream>> future;
+        final long startNanos = System.nanoTime();
+        private boolean released;
+        private boolean abandoned;
+
+        Exchange(Endpoint endpoint, EndpointState state, CompletableFuture<HttpResponse<InputStream>> future) {
+            this.endpoint = endpoint;
+            this.state = state;
+            this.future = future;
+        }
+
+        synchronized void release() {
+            if (released) return;
+            released = true;
+            state.inFlight.decrementAndGet();
+            state.permits.release();
+        }
+
+        /** 放弃请求（对冲落败、中断或调用方取消）：取消请求、关闭已返回的响应体，不计入熔断；已结束的请求不受影响 */
+        void abandon() {
+            synchronized (this) {
+                if (released || abandoned) return;
+                abandoned = true;
+            }
+            future.cancel(true);
+            future.thenAccept(r -> {
+                try {
+                    r.body().close();
+                } catch (IOException ignored) {
+                    // 连接已关闭
+                }
+            });
+            state.breaker.releaseTrial();
+            release();
+        }
+
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+    }
+
+    /** 单个端点的配置、并发槽位、健康与熔断状态 */
+    private static final class EndpointState {
+        final Endpoint endpoint;
+        final Semaphore permits;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final CircuitBreaker breaker;
+        volatile boolean healthy = true;
+
+        EndpointState(Endpoint endpoint, int maxConcurrent, LlmGatewayProperties properties) {
+            this.endpoint = endpoint;
+            this.permits = new Semaphore(Math.max(1, maxConcurrent), true);
+            this.breaker = new CircuitBreaker(properties.getBreakerFailureThreshold(), properties.getBreakerOpenMs());
+        }
+    }
+
+    enum BreakerState { CLOSED, OPEN, HALF_OPEN }
+
+    /** 连续失败计数熔断器：OPEN 到期后进入 HALF_OPEN，仅放行一个试探请求 */
+    static final class CircuitBreaker {
+        private final int failureThreshold;
+        private final long openMs;
+        private BreakerState state = BreakerState.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        CircuitBreaker(int failureThreshold, long openMs) {
+            this.failureThreshold = Math.max(1, failureThreshold);
+            this.openMs = openMs;
+        }
+
+        synchronized boolean allowRequest() {
+            if (state == BreakerState.CLOSED) return true;
+            if (state == BreakerState.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+                state = BreakerState.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == BreakerState.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            return false;
+        }
+
+        /** 当前是否会放行请求（不占用试探名额），用于路由选择 */
+        synchronized boolean isAvailable() {
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> System.currentTimeMillis() - openedAt >= openMs;
+                case HALF_OPEN -> !trialInFlight;
+            };
+        }
+
+        synchronized void onSuccess() {
+            state = BreakerState.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == BreakerState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                if (state != BreakerState.OPEN) {
+                    log.warn("【大模型网关】端点熔断: 连续失败={}, 熔断时长={}ms", consecutiveFailures, openMs);
+                }
+                state = BreakerState.OPEN;
+                openedAt = System.currentTimeMillis();
+                trialInFlight = false;
+            }
+        }
+
+        /** 试探请求被放弃（如对冲落败）时归还试探名额，不改变状态 */
+        synchronized void releaseTrial() {
+            trialInFlight = false;
+        }
+
+        synchronized BreakerState state() {
+            return state;
+        }
+
+        synchronized int consecutiveFailures() {
+            return consecutiveFailures;
+        }
+    }
+
+    /** 最近若干次耗时的环形缓冲，用于计算分位数 */
+    private static final class LatencyWindow {
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private int count;
+        private int pos;
+
+        synchronized void record(long latencyMs) {
+            samples[pos] = latencyMs;
+            pos = (pos + 1) % LATENCY_SAMPLES;
+            count = Math.min(count + 1, LATENCY_SAMPLES);
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        long percentile(double p) {
+            long[] recent;
+            synchronized (this) {
+                recent = Arrays.copyOf(samples, count);
+            }
+            if (recent.length == 0) return 0;
+            Arrays.sort(recent);
+            return recent[Math.min(recent.length - 1, (int) Math.ceil(recent.length * p) - 1)];
+        }
+    }
+
+    /** 单个调用方的累计指标 */
+    private static final class CallerStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder hedges = new LongAdder();
+        final LongAdder hedgeWins = new LongAdder();
+        final LongAdder aborted = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final LongAdder totalLatencyMs = new LongAdder();
+        final AtomicLong maxLatencyMs = new AtomicLong();
+        final LatencyWindow latencies = new LatencyWindow();
+        /** 发出请求到收到响应头的耗时，用于计算对冲等待 */
+        final LatencyWindow firstByteLatencies = new LatencyWindow();
+        volatile String lastError;
+
+        void recordSuccess(long latencyMs) {
+            record(latencyMs);
+        }
+
+        void recordFailure(long latencyMs, LlmCallException e) {
+            record(latencyMs);
+            errors.increment();
+            if (e != null && e.isRejected()) rejected.increment();
+            lastError = e != null ? e.getMessage() : null;
+        }
+
+        /** 调用方中止（前端断开、超时或主动停止），不计入 errors */
+        void recordAborted(long latencyMs) {
+            record(latencyMs);
+            aborted.increment();
+        }
+
+        /** 对冲请求数未超过调用数的 ratio 比例（至少允许一次） */
+        boolean allowHedge(double ratio) {
+            return hedges.sum() < Math.max(1.0, (calls.sum() + 1) * ratio);
+        }
+
+        private void record(long latencyMs) {
+            calls.increment();
+            totalLatencyMs.add(latencyMs);
+            maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+            latencies.record(latencyMs);
+        }
+
+        LlmGatewayMetricsDTO.CallerMetrics snapshot(String caller) {
+            long count = calls.sum();
+            return LlmGatewayMetricsDTO.CallerMetrics.builder()
+                    .caller(caller)
+                    .calls(count)
+                    .errors(errors.sum())
+                    .rejected(rejected.sum())
+                    .retries(retries.sum())
+                    .hedges(hedges.sum())
+                    .hedgeWins(hedgeWins.sum())
+                    .aborted(aborted.sum())
+                    .promptTokens(promptTokens.sum())
+                    .completionTokens(completionTokens.sum())
+                    .avgLatencyMs(count > 0 ? totalLatencyMs.sum() / count : 0)
+                    .p95LatencyMs(latencies.percentile(0.95))
+                    .maxLatencyMs(maxLatencyMs.get())
+                    .lastError(lastError)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.common.ContentHash;
+import com.stararchive.personmonitor.entity.LlmResponseCache;
+import com.stararchive.personmonitor.repository.LlmResponseCacheRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 大模型响应缓存：Text2Sql、事件摘要等确定性调用在模型、提示词与输入均不变时直接复用响应。
+ * <ul>
+ *   <li>库表持久化（重启后仍有效），进程内保留有限条数的 LRU 热点副本；</li>
+ *   <li>按 TTL 过期，定时清理过期行；</li>
+ *   <li>每条缓存归属一个失效范围（如 news:{newsId}），写入新响应时替换同一范围的旧响应，
+ *       也可按范围显式失效（如规则编辑后）；</li>
+ *   <li>相同键的并发未命中只调用一次大模型，其余等待同一结果。</li>
+ * </ul>
+ * 缓存读写失败只记录日志，不影响调用流程。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LlmResponseCacheService {
+
+    private final LlmResponseCacheRepository cacheRepository;
+
+    @Value("${llm.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${llm.cache.ttl-minutes:10080}")
+    private long ttlMinutes = 10_080;
+
+    @Value("${llm.cache.max-memory-entries:1000}")
+    private int maxMemoryEntries = 1_000;
+
+    private final Map<String, Entry> memory = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxMemoryEntries;
+        }
+    };
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存键：prompt 为系统提示词等固定部分，input 为本次输入；scope 为失效范围，可为 null。
+     */
+    public record Key(String caller, String model, String promptHash, String inputHash, String scope) {
+
+        public static Key of(String caller, String model, String prompt, String input, String scope) {
+            return new Key(caller, model != null ? model : "", ContentHash.sha256Hex(prompt),
+                    ContentHash.sha256Hex(input), scope);
+        }
+
+        public String cacheKey() {
+            return ContentHash.sha256Hex(caller + "|" + model + "|" + promptHash + "|" + inputHash);
+        }
+    }
+
+    private record Entry(String scope, String response, long expireAtMillis) {
+    }
+
+    public Optional<String> get(Key key) {
+        if (!enabled) return Optional.empty();
+        String cacheKey = key.cacheKey();
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Entry entry = memory.get(cacheKey);
+            if (entry != null) {
+                if (entry.expireAtMillis() > now) return Optional.of(entry.response());
+                memory.remove(cacheKey);
+            }
+        }
+        try {
+            Optional<LlmResponseCache> row = cacheRepository.findById(cacheKey)
+                    .filter(c -> c.getExpireTime() == null || c.getExpireTime().isAfter(LocalDateTime.now()));
+            row.ifPresent(c -> remember(cacheKey, new Entry(c.getScopeKey(), c.getResponse(),
+                    c.getExpireTime() != null ? toMillis(c.getExpireTime()) : Long.MAX_VALUE)));
+            return row.map(LlmResponseCache::getResponse);
+        } catch (Exception e) {
+            log.warn("【大模型缓存】读取失败: caller={}, error={}", key.caller(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** 写入响应；key.scope 不为空时先移除同一范围的旧响应 */
+    public void put(Key key, String response) {
+        if (!enabled || response == null || response.isBlank()) return;
+        String cacheKey = key.cacheKey();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expireTime = now.plusMinutes(ttlMinutes);
+        if (key.scope() != null) {
+            evictMemory(key.scope());
+        }
+        remember(cacheKey, new Entry(key.scope(), response, toMillis(expireTime)));
+        try {
+            if (key.scope() != null) {
+                cacheRepository.deleteByScopeKey(key.scope());
+            }
+            cacheRepository.save(LlmResponseCache.builder()
+                    .cacheKey(cacheKey)
+                    .caller(key.caller())
+                    .scopeKey(key.scope())
+                    .model(key.model())
+                    .promptHash(key.promptHash())
+                    .inputHash(key.inputHash())
+                    .response(response)
+                    .createdTime(now)
+                    .expireTime(expireTime)
+                    .build());
+        } catch (Exception e) {
+            log.warn("【大模型缓存】写入失败: caller={}, scope={}, error={}", key.caller(), key.scope(), e.getMessage());
+        }
+    }
+
+    /**
+     * 命中直接返回，未命中调用 loader 并缓存非空结果；相同键的并发未命中共享一次调用。
+     * loader 抛出的异常原样抛给所有等待方。
+     */
+    public String getOrCompute(Key key, Supplier<String> loader) {
+        Optional<String> cached = get(key);
+        if (cached.isPresent()) {
+            log.debug("【大模型缓存】命中: caller={}, scope={}", key.caller(), key.scope());
+            return cached.get();
+        }
+        if (!enabled) return loader.get();
+        String cacheKey = key.cacheKey();
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(cacheKey, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw e;
+            }
+        }
+        try {
+            String response = loader.get();
+            put(key, response);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    /** 按范围失效（如规则编辑、模型删除后） */
+    public void invalidateScope(String scope) {
+        if (scope == null) return;
+        evictMemory(scope);
+        try {
+            int removed = cacheRepository.deleteByScopeKey(scope);
+            if (removed > 0) {
+                log.info("【大模型缓存】按范围失效: scope={}, 删除={}", scope, removed);
+            }
+        } catch (Exception e) {
+            log.warn("【大模型缓存】按范围失效失败: scope={}, error={}", scope, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${llm.cache.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            memory.values().removeIf(e -> e.expireAtMillis() <= now);
+        }
+        try {
+            int removed = cacheRepository.deleteExpired(LocalDateTime.now());
+            if (removed > 0) {
+                log.info("【大模型缓存】清理过期缓存: 删除={}", removed);
+            }
+        } catch (Exception e) {
+            log.warn("【大模型缓存】清理过期缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private void remember(String cacheKey, Entry entry) {
+        synchronized (memory) {
+            memory.put(cacheKey, entry);
+        }
+    }
+
+    private void evictMemory(String scope) {
+        synchronized (memory) {
+            memory.values().removeIf(e -> scope.equals(e.scope()));
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,84 @@
+package com.stararchive.personmonitor.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进行中的大模型流式输出登记表：把 SSE 连接的生命周期与上游请求绑定。
+ * <ul>
+ *   <li>前端断开（onError）、SSE 超时（onTimeout）或连接结束（onCompletion）时取消上游请求，释放工作线程；</li>
+ *   <li>按业务键（如问答会话）登记，供「停止生成」接口主动取消；同一键发起新流时取消旧流；</li>
+ *   <li>登记仅在本副本内存中，停止接口只作用于本副本上的流；前端直接断开连接在任意副本上均生效；</li>
+ *   <li>按配置创建合并增量的 {@link SseTokenWriter}。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class LlmStreamRegistry {
+
+    /** 增量合并窗口（毫秒） */
+    @Value("${llm.stream.coalesce-window-ms:40}")
+    private long coalesceWindowMs = 40;
+
+    /** 单帧合并字符数上限，达到即发送 */
+    @Value("${llm.stream.coalesce-max-chars:200}")
+    private int coalesceMaxChars = 200;
+
+    /** 单帧发送耗时超过该值视为客户端慢，合并窗口与帧长翻倍 */
+    @Value("${llm.stream.slow-send-ms:100}")
+    private long slowSendMs = 100;
+
+    private final Map<String, LlmGatewayService.Cancellation> active = new ConcurrentHashMap<>();
+
+    /** 为 emitter 创建合并增量的写入器 */
+    public SseTokenWriter newWriter(SseEmitter emitter) {
+        return new SseTokenWriter(emitter, coalesceWindowMs, coalesceMaxChars, slowSendMs);
+    }
+
+    /**
+     * 登记一个流并绑定 emitter 的完成、超时与出错回调
+     *
+     * @return 传给 {@link LlmGatewayService#chatStream(String, Map, java.util.function.Consumer, LlmGatewayService.Cancellation)} 的取消句柄
+     */
+    public LlmGatewayService.Cancellation open(String key, SseEmitter emitter) {
+        LlmGatewayService.Cancellation cancellation = new LlmGatewayService.Cancellation();
+        LlmGatewayService.Cancellation previous = active.put(key, cancellation);
+        if (previous != null) {
+            log.info("【流式输出】同一会话发起新请求，取消旧流: key={}", key);
+            previous.cancel();
+        }
+        emitter.onCompletion(() -> close(key, cancellation));
+        emitter.onTimeout(() -> {
+            log.info("【流式输出】SSE 超时，取消上游请求: key={}", key);
+            close(key, cancellation);
+        });
+        emitter.onError(e -> {
+            log.info("【流式输出】客户端断开，取消上游请求: key={}, error={}", key, e.getMessage());
+            close(key, cancellation);
+        });
+        return cancellation;
+    }
+
+    /**
+     * 主动停止（如用户点击「停止生成」）
+     *
+     * @return 本副本上是否存在进行中的流
+     */
+    public boolean stop(String key) {
+        LlmGatewayService.Cancellation cancellation = active.remove(key);
+        if (cancellation == null) return false;
+        log.info("【流式输出】主动停止: key={}", key);
+        cancellation.cancel();
+        return true;
+    }
+
+    private void close(String key, LlmGatewayService.Cancellation cancellation) {
+        active.remove(key, cancellation);
+        cancellation.cancel();
+    }
+}
@@ -77,7 +77,10 @@ public class ModelManagementService {
         if (entity == null) return null;
         if (dto.getName() != null) entity.setName(dto.getName().trim());
         if (dto.getDescription() != null) entity.setDescription(dto.getDescription().trim());
-        if (dto.getRuleConfig() != null) entity.setRuleConfig(dto.getRuleConfig());
+        if (dto.getRuleConfig() != null) {
+            invalidateRuleIfChanged(entity.getRuleConfig(), dto.getRuleConfig());
+            entity.setRuleConfig(dto.getRuleConfig());
+        }
         entity.setUpdatedTime(LocalDateTime.now());
         entity = predictionModelRepository.save(entity);
         log.info("更新预测模型: modelId={}", modelId);
@@ -86,7 +89,9 @@ public class ModelManagementService {
 
     @Transactional
     public boolean delete(String modelId) {
-        if (!predictionModelRepository.existsById(modelId)) return false;
+        PredictionModel entity = predictionModelRepository.findById(modelId).orElse(null);
+        if (entity == null) return false;
+        semanticText2SqlService.invalidateCachedSql(entity.getRuleConfig());
         lockedPersonRepository.deleteByModelId(modelId);
         predictionModelRepository.deleteById(modelId);
         log.info("删除预测模型: modelId={}", modelId);
@@ -162,6 +167,7 @@ public class ModelManagementService {
     public PredictionModelDTO updateRuleConfig(String modelId, String ruleConfig) {
         PredictionModel entity = predictionModelRepository.findById(modelId).orElse(null);
         if (entity == null) return null;
+        invalidateRuleIfChanged(entity.getRuleConfig(), ruleConfig);
         entity.setRuleConfig(ruleConfig);
         entity.setUpdatedTime(LocalDateTime.now());
         entity = predictionModelRepository.save(entity);
@@ -169,6 +175,13 @@ public class ModelManagementService {
         return toDTO(entity);
     }
 
+    /** 规则变化时失效旧规则已缓存的 Text2Sql 结果 */
+    private void invalidateRuleIfChanged(String oldRule, String newRule) {
+        if (oldRule != null && !Objects.equals(oldRule.trim(), newRule != null ? newRule.trim() : null)) {
+            semanticText2SqlService.invalidateCachedSql(oldRule);
+        }
+    }
+
     private static final int SEMANTIC_HIT_MAX_IDS = 10000;
 
     /**
@@ -0,0 +1,364 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.EventClusterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 新闻事件聚类：字符 shingle + MinHash 签名 + LSH 分桶，只对落入同一桶的候选对复核相似度。
+ * <ul>
+ *   <li>摘要去掉空白与标点后按字切成长度为 shingle-size 的片段，中文无需分词；</li>
+ *   <li>签名按 bands × rows 分段，任一段相同即为候选，候选对用 shingle 集合的精确 Jaccard 复核；</li>
+ *   <li>复核通过的两条并入同一事件（并查集，单链接），每桶只保留有限条代表，相同摘要再多也不会两两比较；</li>
+ *   <li>按日期分桶后各日期并行聚类，单日内为近线性开销。</li>
+ * </ul>
+ * 输出中事件按最早一条新闻的输入顺序排列，事件内新闻保持输入顺序。
+ * <p>
+ * 增量聚合使用 {@link #newIndex()}：对已有事件的代表摘要建立常驻的 LSH 索引，新新闻按同样的候选 + 复核规则匹配事件。
+ */
+@Slf4j
+@Service
+public class NewsClusteringService {
+
+    private final EventClusterProperties properties;
+    private final ExecutorService executor;
+    /** MinHash 哈希函数参数：h_j(x) = mix(x * A_j + B_j)，A_j 为奇数 */
+    private final int[] hashA;
+    private final int[] hashB;
+
+    public NewsClusteringService(EventClusterProperties properties) {
+        this.properties = properties;
+        int threads = properties.getParallelism() > 0
+                ? properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "news-cluster-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        int signatureLength = Math.max(1, properties.getBands()) * Math.max(1, properties.getRows());
+        // 固定种子，同一输入在各副本、各次运行得到相同聚类结果
+        SplittableRandom random = new SplittableRandom(0x5EED_C1A5L);
+        this.hashA = new int[signatureLength];
+        this.hashB = new int[signatureLength];
+        for (int j = 0; j < signatureLength; j++) {
+            hashA[j] = random.nextInt() | 1;
+            hashB[j] = random.nextInt();
+        }
+    }
+
+    /**
+     * 按日期分组后各日期并行聚类
+     *
+     * @return 按日期升序、日内按首条新闻顺序排列的事件列表
+     */
+    public <T> List<List<T>> clusterByDate(List<T> items, Function<T, LocalDate> dateOf, Function<T, String> textOf) {
+        Map<LocalDate, List<T>> byDate = new TreeMap<>();
+        for (T item : items) {
+            byDate.computeIfAbsent(dateOf.apply(item), d -> new ArrayList<>()).add(item);
+        }
+        if (byDate.size() <= 1) {
+            return byDate.isEmpty() ? List.of() : cluster(byDate.values().iterator().next(), textOf);
+        }
+        List<Future<List<List<T>>>> futures = new ArrayList<>(byDate.size());
+        for (List<T> dayList : byDate.values()) {
+            futures.add(executor.submit(() -> cluster(dayList, textOf)));
+        }
+        List<List<T>> result = new ArrayList<>();
+        try {
+            for (Future<List<List<T>>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("新闻聚类被中断", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException re ? re : new IllegalStateException(cause);
+        }
+        return result;
+    }
+
+    /** 单个日期桶内聚类 */
+    public <T> List<List<T>> cluster(List<T> items, Function<T, String> textOf) {
+        int n = items.size();
+        if (n <= 1) {
+            List<List<T>> single = new ArrayList<>();
+            items.forEach(item -> single.add(new ArrayList<>(List.of(item))));
+            return single;
+        }
+        int[][] shingles = new int[n][];
+        int[][] signatures = new int[n][];
+        for (int i = 0; i < n; i++) {
+            shingles[i] = shingles(textOf.apply(items.get(i)), properties.getShingleSize());
+            signatures[i] = shingles[i].length > 0 ? signature(shingles[i]) : null;
+        }
+
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        int bands = Math.max(1, properties.getBands());
+        int rows = Math.max(1, properties.getRows());
+        int maxReps = Math.max(1, properties.getMaxBucketRepresentatives());
+        double threshold = properties.getThreshold();
+        long verified = 0;
+        // 逐段处理，同一时间只保留一段的桶，内存与条数成正比
+        for (int band = 0; band < bands; band++) {
+            Map<Long, Bucket> buckets = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                if (signatures[i] == null) continue;
+                Bucket bucket = buckets.computeIfAbsent(bandKey(signatures[i], band, rows), k -> new Bucket());
+                boolean merged = false;
+                for (int r = 0; r < bucket.size; r++) {
+                    int rep = bucket.reps[r];
+                    if (find(parent, rep) == find(parent, i)) {
+                        merged = true;
+                        continue;
+                    }
+                    verified++;
+                    if (jaccard(shingles[i], shingles[rep]) >= threshold) {
+                        union(parent, rep, i);
+                        merged = true;
+                    }
+                }
+                if (!merged && bucket.size < maxReps) {
+                    bucket.add(i);
+                }
+            }
+        }
+
+        Map<Integer, List<T>> byRoot = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            byRoot.computeIfAbsent(find(parent, i), k -> new ArrayList<>()).add(items.get(i));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("【事件聚类】条数={}, 事件数={}, 复核候选对={}", n, byRoot.size(), verified);
+        }
+        return new ArrayList<>(byRoot.values());
+    }
+
+    /** 创建增量匹配索引，键一般为事件编号 */
+    public <K> SignatureIndex<K> newIndex() {
+        return new SignatureIndex<>();
+    }
+
+    /**
+     * 常驻的事件签名索引：每个键（事件）保存若干条代表摘要，按段记录所在的 LSH 桶；
+     * 查询时只复核同桶的事件，返回 Jaccard 不低于阈值且最高的一个。线程安全。
+     */
+    public final class SignatureIndex<K> {
+
+        /** 每个事件最多保留的代表摘要条数，新归入的新闻摘要在未满时追加 */
+        private static final int MAX_TEXTS_PER_KEY = 8;
+
+        private final List<Map<Long, Set<K>>> bands;
+        private final Map<K, Entry> entries = new HashMap<>();
+
+        private final class Entry {
+            final List<int[]> shingleSets = new ArrayList<>();
+            final Set<BucketRef> buckets = new HashSet<>();
+        }
+
+        private record BucketRef(int band, long key) {
+        }
+
+        private SignatureIndex() {
+            int count = Math.max(1, properties.getBands());
+            this.bands = new ArrayList<>(count);
+            for (int b = 0; b < count; b++) {
+                bands.add(new HashMap<>());
+            }
+        }
+
+        /** 为键追加一条代表摘要（空摘要或已满时忽略） */
+        public synchronized void add(K key, String text) {
+            int[] shingleSet = shingles(text, properties.getShingleSize());
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+            if (shingleSet.length == 0 || entry.shingleSets.size() >= MAX_TEXTS_PER_KEY) return;
+            entry.shingleSets.add(shingleSet);
+            int[] sig = signature(shingleSet);
+            int rows = Math.max(1, properties.getRows());
+            for (int band = 0; band < bands.size(); band++) {
+                long bandKey = bandKey(sig, band, rows);
+                if (entry.buckets.add(new BucketRef(band, bandKey))) {
+                    bands.get(band).computeIfAbsent(bandKey, k -> new LinkedHashSet<>()).add(key);
+                }
+            }
+        }
+
+        /** 查找与摘要最相似的键，无候选或均低于阈值时返回 null */
+        public synchronized K match(String text) {
+            int[] shingleSet = shingles(text, properties.getShingleSize());
+            if (shingleSet.length == 0 || entries.isEmpty()) return null;
+            int[] sig = signature(shingleSet);
+            int rows = Math.max(1, properties.getRows());
+            Set<K> candidates = new LinkedHashSet<>();
+            for (int band = 0; band < bands.size(); band++) {
+                Set<K> bucket = bands.get(band).get(bandKey(sig, band, rows));
+                if (bucket != null) candidates.addAll(bucket);
+            }
+            K best = null;
+            double bestScore = properties.getThreshold();
+            for (K candidate : candidates) {
+                for (int[] other : entries.get(candidate).shingleSets) {
+                    double score = jaccard(shingleSet, other);
+                    if (score >= bestScore && (best == null || score > bestScore)) {
+                        best = candidate;
+                        bestScore = score;
+                    }
+                }
+            }
+            return best;
+        }
+
+        public synchronized void remove(K key) {
+            Entry entry = entries.remove(key);
+            if (entry == null) return;
+            for (BucketRef ref : entry.buckets) {
+                Map<Long, Set<K>> band = bands.get(ref.band());
+                Set<K> bucket = band.get(ref.key());
+                if (bucket != null && bucket.remove(key) && bucket.isEmpty()) {
+                    band.remove(ref.key());
+                }
+            }
+        }
+
+        public synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    /** 去掉空白与标点、转小写后按字切片，返回去重并排序的片段哈希 */
+    static int[] shingles(String text, int size) {
+        if (text == null) return new int[0];
+        StringBuilder sb = new StringBuilder(text.length());
+        text.codePoints()
+                .filter(cp -> !Character.isWhitespace(cp) && !isPunctuation(cp))
+                .map(Character::toLowerCase)
+                .forEach(sb::appendCodePoint);
+        int len = sb.length();
+        if (len == 0) return new int[0];
+        int k = Math.max(1, Math.min(size, len));
+        int[] hashes = new int[len - k + 1];
+        for (int start = 0; start + k <= len; start++) {
+            int h = 0;
+            for (int c = start; c < start + k; c++) {
+                h = h * 31 + sb.charAt(c);
+            }
+            hashes[start] = mix(h);
+        }
+        Arrays.sort(hashes);
+        int distinct = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) hashes[distinct++] = hashes[i];
+        }
+        return Arrays.copyOf(hashes, distinct);
+    }
+
+    /** 两个已排序去重的片段集合的 Jaccard 相似度 */
+    static double jaccard(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        int inter = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                inter++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - inter;
+        return union == 0 ? 1.0 : (double) inter / union;
+    }
+
+    private int[] signature(int[] shingles) {
+        int[] sig = new int[hashA.length];
+        Arrays.fill(sig, Integer.MAX_VALUE);
+        for (int s : shingles) {
+            for (int j = 0; j < sig.length; j++) {
+                int h = mix(s * hashA[j] + hashB[j]);
+                if (h < sig[j]) sig[j] = h;
+            }
+        }
+        return sig;
+    }
+
+    private static long bandKey(int[] sig, int band, int rows) {
+        long key = band;
+        for (int r = band * rows; r < (band + 1) * rows; r++) {
+            key = key * 0x9E3779B97F4A7C15L + sig[r];
+        }
+        return key ^ (key >>> 31);
+    }
+
+    private static boolean isPunctuation(int cp) {
+        return switch (Character.getType(cp)) {
+            case Character.CONNECTOR_PUNCTUATION, Character.DASH_PUNCTUATION, Character.START_PUNCTUATION,
+                 Character.END_PUNCTUATION, Character.INITIAL_QUOTE_PUNCTUATION, Character.FINAL_QUOTE_PUNCTUATION,
+                 Character.OTHER_PUNCTUATION -> true;
+            default -> false;
+        };
+    }
+
+    /** murmur3 fmix32 */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /** 合并时以较早的一条为根，保证事件顺序与首条新闻一致 */
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra == rb) return;
+        if (ra < rb) parent[rb] = ra;
+        else parent[ra] = rb;
+    }
+
+    private static final class Bucket {
+        int[] reps = new int[2];
+        int size;
+
+        void add(int i) {
+            if (size == reps.length) reps = Arrays.copyOf(reps, size * 2);
+            reps[size++] = i;
+        }
+    }
+}
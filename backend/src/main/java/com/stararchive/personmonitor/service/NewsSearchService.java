@@ -0,0 +1,349 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.NewsSearchProperties;
+import com.stararchive.personmonitor.dto.NewsSearchHitDTO;
+import com.stararchive.personmonitor.dto.NewsSearchResultDTO;
+import com.stararchive.personmonitor.entity.News;
+import com.stararchive.personmonitor.repository.NewsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 新闻全文检索：Doris 倒排索引过滤，JVM 内 BM25 打分与高亮，游标翻页。
+ * <ul>
+ *   <li>检索词用与索引相同的中文分词器切词（Doris TOKENIZE），不可用时退化为中文二元切分 + 英文单词；</li>
+ *   <li>得分为 BM25：标题词频按 title-weight 加权后与正文词频相加，IDF 取全表文档频率（按 term-stats-ttl-seconds 缓存）；</li>
+ *   <li>按时间排序时以 (publish_time, news_id) 游标翻页，深翻页不扫描前面的结果；
+ *       按相关度排序时在最新的 candidate-limit 条命中内排序，游标记录在排序结果中的位置；</li>
+ *   <li>高亮片段中的文本已做 HTML 转义，命中词以 &lt;em&gt; 包裹。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NewsSearchService {
+
+    public static final String SORT_RELEVANCE = "relevance";
+    public static final String SORT_TIME = "time";
+
+    private static final String TOTAL_DOCS_KEY = "\u0000total";
+    private static final int MAX_CACHED_TERMS = 10_000;
+
+    private final NewsRepository newsRepository;
+    private final NewsSearchProperties properties;
+
+    /** 词 → 文档频率（及全表文档数），带过期时间 */
+    private final Map<String, CachedCount> termStats = new ConcurrentHashMap<>();
+
+    private record CachedCount(long value, long expireAtMillis) {
+    }
+
+    private record Cursor(String sort, LocalDateTime time, String newsId, int offset) {
+    }
+
+    private record Scored(News news, double score) {
+    }
+
+    /**
+     * 检索新闻
+     *
+     * @param keyword   检索词
+     * @param phrase    true 为短语检索（词序相邻），false 为任一词命中
+     * @param category  分类，为空不过滤
+     * @param startTime 发布时间下界（含），为空不限
+     * @param endTime   发布时间上界（含），为空不限
+     * @param sort      relevance（默认）或 time
+     * @param cursor    上一页返回的 nextCursor，首页为空
+     * @param size      每页条数，不超过 max-page-size
+     */
+    public NewsSearchResultDTO search(String keyword, boolean phrase, String category,
+                                      LocalDateTime startTime, LocalDateTime endTime,
+                                      String sort, String cursor, int size) {
+        String kw = keyword != null ? keyword.trim() : "";
+        if (kw.isEmpty()) {
+            throw new IllegalArgumentException("检索词不能为空");
+        }
+        if (startTime != null && endTime != null && startTime.isAfter(endTime)) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        }
+        String sortBy = sort == null || sort.isBlank() ? SORT_RELEVANCE : sort.trim().toLowerCase(Locale.ROOT);
+        if (!SORT_RELEVANCE.equals(sortBy) && !SORT_TIME.equals(sortBy)) {
+            throw new IllegalArgumentException("不支持的排序方式: " + sort);
+        }
+        Cursor after = decodeCursor(cursor);
+        if (after != null && !after.sort().equals(sortBy)) {
+            throw new IllegalArgumentException("游标与排序方式不一致");
+        }
+        String cat = category != null && !category.isBlank() ? category.trim() : null;
+        int pageSize = Math.max(1, Math.min(size, properties.getMaxPageSize()));
+        long start = System.currentTimeMillis();
+
+        List<String> terms = analyze(kw);
+        List<Scored> page;
+        String nextCursor = null;
+        if (SORT_TIME.equals(sortBy)) {
+            List<News> rows = newsRepository.searchMatching(kw, phrase, cat, startTime, endTime,
+                    after != null ? after.time() : null, after != null ? after.newsId() : null, pageSize + 1);
+            boolean hasMore = rows.size() > pageSize;
+            page = score(rows.subList(0, Math.min(pageSize, rows.size())), terms);
+            if (hasMore) {
+                News last = page.get(page.size() - 1).news();
+                nextCursor = encodeCursor(new Cursor(SORT_TIME, last.getPublishTime(), last.getNewsId(), 0));
+            }
+        } else {
+            List<News> candidates = newsRepository.searchMatching(kw, phrase, cat, startTime, endTime,
+                    null, null, properties.getCandidateLimit());
+            List<Scored> ranked = new ArrayList<>(score(candidates, terms));
+            ranked.sort(Comparator.comparingDouble(Scored::score).reversed()
+                    .thenComparing(s -> s.news().getPublishTime(), Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(s -> s.news().getNewsId()));
+            int offset = after != null ? Math.min(after.offset(), ranked.size()) : 0;
+            int end = Math.min(offset + pageSize, ranked.size());
+            page = ranked.subList(offset, end);
+            if (end < ranked.size()) {
+                nextCursor = encodeCursor(new Cursor(SORT_RELEVANCE, null, null, end));
+            }
+        }
+
+        List<NewsSearchHitDTO> items = new ArrayList<>(page.size());
+        for (Scored s : page) {
+            items.add(toHit(s, terms));
+        }
+        log.info("【新闻检索】keyword={}, phrase={}, sort={}, 返回={}, 耗时={}ms", kw, phrase, sortBy, items.size(),
+                System.currentTimeMillis() - start);
+        return NewsSearchResultDTO.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(nextCursor != null)
+                .terms(terms)
+                .build();
+    }
+
+    /** 检索词切分：优先 Doris TOKENIZE，失败或为空时本地切分；统一小写、去重 */
+    List<String> analyze(String keyword) {
+        List<String> tokens;
+        try {
+            tokens = newsRepository.tokenize(keyword);
+        } catch (Exception e) {
+            log.debug("【新闻检索】TOKENIZE 不可用，使用本地切分: {}", e.getMessage());
+            tokens = null;
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        if (tokens != null) {
+            for (String t : tokens) {
+                if (t != null && !t.isBlank()) terms.add(t.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        if (terms.isEmpty()) {
+            terms.addAll(localTokenize(keyword));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /** 本地切分：连续汉字两字一切（不足两字整体保留），字母数字按连续串小写 */
+    static List<String> localTokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (isHan(c)) {
+                int j = i;
+                while (j < n && isHan(text.charAt(j))) j++;
+                if (j - i <= 2) {
+                    terms.add(text.substring(i, j));
+                } else {
+                    for (int k = i; k + 2 <= j; k++) terms.add(text.substring(k, k + 2));
+                }
+                i = j;
+            } else if (Character.isLetterOrDigit(c)) {
+                int j = i;
+                while (j < n && Character.isLetterOrDigit(text.charAt(j)) && !isHan(text.charAt(j))) j++;
+                terms.add(text.substring(i, j).toLowerCase(Locale.ROOT));
+                i = j;
+            } else {
+                i++;
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    /** BM25 打分，文档长度以参与打分的这批新闻的平均长度归一化 */
+    private List<Scored> score(List<News> docs, List<String> terms) {
+        if (docs.isEmpty()) return List.of();
+        Map<String, Double> idf = idf(terms);
+        double avgLength = docs.stream().mapToInt(NewsSearchService::docLength).average().orElse(1);
+        double k1 = properties.getK1();
+        double b = properties.getB();
+        List<Scored> result = new ArrayList<>(docs.size());
+        for (News doc : docs) {
+            String title = lower(doc.getTitle());
+            String content = lower(doc.getContent());
+            double norm = k1 * (1 - b + b * docLength(doc) / Math.max(1, avgLength));
+            double score = 0;
+            for (String term : terms) {
+                double tf = properties.getTitleWeight() * occurrences(title, term) + occurrences(content, term);
+                if (tf > 0) {
+                    score += idf.get(term) * tf * (k1 + 1) / (tf + norm);
+                }
+            }
+            result.add(new Scored(doc, score));
+        }
+        return result;
+    }
+
+    private Map<String, Double> idf(List<String> terms) {
+        long total = cachedCount(TOTAL_DOCS_KEY, newsRepository::count);
+        Map<String, Double> idf = new HashMap<>();
+        for (String term : terms) {
+            long df = Math.min(total, cachedCount(term, () -> newsRepository.countMatching(term)));
+            idf.put(term, Math.log(1 + (total - df + 0.5) / (df + 0.5)));
+        }
+        return idf;
+    }
+
+    private long cachedCount(String key, LongSupplier loader) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = termStats.get(key);
+        if (cached != null && cached.expireAtMillis() > now) {
+            return cached.value();
+        }
+        long value = loader.getAsLong();
+        if (termStats.size() >= MAX_CACHED_TERMS) {
+            termStats.clear();
+        }
+        termStats.put(key, new CachedCount(value, now + properties.getTermStatsTtlSeconds() * 1000L));
+        return value;
+    }
+
+    private NewsSearchHitDTO toHit(Scored s, List<String> terms) {
+        News n = s.news();
+        return NewsSearchHitDTO.builder()
+                .newsId(n.getNewsId())
+                .mediaName(n.getMediaName())
+                .title(n.getTitle())
+                .publishTime(n.getPublishTime())
+                .category(n.getCategory())
+                .tags(n.getTags())
+                .originalUrl(n.getOriginalUrl())
+                .score(s.score())
+                .highlightTitle(highlight(n.getTitle(), terms, Integer.MAX_VALUE))
+                .highlightSnippet(highlight(n.getContent(), terms, properties.getSnippetLength()))
+                .build();
+    }
+
+    /**
+     * 高亮：命中词以 &lt;em&gt; 包裹，其余文本 HTML 转义；文本超过 maxLength 时截取首个命中附近的片段
+     */
+    static String highlight(String text, List<String> terms, int maxLength) {
+        if (text == null || text.isEmpty()) return text;
+        String lower = lower(text);
+        // 小写后长度变化的少数字符无法按下标对齐，直接在原文上匹配
+        String haystack = lower.length() == text.length() ? lower : text;
+        boolean[] marked = new boolean[text.length()];
+        int firstHit = -1;
+        for (String term : terms) {
+            if (term.isEmpty()) continue;
+            for (int i = haystack.indexOf(term); i >= 0; i = haystack.indexOf(term, i + term.length())) {
+                for (int k = i; k < i + term.length(); k++) marked[k] = true;
+                if (firstHit < 0 || i < firstHit) firstHit = i;
+            }
+        }
+        int from = 0;
+        int to = text.length();
+        if (to > maxLength) {
+            from = firstHit > 0 ? Math.max(0, Math.min(firstHit - maxLength / 4, text.length() - maxLength)) : 0;
+            to = from + maxLength;
+        }
+        StringBuilder sb = new StringBuilder();
+        if (from > 0) sb.append('…');
+        int i = from;
+        while (i < to) {
+            int j = i;
+            while (j < to && marked[j] == marked[i]) j++;
+            String segment = escapeHtml(text.substring(i, j));
+            if (marked[i]) {
+                sb.append("<em>").append(segment).append("</em>");
+            } else {
+                sb.append(segment);
+            }
+            i = j;
+        }
+        if (to < text.length()) sb.append('…');
+        return sb.toString().replaceAll("\\s+", " ");
+    }
+
+    private static String escapeHtml(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '"' -> sb.append("&quot;");
+                case '\'' -> sb.append("&#39;");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int occurrences(String text, String term) {
+        if (text.isEmpty() || term.isEmpty()) return 0;
+        int count = 0;
+        for (int i = text.indexOf(term); i >= 0; i = text.indexOf(term, i + term.length())) count++;
+        return count;
+    }
+
+    private static int docLength(News n) {
+        return (n.getTitle() != null ? n.getTitle().length() : 0) + (n.getContent() != null ? n.getContent().length() : 0);
+    }
+
+    private static String lower(String s) {
+        return s != null ? s.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String encodeCursor(Cursor c) {
+        String raw = SORT_TIME.equals(c.sort())
+                ? SORT_TIME + "|" + c.time() + "|" + c.newsId()
+                : SORT_RELEVANCE + "|" + c.offset();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (SORT_TIME.equals(parts[0]) && parts.length == 3) {
+                return new Cursor(SORT_TIME, LocalDateTime.parse(parts[1]), parts[2], 0);
+            }
+            if (SORT_RELEVANCE.equals(parts[0]) && parts.length == 2) {
+                return new Cursor(SORT_RELEVANCE, null, null, Math.max(0, Integer.parseInt(parts[1])));
+            }
+        } catch (Exception e) {
+            // 落到下方统一报错
+        }
+        throw new IllegalArgumentException("无效的游标");
+    }
+}
@@ -32,11 +32,12 @@ public class NewsService {
         String cat = category != null && !category.isBlank() ? category.trim() : null;
         String kw = keyword != null && !keyword.isBlank() ? keyword.trim() : null;
         if (cat != null && kw != null) {
-            newsPage = newsRepository.findByCategoryAndKeyword(cat, kw, pageable);
+            // 原生全文检索语句自带排序，不能再附加实体属性名排序
+            newsPage = newsRepository.findByCategoryAndKeyword(cat, kw, PageRequest.of(page, size));
         } else if (cat != null) {
             newsPage = newsRepository.findByCategoryOrderByPublishTimeDesc(cat, pageable);
         } else if (kw != null) {
-            newsPage = newsRepository.searchByKeyword(kw, pageable);
+            newsPage = newsRepository.searchByKeyword(kw, PageRequest.of(page, size));
         } else {
             newsPage = newsRepository.findAllByOrderByPublishTimeDesc(pageable);
         }
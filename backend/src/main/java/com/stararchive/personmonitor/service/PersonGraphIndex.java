@@ -0,0 +1,519 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.entity.Person;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 人物关系图索引：由各档案 related_persons 中的 {name, relation} 构建无向图，关系人姓名能唯一对应到某个档案时连到该人物，
+ * 否则作为按姓名合并的“外部联系人”节点。
+ * <ul>
+ *   <li>写入只更新按人物保存的源记录；{@link #build()} 从源记录生成不可变的 {@link Graph}（CSR 邻接：offsets / targets / 关系 / 声明人，均为 int 数组），
+ *       查询无锁读取当前快照；</li>
+ *   <li>边由声明它的档案决定可见性：声明人对当前用户不可见时该边不可走；不可见的人物节点不返回也不经过；</li>
+ *   <li>外部联系人只作为端点，不经其扩展（同名不同人），避免常见姓名把无关人物连成一片。</li>
+ * </ul>
+ * 不依赖 Spring，便于单独测试。
+ */
+public final class PersonGraphIndex {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /** 一个人物档案对关系图的贡献 */
+    record Source(String personId, String displayName, String[] nameKeys, boolean isPublic, String createdBy,
+                  String[] relatedNames, String[] relations) {
+    }
+
+    /** 结果中的节点；外部联系人没有人物编号，id 为 "~" + 规范化姓名 */
+    public record Node(String id, String personId, String name, boolean external, int distance) {
+    }
+
+    /** 结果中的边（无向，from / to 为节点 id） */
+    public record Edge(String from, String to, String relation) {
+    }
+
+    /** 子图结果；truncated 表示节点数达到上限被截断 */
+    public record SubGraph(List<Node> nodes, List<Edge> edges, boolean truncated) {
+    }
+
+    private final Map<String, Source> sources = new HashMap<>();
+    private volatile Graph graph = Graph.EMPTY;
+    private boolean dirty;
+
+    /** 新增或替换人物；软删的人物移除 */
+    public synchronized void upsert(Person person) {
+        if (person == null || person.getPersonId() == null) return;
+        if (Boolean.TRUE.equals(person.getDeleted())) {
+            dirty |= sources.remove(person.getPersonId()) != null;
+            return;
+        }
+        sources.put(person.getPersonId(), toSource(person));
+        dirty = true;
+    }
+
+    /** 自上次 {@link #build()} 以来是否有写入 */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /** 由当前源记录重建图快照并替换 */
+    public synchronized Graph build() {
+        Graph built = Graph.build(new ArrayList<>(sources.values()));
+        graph = built;
+        dirty = false;
+        return built;
+    }
+
+    /** 当前图快照 */
+    public Graph graph() {
+        return graph;
+    }
+
+    private static Source toSource(Person p) {
+        Set<String> keys = new LinkedHashSet<>();
+        addKey(keys, p.getChineseName());
+        addKey(keys, p.getOriginalName());
+        if (p.getAliasNames() != null) p.getAliasNames().forEach(a -> addKey(keys, a));
+        String display = firstNonBlank(p.getChineseName(), p.getOriginalName(), p.getPersonId());
+        List<String> names = new ArrayList<>();
+        List<String> relations = new ArrayList<>();
+        parseRelated(p.getRelatedPersons(), names, relations);
+        return new Source(p.getPersonId(), display, keys.toArray(new String[0]), Boolean.TRUE.equals(p.getIsPublic()),
+                p.getCreatedBy(), names.toArray(new String[0]), relations.toArray(new String[0]));
+    }
+
+    /** related_persons：[{"name":..,"relation":..,"brief":..}]，也兼容单个对象与纯字符串元素 */
+    static void parseRelated(String json, List<String> names, List<String> relations) {
+        if (json == null || json.isBlank()) return;
+        JsonNode root;
+        try {
+            root = OBJECT_MAPPER.readTree(json.trim());
+        } catch (Exception e) {
+            return;
+        }
+        if (root == null) return;
+        Iterable<JsonNode> items = root.isArray() ? root : List.of(root);
+        for (JsonNode item : items) {
+            String name = null;
+            String relation = null;
+            if (item.isTextual()) {
+                name = item.asText();
+            } else if (item.isObject()) {
+                name = item.path("name").asText(null);
+                relation = item.path("relation").asText(null);
+            }
+            if (name == null || PersonSearchIndex.normalize(name).isEmpty()) continue;
+            names.add(name.trim());
+            relations.add(relation != null && !relation.isBlank() ? relation.trim() : null);
+        }
+    }
+
+    private static void addKey(Set<String> keys, String name) {
+        String key = PersonSearchIndex.normalize(name);
+        if (!key.isEmpty()) keys.add(key);
+    }
+
+    private static String firstNonBlank(String... values) {
+        for (String v : values) {
+            if (v != null && !v.isBlank()) return v.trim();
+        }
+        return null;
+    }
+
+    /**
+     * 不可变的图快照：节点 0..personCount-1 为人物，其余为外部联系人；每条关系在两个端点的邻接表中各存一次
+     */
+    public static final class Graph {
+
+        static final Graph EMPTY = build(List.of());
+
+        private final int personCount;
+        private final String[] ids;
+        private final String[] names;
+        private final boolean[] isPublic;
+        /** 人物创建人在 owners 中的下标，-1 表示无 */
+        private final int[] owner;
+        private final Map<String, Integer> ownerIndex;
+        private final Map<String, Integer> nodeIndex;
+        private final int[] offsets;
+        private final int[] targets;
+        private final int[] relationOf;
+        private final int[] declarer;
+        private final String[] relationPool;
+        private final ConcurrentLinkedQueue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+        private Graph(int personCount, String[] ids, String[] names, boolean[] isPublic, int[] owner,
+                      Map<String, Integer> ownerIndex, Map<String, Integer> nodeIndex, int[] offsets, int[] targets,
+                      int[] relationOf, int[] declarer, String[] relationPool) {
+            this.personCount = personCount;
+            this.ids = ids;
+            this.names = names;
+            this.isPublic = isPublic;
+            this.owner = owner;
+            this.ownerIndex = ownerIndex;
+            this.nodeIndex = nodeIndex;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.relationOf = relationOf;
+            this.declarer = declarer;
+            this.relationPool = relationPool;
+        }
+
+        static Graph build(List<Source> sources) {
+            int p = sources.size();
+            Map<String, Integer> nodeIndex = new HashMap<>(p * 2);
+            List<String> ids = new ArrayList<>(p);
+            List<String> names = new ArrayList<>(p);
+            Map<String, Integer> ownerIndex = new HashMap<>();
+            boolean[] isPublic = new boolean[p];
+            int[] owner = new int[p];
+            Map<String, int[]> byName = new HashMap<>(p * 2);
+            for (int i = 0; i < p; i++) {
+                Source s = sources.get(i);
+                nodeIndex.put(s.personId(), i);
+                ids.add(s.personId());
+                names.add(s.displayName());
+                isPublic[i] = s.isPublic();
+                owner[i] = s.createdBy() != null ? ownerIndex.computeIfAbsent(s.createdBy(), k -> ownerIndex.size()) : -1;
+                for (String key : s.nameKeys()) {
+                    int[] found = byName.get(key);
+                    // 只需区分“唯一”与“多个”：记下首个人物，第二个出现时标记为歧义
+                    if (found == null) byName.put(key, new int[]{i});
+                    else if (found.length == 1 && found[0] != i) byName.put(key, new int[]{found[0], i});
+                }
+            }
+
+            Map<String, Integer> relationIndex = new LinkedHashMap<>();
+            IntBuffer ea = new IntBuffer();
+            IntBuffer eb = new IntBuffer();
+            IntBuffer er = new IntBuffer();
+            for (int i = 0; i < p; i++) {
+                Source s = sources.get(i);
+                for (int r = 0; r < s.relatedNames().length; r++) {
+                    String key = PersonSearchIndex.normalize(s.relatedNames()[r]);
+                    int[] found = byName.get(key);
+                    int target;
+                    if (found != null && found.length == 1) {
+                        target = found[0];
+                        if (target == i) continue;
+                    } else {
+                        String externalId = "~" + key;
+                        Integer existing = nodeIndex.get(externalId);
+                        if (existing == null) {
+                            existing = ids.size();
+                            nodeIndex.put(externalId, existing);
+                            ids.add(externalId);
+                            names.add(s.relatedNames()[r]);
+                        }
+                        target = existing;
+                    }
+                    String relation = s.relations()[r];
+                    ea.add(i);
+                    eb.add(target);
+                    er.add(relation != null ? relationIndex.computeIfAbsent(relation, k -> relationIndex.size()) : -1);
+                }
+            }
+
+            int n = ids.size();
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < ea.size; e++) {
+                offsets[ea.data[e] + 1]++;
+                offsets[eb.data[e] + 1]++;
+            }
+            for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+            int[] fill = Arrays.copyOf(offsets, n);
+            int[] targets = new int[ea.size * 2];
+            int[] relationOf = new int[ea.size * 2];
+            int[] declarer = new int[ea.size * 2];
+            for (int e = 0; e < ea.size; e++) {
+                int a = ea.data[e];
+                int b = eb.data[e];
+                int at = fill[a]++;
+                targets[at] = b;
+                relationOf[at] = er.data[e];
+                declarer[at] = a;
+                int bt = fill[b]++;
+                targets[bt] = a;
+                relationOf[bt] = er.data[e];
+                declarer[bt] = a;
+            }
+            return new Graph(p, ids.toArray(new String[0]), names.toArray(new String[0]), isPublic, owner, ownerIndex,
+                    nodeIndex, offsets, targets, relationOf, declarer, relationIndex.keySet().toArray(new String[0]));
+        }
+
+        /** 人物节点数 */
+        public int personCount() {
+            return personCount;
+        }
+
+        /** 关系数（无向） */
+        public int edgeCount() {
+            return targets.length / 2;
+        }
+
+        /**
+         * k 跳邻域：自起点广度优先，按距离由近到远最多取 maxNodes 个节点，并返回这些节点之间的可见关系
+         *
+         * @return 起点不存在或不可见时返回 null
+         */
+        public SubGraph neighbourhood(String personId, int hops, String user, int maxNodes) {
+            Integer start = person(personId);
+            int viewer = viewer(user);
+            if (start == null || !visible(start, viewer)) return null;
+            Scratch s = acquire();
+            try {
+                return neighbourhood(start, hops, viewer, Math.max(1, maxNodes), s);
+            } finally {
+                scratchPool.offer(s);
+            }
+        }
+
+        private SubGraph neighbourhood(int start, int hops, int viewer, int maxNodes, Scratch s) {
+            int epoch = s.next();
+            int[] queue = new int[Math.min(maxNodes, ids.length)];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            s.mark[start] = epoch;
+            s.dist[start] = 0;
+            boolean truncated = false;
+            while (head < tail) {
+                int u = queue[head++];
+                if (s.dist[u] >= hops || (u >= personCount && u != start)) continue;
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int v = targets[k];
+                    if (s.mark[v] == epoch || !visible(declarer[k], viewer) || !visible(v, viewer)) continue;
+                    if (tail >= maxNodes) {
+                        truncated = true;
+                        continue;
+                    }
+                    s.mark[v] = epoch;
+                    s.dist[v] = s.dist[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+            List<Node> nodes = new ArrayList<>(tail);
+            for (int i = 0; i < tail; i++) nodes.add(node(queue[i], s.dist[queue[i]]));
+            return new SubGraph(nodes, edgesWithin(queue, tail, s, epoch, viewer), truncated);
+        }
+
+        /**
+         * 最短关系路径：双向广度优先，每次扩展较小的一侧，不经过外部联系人
+         *
+         * @return 起点或终点不存在 / 不可见时返回 null；maxHops 内不连通时返回空子图
+         */
+        public SubGraph shortestPath(String fromId, String toId, int maxHops, String user) {
+            Integer from = person(fromId);
+            Integer to = person(toId);
+            int viewer = viewer(user);
+            if (from == null || to == null || !visible(from, viewer) || !visible(to, viewer)) return null;
+            if (from.equals(to)) return new SubGraph(List.of(node(from, 0)), List.of(), false);
+            Scratch s = acquire();
+            try {
+                return shortestPath(from, to, maxHops, viewer, s);
+            } finally {
+                scratchPool.offer(s);
+            }
+        }
+
+        private SubGraph shortestPath(int from, int to, int maxHops, int viewer, Scratch s) {
+            int epoch = s.next();
+            // mark 记访问轮次，dist 的符号区分两侧：正为起点一侧（距离+1），负为终点一侧
+            s.mark[from] = epoch;
+            s.dist[from] = 1;
+            s.parent[from] = -1;
+            s.mark[to] = epoch;
+            s.dist[to] = -1;
+            s.parent[to] = -1;
+            IntBuffer forward = new IntBuffer();
+            IntBuffer backward = new IntBuffer();
+            forward.add(from);
+            backward.add(to);
+            int depth = 0;
+            while (forward.size > 0 && backward.size > 0 && depth < maxHops) {
+                boolean fromSide = forward.size <= backward.size;
+                IntBuffer frontier = fromSide ? forward : backward;
+                IntBuffer next = new IntBuffer();
+                for (int f = 0; f < frontier.size; f++) {
+                    int u = frontier.data[f];
+                    for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                        int v = targets[k];
+                        if (v >= personCount || !visible(declarer[k], viewer) || !visible(v, viewer)) continue;
+                        if (s.mark[v] == epoch) {
+                            boolean otherSide = fromSide ? s.dist[v] < 0 : s.dist[v] > 0;
+                            if (otherSide) return path(fromSide ? u : v, fromSide ? v : u, s, viewer);
+                            continue;
+                        }
+                        s.mark[v] = epoch;
+                        s.dist[v] = fromSide ? s.dist[u] + 1 : s.dist[u] - 1;
+                        s.parent[v] = u;
+                        next.add(v);
+                    }
+                }
+                if (fromSide) forward = next;
+                else backward = next;
+                depth++;
+            }
+            return new SubGraph(List.of(), List.of(), false);
+        }
+
+        /**
+         * 共同联系人：与两人都有可见关系的人物或外部联系人（同名外部联系人视为同一人）
+         *
+         * @return 任一人物不存在或不可见时返回 null
+         */
+        public SubGraph commonContacts(String aId, String bId, String user) {
+            Integer a = person(aId);
+            Integer b = person(bId);
+            int viewer = viewer(user);
+            if (a == null || b == null || !visible(a, viewer) || !visible(b, viewer)) return null;
+            Scratch s = acquire();
+            IntBuffer common = new IntBuffer();
+            try {
+                int epoch = s.next();
+                for (int k = offsets[a]; k < offsets[a + 1]; k++) {
+                    int v = targets[k];
+                    if (v != b && visible(declarer[k], viewer) && visible(v, viewer)) s.mark[v] = epoch;
+                }
+                // 命中后改为新轮次号，同一联系人有多条关系时只收一次
+                int taken = s.next();
+                for (int k = offsets[b]; k < offsets[b + 1]; k++) {
+                    int v = targets[k];
+                    if (s.mark[v] != epoch || !visible(declarer[k], viewer)) continue;
+                    s.mark[v] = taken;
+                    common.add(v);
+                }
+            } finally {
+                scratchPool.offer(s);
+            }
+            List<Node> nodes = new ArrayList<>(common.size + 2);
+            List<Edge> edges = new ArrayList<>();
+            nodes.add(node(a, 0));
+            nodes.add(node(b, 0));
+            for (int i = 0; i < common.size; i++) {
+                int v = common.data[i];
+                nodes.add(node(v, 1));
+                addEdges(edges, a, v, viewer);
+                addEdges(edges, b, v, viewer);
+            }
+            return new SubGraph(nodes, edges, false);
+        }
+
+        private SubGraph path(int meetFrom, int meetTo, Scratch s, int viewer) {
+            List<Integer> order = new ArrayList<>();
+            for (int u = meetFrom; u != -1; u = s.parent[u]) order.add(0, u);
+            for (int u = meetTo; u != -1; u = s.parent[u]) order.add(u);
+            List<Node> nodes = new ArrayList<>(order.size());
+            List<Edge> edges = new ArrayList<>();
+            for (int i = 0; i < order.size(); i++) {
+                nodes.add(node(order.get(i), i));
+                if (i > 0) {
+                    int u = order.get(i - 1);
+                    int v = order.get(i);
+                    for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                        if (targets[k] == v && visible(declarer[k], viewer)) {
+                            edges.add(new Edge(ids[u], ids[v], relation(k)));
+                            break;
+                        }
+                    }
+                }
+            }
+            return new SubGraph(nodes, edges, false);
+        }
+
+        private List<Edge> edgesWithin(int[] members, int count, Scratch s, int epoch, int viewer) {
+            List<Edge> edges = new ArrayList<>();
+            Set<String> seen = new LinkedHashSet<>();
+            for (int i = 0; i < count; i++) {
+                int u = members[i];
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int v = targets[k];
+                    if (v <= u || s.mark[v] != epoch || !visible(declarer[k], viewer)) continue;
+                    if (seen.add(u + ":" + v + ":" + relationOf[k])) edges.add(new Edge(ids[u], ids[v], relation(k)));
+                }
+            }
+            return edges;
+        }
+
+        private void addEdges(List<Edge> out, int u, int v, int viewer) {
+            Set<Integer> relations = new LinkedHashSet<>();
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                if (targets[k] == v && visible(declarer[k], viewer) && relations.add(relationOf[k])) {
+                    out.add(new Edge(ids[u], ids[v], relation(k)));
+                }
+            }
+        }
+
+        /** 人物节点下标；外部联系人不能作为查询起点 */
+        private Integer person(String personId) {
+            Integer idx = personId != null ? nodeIndex.get(personId) : null;
+            return idx != null && idx < personCount ? idx : null;
+        }
+
+        private Scratch acquire() {
+            Scratch s = scratchPool.poll();
+            return s != null ? s : new Scratch(ids.length);
+        }
+
+        private Node node(int i, int distance) {
+            boolean external = i >= personCount;
+            return new Node(ids[i], external ? null : ids[i], names[i], external, distance);
+        }
+
+        private String relation(int k) {
+            return relationOf[k] >= 0 ? relationPool[relationOf[k]] : null;
+        }
+
+        private int viewer(String user) {
+            Integer idx = user != null ? ownerIndex.get(user) : null;
+            return idx != null ? idx : -2;
+        }
+
+        private boolean visible(int node, int viewer) {
+            return node >= personCount || isPublic[node] || owner[node] == viewer;
+        }
+    }
+
+    /** 按快照池化复用的遍历缓冲（数量随并发查询数而非线程数增长）：mark 与轮次号比较判断本次是否访问过，免去每次清零 */
+    private static final class Scratch {
+        final int[] mark;
+        final int[] dist;
+        final int[] parent;
+        int epoch;
+
+        Scratch(int n) {
+            mark = new int[n];
+            dist = new int[n];
+            parent = new int[n];
+        }
+
+        int next() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(mark, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+    }
+
+    /** 可增长的 int 数组 */
+    private static final class IntBuffer {
+        int[] data = new int[16];
+        int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.common.UpdatedTimeCursor;
+import com.stararchive.personmonitor.config.PersonGraphProperties;
+import com.stararchive.personmonitor.dto.PersonGraphDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 人物关系图：启动时后台全量加载 {@link PersonGraphIndex}，之后按 updated_time 游标增量刷新（见 PersonGraphScheduler），
+ * 有变更时整体重建 CSR 快照（关系人姓名的解析依赖全体档案的姓名，局部更新会让解析结果不一致）。
+ * 刷新只读取更新满 ingest-lag-seconds 的档案（见 {@link UpdatedTimeCursor}）。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PersonGraphService {
+
+    /**
+     * 加载结束时才构建第一张快照；按 person_id 读过的档案若在加载期间改了关系人或姓名，
+     * 第一次增量刷新从加载开始前这段时间重读，把这些改动并入下一张快照
+     */
+    private static final long LOAD_OVERLAP_SECONDS = 60;
+
+    private final PersonRepository personRepository;
+    private final PersonGraphProperties properties;
+
+    private final PersonGraphIndex index = new PersonGraphIndex();
+    private volatile boolean ready;
+    private final UpdatedTimeCursor<Person> cursor = new UpdatedTimeCursor<>(Person::getUpdatedTime, Person::getPersonId);
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) return;
+        Thread loader = new Thread(() -> {
+            try {
+                loadAll();
+            } catch (Exception e) {
+                log.error("【人物关系图】加载失败", e);
+            }
+        }, "person-graph-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /** 关系图已加载完成 */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * k 跳邻域
+     *
+     * @throws IllegalArgumentException 跳数超出范围
+     * @throws EntityNotFoundException  人物不存在或不可见
+     */
+    public PersonGraphDTO neighbourhood(String personId, int hops, int limit, String currentUser) {
+        if (hops < 1 || hops > properties.getMaxHops()) {
+            throw new IllegalArgumentException("跳数须在 1 到 " + properties.getMaxHops() + " 之间");
+        }
+        int maxNodes = Math.min(Math.max(1, limit), properties.getMaxNodes());
+        return toDTO(require(graph().neighbourhood(personId, hops, user(currentUser), maxNodes), personId));
+    }
+
+    /**
+     * 两人之间的最短关系路径；maxHops 内不连通时节点列表为空
+     *
+     * @throws IllegalArgumentException 跳数超出范围
+     * @throws EntityNotFoundException  任一人物不存在或不可见
+     */
+    public PersonGraphDTO shortestPath(String fromId, String toId, int maxHops, String currentUser) {
+        if (maxHops < 1 || maxHops > properties.getMaxPathHops()) {
+            throw new IllegalArgumentException("跳数须在 1 到 " + properties.getMaxPathHops() + " 之间");
+        }
+        return toDTO(require(graph().shortestPath(fromId, toId, maxHops, user(currentUser)), fromId + " / " + toId));
+    }
+
+    /**
+     * 两人的共同联系人
+     *
+     * @throws EntityNotFoundException 任一人物不存在或不可见
+     */
+    public PersonGraphDTO commonContacts(String aId, String bId, String currentUser) {
+        return toDTO(require(graph().commonContacts(aId, bId, user(currentUser)), aId + " / " + bId));
+    }
+
+    /** 全量加载：按 person_id 游标分批读取后构建快照 */
+    synchronized void loadAll() {
+        long start = System.currentTimeMillis();
+        LocalDateTime startedAt = LocalDateTime.now();
+        String afterId = "";
+        int batchSize = Math.max(1, properties.getLoadBatchSize());
+        while (true) {
+            List<Person> batch = personRepository.findPageAfterId(afterId, batchSize);
+            for (Person p : batch) index.upsert(p);
+            if (batch.size() < batchSize) break;
+            afterId = batch.get(batch.size() - 1).getPersonId();
+        }
+        cursor.rewindTo(startedAt.minusSeconds(LOAD_OVERLAP_SECONDS));
+        PersonGraphIndex.Graph graph = index.build();
+        ready = true;
+        log.info("【人物关系图】加载完成: 人数={}, 关系数={}, 耗时={}ms",
+                graph.personCount(), graph.edgeCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量刷新：拉取游标之后更新的档案写入源记录，有变更时重建快照
+     *
+     * @return 本次处理的档案数
+     */
+    public synchronized int refresh() {
+        if (!ready) return 0;
+        int processed = cursor.drain(personRepository::findUpdatedBetween, properties.getIngestLagSeconds(),
+                properties.getLoadBatchSize(), batch -> batch.forEach(index::upsert));
+        if (index.isDirty()) {
+            long start = System.currentTimeMillis();
+            PersonGraphIndex.Graph graph = index.build();
+            log.debug("【人物关系图】快照已重建: 档案={}, 关系数={}, 耗时={}ms",
+                    processed, graph.edgeCount(), System.currentTimeMillis() - start);
+        }
+        return processed;
+    }
+
+    private PersonGraphIndex.Graph graph() {
+        if (!ready) {
+            throw new IllegalStateException("人物关系图未就绪");
+        }
+        return index.graph();
+    }
+
+    private static PersonGraphIndex.SubGraph require(PersonGraphIndex.SubGraph result, String personIds) {
+        if (result == null) {
+            throw new EntityNotFoundException("人员不存在: " + personIds);
+        }
+        return result;
+    }
+
+    private static String user(String currentUser) {
+        return currentUser != null && !currentUser.isBlank() ? currentUser.trim() : null;
+    }
+
+    private static PersonGraphDTO toDTO(PersonGraphIndex.SubGraph graph) {
+        return PersonGraphDTO.builder()
+                .nodes(graph.nodes().stream()
+                        .map(n -> new PersonGraphDTO.Node(n.id(), n.personId(), n.name(), n.external(), n.distance()))
+                        .toList())
+                .edges(graph.edges().stream()
+                        .map(e -> new PersonGraphDTO.Edge(e.from(), e.to(), e.relation()))
+                        .toList())
+                .truncated(graph.truncated())
+                .build();
+    }
+}
@@ -0,0 +1,390 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.PersonIdentifierProperties;
+import com.stararchive.personmonitor.dto.PersonIdentifierLookupResultDTO;
+import com.stararchive.personmonitor.dto.PersonIdentifierMatchDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.entity.PersonIdentifier;
+import com.stararchive.personmonitor.entity.PersonIdentifierId;
+import com.stararchive.personmonitor.repository.PersonIdentifierRepository;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * 人物标识反查：手机号、邮箱、护照号、社交账号规范化后写入 person_identifier，支持按标识批量反查人物。
+ * <ul>
+ *   <li>手机号统一为 E.164（+国家码+号码），邮箱转小写，护照号去空格与连字符后转大写，社交账号从主页链接或 @handle 中取出账号名；</li>
+ *   <li>档案更新、软删与导入合并的事务提交后，在独立事务内按人物同步：删除不再属于人物的标识，重写其余标识（同时刷新冗余的公开性与创建人）；</li>
+ *   <li>反查按规范化值点查后按可见性过滤（公开或当前用户创建），不扫描 person 表。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PersonIdentifierService {
+
+    public static final String PHONE = "phone";
+    public static final String EMAIL = "email";
+    public static final String PASSPORT = "passport";
+    public static final String TWITTER = "twitter";
+    public static final String LINKEDIN = "linkedin";
+    public static final String FACEBOOK = "facebook";
+    private static final List<String> TYPES = List.of(PHONE, EMAIL, PASSPORT, TWITTER, LINKEDIN, FACEBOOK);
+    private static final List<String> HANDLE_TYPES = List.of(TWITTER, LINKEDIN, FACEBOOK);
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static final Pattern PASSPORT_PATTERN = Pattern.compile("^[A-Z0-9]{5,20}$");
+    private static final Pattern HANDLE_PATTERN = Pattern.compile("^[\\p{L}\\p{N}._-]{1,100}$");
+    private static final Pattern PHONE_CHARS = Pattern.compile("^\\+?[0-9\\s\\-().]+$");
+    private static final int E164_MAX_DIGITS = 15;
+    private static final int PHONE_MIN_DIGITS = 5;
+
+    private final PersonIdentifierRepository personIdentifierRepository;
+    private final PersonRepository personRepository;
+    private final PersonIdentifierProperties properties;
+    private final PlatformTransactionManager transactionManager;
+
+    /** 规范化后的标识 */
+    record Key(String type, String identifier) {
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isBackfillOnStartup()) return;
+        Thread loader = new Thread(() -> {
+            try {
+                if (personIdentifierRepository.count() == 0) backfill();
+            } catch (Exception e) {
+                log.error("【人物标识】反查表回填失败", e);
+            }
+        }, "person-identifier-backfill");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 批量反查：每个取值按指定类型（为空时按形态推断的全部可能类型）规范化后点查
+     *
+     * @throws IllegalArgumentException 取值为空、超过单次上限或类型未知
+     */
+    public PersonIdentifierLookupResultDTO lookup(String type, List<String> values, String currentUser) {
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("反查取值不能为空");
+        }
+        if (values.size() > properties.getMaxLookupSize()) {
+            throw new IllegalArgumentException("单次最多反查 " + properties.getMaxLookupSize() + " 个标识");
+        }
+        String t = type != null && !type.isBlank() ? type.trim().toLowerCase(Locale.ROOT) : null;
+        if (t != null && !TYPES.contains(t)) {
+            throw new IllegalArgumentException("未知的标识类型: " + type);
+        }
+        String user = currentUser != null && !currentUser.isBlank() ? currentUser.trim() : null;
+
+        Map<String, List<Key>> keysByValue = new LinkedHashMap<>();
+        Set<String> identifiers = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value == null || keysByValue.containsKey(value)) continue;
+            List<Key> keys = t != null ? single(t, value) : candidates(value);
+            keysByValue.put(value, keys);
+            keys.forEach(k -> identifiers.add(k.identifier()));
+        }
+
+        Map<Key, Set<String>> owners = new HashMap<>();
+        for (List<String> chunk : chunks(new ArrayList<>(identifiers), properties.getQueryBatchSize())) {
+            for (PersonIdentifier row : personIdentifierRepository.findByIdentifiers(chunk)) {
+                boolean visible = Boolean.TRUE.equals(row.getIsPublic())
+                        || (user != null && user.equals(row.getCreatedBy()));
+                if (!visible) continue;
+                owners.computeIfAbsent(new Key(row.getIdType(), row.getIdentifier()), k -> new TreeSet<>())
+                        .add(row.getPersonId());
+            }
+        }
+
+        List<PersonIdentifierMatchDTO> matches = new ArrayList<>();
+        List<String> unmatched = new ArrayList<>();
+        for (Map.Entry<String, List<Key>> e : keysByValue.entrySet()) {
+            boolean hit = false;
+            for (Key key : e.getValue()) {
+                Set<String> personIds = owners.get(key);
+                if (personIds == null) continue;
+                hit = true;
+                matches.add(PersonIdentifierMatchDTO.builder()
+                        .value(e.getKey())
+                        .type(key.type())
+                        .identifier(key.identifier())
+                        .personIds(new ArrayList<>(personIds))
+                        .build());
+            }
+            if (!hit) unmatched.add(e.getKey());
+        }
+        return PersonIdentifierLookupResultDTO.builder().matches(matches).unmatched(unmatched).build();
+    }
+
+    /** 同步单个人物的标识，见 {@link #sync(Collection)} */
+    public void sync(Person person) {
+        if (person != null) sync(List.of(person));
+    }
+
+    /**
+     * 同步一批人物的标识：删除不再属于人物的行，重写当前标识；软删的人物删除全部标识。
+     * 调用方有事务时等其提交后再在独立事务内执行（无事务时立即执行）：同步失败只记录日志，
+     * 既不会把调用方事务标记为只回滚，调用方回滚时也不会留下已回滚档案的标识
+     */
+    public void sync(Collection<Person> persons) {
+        Map<String, Person> byId = new LinkedHashMap<>();
+        for (Person p : persons) {
+            if (p != null && p.getPersonId() != null) byId.put(p.getPersonId(), p);
+        }
+        if (byId.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(byId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                write(byId);
+            }
+        });
+    }
+
+    /**
+     * 在独立事务内写入标识；失败只记录日志，档案再次写入时重试
+     *
+     * @return 写入的标识数
+     */
+    private int write(Map<String, Person> byId) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            Integer written = requiresNew.execute(status -> replace(byId));
+            return written != null ? written : 0;
+        } catch (Exception e) {
+            log.warn("【人物标识】同步失败，下次写入该档案时重试: personIds={}", byId.keySet(), e);
+            return 0;
+        }
+    }
+
+    private int replace(Map<String, Person> byId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PersonIdentifier> desired = new ArrayList<>();
+        for (Person p : byId.values()) {
+            if (Boolean.TRUE.equals(p.getDeleted())) continue;
+            for (Key key : extract(p, properties.getDefaultCountryCode())) {
+                desired.add(new PersonIdentifier(key.identifier(), key.type(), p.getPersonId(),
+                        Boolean.TRUE.equals(p.getIsPublic()), p.getCreatedBy(), now));
+            }
+        }
+        Set<PersonIdentifierId> keep = new HashSet<>();
+        desired.forEach(r -> keep.add(idOf(r)));
+        List<PersonIdentifier> stale = new ArrayList<>();
+        for (List<String> chunk : chunks(new ArrayList<>(byId.keySet()), properties.getQueryBatchSize())) {
+            for (PersonIdentifier row : personIdentifierRepository.findByPersonIds(chunk)) {
+                if (!keep.contains(idOf(row))) stale.add(row);
+            }
+        }
+        personIdentifierRepository.deleteBatch(stale);
+        personIdentifierRepository.upsertBatch(desired);
+        return desired.size();
+    }
+
+    /** 全量回填：按 person_id 游标分批读取档案并同步 */
+    int backfill() {
+        long start = System.currentTimeMillis();
+        int batchSize = Math.max(1, properties.getBackfillBatchSize());
+        String cursor = "";
+        int persons = 0;
+        int written = 0;
+        while (true) {
+            List<Person> batch = personRepository.findPageAfterId(cursor, batchSize);
+            Map<String, Person> byId = new LinkedHashMap<>();
+            for (Person p : batch) byId.put(p.getPersonId(), p);
+            if (!byId.isEmpty()) written += write(byId);
+            persons += batch.size();
+            if (batch.size() < batchSize) break;
+            cursor = batch.get(batch.size() - 1).getPersonId();
+        }
+        log.info("【人物标识】反查表回填完成: 档案={}, 标识={}, 耗时={}ms", persons, written, System.currentTimeMillis() - start);
+        return written;
+    }
+
+    // ---------- 规范化 ----------
+
+    /** 人物的全部规范化标识（去重） */
+    static List<Key> extract(Person p, String countryCode) {
+        Set<Key> keys = new LinkedHashSet<>();
+        add(keys, PHONE, p.getPhoneNumbers(), countryCode);
+        add(keys, EMAIL, p.getEmails(), countryCode);
+        add(keys, PASSPORT, p.getPassportNumbers(), countryCode);
+        if (p.getPassportNumber() != null) add(keys, PASSPORT, List.of(p.getPassportNumber()), countryCode);
+        add(keys, TWITTER, p.getTwitterAccounts(), countryCode);
+        add(keys, LINKEDIN, p.getLinkedinAccounts(), countryCode);
+        add(keys, FACEBOOK, p.getFacebookAccounts(), countryCode);
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * 按类型规范化取值
+     *
+     * @return 规范化后的标识；取值不是该类型的合法形态时返回 null
+     */
+    static String normalize(String type, String raw, String countryCode) {
+        if (raw == null || raw.isBlank()) return null;
+        return switch (type) {
+            case PHONE -> normalizePhone(raw, countryCode);
+            case EMAIL -> normalizeEmail(raw);
+            case PASSPORT -> normalizePassport(raw);
+            case TWITTER, LINKEDIN, FACEBOOK -> normalizeHandle(type, raw);
+            default -> null;
+        };
+    }
+
+    private List<Key> single(String type, String value) {
+        String identifier = normalize(type, value, properties.getDefaultCountryCode());
+        return identifier != null ? List.of(new Key(type, identifier)) : List.of();
+    }
+
+    /** 未指定类型时按形态推断：含 @ 的取值视为邮箱或 @handle，主页链接只对应所属平台，纯号码同时按手机号与护照号查 */
+    private List<Key> candidates(String value) {
+        String v = value.trim();
+        String lower = v.toLowerCase(Locale.ROOT);
+        List<String> types;
+        String host = linkHost(lower);
+        if (onHost(host, "twitter.com") || onHost(host, "x.com")) types = List.of(TWITTER);
+        else if (onHost(host, "linkedin.com")) types = List.of(LINKEDIN);
+        else if (onHost(host, "facebook.com") || onHost(host, "fb.com")) types = List.of(FACEBOOK);
+        else if (v.startsWith("@")) types = HANDLE_TYPES;
+        else if (v.contains("@")) types = List.of(EMAIL);
+        else if (PHONE_CHARS.matcher(v).matches()) types = List.of(PHONE, PASSPORT);
+        else types = List.of(PASSPORT, TWITTER, LINKEDIN, FACEBOOK);
+        List<Key> keys = new ArrayList<>(types.size());
+        for (String type : types) keys.addAll(single(type, v));
+        return keys;
+    }
+
+    /** 主页链接的主机名（去掉协议与端口）；取值不是“主机名/路径”形态时返回 null */
+    private static String linkHost(String lower) {
+        String s = lower.replaceFirst("^https?://", "");
+        int slash = s.indexOf('/');
+        if (slash <= 0) return null;
+        String host = s.substring(0, slash);
+        int port = host.indexOf(':');
+        if (port >= 0) host = host.substring(0, port);
+        return host.contains("@") || !host.contains(".") ? null : host;
+    }
+
+    /** 主机名是该域名本身或其子域名（x.com 不匹配 netflix.com） */
+    private static boolean onHost(String host, String domain) {
+        return host != null && (host.equals(domain) || host.endsWith("." + domain));
+    }
+
+    private static void add(Set<Key> keys, String type, List<String> values, String countryCode) {
+        if (values == null) return;
+        for (String v : values) {
+            String identifier = normalize(type, v, countryCode);
+            if (identifier != null) keys.add(new Key(type, identifier));
+        }
+    }
+
+    /** E.164：+ 或 00 开头视为已带国家码；0 开头为国内长途前缀，去掉后补默认国家码；其余未带国家码的号码补默认国家码 */
+    private static String normalizePhone(String raw, String countryCode) {
+        String s = raw.trim();
+        if (!PHONE_CHARS.matcher(s).matches()) return null;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        String d = sb.toString();
+        if (d.length() < PHONE_MIN_DIGITS) return null;
+        String e164;
+        if (s.startsWith("+")) e164 = d;
+        else if (d.startsWith("00")) e164 = d.substring(2);
+        else if (d.startsWith("0")) e164 = countryCode + d.substring(1);
+        else if (d.startsWith(countryCode) && d.length() > 11) e164 = d;
+        else e164 = countryCode + d;
+        return e164.length() <= E164_MAX_DIGITS ? "+" + e164 : null;
+    }
+
+    private static String normalizeEmail(String raw) {
+        String s = raw.trim().toLowerCase(Locale.ROOT);
+        if (s.startsWith("mailto:")) s = s.substring("mailto:".length());
+        return EMAIL_PATTERN.matcher(s).matches() ? s : null;
+    }
+
+    private static String normalizePassport(String raw) {
+        String s = raw.replaceAll("[\\s\\-]", "").toUpperCase(Locale.ROOT);
+        return PASSPORT_PATTERN.matcher(s).matches() ? s : null;
+    }
+
+    /** 社交账号：去掉协议、子域名与平台路径前缀，取账号名（Facebook 数字主页取 id），去掉前导 @ 后转小写 */
+    private static String normalizeHandle(String type, String raw) {
+        String s = raw.trim().replaceFirst("(?i)^https?://", "").replaceFirst("(?i)^(www|m|mobile|[a-z]{2})\\.(?=(twitter|linkedin|facebook|x|fb)\\.com)", "");
+        String lower = s.toLowerCase(Locale.ROOT);
+        String rest = null;
+        switch (type) {
+            case TWITTER -> rest = stripHost(lower, "twitter.com/", "x.com/");
+            case LINKEDIN -> rest = stripHost(lower, "linkedin.com/in/", "linkedin.com/pub/", "linkedin.com/company/");
+            case FACEBOOK -> {
+                int id = lower.indexOf("profile.php?id=");
+                if (id >= 0) rest = lower.substring(id + "profile.php?id=".length());
+                else rest = stripHost(lower, "facebook.com/", "fb.com/");
+            }
+            default -> {
+                return null;
+            }
+        }
+        if (rest == null) {
+            if (lower.contains("/")) return null;
+            rest = lower;
+        }
+        int end = rest.length();
+        for (char c : new char[]{'?', '#', '/', '&'}) {
+            int i = rest.indexOf(c);
+            if (i >= 0 && i < end) end = i;
+        }
+        String handle = rest.substring(0, end);
+        if (handle.startsWith("@")) handle = handle.substring(1);
+        return HANDLE_PATTERN.matcher(handle).matches() ? handle : null;
+    }
+
+    private static String stripHost(String value, String... prefixes) {
+        for (String prefix : prefixes) {
+            if (value.startsWith(prefix)) return value.substring(prefix.length());
+        }
+        return null;
+    }
+
+    private static PersonIdentifierId idOf(PersonIdentifier row) {
+        return new PersonIdentifierId(row.getIdentifier(), row.getIdType(), row.getPersonId());
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list, int size) {
+        int n = Math.max(1, size);
+        List<List<T>> out = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += n) out.add(list.subList(i, Math.min(list.size(), i + n)));
+        return out;
+    }
+}
@@ -1,44 +1,37 @@
 package com.stararchive.personmonitor.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.stararchive.personmonitor.config.BailianProperties;
-import com.stararchive.personmonitor.dto.SystemConfigDTO;
+import com.stararchive.personmonitor.common.ContentHash;
 import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.entity.PersonPortrait;
 import com.stararchive.personmonitor.entity.SysUser;
+import com.stararchive.personmonitor.repository.PersonPortraitRepository;
 import com.stararchive.personmonitor.repository.PersonRepository;
 import com.stararchive.personmonitor.repository.SysUserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.persistence.EntityNotFoundException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
 
 /**
  * 智能画像服务：根据人物编号查询并组装人物基本信息，再将人物信息传入大模型上下文做人物画像分析。
  * 流程：① 根据人物编号查询并组装人物基本信息 ② 将人物信息作为 user 消息传入大模型，由大模型生成画像分析。
- * 大模型配置与档案融合一致（系统配置 llm_* / application.yml bailian）。
+ * 大模型经 {@link LlmGatewayService} 调用，配置与档案融合一致（系统配置 llm_* / application.yml bailian）。
+ * 画像结果按（人物、档案版本、提示词版本）持久化到 person_portrait，档案内容与提示词未变时直接返回（流式接口立即回放），
+ * 档案变更后重新生成并替换旧版本；重点人员（is_key_person 或命中重点标签）由后台任务在档案变更后预生成。
  */
 @Slf4j
 @Service
@@ -49,15 +42,22 @@ public class PersonPortraitService {
             + "分析内容可包括：身份特征、可能关注领域、风险维度（如有）、建议关注点等。"
             + "要求客观、简洁、分条或分段呈现，总长度控制在 400 字以内。直接输出分析正文，不要输出「分析：」等前缀。";
 
+    /** 提示词版本：系统提示词变化后已保存的画像全部视为过期 */
+    private static final String PROMPT_VERSION = ContentHash.sha256Hex(SYSTEM_PROMPT);
+    private static final String SOURCE_ON_DEMAND = "ON_DEMAND";
+    private static final String SOURCE_PREGEN = "PREGEN";
+
     private static final int WORK_EXPERIENCE_PREVIEW = 600;
     private static final int EDUCATION_PREVIEW = 400;
 
     private final PersonRepository personRepository;
     private final SysUserRepository sysUserRepository;
-    private final SystemConfigService systemConfigService;
-    private final BailianProperties bailianProperties;
-    private final ObjectMapper objectMapper;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final LlmGatewayService llmGateway;
+    private final PersonPortraitRepository portraitRepository;
+    private final LlmStreamRegistry streamRegistry;
+
+    /** 同一画像版本的并发生成只调用一次大模型 */
+    private final Map<String, CompletableFuture<String>> generating = new ConcurrentHashMap<>();
 
     private static final long SSE_TIMEOUT_MS = 120_000L;
     private static final ExecutorService STREAM_EXECUTOR = Executors.newCachedThreadPool(r -> {
@@ -101,43 +101,29 @@ public class PersonPortraitService {
         }
 
         String basicInfoContext = assembleBasicInfoByPerson(personId, person);
+        String portraitId = portraitId(personId, basicInfoContext);
+        Optional<String> stored = findStoredPortrait(portraitId);
+        if (stored.isPresent()) {
+            log.info("【智能画像】命中已保存画像: personId={}", personId);
+            return stored.get();
+        }
 
-        String apiKey = resolveLlmApiKey();
-        if (apiKey == null || apiKey.isBlank()) {
+        if (!llmGateway.isConfigured()) {
             log.warn("【智能画像】未配置大模型 API Key，跳过: personId={}", personId);
             return "未配置大模型，无法生成智能画像。请在系统配置中填写大模型 API 信息。";
         }
 
         // ② 将人物信息传入大模型上下文做人物画像分析
-        String baseUrl = resolveLlmBaseUrl();
-        String model = resolveLlmModel();
-        String url = baseUrl.replaceAll("/$", "") + "/chat/completions";
-
-        Map<String, Object> body = new HashMap<>();
-        body.put("model", model);
-        body.put("messages", List.of(
-                Map.of("role", "system", "content", SYSTEM_PROMPT),
-                Map.of("role", "user", "content", basicInfoContext)
-        ));
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-
-        log.info("【智能画像】调用大模型: personId={}, url={}", personId, url);
+        log.info("【智能画像】调用大模型: personId={}", personId);
         long start = System.currentTimeMillis();
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            String content = generateAndStore(personId, basicInfoContext, "portrait", SOURCE_ON_DEMAND);
             long elapsed = System.currentTimeMillis() - start;
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                String content = extractContentFromChatResponse(response.getBody());
-                if (content != null && !content.isBlank()) {
-                    log.info("【智能画像】成功: personId={}, 耗时={}ms", personId, elapsed);
-                    return content.trim();
-                }
+            if (content != null) {
+                log.info("【智能画像】成功: personId={}, 耗时={}ms", personId, elapsed);
+                return content;
             }
-            log.warn("【智能画像】响应异常: personId={}, status={}", personId, response.getStatusCode());
+            log.warn("【智能画像】响应为空: personId={}", personId);
             return "大模型返回结果为空，请稍后重试。";
         } catch (Exception e) {
             long elapsed = System.currentTimeMillis() - start;
@@ -148,6 +134,7 @@ public class PersonPortraitService {
 
     /**
      * 流式生成智能画像：通过 SSE 向前端推送大模型逐字输出。仅当档案对当前用户可见时可调用。
+     * 前端断开、SSE 超时或调用 {@link #stopStream} 时立即中止上游请求；未完整生成的画像不保存。
      *
      * @param personId    人物编号
      * @param currentUser 当前登录用户名（X-Username）
@@ -194,69 +181,58 @@ public class PersonPortraitService {
         }
 
         String basicInfoContext = assembleBasicInfoByPerson(personId, person);
-        String apiKey = resolveLlmApiKey();
-        if (apiKey == null || apiKey.isBlank()) {
+        String portraitId = portraitId(personId, basicInfoContext);
+        Optional<String> stored = findStoredPortrait(portraitId);
+        if (stored.isPresent()) {
+            log.info("【智能画像】命中已保存画像，直接回放: personId={}", personId);
+            STREAM_EXECUTOR.execute(() -> sendStreamDone(emitter, stored.get()));
+            return emitter;
+        }
+        if (!llmGateway.isConfigured()) {
             String fallback = "未配置大模型，无法生成智能画像。请在系统配置中填写大模型 API 信息。";
             STREAM_EXECUTOR.execute(() -> sendStreamDone(emitter, fallback));
             return emitter;
         }
 
-        String baseUrl = resolveLlmBaseUrl();
-        String model = resolveLlmModel();
-        String url = baseUrl.replaceAll("/$", "") + "/chat/completions";
         Map<String, Object> bodyMap = new HashMap<>();
-        bodyMap.put("model", model);
         bodyMap.put("messages", List.of(
                 Map.of("role", "system", "content", SYSTEM_PROMPT),
                 Map.of("role", "user", "content", basicInfoContext)
         ));
-        bodyMap.put("stream", true);
-        String bodyJson;
-        try {
-            bodyJson = objectMapper.writeValueAsString(bodyMap);
-        } catch (Exception e) {
-            log.warn("【智能画像】流式请求体序列化失败: {}", e.getMessage());
-            sendStreamError(emitter, "大模型请求异常，请稍后重试。");
-            return emitter;
-        }
 
+        LlmGatewayService.Cancellation cancellation = streamRegistry.open(streamKey(personId, user), emitter);
+        SseTokenWriter writer = streamRegistry.newWriter(emitter);
         STREAM_EXECUTOR.execute(() -> {
             try {
-                HttpClient client = HttpClient.newBuilder().build();
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .header("Content-Type", "application/json")
-                        .header("Authorization", "Bearer " + apiKey)
-                        .POST(HttpRequest.BodyPublishers.ofString(bodyJson, StandardCharsets.UTF_8))
-                        .build();
-                HttpResponse<java.util.stream.Stream<String>> response = client.send(
-                        request,
-                        HttpResponse.BodyHandlers.ofLines());
-                StringBuilder fullContent = new StringBuilder();
-                try (java.util.stream.Stream<String> lines = response.body()) {
-                    lines.forEach(line -> {
-                        if (line.startsWith("data: ")) {
-                            String payload = line.substring(6).trim();
-                            if ("[DONE]".equals(payload)) return;
-                            String delta = extractDeltaContent(payload);
-                            if (delta != null && !delta.isEmpty()) {
-                                fullContent.append(delta);
-                                try {
-                                    emitter.send(SseEmitter.event().data(Map.of("content", delta)));
-                                } catch (Exception e) {
-                                    throw new RuntimeException(e);
-                                }
-                            }
-                        }
-                    });
-                }
-                String content = fullContent.toString();
+                String content = llmGateway.chatStream("portrait-stream", bodyMap, delta -> {
+                    try {
+                        writer.append(delta);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }, cancellation);
+                writer.flush();
                 if (content.isEmpty()) {
                     emitter.send(SseEmitter.event().data(Map.of("content", "大模型未返回有效内容。")));
+                } else {
+                    storePortrait(personId, basicInfoContext, content.trim(), SOURCE_ON_DEMAND);
                 }
                 emitter.send(SseEmitter.event().data(Map.of("done", true)));
                 emitter.complete();
             } catch (Exception e) {
+                if (e instanceof LlmGatewayService.LlmCallException call && call.isCallerAborted()) {
+                    log.info("【智能画像】流式生成已中止: personId={}", personId);
+                    try {
+                        writer.flush();
+                        emitter.send(SseEmitter.event().data(Map.of("done", true, "stopped", true)));
+                        emitter.complete();
+                    } catch (Exception sendEx) {
+                        // 前端已断开
+                        emitter.completeWithError(sendEx);
+                    }
+                    return;
+                }
+                writer.close();
                 log.warn("【智能画像】流式调用失败: personId={}, error={}", personId, e.getMessage());
                 try {
                     emitter.send(SseEmitter.event().data(Map.of("error", "大模型调用异常，请稍后重试。")));
@@ -269,6 +245,114 @@ public class PersonPortraitService {
         return emitter;
     }
 
+    /**
+     * 停止当前用户对该人物进行中的流式画像生成（仅作用于本副本）
+     *
+     * @return 是否存在进行中的流
+     */
+    public boolean stopStream(String personId, String currentUser) {
+        String user = (currentUser != null && !currentUser.isBlank()) ? currentUser.trim() : null;
+        return streamRegistry.stop(streamKey(personId, user));
+    }
+
+    private static String streamKey(String personId, String user) {
+        return "portrait:" + personId + ":" + (user != null ? user : "");
+    }
+
+    /** 大模型是否可用于生成画像（未配置时预生成任务不推进游标） */
+    public boolean isGenerationAvailable() {
+        return llmGateway.isConfigured();
+    }
+
+    /**
+     * 为档案已变更（或尚无当前版本画像）的人物预生成画像，走 bulk 路由；已有当前版本时跳过。
+     *
+     * @return 是否生成并保存了画像（大模型未返回内容时为 false）
+     */
+    public boolean pregeneratePortrait(Person person) {
+        if (Boolean.TRUE.equals(person.getDeleted()) || !llmGateway.isConfigured()) {
+            return false;
+        }
+        String personId = person.getPersonId();
+        String basicInfoContext = assembleBasicInfoByPerson(personId, person);
+        if (findStoredPortrait(portraitId(personId, basicInfoContext)).isPresent()) {
+            return false;
+        }
+        String content = generateAndStore(personId, basicInfoContext, "portrait-pregen", SOURCE_PREGEN);
+        log.info("【智能画像-预生成】完成: personId={}, 成功={}", personId, content != null);
+        return content != null;
+    }
+
+    /** 画像主键：人物编号 + 档案版本（组装信息哈希）+ 提示词版本 */
+    private static String portraitId(String personId, String basicInfoContext) {
+        return ContentHash.sha256Hex(personId + "|" + ContentHash.sha256Hex(basicInfoContext) + "|" + PROMPT_VERSION);
+    }
+
+    private Optional<String> findStoredPortrait(String portraitId) {
+        try {
+            return portraitRepository.findById(portraitId)
+                    .map(PersonPortrait::getContent)
+                    .filter(c -> !c.isBlank());
+        } catch (Exception e) {
+            log.warn("【智能画像】读取已保存画像失败: portraitId={}, error={}", portraitId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** 调用大模型生成并保存画像；同一版本的并发请求共享一次调用。返回 null 表示大模型未返回内容 */
+    private String generateAndStore(String personId, String basicInfoContext, String caller, String source) {
+        String portraitId = portraitId(personId, basicInfoContext);
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = generating.putIfAbsent(portraitId, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw e;
+            }
+        }
+        try {
+            Map<String, Object> body = new HashMap<>();
+            body.put("messages", List.of(
+                    Map.of("role", "system", "content", SYSTEM_PROMPT),
+                    Map.of("role", "user", "content", basicInfoContext)
+            ));
+            String result = llmGateway.chat(caller, body);
+            String content = result != null && !result.isBlank() ? result.trim() : null;
+            if (content != null) {
+                storePortrait(personId, basicInfoContext, content, source);
+            }
+            mine.complete(content);
+            return content;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            generating.remove(portraitId, mine);
+        }
+    }
+
+    /** 保存当前版本画像并删除该人物的旧版本；保存失败只记录日志 */
+    private void storePortrait(String personId, String basicInfoContext, String content, String source) {
+        String portraitId = portraitId(personId, basicInfoContext);
+        try {
+            portraitRepository.save(PersonPortrait.builder()
+                    .portraitId(portraitId)
+                    .personId(personId)
+                    .personVersion(ContentHash.sha256Hex(basicInfoContext))
+                    .promptVersion(PROMPT_VERSION)
+                    .model(llmGateway.resolveModel("portrait"))
+                    .content(content)
+                    .source(source)
+                    .generatedTime(LocalDateTime.now())
+                    .build());
+            portraitRepository.deleteOtherVersions(personId, portraitId);
+        } catch (Exception e) {
+            log.warn("【智能画像】保存画像失败: personId={}, error={}", personId, e.getMessage());
+        }
+    }
+
     private void sendStreamDone(SseEmitter emitter, String content) {
         try {
             emitter.send(SseEmitter.event().data(Map.of("content", content)));
@@ -288,20 +372,6 @@ public class PersonPortraitService {
         }
     }
 
-    /** 从 OpenAI 流式响应 data 行中解析 delta.content */
-    private String extractDeltaContent(String dataJson) {
-        try {
-            JsonNode root = objectMapper.readTree(dataJson);
-            JsonNode choices = root.path("choices");
-            if (choices.isArray() && choices.size() > 0) {
-                return choices.get(0).path("delta").path("content").asText(null);
-            }
-        } catch (Exception e) {
-            // ignore
-        }
-        return null;
-    }
-
     /**
      * 根据已查询的 Person 组装人物基本信息文本，供传入大模型上下文。
      * 包含人物编号及档案各字段，便于大模型做人物画像分析。
@@ -350,41 +420,4 @@ public class PersonPortraitService {
         String s = o.toString().trim();
         return s.isEmpty() ? "—" : s;
     }
-
-    private String extractContentFromChatResponse(String responseBody) {
-        try {
-            var root = objectMapper.readTree(responseBody);
-            var choices = root.path("choices");
-            if (choices.isArray() && choices.size() > 0) {
-                return choices.get(0).path("message").path("content").asText(null);
-            }
-        } catch (Exception e) {
-            log.debug("解析画像分析响应失败", e);
-        }
-        return null;
-    }
-
-    private String resolveLlmApiKey() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmApiKey() != null && !cfg.getLlmApiKey().isBlank()) {
-            return cfg.getLlmApiKey();
-        }
-        return bailianProperties.getApiKey() != null ? bailianProperties.getApiKey() : "";
-    }
-
-    private String resolveLlmBaseUrl() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmBaseUrl() != null && !cfg.getLlmBaseUrl().isBlank()) {
-            return cfg.getLlmBaseUrl().trim();
-        }
-        return bailianProperties.getBaseUrl() != null ? bailianProperties.getBaseUrl() : "";
-    }
-
-    private String resolveLlmModel() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmModel() != null && !cfg.getLlmModel().isBlank()) {
-            return cfg.getLlmModel().trim();
-        }
-        return bailianProperties.getModel() != null ? bailianProperties.getModel() : "qwen-plus";
-    }
 }
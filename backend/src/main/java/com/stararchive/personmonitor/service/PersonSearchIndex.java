@@ -0,0 +1,405 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.common.Pinyin;
+import com.stararchive.personmonitor.entity.Person;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 人物检索内存索引：姓名类字段（中文名、原始姓名、别名及中文名的全拼 / 首字母）建 n-gram 倒排，证件号、护照号、手机号、邮箱建精确查找表。
+ * <ul>
+ *   <li>证件号、身份证号、护照号另建四元组倒排，查询串为其中 4 位以上的片段时也能命中（得分低于精确命中）；</li>
+ *   <li>每个文档分配递增序号，倒排表只追加、天然有序，多个 gram 的倒排表按序归并求交；</li>
+ *   <li>汉字姓名额外建单字倒排，单字查询（如只输姓氏）直接取倒排；拼音类取值只建二元组与首字符前缀；</li>
+ *   <li>更新即追加新序号并把旧序号标记失效，失效比例过高时由调用方 {@link #compact()} 重建；</li>
+ *   <li>可见性（公开或本人创建）与软删在打分前过滤。</li>
+ * </ul>
+ * 读多写少，读写锁保护；不依赖 Spring，便于单独测试。
+ */
+public final class PersonSearchIndex {
+
+    /** 取值类型，下标即权重表下标 */
+    static final int CHINESE_NAME = 0;
+    static final int ORIGINAL_NAME = 1;
+    static final int ALIAS = 2;
+    static final int PINYIN = 3;
+    static final int INITIALS = 4;
+    private static final double[] FIELD_WEIGHTS = {100, 90, 80, 70, 60};
+    private static final double IDENTIFIER_SCORE = 200;
+    private static final double DOCUMENT_FRAGMENT_SCORE = 50;
+    private static final int DOCUMENT_GRAM = 4;
+    private static final double EXACT = 1.0;
+    private static final double PREFIX = 0.8;
+    private static final double CONTAINS = 0.5;
+    private static final String PREFIX_MARK = "^";
+
+    /** 索引中的一条人物 */
+    record Doc(String personId, String[] keys, byte[] kinds, String[] documentNumbers, boolean isPublic, String createdBy,
+               boolean deleted, long updatedMillis) {
+
+        boolean visibleTo(String user) {
+            return !deleted && (isPublic || (user != null && user.equals(createdBy)));
+        }
+    }
+
+    /** 一页检索结果：按得分排序的人物编号与命中总数 */
+    public record Result(List<String> personIds, int total) {
+    }
+
+    private record Hit(Doc doc, double score) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final Map<String, IntList> grams = new HashMap<>();
+    private final Map<String, IntList> identifiers = new HashMap<>();
+    private final Map<String, IntList> documentGrams = new HashMap<>();
+    private int deadCount;
+
+    /** 新增或替换人物 */
+    public void upsert(Person person) {
+        if (person == null || person.getPersonId() == null) return;
+        Doc doc = toDoc(person);
+        lock.writeLock().lock();
+        try {
+            Integer old = ordinalById.get(doc.personId());
+            if (old != null) {
+                docs.set(old, null);
+                deadCount++;
+            }
+            append(doc, identifierKeys(person));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 从索引中移除人物 */
+    public void remove(String personId) {
+        lock.writeLock().lock();
+        try {
+            Integer old = ordinalById.remove(personId);
+            if (old != null) {
+                docs.set(old, null);
+                deadCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 有效人物数 */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 失效序号占全部序号的比例 */
+    public double deadRatio() {
+        lock.readLock().lock();
+        try {
+            return docs.isEmpty() ? 0 : (double) deadCount / docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 检索：证件号、护照号、手机号、邮箱精确命中优先，其次按姓名类字段完全匹配 / 前缀 / 包含 × 字段权重排序，
+     * 证件号片段命中与姓名包含同级，同分按更新时间倒序
+     *
+     * @param currentUser 当前用户名，为空时只返回公开档案
+     */
+    public Result search(String query, String currentUser, int offset, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty()) return new Result(List.of(), 0);
+        List<Hit> hits;
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String key : identifierLookups(query)) {
+                IntList ords = identifiers.get(key);
+                if (ords == null) continue;
+                for (int i = 0; i < ords.size; i++) scores.merge(ords.values[i], IDENTIFIER_SCORE, Math::max);
+            }
+            String fragment = documentNumber(query);
+            IntList byDocument = documentCandidates(fragment);
+            for (int i = 0; byDocument != null && i < byDocument.size; i++) {
+                int ord = byDocument.values[i];
+                Doc doc = docs.get(ord);
+                if (doc == null) continue;
+                for (String number : doc.documentNumbers()) {
+                    if (number.contains(fragment)) {
+                        scores.merge(ord, DOCUMENT_FRAGMENT_SCORE, Math::max);
+                        break;
+                    }
+                }
+            }
+            IntList candidates = nameCandidates(q);
+            for (int i = 0; candidates != null && i < candidates.size; i++) {
+                int ord = candidates.values[i];
+                Doc doc = docs.get(ord);
+                if (doc == null) continue;
+                double score = nameScore(doc, q);
+                if (score > 0) scores.merge(ord, score, Math::max);
+            }
+            hits = new ArrayList<>(scores.size());
+            for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+                Doc doc = docs.get(e.getKey());
+                if (doc != null && doc.visibleTo(currentUser)) hits.add(new Hit(doc, e.getValue()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparing(Comparator.comparingLong((Hit h) -> h.doc().updatedMillis()).reversed())
+                .thenComparing(h -> h.doc().personId()));
+        int from = Math.min(Math.max(0, offset), hits.size());
+        int to = Math.min(from + Math.max(0, limit), hits.size());
+        List<String> ids = new ArrayList<>(to - from);
+        for (Hit h : hits.subList(from, to)) ids.add(h.doc().personId());
+        return new Result(ids, hits.size());
+    }
+
+    /** 去掉失效序号重建，返回新索引（当前索引不变，由调用方替换引用） */
+    public PersonSearchIndex compact() {
+        PersonSearchIndex rebuilt = new PersonSearchIndex();
+        lock.readLock().lock();
+        try {
+            Map<Integer, List<String>> idsByOrd = new HashMap<>();
+            for (Map.Entry<String, IntList> e : identifiers.entrySet()) {
+                IntList ords = e.getValue();
+                for (int i = 0; i < ords.size; i++) {
+                    if (docs.get(ords.values[i]) != null) {
+                        idsByOrd.computeIfAbsent(ords.values[i], k -> new ArrayList<>()).add(e.getKey());
+                    }
+                }
+            }
+            for (int ord = 0; ord < docs.size(); ord++) {
+                Doc doc = docs.get(ord);
+                if (doc != null) rebuilt.append(doc, idsByOrd.getOrDefault(ord, List.of()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rebuilt;
+    }
+
+    private void append(Doc doc, List<String> identifierKeys) {
+        int ord = docs.size();
+        docs.add(doc);
+        ordinalById.put(doc.personId(), ord);
+        Set<String> docGrams = new LinkedHashSet<>();
+        for (int i = 0; i < doc.keys().length; i++) {
+            addGrams(docGrams, doc.keys()[i], doc.kinds()[i] == PINYIN || doc.kinds()[i] == INITIALS);
+        }
+        for (String g : docGrams) grams.computeIfAbsent(g, k -> new IntList()).add(ord);
+        for (String key : identifierKeys) identifiers.computeIfAbsent(key, k -> new IntList()).add(ord);
+        Set<String> docNumberGrams = new LinkedHashSet<>();
+        for (String number : doc.documentNumbers()) {
+            for (int i = 0; i + DOCUMENT_GRAM <= number.length(); i++) docNumberGrams.add(number.substring(i, i + DOCUMENT_GRAM));
+        }
+        for (String g : docNumberGrams) documentGrams.computeIfAbsent(g, k -> new IntList()).add(ord);
+    }
+
+    /** 证件号片段的候选序号：各四元组倒排的交集；片段不足 4 位时不查 */
+    private IntList documentCandidates(String fragment) {
+        if (fragment.length() < DOCUMENT_GRAM) return null;
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i + DOCUMENT_GRAM <= fragment.length(); i++) {
+            IntList list = documentGrams.get(fragment.substring(i, i + DOCUMENT_GRAM));
+            if (list == null) return null;
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(l -> l.size));
+        IntList result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.size > 0; i++) {
+            result = IntList.intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private static void addGrams(Set<String> out, String key, boolean latinOnly) {
+        out.add(PREFIX_MARK + key.charAt(0));
+        for (int i = 0; i + 2 <= key.length(); i++) out.add(key.substring(i, i + 2));
+        if (!latinOnly) {
+            for (int i = 0; i < key.length(); i++) {
+                if (isHan(key.charAt(i))) out.add(String.valueOf(key.charAt(i)));
+            }
+        }
+    }
+
+    /** 查询串对应的候选序号：单字取单字倒排（非汉字取前缀倒排），多字取各二元组倒排的交集 */
+    private IntList nameCandidates(String q) {
+        if (q.length() == 1) {
+            return grams.get(isHan(q.charAt(0)) ? q : PREFIX_MARK + q);
+        }
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i + 2 <= q.length(); i++) {
+            IntList list = grams.get(q.substring(i, i + 2));
+            if (list == null) return null;
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(l -> l.size));
+        IntList result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.size > 0; i++) {
+            result = IntList.intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private static double nameScore(Doc doc, String q) {
+        double best = 0;
+        for (int i = 0; i < doc.keys().length; i++) {
+            String key = doc.keys()[i];
+            double match = key.equals(q) ? EXACT : key.startsWith(q) ? PREFIX : key.contains(q) ? CONTAINS : 0;
+            best = Math.max(best, match * FIELD_WEIGHTS[doc.kinds()[i]]);
+        }
+        return best;
+    }
+
+    private static Doc toDoc(Person p) {
+        List<String> keys = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        addKey(keys, kinds, p.getChineseName(), CHINESE_NAME);
+        addKey(keys, kinds, p.getOriginalName(), ORIGINAL_NAME);
+        if (p.getAliasNames() != null) {
+            for (String alias : p.getAliasNames()) addKey(keys, kinds, alias, ALIAS);
+        }
+        // 中文名与中文别名的全拼、首字母
+        int named = keys.size();
+        for (int i = 0; i < named; i++) {
+            if (kinds.get(i) == ORIGINAL_NAME) continue;
+            addKey(keys, kinds, Pinyin.full(keys.get(i)), PINYIN);
+            addKey(keys, kinds, Pinyin.initials(keys.get(i)), INITIALS);
+        }
+        byte[] kindArray = new byte[kinds.size()];
+        for (int i = 0; i < kindArray.length; i++) kindArray[i] = kinds.get(i).byteValue();
+        long updated = p.getUpdatedTime() != null
+                ? p.getUpdatedTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0L;
+        String[] documentNumbers = identifierKeys(p).stream()
+                .filter(k -> k.startsWith("doc:"))
+                .map(k -> k.substring("doc:".length()))
+                .toArray(String[]::new);
+        return new Doc(p.getPersonId(), keys.toArray(new String[0]), kindArray, documentNumbers,
+                Boolean.TRUE.equals(p.getIsPublic()), p.getCreatedBy(), Boolean.TRUE.equals(p.getDeleted()), updated);
+    }
+
+    private static void addKey(List<String> keys, List<Integer> kinds, String value, int kind) {
+        String key = normalize(value);
+        if (key.isEmpty()) return;
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i).equals(key) && kinds.get(i) <= kind) return;
+        }
+        keys.add(key);
+        kinds.add(kind);
+    }
+
+    /** 证件类字段的精确查找键：证件号、身份证号、护照号去掉空白与连字符并大写；手机号只留数字；邮箱小写 */
+    private static List<String> identifierKeys(Person p) {
+        Set<String> keys = new LinkedHashSet<>();
+        addDocumentNumber(keys, p.getIdNumber());
+        addDocumentNumber(keys, p.getIdCardNumber());
+        addDocumentNumber(keys, p.getPassportNumber());
+        if (p.getPassportNumbers() != null) p.getPassportNumbers().forEach(v -> addDocumentNumber(keys, v));
+        if (p.getPhoneNumbers() != null) {
+            for (String phone : p.getPhoneNumbers()) {
+                String digits = digits(phone);
+                if (digits.length() >= 5) keys.add("tel:" + digits);
+            }
+        }
+        if (p.getEmails() != null) {
+            for (String email : p.getEmails()) {
+                if (email != null && !email.isBlank()) keys.add("mail:" + email.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /** 查询串可能对应的精确查找键 */
+    private static List<String> identifierLookups(String query) {
+        String raw = query.trim();
+        List<String> keys = new ArrayList<>(3);
+        String doc = documentNumber(raw);
+        if (doc.length() >= 5) keys.add("doc:" + doc);
+        String digits = digits(raw);
+        if (digits.length() >= 5 && digits.length() == raw.replaceAll("[\\s\\-+()]", "").length()) keys.add("tel:" + digits);
+        if (raw.contains("@")) keys.add("mail:" + raw.toLowerCase(Locale.ROOT));
+        return keys;
+    }
+
+    private static void addDocumentNumber(Set<String> keys, String value) {
+        String doc = documentNumber(value);
+        if (doc.length() >= 5) keys.add("doc:" + doc);
+    }
+
+    private static String documentNumber(String value) {
+        return value != null ? value.replaceAll("[\\s\\-]", "").toUpperCase(Locale.ROOT) : "";
+    }
+
+    private static String digits(String value) {
+        return value != null ? value.replaceAll("\\D", "") : "";
+    }
+
+    /** 姓名类取值与查询串统一：小写、去掉空白与 · • . 等分隔符 */
+    static String normalize(String value) {
+        if (value == null) return "";
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) || c == '·' || c == '•' || c == '.' || c == '-' || c == '_') continue;
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    /** 只追加的 int 数组 */
+    static final class IntList {
+        int[] values = new int[2];
+        int size;
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        static IntList intersect(IntList a, IntList b) {
+            IntList out = new IntList();
+            int i = 0;
+            int j = 0;
+            while (i < a.size && j < b.size) {
+                int x = a.values[i];
+                int y = b.values[j];
+                if (x == y) {
+                    out.add(x);
+                    i++;
+                    j++;
+                } else if (x < y) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return out;
+        }
+    }
+}
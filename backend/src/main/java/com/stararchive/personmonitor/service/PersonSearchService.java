@@ -0,0 +1,139 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.common.UpdatedTimeCursor;
+import com.stararchive.personmonitor.config.PersonSearchProperties;
+import com.stararchive.personmonitor.dto.PersonSuggestionDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 人物关键词检索与输入联想：启动时后台全量加载 {@link PersonSearchIndex} 与 {@link PersonSuggestIndex}，
+ * 之后按 updated_time 游标增量刷新（见 PersonSearchIndexScheduler），两个索引共用同一次读取。
+ * <p>
+ * 档案的新增、修改、软删都会更新 updated_time，因此增量刷新能覆盖所有写入方（含其他副本与档案融合导入）；
+ * 刷新只读取更新满 ingest-lag-seconds 的档案（见 {@link UpdatedTimeCursor}），检索结果相对写入最多滞后该时长加刷新间隔。
+ * 索引未就绪或已关闭时，调用方回退到数据库查询。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PersonSearchService {
+
+    /**
+     * 全量加载按 person_id 顺序读取，读过的档案在加载期间再被修改不会反映到新索引；
+     * 加载完成后游标退回到加载开始前这段时间，由第一次增量刷新补上这些修改
+     */
+    private static final long LOAD_OVERLAP_SECONDS = 60;
+
+    private final PersonRepository personRepository;
+    private final PersonSearchProperties properties;
+
+    private volatile PersonSearchIndex index;
+    private volatile PersonSuggestIndex suggestIndex;
+    private final UpdatedTimeCursor<Person> cursor = new UpdatedTimeCursor<>(Person::getUpdatedTime, Person::getPersonId);
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) return;
+        Thread loader = new Thread(() -> {
+            try {
+                loadAll();
+            } catch (Exception e) {
+                log.error("【人物检索】索引加载失败，关键词检索回退为数据库查询", e);
+            }
+        }, "person-search-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /** 索引已加载完成 */
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * 检索可见的人物（公开或当前用户创建、未删除），按相关度排序
+     *
+     * @throws IllegalStateException 索引未就绪
+     */
+    public PersonSearchIndex.Result search(String keyword, String currentUser, int offset, int limit) {
+        PersonSearchIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException("人物检索索引未就绪");
+        }
+        return current.search(keyword, currentUser, offset, limit);
+    }
+
+    /**
+     * 输入联想：按前缀返回可见的姓名、机构、标签候选；索引未就绪时返回空列表，不回退数据库以免按键流量打到库上
+     */
+    public List<PersonSuggestionDTO> suggest(String prefix, String currentUser, int limit) {
+        PersonSuggestIndex current = suggestIndex;
+        if (current == null || prefix == null || prefix.isBlank()) return List.of();
+        return current.suggest(prefix, currentUser, limit).stream()
+                .map(s -> PersonSuggestionDTO.builder()
+                        .type(s.type())
+                        .text(s.text())
+                        .personId(s.personId())
+                        .weight(s.weight())
+                        .build())
+                .toList();
+    }
+
+    /** 全量加载：按 person_id 游标分批读取，完成后替换索引 */
+    synchronized void loadAll() {
+        long start = System.currentTimeMillis();
+        LocalDateTime startedAt = LocalDateTime.now();
+        PersonSearchIndex built = new PersonSearchIndex();
+        PersonSuggestIndex suggestBuilt = new PersonSuggestIndex(properties.getSuggestTopK());
+        String afterId = "";
+        int batchSize = Math.max(1, properties.getLoadBatchSize());
+        while (true) {
+            List<Person> batch = personRepository.findPageAfterId(afterId, batchSize);
+            for (Person p : batch) {
+                built.upsert(p);
+                suggestBuilt.upsert(p);
+            }
+            if (batch.size() < batchSize) break;
+            afterId = batch.get(batch.size() - 1).getPersonId();
+        }
+        cursor.rewindTo(startedAt.minusSeconds(LOAD_OVERLAP_SECONDS));
+        suggestBuilt.seal();
+        index = built;
+        suggestIndex = suggestBuilt;
+        log.info("【人物检索】索引加载完成: 人数={}, 耗时={}ms", built.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量刷新：拉取游标之后更新的档案写入索引；失效比例过高时在内存中重建
+     *
+     * @return 本次处理的档案数
+     */
+    public synchronized int refresh() {
+        PersonSearchIndex current = index;
+        PersonSuggestIndex suggest = suggestIndex;
+        if (current == null) return 0;
+        int processed = cursor.drain(personRepository::findUpdatedBetween, properties.getIngestLagSeconds(),
+                properties.getLoadBatchSize(), batch -> {
+                    for (Person p : batch) {
+                        current.upsert(p);
+                        if (suggest != null) suggest.upsert(p);
+                    }
+                });
+        if (current.deadRatio() > properties.getCompactDeadRatio()) {
+            index = current.compact();
+            log.info("【人物检索】索引已重建: 人数={}", index.size());
+        }
+        if (processed > 0) {
+            log.debug("【人物检索】增量刷新: 档案={}, 游标={}", processed, cursor.time());
+        }
+        return processed;
+    }
+}
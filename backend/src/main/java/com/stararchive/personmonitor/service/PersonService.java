@@ -60,6 +60,8 @@ public class PersonService {
     private final TagRepository tagRepository;
     private final SysUserRepository sysUserRepository;
     private final SeaweedFSService seaweedFSService;
+    private final PersonSearchService personSearchService;
+    private final PersonIdentifierService personIdentifierService;
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     
     /**
@@ -94,6 +96,9 @@ public class PersonService {
                 && (destinationCity == null || destinationCity.isBlank());
         if ((keyword != null && !keyword.isBlank()) && noOtherFilters) {
             log.info("按姓名/证件号检索人员列表: keyword={}, page={}, size={}", keyword, page, size);
+            if (personSearchService.isReady()) {
+                return searchByKeyword(keyword.trim(), page, size, user);
+            }
             Page<Person> personPage = personRepository.findVisibleByKeyword(keyword.trim(), pageable, user);
             List<PersonCardDTO> cards = personPage.getContent().stream().map(this::convertToCardDTO).collect(Collectors.toList());
             return PageResponse.of(cards, page, size, personPage.getTotalElements());
@@ -178,6 +183,26 @@ public class PersonService {
         return PageResponse.of(cards, page, size, personPage.getTotalElements());
     }
     
+    /**
+     * 关键词检索走人物检索内存索引（姓名、别名、拼音 / 首字母、证件号、手机号、邮箱），按相关度排序后按页取档案。
+     * 索引按刷新间隔滞后于库，取回档案后按库中最新的删除与可见性状态再过滤一次。
+     */
+    private PageResponse<PersonCardDTO> searchByKeyword(String keyword, int page, int size, String user) {
+        PersonSearchIndex.Result result = personSearchService.search(keyword, user, page * size, size);
+        if (result.personIds().isEmpty()) {
+            return PageResponse.of(Collections.emptyList(), page, size, result.total());
+        }
+        Map<String, Person> byId = personRepository.findAllById(result.personIds()).stream()
+                .collect(Collectors.toMap(Person::getPersonId, p -> p, (a, b) -> a));
+        List<PersonCardDTO> cards = result.personIds().stream()
+                .map(byId::get)
+                .filter(p -> p != null && !Boolean.TRUE.equals(p.getDeleted()))
+                .filter(p -> Boolean.TRUE.equals(p.getIsPublic()) || (user != null && user.equals(p.getCreatedBy())))
+                .map(this::convertToCardDTO)
+                .collect(Collectors.toList());
+        return PageResponse.of(cards, page, size, result.total());
+    }
+
     /**
      * 根据单个标签查询人员（按可见性过滤）
      */
@@ -411,6 +436,7 @@ public class PersonService {
         if (person.getCreatedBy() == null && user != null) person.setCreatedBy(user);
         person.setUpdatedTime(LocalDateTime.now());
         personRepository.save(person);
+        personIdentifierService.sync(person);
         saveEditHistory(personId, before, person, editor != null ? editor : "系统");
         return getPersonDetail(personId, user);
     }
@@ -876,6 +902,7 @@ public class PersonService {
         person.setDeletedBy(user);
         person.setUpdatedTime(LocalDateTime.now());
         personRepository.save(person);
+        personIdentifierService.sync(person);
         log.info("人员档案已软删除: personId={}, deletedBy={}", personId, user);
     }
 
@@ -0,0 +1,477 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.common.Pinyin;
+import com.stararchive.personmonitor.entity.Person;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 输入联想内存索引：中文名、原始姓名、别名、机构、标签（含汉字取值的全拼 / 首字母）按前缀联想。
+ * <ul>
+ *   <li>公开档案的取值放在压缩前缀树（radix tree）中，每个节点缓存子树内权重最高的 topK 条候选，查询只需沿前缀下行一次；</li>
+ *   <li>非公开档案的取值按创建人分别放在有序表中，查询时按前缀区间扫描后与公开候选合并；</li>
+ *   <li>姓名候选对应单个人物（重点人员权重更高）；机构、标签候选在同一可见范围内按文本合并，权重为引用人数，归零即移除；</li>
+ *   <li>人物更新时先撤下旧取值再写入新取值，软删的档案不再贡献候选。</li>
+ * </ul>
+ * 全量加载期间不维护节点缓存，{@link #seal()} 时自底向上一次计算；读多写少，读写锁保护；不依赖 Spring，便于单独测试。
+ */
+public final class PersonSuggestIndex {
+
+    public static final String NAME = "name";
+    public static final String ORGANIZATION = "organization";
+    public static final String TAG = "tag";
+
+    private static final int NAME_WEIGHT = 1;
+    private static final int KEY_PERSON_NAME_WEIGHT = 2;
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /** 一条联想结果；机构、标签候选没有人物编号 */
+    public record Suggestion(String type, String text, String personId, int weight) {
+    }
+
+    /** 候选项；scope 为 null 表示公开，否则为可见的创建人 */
+    private static final class Entry {
+        final String type;
+        final String text;
+        final String personId;
+        final String scope;
+        final String[] keys;
+        int weight;
+
+        Entry(String type, String text, String personId, String scope, String[] keys, int weight) {
+            this.type = type;
+            this.text = text;
+            this.personId = personId;
+            this.scope = scope;
+            this.keys = keys;
+            this.weight = weight;
+        }
+
+        Suggestion toSuggestion() {
+            return new Suggestion(type, text, personId, weight);
+        }
+    }
+
+    /** 前缀树节点：label 为父节点到本节点的边上的字符串，children 按首字符有序 */
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        List<Entry> entries;
+        Entry[] top = NO_ENTRIES;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char c) {
+            int lo = 0;
+            int hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char m = children[mid].label.charAt(0);
+                if (m < c) lo = mid + 1;
+                else if (m > c) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+
+        void insertChild(int at, Node child) {
+            Node[] next = new Node[children.length + 1];
+            System.arraycopy(children, 0, next, 0, at);
+            next[at] = child;
+            System.arraycopy(children, at, next, at + 1, children.length - at);
+            children = next;
+        }
+
+        void removeChild(int at) {
+            Node[] next = new Node[children.length - 1];
+            System.arraycopy(children, 0, next, 0, at);
+            System.arraycopy(children, at + 1, next, at, children.length - at - 1);
+            children = next;
+        }
+    }
+
+    private static final Comparator<Entry> RANK = Comparator.<Entry>comparingInt(e -> -e.weight)
+            .thenComparing(e -> e.text)
+            .thenComparing(e -> e.personId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final Comparator<Suggestion> SUGGESTION_RANK = Comparator.<Suggestion>comparingInt(s -> -s.weight())
+            .thenComparing(Suggestion::text)
+            .thenComparing(Suggestion::personId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final int topK;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<String, TreeMap<String, List<Entry>>> privateTerms = new HashMap<>();
+    /** 机构、标签候选：范围 + 类型 + 规范化文本 → 候选 */
+    private final Map<String, Entry> shared = new HashMap<>();
+    private final Map<String, Entry[]> byPerson = new HashMap<>();
+    private boolean sealed;
+
+    public PersonSuggestIndex(int topK) {
+        this.topK = Math.max(1, topK);
+    }
+
+    /** 全量加载结束：计算各节点的 topK 缓存，此后的写入增量维护缓存 */
+    public void seal() {
+        lock.writeLock().lock();
+        try {
+            computeTop(root, true);
+            sealed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 新增或替换人物贡献的候选 */
+    public void upsert(Person person) {
+        if (person == null || person.getPersonId() == null) return;
+        lock.writeLock().lock();
+        try {
+            release(person.getPersonId());
+            String scope = Boolean.TRUE.equals(person.getIsPublic()) ? null : person.getCreatedBy();
+            boolean visible = !Boolean.TRUE.equals(person.getDeleted())
+                    && (Boolean.TRUE.equals(person.getIsPublic()) || scope != null);
+            if (!visible) return;
+            List<Entry> contributed = new ArrayList<>();
+            int nameWeight = Boolean.TRUE.equals(person.getIsKeyPerson()) ? KEY_PERSON_NAME_WEIGHT : NAME_WEIGHT;
+            Set<String> names = new LinkedHashSet<>();
+            addText(names, person.getChineseName());
+            addText(names, person.getOriginalName());
+            if (person.getAliasNames() != null) person.getAliasNames().forEach(a -> addText(names, a));
+            for (String name : names) {
+                String[] keys = keys(name);
+                if (keys.length == 0) continue;
+                Entry entry = new Entry(NAME, name, person.getPersonId(), scope, keys, nameWeight);
+                attach(entry);
+                contributed.add(entry);
+            }
+            Set<String> seen = new LinkedHashSet<>();
+            if (person.getOrganization() != null) acquire(ORGANIZATION, person.getOrganization(), scope, seen, contributed);
+            if (person.getPersonTags() != null) {
+                for (String tag : person.getPersonTags()) {
+                    if (tag != null) acquire(TAG, tag, scope, seen, contributed);
+                }
+            }
+            if (!contributed.isEmpty()) byPerson.put(person.getPersonId(), contributed.toArray(NO_ENTRIES));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 撤下人物贡献的候选 */
+    public void remove(String personId) {
+        lock.writeLock().lock();
+        try {
+            release(personId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按前缀联想：公开候选与当前用户创建的非公开候选合并后按权重排序
+     *
+     * @param limit 最多返回条数，超过 topK 时按 topK 截断
+     */
+    public List<Suggestion> suggest(String prefix, String user, int limit) {
+        String key = PersonSearchIndex.normalize(prefix);
+        int n = Math.min(Math.max(1, limit), topK);
+        if (key.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            Node node = descend(key);
+            TreeMap<String, List<Entry>> own = user != null ? privateTerms.get(user) : null;
+            if (own == null) {
+                List<Suggestion> out = new ArrayList<>(n);
+                if (node != null) {
+                    for (int i = 0; i < node.top.length && i < n; i++) out.add(node.top[i].toSuggestion());
+                }
+                return out;
+            }
+            Set<Entry> candidates = new LinkedHashSet<>();
+            if (node != null) candidates.addAll(Arrays.asList(node.top).subList(0, Math.min(n, node.top.length)));
+            for (List<Entry> list : own.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+                candidates.addAll(list);
+            }
+            // 公开与本人非公开档案中的同名机构 / 标签合并为一条，权重相加
+            Map<String, Suggestion> merged = new LinkedHashMap<>();
+            for (Entry e : candidates) {
+                String id = e.personId != null
+                        ? NAME + '\u0001' + e.personId + '\u0001' + e.text
+                        : e.type + '\u0001' + PersonSearchIndex.normalize(e.text);
+                merged.merge(id, e.toSuggestion(), (a, b) -> new Suggestion(a.type(), a.text(), null, a.weight() + b.weight()));
+            }
+            return merged.values().stream().sorted(SUGGESTION_RANK).limit(n).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------- 候选增减 ----------
+
+    private void acquire(String type, String text, String scope, Set<String> seen, List<Entry> contributed) {
+        String display = text.trim();
+        String normalized = PersonSearchIndex.normalize(display);
+        if (normalized.isEmpty() || !seen.add(type + '\u0001' + normalized)) return;
+        String sharedKey = (scope != null ? scope : "") + '\u0001' + type + '\u0001' + normalized;
+        Entry entry = shared.get(sharedKey);
+        if (entry == null) {
+            entry = new Entry(type, display, null, scope, keys(display), 1);
+            shared.put(sharedKey, entry);
+            attach(entry);
+        } else {
+            entry.weight++;
+            if (entry.scope == null && sealed) {
+                for (String k : entry.keys) offerAlong(k, entry);
+            }
+        }
+        contributed.add(entry);
+    }
+
+    private void release(String personId) {
+        Entry[] old = byPerson.remove(personId);
+        if (old == null) return;
+        for (Entry entry : old) {
+            if (entry.personId != null) {
+                detach(entry);
+                continue;
+            }
+            entry.weight--;
+            if (entry.weight <= 0) {
+                shared.remove((entry.scope != null ? entry.scope : "") + '\u0001' + entry.type + '\u0001'
+                        + PersonSearchIndex.normalize(entry.text));
+                detach(entry);
+            } else if (entry.scope == null && sealed) {
+                for (String k : entry.keys) refreshAlong(k, entry);
+            }
+        }
+    }
+
+    private void attach(Entry entry) {
+        if (entry.scope == null) {
+            for (String k : entry.keys) insert(k, entry);
+            return;
+        }
+        TreeMap<String, List<Entry>> own = privateTerms.computeIfAbsent(entry.scope, s -> new TreeMap<>());
+        for (String k : entry.keys) own.computeIfAbsent(k, x -> new ArrayList<>(1)).add(entry);
+    }
+
+    private void detach(Entry entry) {
+        if (entry.scope == null) {
+            for (String k : entry.keys) delete(k, entry);
+            return;
+        }
+        TreeMap<String, List<Entry>> own = privateTerms.get(entry.scope);
+        if (own == null) return;
+        for (String k : entry.keys) {
+            List<Entry> list = own.get(k);
+            if (list == null) continue;
+            list.remove(entry);
+            if (list.isEmpty()) own.remove(k);
+        }
+        if (own.isEmpty()) privateTerms.remove(entry.scope);
+    }
+
+    // ---------- 前缀树 ----------
+
+    /** 找到路径覆盖 key 的最浅节点（key 可能止于该节点入边的中间） */
+    private Node descend(String key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int at = node.childIndex(key.charAt(i));
+            if (at < 0) return null;
+            Node child = node.children[at];
+            int common = commonPrefix(child.label, key, i);
+            if (i + common == key.length()) return child;
+            if (common < child.label.length()) return null;
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private void insert(String key, Entry entry) {
+        Node node = root;
+        List<Node> path = new ArrayList<>();
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int at = node.childIndex(key.charAt(i));
+            if (at < 0) {
+                Node leaf = new Node(key.substring(i));
+                node.insertChild(-(at + 1), leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[at];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // 在边的中间分裂：新建中间节点承接公共前缀，它的子树即原节点的子树，缓存相同
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                middle.top = child.top;
+                node.children[at] = middle;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+        if (node.entries == null) node.entries = new ArrayList<>(1);
+        node.entries.add(entry);
+        if (sealed) {
+            for (Node p : path) offer(p, entry);
+        }
+    }
+
+    private void delete(String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int at = node.childIndex(key.charAt(i));
+            if (at < 0) return;
+            Node child = node.children[at];
+            if (commonPrefix(child.label, key, i) < child.label.length()) return;
+            node = child;
+            path.add(node);
+            i += child.label.length();
+        }
+        if (node.entries == null || !node.entries.remove(entry)) return;
+        if (node.entries.isEmpty()) node.entries = null;
+        prune(path);
+        if (sealed) {
+            for (int d = path.size() - 1; d >= 0; d--) {
+                Node p = path.get(d);
+                if (p.label != null && contains(p.top, entry)) computeTop(p, false);
+            }
+        }
+    }
+
+    /** 删除后回收无候选的叶子，并把只剩一个孩子的中间节点与孩子合并；被移出树的节点 label 置空 */
+    private void prune(List<Node> path) {
+        for (int d = path.size() - 1; d >= 1; d--) {
+            Node node = path.get(d);
+            Node parent = path.get(d - 1);
+            if (node.entries != null) return;
+            int at = parent.childIndex(node.label.charAt(0));
+            if (node.children.length == 0) {
+                parent.removeChild(at);
+                node.label = null;
+                continue;
+            }
+            if (node.children.length == 1) {
+                Node only = node.children[0];
+                only.label = node.label + only.label;
+                parent.children[at] = only;
+                node.label = null;
+            }
+            return;
+        }
+    }
+
+    /** 候选权重上升或新增：沿路径插入各节点缓存 */
+    private void offerAlong(String key, Entry entry) {
+        Node node = root;
+        offer(node, entry);
+        int i = 0;
+        while (i < key.length()) {
+            int at = node.childIndex(key.charAt(i));
+            if (at < 0) return;
+            node = node.children[at];
+            offer(node, entry);
+            i += node.label.length();
+        }
+    }
+
+    /** 候选权重下降：缓存中含该候选的节点自底向上重算 */
+    private void refreshAlong(String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int at = node.childIndex(key.charAt(i));
+            if (at < 0) break;
+            node = node.children[at];
+            path.add(node);
+            i += node.label.length();
+        }
+        for (int d = path.size() - 1; d >= 0; d--) {
+            Node p = path.get(d);
+            if (contains(p.top, entry)) computeTop(p, false);
+        }
+    }
+
+    private void offer(Node node, Entry entry) {
+        List<Entry> merged = new ArrayList<>(node.top.length + 1);
+        for (Entry e : node.top) {
+            if (e != entry) merged.add(e);
+        }
+        int at = Collections.binarySearch(merged, entry, RANK);
+        merged.add(at < 0 ? -(at + 1) : at, entry);
+        if (merged.size() > topK) merged.remove(merged.size() - 1);
+        node.top = merged.toArray(NO_ENTRIES);
+    }
+
+    /** 以本节点候选与各孩子缓存重算 topK；deep 为 true 时先递归计算孩子 */
+    private void computeTop(Node node, boolean deep) {
+        Set<Entry> candidates = new LinkedHashSet<>();
+        if (node.entries != null) candidates.addAll(node.entries);
+        for (Node child : node.children) {
+            if (deep) computeTop(child, true);
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        node.top = candidates.stream().sorted(RANK).limit(topK).toArray(Entry[]::new);
+    }
+
+    // ---------- 取值处理 ----------
+
+    private static void addText(Set<String> out, String value) {
+        if (value != null && !value.isBlank()) out.add(value.trim());
+    }
+
+    /** 规范化文本及其全拼、首字母（去重） */
+    private static String[] keys(String text) {
+        Set<String> keys = new LinkedHashSet<>();
+        String normalized = PersonSearchIndex.normalize(text);
+        if (!normalized.isEmpty()) keys.add(normalized);
+        String full = Pinyin.full(text);
+        if (full != null && !full.isEmpty()) keys.add(full);
+        String initials = Pinyin.initials(text);
+        if (initials != null && !initials.isEmpty()) keys.add(initials);
+        return keys.toArray(new String[0]);
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int max = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(from + i)) i++;
+        return i;
+    }
+
+    private static boolean contains(Entry[] top, Entry entry) {
+        for (Entry e : top) {
+            if (e == entry) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,193 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.dto.PersonTravelDTO;
+import com.stararchive.personmonitor.dto.PersonTravelStatsDTO;
+import com.stararchive.personmonitor.entity.PersonTravel;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 单个人物行程时间线的紧凑表示（不可变），供热点人物的翻页与统计在内存中完成：
+ * <ul>
+ *   <li>行按 (event_time, travel_id) 倒序排列，发生时间存为相对最早行程的秒数（int），行程 ID 存为 long；</li>
+ *   <li>姓名、地点、类型、票据编号等文本列字典编码为 int，同一人物的行程中地点与类型高度重复，字典很小；</li>
+ *   <li>只在取页时把命中的行还原为 DTO，游标定位用二分查找。</li>
+ * </ul>
+ * 每行约 40 字节，多年的时间线也只占几百 KB。
+ */
+final class PersonTravelTimeline {
+
+    private static final int COL_PERSON_NAME = 0;
+    private static final int COL_DEPARTURE = 1;
+    private static final int COL_DESTINATION = 2;
+    private static final int COL_TRAVEL_TYPE = 3;
+    private static final int COL_TICKET = 4;
+    private static final int COL_VISA_TYPE = 5;
+    private static final int COL_DEPARTURE_CITY = 6;
+    private static final int COL_DESTINATION_CITY = 7;
+    private static final int COLUMNS = 8;
+
+    private final String personId;
+    private final long baseSecond;
+    private final int[] offsets;
+    private final long[] travelIds;
+    /** 第 i 行第 c 列的字典编码位于 codes[i * COLUMNS + c]；编码 0 表示 null */
+    private final int[] codes;
+    private final String[] dict;
+    private final long loadedAtMillis;
+
+    private PersonTravelTimeline(String personId, long baseSecond, int[] offsets, long[] travelIds,
+                                 int[] codes, String[] dict, long loadedAtMillis) {
+        this.personId = personId;
+        this.baseSecond = baseSecond;
+        this.offsets = offsets;
+        this.travelIds = travelIds;
+        this.codes = codes;
+        this.dict = dict;
+        this.loadedAtMillis = loadedAtMillis;
+    }
+
+    /**
+     * 由某人的全部行程构建；发生时间跨度超出 int 秒数（约 68 年）时返回 null
+     */
+    static PersonTravelTimeline of(String personId, List<PersonTravel> rows, long loadedAtMillis) {
+        List<PersonTravel> sorted = rows.stream()
+                .filter(t -> t.getTravelId() != null && t.getEventTime() != null)
+                .sorted(Comparator.comparing(PersonTravel::getEventTime).thenComparing(PersonTravel::getTravelId).reversed())
+                .toList();
+        int n = sorted.size();
+        long base = n > 0 ? second(sorted.get(n - 1).getEventTime()) : 0;
+        if (n > 0 && second(sorted.get(0).getEventTime()) - base > Integer.MAX_VALUE) return null;
+
+        int[] offsets = new int[n];
+        long[] travelIds = new long[n];
+        int[] codes = new int[n * COLUMNS];
+        Map<String, Integer> dictIndex = new HashMap<>();
+        List<String> dict = new ArrayList<>();
+        dict.add(null);
+        for (int i = 0; i < n; i++) {
+            PersonTravel t = sorted.get(i);
+            offsets[i] = (int) (second(t.getEventTime()) - base);
+            travelIds[i] = t.getTravelId();
+            int row = i * COLUMNS;
+            codes[row + COL_PERSON_NAME] = encode(t.getPersonName(), dictIndex, dict);
+            codes[row + COL_DEPARTURE] = encode(t.getDeparture(), dictIndex, dict);
+            codes[row + COL_DESTINATION] = encode(t.getDestination(), dictIndex, dict);
+            codes[row + COL_TRAVEL_TYPE] = encode(t.getTravelType(), dictIndex, dict);
+            codes[row + COL_TICKET] = encode(t.getTicketNumber(), dictIndex, dict);
+            codes[row + COL_VISA_TYPE] = encode(t.getVisaType(), dictIndex, dict);
+            codes[row + COL_DEPARTURE_CITY] = encode(t.getDepartureCity(), dictIndex, dict);
+            codes[row + COL_DESTINATION_CITY] = encode(t.getDestinationCity(), dictIndex, dict);
+        }
+        return new PersonTravelTimeline(personId, base, offsets, travelIds, codes, dict.toArray(new String[0]), loadedAtMillis);
+    }
+
+    int size() {
+        return offsets.length;
+    }
+
+    long loadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    /**
+     * [start, end] 内排在游标 (beforeTime, beforeId) 之后的至多 limit 行，按 (event_time, travel_id) 倒序
+     */
+    List<PersonTravelDTO> page(LocalDateTime start, LocalDateTime end, LocalDateTime beforeTime, long beforeId, int limit) {
+        long startSecond = second(start);
+        int from = firstBelow(second(end), second(beforeTime), beforeId);
+        List<PersonTravelDTO> result = new ArrayList<>(Math.min(limit, Math.max(0, offsets.length - from)));
+        for (int i = from; i < offsets.length && result.size() < limit; i++) {
+            if (baseSecond + offsets[i] < startSecond) break;
+            result.add(row(i));
+        }
+        return result;
+    }
+
+    /**
+     * [start, end] 内的行程统计，最常到达的城市按次数降序、同次数按城市名升序取前 top 个
+     */
+    PersonTravelStatsDTO stats(LocalDateTime start, LocalDateTime end, int top) {
+        long startSecond = second(start);
+        int from = firstBelow(second(end), Long.MAX_VALUE, Long.MAX_VALUE);
+        int to = from;
+        while (to < offsets.length && baseSecond + offsets[to] >= startSecond) to++;
+
+        TreeMap<String, Map<String, Integer>> months = new TreeMap<>();
+        Map<Integer, Integer> cities = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            String month = YearMonth.from(time(i)).toString();
+            String type = dict[codes[i * COLUMNS + COL_TRAVEL_TYPE]];
+            months.computeIfAbsent(month, k -> new LinkedHashMap<>()).merge(type != null ? type : "", 1, Integer::sum);
+            int city = codes[i * COLUMNS + COL_DESTINATION_CITY];
+            if (city != 0 && !dict[city].isEmpty()) cities.merge(city, 1, Integer::sum);
+        }
+        List<PersonTravelStatsDTO.Month> monthList = new ArrayList<>(months.size());
+        for (Map.Entry<String, Map<String, Integer>> e : months.entrySet()) {
+            int count = e.getValue().values().stream().mapToInt(Integer::intValue).sum();
+            monthList.add(new PersonTravelStatsDTO.Month(e.getKey(), count, e.getValue()));
+        }
+        List<PersonTravelStatsDTO.Destination> destinations = cities.entrySet().stream()
+                .map(e -> new PersonTravelStatsDTO.Destination(dict[e.getKey()], e.getValue()))
+                .sorted(Comparator.comparingInt(PersonTravelStatsDTO.Destination::getCount).reversed()
+                        .thenComparing(PersonTravelStatsDTO.Destination::getCity))
+                .limit(Math.max(0, top))
+                .toList();
+        return PersonTravelStatsDTO.builder()
+                .total(to - from)
+                .firstTime(to > from ? time(to - 1) : null)
+                .lastTime(to > from ? time(from) : null)
+                .months(monthList)
+                .topDestinations(destinations)
+                .build();
+    }
+
+    /**
+     * 第一个发生时间不晚于 endSecond 且排在 (beforeSecond, beforeId) 之后的行；行倒序排列，该条件对下标单调
+     */
+    private int firstBelow(long endSecond, long beforeSecond, long beforeId) {
+        int lo = 0;
+        int hi = offsets.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long s = baseSecond + offsets[mid];
+            boolean below = s <= endSecond && (s < beforeSecond || (s == beforeSecond && travelIds[mid] < beforeId));
+            if (below) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    private PersonTravelDTO row(int i) {
+        int row = i * COLUMNS;
+        return new PersonTravelDTO(travelIds[i], personId, time(i),
+                dict[codes[row + COL_PERSON_NAME]], dict[codes[row + COL_DEPARTURE]], dict[codes[row + COL_DESTINATION]],
+                dict[codes[row + COL_TRAVEL_TYPE]], dict[codes[row + COL_TICKET]], dict[codes[row + COL_VISA_TYPE]],
+                dict[codes[row + COL_DEPARTURE_CITY]], dict[codes[row + COL_DESTINATION_CITY]]);
+    }
+
+    private LocalDateTime time(int i) {
+        return LocalDateTime.ofEpochSecond(baseSecond + offsets[i], 0, ZoneOffset.UTC);
+    }
+
+    private static long second(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int encode(String value, Map<String, Integer> dictIndex, List<String> dict) {
+        if (value == null) return 0;
+        return dictIndex.computeIfAbsent(value, v -> {
+            dict.add(v);
+            return dict.size() - 1;
+        });
+    }
+}
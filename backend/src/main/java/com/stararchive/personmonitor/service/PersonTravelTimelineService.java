@@ -0,0 +1,238 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.PersonTimelineProperties;
+import com.stararchive.personmonitor.dto.PersonTravelDTO;
+import com.stararchive.personmonitor.dto.PersonTravelStatsDTO;
+import com.stararchive.personmonitor.dto.PersonTravelTimelineDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.entity.PersonTravel;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import com.stararchive.personmonitor.repository.PersonTravelRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 人物行程时间线：按 (event_time, travel_id) 游标倒序翻页，支持时间范围过滤与服务端统计（每月行程数、最常到达城市）。
+ * <ul>
+ *   <li>默认逐页查库（person_travel 按 person_id 分桶、按 event_time 分区，单页只读一个分桶的少量行）；</li>
+ *   <li>hot-window-seconds 内被查看达到 hot-views 次的人物视为热点，整条时间线载入 {@link PersonTravelTimeline} 紧凑缓存，
+ *       之后的翻页与统计在内存中完成；缓存按 LRU 限制人数，cache-ttl-seconds 到期后重新载入；</li>
+ *   <li>行程数超过 max-cached-rows 的人物不缓存，仍按页查库。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PersonTravelTimelineService {
+
+    private static final LocalDateTime MIN_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    /** 热点计数最多跟踪的人物数（LRU） */
+    private static final int MAX_TRACKED_VIEWS = 10_000;
+
+    private final PersonTravelRepository travelRepository;
+    private final PersonRepository personRepository;
+    private final PersonTimelineProperties properties;
+
+    private final Map<String, PersonTravelTimeline> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PersonTravelTimeline> eldest) {
+            return size() > properties.getMaxCachedPersons();
+        }
+    };
+    /** personId → [窗口开始时间, 窗口内查看次数] */
+    private final Map<String, long[]> views = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > MAX_TRACKED_VIEWS;
+        }
+    };
+
+    private record Cursor(LocalDateTime time, long travelId) {
+    }
+
+    /**
+     * 行程时间线一页
+     *
+     * @param startTime 发生时间下界（含），为空不限
+     * @param endTime   发生时间上界（含），为空不限
+     * @param cursor    上一页返回的 nextCursor，首页为空
+     * @throws IllegalArgumentException 时间范围或游标无效
+     * @throws EntityNotFoundException  人物不存在或不可见
+     */
+    public PersonTravelTimelineDTO timeline(String personId, LocalDateTime startTime, LocalDateTime endTime,
+                                            String cursor, int size, String currentUser) {
+        LocalDateTime start = startTime != null ? startTime : MIN_TIME;
+        LocalDateTime end = endTime != null ? endTime : MAX_TIME;
+        checkRange(start, end);
+        Cursor after = decodeCursor(cursor);
+        requireVisible(personId, currentUser);
+        int pageSize = Math.min(Math.max(1, size), properties.getMaxPageSize());
+
+        PersonTravelTimeline compact = compact(personId);
+        List<PersonTravelDTO> rows = compact != null
+                ? compact.page(start, end, after.time(), after.travelId(), pageSize + 1)
+                : travelRepository.findTimelinePage(personId, start, end, after.time(), after.travelId(), pageSize + 1)
+                        .stream().map(PersonTravelTimelineService::toDTO).toList();
+        boolean hasMore = rows.size() > pageSize;
+        List<PersonTravelDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            PersonTravelDTO last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(new Cursor(last.getEventTime(), last.getTravelId()));
+        }
+        return PersonTravelTimelineDTO.builder()
+                .items(new ArrayList<>(items))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * 行程统计：总数与起止时间、每月行程数（按类型拆分）、最常到达的 top 个城市
+     *
+     * @throws IllegalArgumentException 时间范围无效
+     * @throws EntityNotFoundException  人物不存在或不可见
+     */
+    public PersonTravelStatsDTO stats(String personId, LocalDateTime startTime, LocalDateTime endTime,
+                                      int top, String currentUser) {
+        LocalDateTime start = startTime != null ? startTime : MIN_TIME;
+        LocalDateTime end = endTime != null ? endTime : MAX_TIME;
+        checkRange(start, end);
+        requireVisible(personId, currentUser);
+        int topN = Math.min(Math.max(0, top), properties.getMaxTopDestinations());
+
+        PersonTravelTimeline compact = compact(personId);
+        if (compact != null) {
+            return compact.stats(start, end, topN);
+        }
+        List<Object[]> summary = travelRepository.findTimelineSummary(personId, start, end);
+        Object[] s = summary.isEmpty() ? new Object[]{0L, null, null} : summary.get(0);
+        TreeMap<String, Map<String, Integer>> months = new TreeMap<>();
+        for (Object[] row : travelRepository.findMonthlyCountsByPerson(personId, start, end)) {
+            String type = row[1] != null ? (String) row[1] : "";
+            months.computeIfAbsent((String) row[0], k -> new LinkedHashMap<>())
+                    .merge(type, ((Number) row[2]).intValue(), Integer::sum);
+        }
+        List<PersonTravelStatsDTO.Month> monthList = new ArrayList<>(months.size());
+        for (Map.Entry<String, Map<String, Integer>> e : months.entrySet()) {
+            int count = e.getValue().values().stream().mapToInt(Integer::intValue).sum();
+            monthList.add(new PersonTravelStatsDTO.Month(e.getKey(), count, e.getValue()));
+        }
+        List<PersonTravelStatsDTO.Destination> destinations = topN == 0 ? List.of()
+                : travelRepository.findTopDestinationCitiesByPerson(personId, start, end, topN).stream()
+                        .map(row -> new PersonTravelStatsDTO.Destination((String) row[0], ((Number) row[1]).intValue()))
+                        .toList();
+        return PersonTravelStatsDTO.builder()
+                .total(((Number) s[0]).longValue())
+                .firstTime(toTime(s[1]))
+                .lastTime(toTime(s[2]))
+                .months(monthList)
+                .topDestinations(destinations)
+                .build();
+    }
+
+    /**
+     * 记一次查看并返回可用的紧凑时间线：已缓存且未过期时直接返回；达到热点阈值时整条载入；否则返回 null 走逐页查库
+     */
+    PersonTravelTimeline compact(String personId) {
+        if (!properties.isCacheEnabled()) return null;
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            PersonTravelTimeline cached = cache.get(personId);
+            if (cached != null && now - cached.loadedAtMillis() < properties.getCacheTtlSeconds() * 1000L) {
+                return cached;
+            }
+            if (cached != null) cache.remove(personId);
+        }
+        if (!hot(personId, now)) return null;
+
+        int maxRows = properties.getMaxCachedRows();
+        List<PersonTravel> rows = travelRepository.findTimelinePage(personId, MIN_TIME, MAX_TIME, MAX_TIME, Long.MAX_VALUE, maxRows + 1);
+        if (rows.size() > maxRows) {
+            log.debug("【行程时间线】行程数超过缓存上限，按页查库: personId={}, 上限={}", personId, maxRows);
+            return null;
+        }
+        PersonTravelTimeline timeline = PersonTravelTimeline.of(personId, rows, now);
+        if (timeline == null) return null;
+        synchronized (cache) {
+            cache.put(personId, timeline);
+        }
+        log.debug("【行程时间线】载入紧凑缓存: personId={}, 行程数={}", personId, timeline.size());
+        return timeline;
+    }
+
+    /** 累计查看次数，窗口过期后重新计数；达到阈值时重置计数（缓存过期后需再次达到阈值才重新载入） */
+    private boolean hot(String personId, long now) {
+        long windowMillis = properties.getHotWindowSeconds() * 1000L;
+        synchronized (views) {
+            long[] v = views.get(personId);
+            if (v == null || now - v[0] > windowMillis) {
+                v = new long[]{now, 0};
+                views.put(personId, v);
+            }
+            if (++v[1] < properties.getHotViews()) return false;
+            views.remove(personId);
+            return true;
+        }
+    }
+
+    private void requireVisible(String personId, String currentUser) {
+        String user = currentUser != null && !currentUser.isBlank() ? currentUser.trim() : null;
+        Person person = personRepository.findById(personId).orElse(null);
+        boolean visible = person != null && !Boolean.TRUE.equals(person.getDeleted())
+                && (Boolean.TRUE.equals(person.getIsPublic()) || (user != null && user.equals(person.getCreatedBy())));
+        if (!visible) {
+            throw new EntityNotFoundException("人员不存在: " + personId);
+        }
+    }
+
+    private static void checkRange(LocalDateTime start, LocalDateTime end) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        }
+    }
+
+    private static PersonTravelDTO toDTO(PersonTravel t) {
+        return new PersonTravelDTO(t.getTravelId(), t.getPersonId(), t.getEventTime(), t.getPersonName(),
+                t.getDeparture(), t.getDestination(), t.getTravelType(), t.getTicketNumber(), t.getVisaType(),
+                t.getDepartureCity(), t.getDestinationCity());
+    }
+
+    private static LocalDateTime toTime(Object value) {
+        if (value instanceof Timestamp ts) return ts.toLocalDateTime();
+        if (value instanceof LocalDateTime time) return time;
+        return null;
+    }
+
+    private static String encodeCursor(Cursor c) {
+        String raw = c.time() + "|" + c.travelId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return new Cursor(MAX_TIME, Long.MAX_VALUE);
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length == 2) {
+                return new Cursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            }
+        } catch (Exception e) {
+            // 落到下方统一报错
+        }
+        throw new IllegalArgumentException("无效的游标");
+    }
+}
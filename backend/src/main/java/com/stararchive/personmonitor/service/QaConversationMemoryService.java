@@ -0,0 +1,193 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.entity.QaMessage;
+import com.stararchive.personmonitor.entity.QaSessionSummary;
+import com.stararchive.personmonitor.repository.QaMessageRepository;
+import com.stararchive.personmonitor.repository.QaSessionSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 智能问答 - 会话记忆：只读取历史窗口内的消息，更早的消息增量折叠为持久化的滚动摘要。
+ * <ul>
+ *   <li>提示词历史 = 滚动摘要 + 尚未折叠的最近消息，按 token 预算从最早的消息开始舍弃（当前问题始终保留）；</li>
+ *   <li>每轮回复保存后，未折叠消息超过「窗口 + 批量」时，异步把窗口之前的消息与已有摘要一起交给大模型生成新摘要；</li>
+ *   <li>消息按 (created_time, id) 排序、只追加，摘要以「已折叠的最早消息条数」作为游标。</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QaConversationMemoryService {
+
+    static final String SUMMARY_CALLER = "qa-summary";
+    /** 折叠时单条消息最多取的字符数，避免超长回答撑爆摘要请求 */
+    private static final int FOLD_MESSAGE_PREVIEW = 2_000;
+    private static final String SUMMARY_PROMPT_TEMPLATE = "你是对话摘要助手。请将【已有摘要】与【新增对话】合并为一份新的摘要，"
+            + "保留用户关注的人物、事件、关键事实、已得出的结论与尚未解决的问题，删除寒暄与重复内容。"
+            + "使用第三人称、中文陈述，不超过 %d 字，直接输出摘要正文。";
+
+    private static final ExecutorService SUMMARY_EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "qa-summary");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final QaMessageRepository qaMessageRepository;
+    private final QaSessionSummaryRepository summaryRepository;
+    private final LlmGatewayService llmGateway;
+
+    /** 提示词中保留的最近消息条数（含当前问题） */
+    @Value("${smart-qa.history.window-messages:10}")
+    private int windowMessages = 10;
+
+    /** 历史（摘要 + 最近消息）的 token 预算 */
+    @Value("${smart-qa.history.max-tokens:3000}")
+    private int maxTokens = 3_000;
+
+    /** 窗口之前累计达到该条数时触发一次折叠 */
+    @Value("${smart-qa.history.summary-batch:6}")
+    private int summaryBatch = 6;
+
+    /** 摘要长度上限（字） */
+    @Value("${smart-qa.history.summary-max-chars:800}")
+    private int summaryMaxChars = 800;
+
+    /** 正在折叠的会话，同一会话同时只折叠一次 */
+    private final Set<String> summarizing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 组装传给大模型的历史消息：滚动摘要（作为 system 消息）+ 未折叠的最近消息
+     */
+    public List<Map<String, String>> historyMessages(String sessionId) {
+        QaSessionSummary summary = summaryRepository.findById(sessionId).orElse(null);
+        long summarized = summarizedCount(summary);
+        long total = qaMessageRepository.countBySessionId(sessionId);
+        long tailSize = Math.min(total - summarized, (long) windowMessages + summaryBatch);
+        List<QaMessage> tail = tailSize > 0
+                ? qaMessageRepository.findSliceBySessionId(sessionId, total - tailSize, (int) tailSize)
+                : List.of();
+
+        String summaryText = summary != null && summary.getSummary() != null && !summary.getSummary().isBlank()
+                ? summary.getSummary()
+                : null;
+        int budget = maxTokens - (summaryText != null ? estimateTokens(summaryText) : 0);
+        Deque<Map<String, String>> kept = new ArrayDeque<>();
+        for (int i = tail.size() - 1; i >= 0; i--) {
+            QaMessage m = tail.get(i);
+            String content = m.getContent() != null ? m.getContent() : "";
+            int tokens = estimateTokens(content);
+            if (!kept.isEmpty() && tokens > budget) break;
+            budget -= tokens;
+            kept.addFirst(Map.of("role", m.getRole(), "content", content));
+        }
+
+        List<Map<String, String>> messages = new ArrayList<>();
+        if (summaryText != null) {
+            messages.add(Map.of("role", "system", "content", "【此前对话摘要】\n" + summaryText));
+        }
+        messages.addAll(kept);
+        return messages;
+    }
+
+    /** 回复保存后调用：异步把超出窗口的消息折叠进摘要 */
+    public void updateSummaryAsync(String sessionId) {
+        if (!llmGateway.isConfigured() || !summarizing.add(sessionId)) return;
+        try {
+            SUMMARY_EXECUTOR.execute(() -> {
+                try {
+                    updateSummary(sessionId);
+                } catch (Exception e) {
+                    log.warn("智能问答-会话摘要更新失败: sessionId={}, error={}", sessionId, e.getMessage());
+                } finally {
+                    summarizing.remove(sessionId);
+                }
+            });
+        } catch (RuntimeException e) {
+            summarizing.remove(sessionId);
+            throw e;
+        }
+    }
+
+    /**
+     * 窗口之前未折叠的消息达到 summary-batch 条时，与已有摘要合并生成新摘要
+     *
+     * @return 本次折叠的消息条数
+     */
+    int updateSummary(String sessionId) {
+        QaSessionSummary summary = summaryRepository.findById(sessionId).orElse(null);
+        long summarized = summarizedCount(summary);
+        long total = qaMessageRepository.countBySessionId(sessionId);
+        long pending = total - summarized - windowMessages;
+        if (pending < summaryBatch) return 0;
+        List<QaMessage> toFold = qaMessageRepository.findSliceBySessionId(sessionId, summarized, (int) pending);
+        if (toFold.isEmpty()) return 0;
+
+        StringBuilder input = new StringBuilder("【已有摘要】\n");
+        input.append(summary != null && summary.getSummary() != null && !summary.getSummary().isBlank()
+                ? summary.getSummary() : "（无）");
+        input.append("\n\n【新增对话】\n");
+        for (QaMessage m : toFold) {
+            String content = m.getContent() != null ? m.getContent() : "";
+            if (content.length() > FOLD_MESSAGE_PREVIEW) {
+                content = content.substring(0, FOLD_MESSAGE_PREVIEW) + "...";
+            }
+            input.append(QaMessage.ROLE_USER.equals(m.getRole()) ? "用户：" : "助手：").append(content).append("\n");
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("messages", List.of(
+                Map.of("role", "system", "content", String.format(SUMMARY_PROMPT_TEMPLATE, summaryMaxChars)),
+                Map.of("role", "user", "content", input.toString())
+        ));
+        String updated = llmGateway.chat(SUMMARY_CALLER, body);
+        if (updated == null || updated.isBlank()) {
+            log.warn("智能问答-会话摘要为空，保留原摘要: sessionId={}", sessionId);
+            return 0;
+        }
+
+        QaSessionSummary next = summary != null ? summary : new QaSessionSummary();
+        next.setSessionId(sessionId);
+        next.setSummary(updated.trim());
+        next.setSummarizedCount((int) (summarized + toFold.size()));
+        next.setUpdatedTime(LocalDateTime.now());
+        summaryRepository.save(next);
+        log.info("智能问答-会话摘要已更新: sessionId={}, 折叠={}, 累计折叠={}",
+                sessionId, toFold.size(), next.getSummarizedCount());
+        return toFold.size();
+    }
+
+    private static long summarizedCount(QaSessionSummary summary) {
+        return summary != null && summary.getSummarizedCount() != null ? summary.getSummarizedCount() : 0;
+    }
+
+    /** 粗略估算 token：中日韩字符按 1 个，其余按 4 个字符 1 个 */
+    static int estimateTokens(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN || (c >= 0x3000 && c <= 0x30FF)
+                    || (c >= 0xFF00 && c <= 0xFFEF)) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+}
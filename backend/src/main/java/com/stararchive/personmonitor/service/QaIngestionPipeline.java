@@ -0,0 +1,379 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.config.QaIngestionProperties;
+import com.stararchive.personmonitor.dto.QaIngestionMetricsDTO;
+import com.stararchive.personmonitor.entity.QaChunk;
+import com.stararchive.personmonitor.entity.QaDocument;
+import com.stararchive.personmonitor.repository.QaChunkRepository;
+import com.stararchive.personmonitor.repository.QaDocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 智能问答文档入库流水线：下载 → 解析 → 分块 → 批量嵌入 → JDBC 批量写库，多个文档在各阶段并发推进。
+ * <ul>
+ *   <li>每个阶段一组工作线程，阶段之间为有界队列，下游处理不过来时上游阻塞（背压），内存中积压的文件内容有上限；</li>
+ *   <li>分块按 embed-batch-size 成批，一次嵌入请求处理一批，嵌入结果按批 JDBC 批量插入；</li>
+ *   <li>文档状态只做定点 UPDATE：下载开始 PARSING、分块完成 EMBEDDING、全部批次写完 READY，任一阶段失败 FAILED
+ *       并清理已写入的分块；</li>
+ *   <li>按阶段统计处理数、失败数、平均耗时与队列积压，见 {@link #metrics()}。</li>
+ * </ul>
+ * 流水线状态只在本副本内存中，进程退出时未完成的文档保持中间状态，可重新上传。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QaIngestionPipeline {
+
+    private static final int CHUNK_MAX_CHARS = 500;
+    private static final int CHUNK_OVERLAP = 50;
+
+    private final QaDocumentRepository qaDocumentRepository;
+    private final QaChunkRepository qaChunkRepository;
+    private final SeaweedFSService seaweedFSService;
+    private final ArchiveExtractionAsyncExecutor archiveExtractionAsyncExecutor;
+    private final EmbeddingService embeddingService;
+    private final QaIngestionProperties properties;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder ready = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder persistedChunks = new LongAdder();
+    private final AtomicInteger inProgress = new AtomicInteger();
+
+    private Stage<Job> download;
+    private Stage<Downloaded> parse;
+    private Stage<Parsed> chunk;
+    private Stage<ChunkBatch> embed;
+    private Stage<ChunkBatch> persist;
+
+    /** 一个文档在流水线中的处理状态 */
+    static final class Job {
+        final String docId;
+        final String kbId;
+        final String fileName;
+        final String filePathId;
+        /** 尚未写库的分块批次数 */
+        final AtomicInteger pendingBatches = new AtomicInteger();
+        final AtomicBoolean finished = new AtomicBoolean();
+        volatile int chunkCount;
+
+        Job(QaDocument doc) {
+            this.docId = doc.getId();
+            this.kbId = doc.getKbId();
+            this.fileName = doc.getFileName();
+            this.filePathId = doc.getFilePathId();
+        }
+    }
+
+    private record Downloaded(Job job, byte[] bytes) {
+    }
+
+    private record Parsed(Job job, String text) {
+    }
+
+    private record ChunkBatch(Job job, int firstSeq, List<String> contents, List<float[]> embeddings) {
+    }
+
+    @FunctionalInterface
+    private interface Handler<T> {
+        void handle(T item) throws Exception;
+    }
+
+    @PostConstruct
+    void start() {
+        int capacity = Math.max(1, properties.getQueueCapacity());
+        int parseWorkers = properties.getParseWorkers() > 0
+                ? properties.getParseWorkers()
+                : Runtime.getRuntime().availableProcessors();
+        persist = new Stage<>("persist", new ArrayBlockingQueue<>(capacity), properties.getPersistWorkers(),
+                this::persistBatch, ChunkBatch::job);
+        embed = new Stage<>("embed", new ArrayBlockingQueue<>(capacity), properties.getEmbedWorkers(),
+                this::embedBatch, ChunkBatch::job);
+        chunk = new Stage<>("chunk", new ArrayBlockingQueue<>(capacity), properties.getChunkWorkers(),
+                this::chunkText, Parsed::job);
+        parse = new Stage<>("parse", new ArrayBlockingQueue<>(capacity), parseWorkers,
+                this::parseFile, Downloaded::job);
+        download = new Stage<>("download", new LinkedBlockingQueue<>(Math.max(1, properties.getPendingCapacity())),
+                properties.getDownloadWorkers(), this::downloadFile, job -> job);
+        for (Stage<?> stage : stages()) {
+            stage.start();
+        }
+        log.info("智能问答-入库流水线已启动: download={}, parse={}, chunk={}, embed={}, persist={}, embedBatch={}",
+                download.workers, parse.workers, chunk.workers, embed.workers, persist.workers, properties.getEmbedBatchSize());
+    }
+
+    @PreDestroy
+    void stop() {
+        for (Stage<?> stage : stages()) {
+            stage.pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交文档入库；等待队列已满时直接标记失败
+     *
+     * @return 是否已进入流水线
+     */
+    public boolean submit(QaDocument doc) {
+        Job job = new Job(doc);
+        if (!download.queue.offer(job)) {
+            log.warn("智能问答-入库队列已满: docId={}", doc.getId());
+            qaDocumentRepository.updateStatus(doc.getId(), QaDocument.STATUS_FAILED, 0, "入库队列已满，请稍后重新上传");
+            failed.increment();
+            return false;
+        }
+        submitted.increment();
+        inProgress.incrementAndGet();
+        return true;
+    }
+
+    public QaIngestionMetricsDTO metrics() {
+        List<QaIngestionMetricsDTO.StageMetrics> stageMetrics = new ArrayList<>();
+        for (Stage<?> stage : stages()) {
+            stageMetrics.add(stage.snapshot());
+        }
+        return QaIngestionMetricsDTO.builder()
+                .submittedDocuments(submitted.sum())
+                .readyDocuments(ready.sum())
+                .failedDocuments(failed.sum())
+                .inProgressDocuments(inProgress.get())
+                .persistedChunks(persistedChunks.sum())
+                .stages(stageMetrics)
+                .build();
+    }
+
+    // ==================== 各阶段 ====================
+
+    private void downloadFile(Job job) throws Exception {
+        if (qaDocumentRepository.updateStatus(job.docId, QaDocument.STATUS_PARSING, 0, null) == 0) {
+            // 入库前文档已被删除
+            finish(job);
+            return;
+        }
+        byte[] bytes = seaweedFSService.download(job.filePathId);
+        if (bytes == null || bytes.length == 0) {
+            fail(job, "无法下载文件");
+            return;
+        }
+        parse.put(new Downloaded(job, bytes));
+    }
+
+    private void parseFile(Downloaded item) throws Exception {
+        String text = archiveExtractionAsyncExecutor.parseFileToTextFromBytes(item.bytes(), item.job().fileName);
+        chunk.put(new Parsed(item.job(), text));
+    }
+
+    private void chunkText(Parsed item) throws Exception {
+        Job job = item.job();
+        List<String> chunks = splitText(item.text());
+        qaChunkRepository.deleteByDocId(job.docId);
+        if (chunks.isEmpty()) {
+            complete(job);
+            return;
+        }
+        job.chunkCount = chunks.size();
+        qaDocumentRepository.updateStatus(job.docId, QaDocument.STATUS_EMBEDDING, 0, null);
+        int batchSize = Math.max(1, properties.getEmbedBatchSize());
+        int batches = (chunks.size() + batchSize - 1) / batchSize;
+        job.pendingBatches.set(batches);
+        for (int from = 0; from < chunks.size(); from += batchSize) {
+            if (job.finished.get()) return;
+            List<String> contents = new ArrayList<>(chunks.subList(from, Math.min(from + batchSize, chunks.size())));
+            embed.put(new ChunkBatch(job, from, contents, null));
+        }
+    }
+
+    private void embedBatch(ChunkBatch batch) throws Exception {
+        if (batch.job().finished.get()) return;
+        List<float[]> embeddings = embeddingService.embedBatch(batch.contents());
+        persist.put(new ChunkBatch(batch.job(), batch.firstSeq(), batch.contents(), embeddings));
+    }
+
+    private void persistBatch(ChunkBatch batch) {
+        Job job = batch.job();
+        if (job.finished.get()) return;
+        LocalDateTime now = LocalDateTime.now();
+        List<QaChunk> rows = new ArrayList<>(batch.contents().size());
+        for (int i = 0; i < batch.contents().size(); i++) {
+            QaChunk c = new QaChunk();
+            c.setId(UUID.randomUUID().toString());
+            c.setDocId(job.docId);
+            c.setKbId(job.kbId);
+            c.setContent(batch.contents().get(i));
+            c.setSeq(batch.firstSeq() + i);
+            c.setCreatedTime(now);
+            float[] emb = batch.embeddings() != null && i < batch.embeddings().size() ? batch.embeddings().get(i) : null;
+            if (emb != null) {
+                try {
+                    c.setEmbedding(objectMapper.writeValueAsString(toList(emb)));
+                } catch (JsonProcessingException e) {
+                    log.warn("chunk embedding serialize skip: {}", e.getMessage());
+                }
+            }
+            rows.add(c);
+        }
+        qaChunkRepository.insertBatch(rows);
+        persistedChunks.add(rows.size());
+        if (job.pendingBatches.decrementAndGet() == 0) {
+            complete(job);
+        }
+    }
+
+    // ==================== 文档结束 ====================
+
+    private void complete(Job job) {
+        if (!finish(job)) return;
+        if (qaDocumentRepository.updateStatus(job.docId, QaDocument.STATUS_READY, job.chunkCount, null) == 0) {
+            // 处理期间文档已被删除，清理已写入的分块
+            qaChunkRepository.deleteByDocId(job.docId);
+            return;
+        }
+        ready.increment();
+        log.info("智能问答-文档处理完成: docId={}, chunks={}", job.docId, job.chunkCount);
+    }
+
+    private void fail(Job job, String message) {
+        if (!finish(job)) return;
+        failed.increment();
+        try {
+            qaChunkRepository.deleteByDocId(job.docId);
+            qaDocumentRepository.updateStatus(job.docId, QaDocument.STATUS_FAILED, 0, message);
+        } catch (Exception e) {
+            log.error("智能问答-文档失败状态写入失败: docId={}", job.docId, e);
+        }
+    }
+
+    /** 标记文档已结束（只生效一次） */
+    private boolean finish(Job job) {
+        if (!job.finished.compareAndSet(false, true)) return false;
+        inProgress.decrementAndGet();
+        return true;
+    }
+
+    private static List<Double> toList(float[] arr) {
+        List<Double> list = new ArrayList<>(arr.length);
+        for (float v : arr) {
+            list.add((double) v);
+        }
+        return list;
+    }
+
+    static List<String> splitText(String text) {
+        List<String> list = new ArrayList<>();
+        if (text == null) return list;
+        String normalized = text.replaceAll("\\s+", " ").trim();
+        if (normalized.isEmpty()) return list;
+        for (int start = 0; start < normalized.length(); ) {
+            int end = Math.min(start + CHUNK_MAX_CHARS, normalized.length());
+            list.add(normalized.substring(start, end));
+            start = end - (end < normalized.length() ? CHUNK_OVERLAP : 0);
+        }
+        return list;
+    }
+
+    private List<Stage<?>> stages() {
+        return List.of(download, parse, chunk, embed, persist);
+    }
+
+    /** 流水线阶段：一组工作线程从输入队列取任务处理，处理异常时将所属文档标记失败 */
+    private final class Stage<T> {
+        final String name;
+        final BlockingQueue<T> queue;
+        final int workers;
+        final ExecutorService pool;
+        final Handler<T> handler;
+        final Function<T, Job> jobOf;
+        final LongAdder processed = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+
+        Stage(String name, BlockingQueue<T> queue, int workers, Handler<T> handler,
+              Function<T, Job> jobOf) {
+            this.name = name;
+            this.queue = queue;
+            this.workers = Math.max(1, workers);
+            this.handler = handler;
+            this.jobOf = jobOf;
+            AtomicInteger seq = new AtomicInteger();
+            this.pool = Executors.newFixedThreadPool(this.workers, r -> {
+                Thread t = new Thread(r, "qa-ingest-" + name + "-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        void start() {
+            for (int i = 0; i < workers; i++) {
+                pool.execute(this::run);
+            }
+        }
+
+        /** 放入本阶段队列，队列满时阻塞 */
+        void put(T item) throws InterruptedException {
+            queue.put(item);
+        }
+
+        private void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                T item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    handler.handle(item);
+                    processed.increment();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    errors.increment();
+                    Job job = jobOf.apply(item);
+                    log.error("智能问答-文档处理失败: stage={}, docId={}", name, job.docId, e);
+                    fail(job, e.getMessage());
+                } finally {
+                    busyNanos.add(System.nanoTime() - start);
+                }
+            }
+        }
+
+        QaIngestionMetricsDTO.StageMetrics snapshot() {
+            long count = processed.sum() + errors.sum();
+            long busyMs = TimeUnit.NANOSECONDS.toMillis(busyNanos.sum());
+            return QaIngestionMetricsDTO.StageMetrics.builder()
+                    .stage(name)
+                    .workers(workers)
+                    .queued(queue.size())
+                    .processed(processed.sum())
+                    .failed(errors.sum())
+                    .avgMs(count > 0 ? busyMs / count : 0)
+                    .throughputPerSecond(busyMs > 0 ? count * 1000.0 / busyMs : 0)
+                    .build();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.stararchive.personmonitor.entity.QaSession;
 import com.stararchive.personmonitor.repository.KnowledgeBaseRepository;
 import com.stararchive.personmonitor.repository.QaMessageRepository;
 import com.stararchive.personmonitor.repository.QaSessionRepository;
+import com.stararchive.personmonitor.repository.QaSessionSummaryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -25,6 +26,7 @@ public class QaSessionService {
 
     private final QaSessionRepository qaSessionRepository;
     private final QaMessageRepository qaMessageRepository;
+    private final QaSessionSummaryRepository qaSessionSummaryRepository;
     private final KnowledgeBaseRepository knowledgeBaseRepository;
 
     public List<QaSessionDTO> listByUser(String creatorUsername) {
@@ -83,6 +85,7 @@ public class QaSessionService {
             return false;
         }
         qaMessageRepository.deleteBySessionId(id);
+        qaSessionSummaryRepository.deleteById(id);
         qaSessionRepository.deleteByIdAndCreatorUsername(id, creatorUsername);
         return true;
     }
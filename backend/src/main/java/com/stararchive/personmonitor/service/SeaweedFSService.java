@@ -11,9 +11,13 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -36,11 +40,42 @@ public class SeaweedFSService {
      * 上传文件到 Filer，路径为 {pathPrefix}/{taskId}/{safeFileName}，返回 Filer 内相对路径（供下载用）。
      */
     public String upload(MultipartFile file, String taskId) throws IOException {
+        return uploadToDirectory(file, properties.getPathPrefix() + "/" + taskId);
+    }
+
+    /**
+     * 按内容寻址上传：路径为 {pathPrefix}/sha256/{contentHash}/{safeFileName}，相同内容的文件落在同一目录下，
+     * 返回 Filer 内相对路径。contentHash 为文件内容 SHA-256（十六进制）。
+     */
+    public String uploadContentAddressed(MultipartFile file, String contentHash) throws IOException {
+        if (contentHash == null || !contentHash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("内容哈希格式不正确");
+        }
+        return uploadToDirectory(file, properties.getPathPrefix() + "/sha256/" + contentHash);
+    }
+
+    /**
+     * 判断 Filer 上文件是否存在（HEAD 请求），用于复用已上传文件前校验。
+     */
+    public boolean exists(String path) {
+        if (path == null || path.isBlank()) return false;
+        String base = properties.getFilerUrl().replaceAll("/$", "");
+        String url = base + "/" + path.replaceAll("^/+", "");
+        try {
+            HttpHeaders headers = restTemplate.headForHeaders(url);
+            return headers.getContentLength() != 0;
+        } catch (Exception e) {
+            log.debug("SeaweedFS head failed: path={}, error={}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    private String uploadToDirectory(MultipartFile file, String directory) throws IOException {
         String originalName = file.getOriginalFilename();
         String safeName = originalName != null && !originalName.isBlank()
                 ? sanitizeFileName(originalName)
                 : "file-" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
-        String path = properties.getPathPrefix() + "/" + taskId + "/" + safeName;
+        String path = directory + "/" + safeName;
         String base = properties.getFilerUrl().replaceAll("/$", "");
         URI uri = URI.create(base + "/" + path);
 
@@ -202,6 +237,31 @@ public class SeaweedFSService {
         return null;
     }
 
+    /**
+     * 根据 Filer 相对路径流式下载文件到本地 target，不在内存中缓存整个文件；成功且文件非空返回 true。
+     * 用于档案融合大表格（Excel 事件模型解析需要可随机访问的本地文件）。
+     */
+    public boolean downloadToFile(String path, Path target) {
+        if (path == null || path.isBlank() || target == null) return false;
+        String base = properties.getFilerUrl().replaceAll("/$", "");
+        String url = base + "/" + path.replaceAll("^/+", "");
+        try {
+            Boolean ok = restTemplate.execute(url, HttpMethod.GET, null, response -> {
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    return false;
+                }
+                try (InputStream in = response.getBody()) {
+                    Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return true;
+            });
+            return Boolean.TRUE.equals(ok) && Files.size(target) > 0;
+        } catch (Exception e) {
+            log.warn("SeaweedFS download to file failed: path={}, error={}", path, e.getMessage());
+        }
+        return false;
+    }
+
     /**
      * 返回用于前端展示头像的代理 URL 路径（相对路径，如 /littlesmall/api/avatar?path=xxx）。
      * 前端 img src 使用该路径即可通过后端代理从 SeaweedFS 获取图片。
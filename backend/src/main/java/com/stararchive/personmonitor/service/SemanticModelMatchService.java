@@ -3,8 +3,6 @@ package com.stararchive.personmonitor.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.stararchive.personmonitor.config.BailianProperties;
-import com.stararchive.personmonitor.dto.SystemConfigDTO;
 import com.stararchive.personmonitor.entity.Person;
 import com.stararchive.personmonitor.entity.PredictionModel;
 import com.stararchive.personmonitor.entity.PredictionModelLockedPerson;
@@ -13,15 +11,9 @@ import com.stararchive.personmonitor.repository.PredictionModelLockedPersonRepos
 import com.stararchive.personmonitor.repository.PredictionModelRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -40,13 +32,11 @@ public class SemanticModelMatchService {
     private static final int BATCH_SIZE = 20;
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    private final BailianProperties bailianProperties;
-    private final SystemConfigService systemConfigService;
+    private final LlmGatewayService llmGateway;
     private final PredictionModelRepository predictionModelRepository;
     private final PersonRepository personRepository;
     private final PredictionModelLockedPersonRepository lockedPersonRepository;
     private final ObjectMapper objectMapper;
-    private final RestTemplate restTemplate = new RestTemplate();
 
     private static final String SEMANTIC_MATCH_SYSTEM_PROMPT =
             "你是一个人物档案筛选助手。给定一条语义规则和若干人物档案（JSON数组，每项含 person_id, chinese_name, birth_date, gender, person_tags, organization, belonging_group 等），请判断每个人物是否满足该规则。\n"
@@ -146,43 +136,27 @@ public class SemanticModelMatchService {
 
     /**
      * 调用大模型：给定语义规则和人物档案 JSON，返回满足规则的人物 person_id 数组。
-     * 大模型配置优先使用系统配置，为空时回退到 application.yml 的 bailian 配置。
+     * 经 {@link LlmGatewayService} 调用，大模型配置优先使用系统配置，为空时回退到 application.yml 的 bailian 配置。
      */
     private List<String> callLlmMatchPersons(String semanticRule, String personsJson) {
-        String apiKey = resolveLlmApiKey();
-        String baseUrl = resolveLlmBaseUrl();
-        String model = resolveLlmModel();
-        if (apiKey == null || apiKey.isBlank()) {
+        if (!llmGateway.isConfigured()) {
             log.debug("未配置大模型 API Key（系统配置与 bailian 均未配置），语义匹配跳过本批次");
             return Collections.emptyList();
         }
-        String url = baseUrl.replaceAll("/$", "") + "/chat/completions";
         String userContent = "语义规则：\n" + semanticRule + "\n\n人物档案列表：\n" + personsJson;
 
         Map<String, Object> body = new HashMap<>();
-        body.put("model", model);
         body.put("messages", List.of(
                 Map.of("role", "system", "content", SEMANTIC_MATCH_SYSTEM_PROMPT),
                 Map.of("role", "user", "content", userContent)
         ));
         body.put("response_format", Map.of("type", "json_object"));
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                return Collections.emptyList();
-            }
-            JsonNode root = objectMapper.readTree(response.getBody());
-            JsonNode choices = root.path("choices");
-            if (!choices.isArray() || choices.size() == 0) {
+            String content = llmGateway.chat("semantic-match", body);
+            if (content == null) {
                 return Collections.emptyList();
             }
-            String content = choices.get(0).path("message").path("content").asText();
             content = unwrapJsonFromMarkdown(content.trim());
             JsonNode node = objectMapper.readTree(content);
             // 支持 {"person_ids": ["id1","id2"]} 或 直接 ["id1","id2"]
@@ -212,28 +186,4 @@ public class SemanticModelMatchService {
         }
         return s;
     }
-
-    private String resolveLlmApiKey() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmApiKey() != null && !cfg.getLlmApiKey().isBlank()) {
-            return cfg.getLlmApiKey();
-        }
-        return bailianProperties.getApiKey() != null ? bailianProperties.getApiKey() : "";
-    }
-
-    private String resolveLlmBaseUrl() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmBaseUrl() != null && !cfg.getLlmBaseUrl().isBlank()) {
-            return cfg.getLlmBaseUrl().trim();
-        }
-        return bailianProperties.getBaseUrl() != null ? bailianProperties.getBaseUrl() : "";
-    }
-
-    private String resolveLlmModel() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmModel() != null && !cfg.getLlmModel().isBlank()) {
-            return cfg.getLlmModel().trim();
-        }
-        return bailianProperties.getModel() != null ? bailianProperties.getModel() : "qwen-plus";
-    }
 }
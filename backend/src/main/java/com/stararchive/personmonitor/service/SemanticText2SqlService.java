@@ -1,18 +1,9 @@
 package com.stararchive.personmonitor.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.stararchive.personmonitor.config.BailianProperties;
-import com.stararchive.personmonitor.dto.SystemConfigDTO;
+import com.stararchive.personmonitor.common.ContentHash;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
 import java.util.List;
@@ -21,7 +12,7 @@ import java.util.regex.Pattern;
 
 /**
  * 语义转 SQL（Text2Sql）：根据自然语言规则调用百炼大模型生成仅查询 person 表的 SELECT 语句，
- * 用于模型管理「实时语义命中人数」统计。
+ * 用于模型管理「实时语义命中人数」统计。校验通过的 SQL 按规则缓存，规则不变时不再重复调用大模型。
  */
 @Slf4j
 @Service
@@ -52,10 +43,10 @@ public class SemanticText2SqlService {
     private static final Pattern FORBIDDEN_SQL = Pattern.compile(
             "(?i)(UPDATE|DELETE|INSERT|DROP|CREATE|ALTER|TRUNCATE|EXEC|;\\s*$)");
 
-    private final BailianProperties bailianProperties;
-    private final SystemConfigService systemConfigService;
-    private final ObjectMapper objectMapper;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private static final String CALLER = "text2sql";
+
+    private final LlmGatewayService llmGateway;
+    private final LlmResponseCacheService responseCache;
 
     /**
      * 根据语义规则生成仅查询 person 表的 SELECT person_id 语句；失败或非法返回 null。
@@ -64,10 +55,7 @@ public class SemanticText2SqlService {
         if (semanticRule == null || semanticRule.isBlank()) {
             return null;
         }
-        String apiKey = resolveLlmApiKey();
-        String baseUrl = resolveLlmBaseUrl();
-        String model = resolveLlmModel();
-        if (apiKey == null || apiKey.isBlank()) {
+        if (!llmGateway.isConfigured()) {
             log.debug("未配置大模型 API Key，Text2Sql 跳过");
             return null;
         }
@@ -78,47 +66,50 @@ public class SemanticText2SqlService {
         log.info("[模型管理-Text2Sql] 发给大模型的 user 提示词:\n{}", userContent);
 
         Map<String, Object> body = new HashMap<>();
-        body.put("model", model);
         body.put("messages", List.of(
                 Map.of("role", "system", "content", TEXT2SQL_SYSTEM_PROMPT),
                 Map.of("role", "user", "content", userContent)
         ));
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-        String url = baseUrl.replaceAll("/$", "") + "/chat/completions";
-
+        LlmResponseCacheService.Key cacheKey = LlmResponseCacheService.Key.of(
+                CALLER, llmGateway.resolveModel(CALLER), TEXT2SQL_SYSTEM_PROMPT, userContent, ruleScope(semanticRule));
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                log.warn("[模型管理-Text2Sql] 大模型 HTTP 响应异常: status={}", response.getStatusCode());
-                return null;
-            }
-            JsonNode root = objectMapper.readTree(response.getBody());
-            JsonNode choices = root.path("choices");
-            if (!choices.isArray() || choices.size() == 0) {
-                log.warn("[模型管理-Text2Sql] 大模型返回无 choices，原始 body 前 500 字: {}", response.getBody().length() > 500 ? response.getBody().substring(0, 500) + "..." : response.getBody());
-                return null;
-            }
-            String content = choices.get(0).path("message").path("content").asText();
-            log.info("[模型管理-Text2Sql] 大模型返回的原始内容:\n{}", content);
-
-            String sql = unwrapSql(content.trim());
-            String finalSql = validateAndNormalizeSql(sql);
-            if (finalSql != null) {
-                log.info("[模型管理-Text2Sql] 校验后的 SQL: {}", finalSql);
-            } else {
-                log.warn("[模型管理-Text2Sql] 校验未通过，unwrap 后的 SQL: {}", sql);
-            }
-            return finalSql;
+            // 仅缓存校验通过的 SQL；大模型返回非法 SQL 时下次仍重新生成
+            return responseCache.getOrCompute(cacheKey, () -> requestSql(body));
         } catch (Exception e) {
             log.warn("[模型管理-Text2Sql] 调用失败: {}", e.getMessage());
             return null;
         }
     }
 
+    /** 规则编辑或模型删除后失效该规则已缓存的 SQL */
+    public void invalidateCachedSql(String semanticRule) {
+        if (semanticRule == null || semanticRule.isBlank()) return;
+        responseCache.invalidateScope(ruleScope(semanticRule));
+    }
+
+    private String requestSql(Map<String, Object> body) {
+        String content = llmGateway.chat(CALLER, body);
+        if (content == null) {
+            log.warn("[模型管理-Text2Sql] 大模型返回无 choices");
+            return null;
+        }
+        log.info("[模型管理-Text2Sql] 大模型返回的原始内容:\n{}", content);
+
+        String sql = unwrapSql(content.trim());
+        String finalSql = validateAndNormalizeSql(sql);
+        if (finalSql != null) {
+            log.info("[模型管理-Text2Sql] 校验后的 SQL: {}", finalSql);
+        } else {
+            log.warn("[模型管理-Text2Sql] 校验未通过，unwrap 后的 SQL: {}", sql);
+        }
+        return finalSql;
+    }
+
+    private static String ruleScope(String semanticRule) {
+        return "rule:" + ContentHash.sha256Hex(semanticRule.trim());
+    }
+
     private static String unwrapSql(String content) {
         if (content == null) return "";
         String s = content.trim();
@@ -155,28 +146,4 @@ public class SemanticText2SqlService {
         }
         return s;
     }
-
-    private String resolveLlmApiKey() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmApiKey() != null && !cfg.getLlmApiKey().isBlank()) {
-            return cfg.getLlmApiKey();
-        }
-        return bailianProperties.getApiKey() != null ? bailianProperties.getApiKey() : "";
-    }
-
-    private String resolveLlmBaseUrl() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmBaseUrl() != null && !cfg.getLlmBaseUrl().isBlank()) {
-            return cfg.getLlmBaseUrl().trim();
-        }
-        return bailianProperties.getBaseUrl() != null ? bailianProperties.getBaseUrl() : "";
-    }
-
-    private String resolveLlmModel() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmModel() != null && !cfg.getLlmModel().isBlank()) {
-            return cfg.getLlmModel().trim();
-        }
-        return bailianProperties.getModel() != null ? bailianProperties.getModel() : "qwen-plus";
-    }
 }
@@ -1,33 +1,19 @@
 package com.stararchive.personmonitor.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.stararchive.personmonitor.config.BailianProperties;
 import com.stararchive.personmonitor.dto.QaMessageDTO;
 import com.stararchive.personmonitor.dto.SmartQaChatResponse;
-import com.stararchive.personmonitor.dto.SystemConfigDTO;
 import com.stararchive.personmonitor.entity.QaChunk;
 import com.stararchive.personmonitor.entity.QaSession;
 import com.stararchive.personmonitor.repository.QaChunkRepository;
 import com.stararchive.personmonitor.repository.QaSessionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import org.springframework.web.client.RestTemplate;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -46,17 +32,17 @@ import java.util.stream.Collectors;
 public class SmartQaChatService {
 
     private static final int RAG_TOP_K = 10;
-    private static final int HISTORY_MESSAGES_LIMIT = 10;
+    private static final String STOPPED_SUFFIX = "\n\n（已停止生成）";
     private static final String RAG_SYSTEM_PROMPT = "你是一个基于知识库的问答助手。请严格根据【参考知识库内容】回答用户问题；若参考内容中无法找到答案，请如实说明。不要编造内容。";
 
     private final QaSessionRepository qaSessionRepository;
     private final QaChunkRepository qaChunkRepository;
     private final QaMessageService qaMessageService;
     private final EmbeddingService embeddingService;
-    private final SystemConfigService systemConfigService;
-    private final BailianProperties bailianProperties;
+    private final LlmGatewayService llmGateway;
+    private final LlmStreamRegistry streamRegistry;
+    private final QaConversationMemoryService conversationMemory;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate = new RestTemplate();
     private static final ExecutorService STREAM_EXECUTOR = Executors.newCachedThreadPool();
     private static final long SSE_TIMEOUT_MS = 120_000L;
 
@@ -84,33 +70,21 @@ public class SmartQaChatService {
 
         List<Map<String, String>> messages = buildMessages(sessionId, creatorUsername, userContent, context);
 
-        String baseUrl = resolveLlmBaseUrl();
-        String apiKey = resolveLlmApiKey();
-        String model = resolveLlmModel();
-        if (baseUrl == null || baseUrl.isBlank() || apiKey == null || apiKey.isBlank()) {
+        if (!llmGateway.isConfigured()) {
             String fallback = "未配置大模型，无法生成回复。请在系统配置中填写大模型 API 信息。";
             var msg = qaMessageService.addMessage(sessionId, "assistant", fallback, creatorUsername);
             return new SmartQaChatResponse(msg.getId(), fallback);
         }
 
-        String url = baseUrl.replaceAll("/$", "") + "/chat/completions";
         Map<String, Object> body = new HashMap<>();
-        body.put("model", model);
         body.put("messages", messages);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                String content = extractContentFromChatResponse(response.getBody());
-                if (content != null) {
-                    var msg = qaMessageService.addMessage(sessionId, "assistant", content, creatorUsername);
-                    return new SmartQaChatResponse(msg.getId(), content);
-                }
+            String content = llmGateway.chat("smart-qa", body);
+            if (content != null) {
+                var msg = qaMessageService.addMessage(sessionId, "assistant", content, creatorUsername);
+                conversationMemory.updateSummaryAsync(sessionId);
+                return new SmartQaChatResponse(msg.getId(), content);
             }
         } catch (Exception e) {
             log.warn("智能问答-大模型调用失败: sessionId={}, error={}", sessionId, e.getMessage());
@@ -122,6 +96,7 @@ public class SmartQaChatService {
 
     /**
      * 流式对话：发送 SSE 事件 data: {"content":"delta"}，结束时 data: {"messageId":"xxx","done":true}。
+     * 前端断开、SSE 超时或调用 {@link #stopStream} 时立即中止上游请求，已收到的内容保存为回复（末尾标注已停止）。
      */
     @Transactional(noRollbackFor = Exception.class)
     public SseEmitter chatStream(String sessionId, String userContent, String creatorUsername) {
@@ -144,66 +119,41 @@ public class SmartQaChatService {
                 .collect(Collectors.joining("\n\n"));
         List<Map<String, String>> messages = buildMessages(sessionId, creatorUsername, userContent, context);
 
-        String baseUrl = resolveLlmBaseUrl();
-        String apiKey = resolveLlmApiKey();
-        String model = resolveLlmModel();
-        if (baseUrl == null || baseUrl.isBlank() || apiKey == null || apiKey.isBlank()) {
+        if (!llmGateway.isConfigured()) {
             String fallback = "未配置大模型，无法生成回复。请在系统配置中填写大模型 API 信息。";
             QaMessageDTO saved = qaMessageService.addMessage(sessionId, "assistant", fallback, creatorUsername);
             STREAM_EXECUTOR.execute(() -> sendStreamDone(emitter, fallback, saved.getId()));
             return emitter;
         }
 
-        String url = baseUrl.replaceAll("/$", "") + "/chat/completions";
         Map<String, Object> bodyMap = new HashMap<>();
-        bodyMap.put("model", model);
         bodyMap.put("messages", messages);
-        bodyMap.put("stream", true);
-        String bodyJson;
-        try {
-            bodyJson = objectMapper.writeValueAsString(bodyMap);
-        } catch (Exception e) {
-            log.warn("序列化请求体失败: {}", e.getMessage());
-            sendStreamError(emitter, "大模型请求异常，请稍后重试。");
-            return emitter;
-        }
 
+        LlmGatewayService.Cancellation cancellation = streamRegistry.open(streamKey(sessionId), emitter);
+        SseTokenWriter writer = streamRegistry.newWriter(emitter);
         STREAM_EXECUTOR.execute(() -> {
+            StringBuilder received = new StringBuilder();
             try {
-                HttpClient client = HttpClient.newBuilder().build();
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(url))
-                        .header("Content-Type", "application/json")
-                        .header("Authorization", "Bearer " + apiKey)
-                        .POST(HttpRequest.BodyPublishers.ofString(bodyJson, StandardCharsets.UTF_8))
-                        .build();
-                HttpResponse<java.util.stream.Stream<String>> response = client.send(
-                        request,
-                        HttpResponse.BodyHandlers.ofLines());
-                StringBuilder fullContent = new StringBuilder();
-                try (java.util.stream.Stream<String> lines = response.body()) {
-                    lines.forEach(line -> {
-                        if (line.startsWith("data: ")) {
-                            String payload = line.substring(6).trim();
-                            if ("[DONE]".equals(payload)) return;
-                            String delta = extractDeltaContent(payload);
-                            if (delta != null && !delta.isEmpty()) {
-                                fullContent.append(delta);
-                                try {
-                                    emitter.send(SseEmitter.event().data(Map.of("content", delta)));
-                                } catch (Exception e) {
-                                    throw new RuntimeException(e);
-                                }
-                            }
-                        }
-                    });
-                }
-                String content = fullContent.toString();
+                String content = llmGateway.chatStream("smart-qa-stream", bodyMap, delta -> {
+                    received.append(delta);
+                    try {
+                        writer.append(delta);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }, cancellation);
+                writer.flush();
                 if (content.isEmpty()) content = "大模型未返回有效内容。";
                 QaMessageDTO msg = qaMessageService.addMessage(sessionId, "assistant", content, creatorUsername);
+                conversationMemory.updateSummaryAsync(sessionId);
                 emitter.send(SseEmitter.event().data(Map.of("messageId", msg.getId(), "done", true)));
                 emitter.complete();
             } catch (Exception e) {
+                if (e instanceof LlmGatewayService.LlmCallException call && call.isCallerAborted()) {
+                    saveStopped(emitter, writer, sessionId, received.toString(), creatorUsername);
+                    return;
+                }
+                writer.close();
                 log.warn("智能问答-流式调用失败: sessionId={}, error={}", sessionId, e.getMessage());
                 String err = "大模型调用异常，请稍后重试。";
                 try {
@@ -218,37 +168,59 @@ public class SmartQaChatService {
         return emitter;
     }
 
-    private void sendStreamDone(SseEmitter emitter, String content, String messageId) {
+    /**
+     * 停止当前用户在该会话上进行中的流式回复（仅作用于本副本）
+     *
+     * @return 是否存在进行中的流
+     */
+    public boolean stopStream(String sessionId, String creatorUsername) {
+        boolean owned = qaSessionRepository.findById(sessionId)
+                .filter(s -> creatorUsername.equals(s.getCreatorUsername()))
+                .isPresent();
+        if (!owned) {
+            throw new IllegalArgumentException("会话不存在或无权操作");
+        }
+        return streamRegistry.stop(streamKey(sessionId));
+    }
+
+    private static String streamKey(String sessionId) {
+        return "qa:" + sessionId;
+    }
+
+    /** 流被中止：保存已收到的内容，连接仍可用时（主动停止）推送结束事件 */
+    private void saveStopped(SseEmitter emitter, SseTokenWriter writer, String sessionId, String received,
+                             String creatorUsername) {
+        log.info("智能问答-流式回复已中止: sessionId={}, 已接收字符={}", sessionId, received.length());
         try {
-            emitter.send(SseEmitter.event().data(Map.of("content", content)));
-            emitter.send(SseEmitter.event().data(Map.of("messageId", messageId, "done", true)));
+            QaMessageDTO msg = qaMessageService.addMessage(sessionId, "assistant",
+                    received.isBlank() ? STOPPED_SUFFIX.trim() : received + STOPPED_SUFFIX, creatorUsername);
+            conversationMemory.updateSummaryAsync(sessionId);
+            writer.flush();
+            emitter.send(SseEmitter.event().data(Map.of("messageId", msg.getId(), "done", true, "stopped", true)));
             emitter.complete();
         } catch (Exception e) {
+            // 前端已断开
             emitter.completeWithError(e);
         }
     }
 
-    private void sendStreamError(SseEmitter emitter, String message) {
+    private void sendStreamDone(SseEmitter emitter, String content, String messageId) {
         try {
-            emitter.send(SseEmitter.event().data(Map.of("error", message)));
+            emitter.send(SseEmitter.event().data(Map.of("content", content)));
+            emitter.send(SseEmitter.event().data(Map.of("messageId", messageId, "done", true)));
             emitter.complete();
         } catch (Exception e) {
             emitter.completeWithError(e);
         }
     }
 
-    /** 从 OpenAI 流式响应 data 行中解析 delta.content */
-    private String extractDeltaContent(String dataJson) {
+    private void sendStreamError(SseEmitter emitter, String message) {
         try {
-            JsonNode root = objectMapper.readTree(dataJson);
-            JsonNode choices = root.path("choices");
-            if (choices.isArray() && choices.size() > 0) {
-                return choices.get(0).path("delta").path("content").asText(null);
-            }
+            emitter.send(SseEmitter.event().data(Map.of("error", message)));
+            emitter.complete();
         } catch (Exception e) {
-            // ignore
+            emitter.completeWithError(e);
         }
-        return null;
     }
 
     private List<QaChunk> retrieveTopChunks(List<QaChunk> chunks, String query, int topK) {
@@ -307,47 +279,15 @@ public class SmartQaChatService {
         return dot / (Math.sqrt(na) * Math.sqrt(nb));
     }
 
+    /**
+     * 组装提示词：知识库参考内容 + 会话记忆（滚动摘要与历史窗口内的消息，已包含本轮问题）。
+     * 调用方已校验会话归属。
+     */
     private List<Map<String, String>> buildMessages(String sessionId, String creatorUsername, String userContent, String context) {
-        List<QaMessageDTO> history = qaMessageService.listBySession(sessionId, creatorUsername);
-        int from = Math.max(0, history.size() - HISTORY_MESSAGES_LIMIT);
         List<Map<String, String>> messages = new ArrayList<>();
         String systemContent = RAG_SYSTEM_PROMPT + "\n\n【参考知识库内容】\n" + (context != null && !context.isBlank() ? context : "（暂无相关内容）");
         messages.add(Map.of("role", "system", "content", systemContent));
-        for (int i = from; i < history.size(); i++) {
-            var m = history.get(i);
-            messages.add(Map.of("role", m.getRole(), "content", m.getContent() != null ? m.getContent() : ""));
-        }
+        messages.addAll(conversationMemory.historyMessages(sessionId));
         return messages;
     }
-
-    private String extractContentFromChatResponse(String body) {
-        try {
-            JsonNode root = objectMapper.readTree(body);
-            JsonNode choices = root.path("choices");
-            if (choices.isArray() && choices.size() > 0) {
-                return choices.get(0).path("message").path("content").asText("");
-            }
-        } catch (Exception e) {
-            log.warn("解析 chat 响应失败: {}", e.getMessage());
-        }
-        return null;
-    }
-
-    private String resolveLlmBaseUrl() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmBaseUrl() != null && !cfg.getLlmBaseUrl().isBlank()) return cfg.getLlmBaseUrl().trim();
-        return bailianProperties.getBaseUrl() != null ? bailianProperties.getBaseUrl() : "";
-    }
-
-    private String resolveLlmApiKey() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmApiKey() != null && !cfg.getLlmApiKey().isBlank()) return cfg.getLlmApiKey();
-        return bailianProperties.getApiKey() != null ? bailianProperties.getApiKey() : "";
-    }
-
-    private String resolveLlmModel() {
-        SystemConfigDTO cfg = systemConfigService.getConfig();
-        if (cfg.getLlmModel() != null && !cfg.getLlmModel().isBlank()) return cfg.getLlmModel().trim();
-        return bailianProperties.getModel() != null ? bailianProperties.getModel() : "qwen-plus";
-    }
 }
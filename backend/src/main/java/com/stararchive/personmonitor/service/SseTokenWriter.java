@@ -0,0 +1,177 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 大模型流式输出的 SSE 写入器：把逐 token 的增量合并成帧后再发送，帧格式仍为 data: {"content":"..."}。
+ * <ul>
+ *   <li>累计字符数达到上限或距上次发送超过合并窗口时立即发送，否则窗口到期时由定时器交给发送线程池发送
+ *       （定时器线程只做转交，不执行阻塞的 send，一个慢客户端不会拖住其他流的定时发送）；
+ *       同一流已有发送在进行时跳过本次定时发送，窗口后再试，每个流同时最多占用一个发送线程；</li>
+ *   <li>帧直接拼接 JSON 字符串，不为每个增量创建 Map 与走 Jackson 序列化；</li>
+ *   <li>发送在调用线程中同步进行，客户端慢时读取上游的线程随之阻塞（背压传导到上游连接）；
+ *       单帧发送耗时超过慢发送阈值时合并窗口与帧长翻倍（最多 {@link #MAX_SCALE} 倍），恢复后逐步回落。</li>
+ * </ul>
+ * 发送失败（如客户端断开）后，后续 append / flush 抛出同一 IOException。
+ */
+public final class SseTokenWriter {
+
+    static final int MAX_SCALE = 8;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sse-token-timer");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final AtomicInteger FLUSHER_SEQ = new AtomicInteger();
+    private static final ExecutorService FLUSHER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "sse-token-flusher-" + FLUSHER_SEQ.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    private static final JsonStringEncoder JSON = JsonStringEncoder.getInstance();
+
+    private final SseEmitter emitter;
+    private final long windowMs;
+    private final int maxChars;
+    private final long slowSendMs;
+
+    private final StringBuilder pending = new StringBuilder();
+    /** 保证帧按顺序发送；定时器拿不到锁时说明正有线程在发送，稍后重试 */
+    private final ReentrantLock sendLock = new ReentrantLock(true);
+    private int scale = 1;
+    private long lastFlushNanos = System.nanoTime();
+    private ScheduledFuture<?> timer;
+    private boolean closed;
+    private volatile IOException failure;
+    private volatile int frames;
+
+    public SseTokenWriter(SseEmitter emitter, long windowMs, int maxChars, long slowSendMs) {
+        this.emitter = emitter;
+        this.windowMs = Math.max(1, windowMs);
+        this.maxChars = Math.max(1, maxChars);
+        this.slowSendMs = slowSendMs;
+    }
+
+    /** 追加一个增量；满足帧长或窗口条件时在当前线程发送 */
+    public void append(String delta) throws IOException {
+        throwIfFailed();
+        if (delta == null || delta.isEmpty()) return;
+        boolean sendNow;
+        synchronized (this) {
+            if (closed) return;
+            pending.append(delta);
+            long elapsed = elapsedMs(lastFlushNanos);
+            long window = windowMs * scale;
+            sendNow = pending.length() >= maxChars * scale || elapsed >= window;
+            if (!sendNow && timer == null) schedule(window - elapsed);
+        }
+        if (sendNow) flush();
+    }
+
+    /** 立即发送已合并的内容（发送结束事件前调用） */
+    public void flush() throws IOException {
+        sendLock.lock();
+        try {
+            sendPending();
+        } finally {
+            sendLock.unlock();
+        }
+        throwIfFailed();
+    }
+
+    /** 停止定时发送并丢弃未发送的内容 */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            pending.setLength(0);
+            cancelTimer();
+        }
+    }
+
+    /** 已发送的帧数 */
+    public int frames() {
+        return frames;
+    }
+
+    private void flushFromTimer() {
+        synchronized (this) {
+            timer = null;
+            if (closed) return;
+        }
+        if (!sendLock.tryLock()) {
+            synchronized (this) {
+                if (!closed && timer == null && pending.length() > 0) schedule(windowMs * scale);
+            }
+            return;
+        }
+        try {
+            sendPending();
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /** 须持有 sendLock */
+    private void sendPending() {
+        if (failure != null) return;
+        String text;
+        synchronized (this) {
+            cancelTimer();
+            if (pending.length() == 0) return;
+            text = pending.toString();
+            pending.setLength(0);
+        }
+        long start = System.nanoTime();
+        try {
+            emitter.send(SseEmitter.event().data(frame(text), MediaType.APPLICATION_JSON));
+            frames++;
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            // emitter 已完成（超时或断开）
+            failure = new IOException("SSE 连接已关闭: " + e.getMessage(), e);
+        }
+        long took = elapsedMs(start);
+        synchronized (this) {
+            lastFlushNanos = System.nanoTime();
+            scale = took >= slowSendMs ? Math.min(MAX_SCALE, scale * 2) : Math.max(1, scale / 2);
+        }
+    }
+
+    /** 须持有 this 的监视器；到期时定时器线程只把发送转交给发送线程池 */
+    private void schedule(long delayMs) {
+        timer = TIMER.schedule(() -> FLUSHER.execute(this::flushFromTimer), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelTimer() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure;
+        if (e != null) throw e;
+    }
+
+    static String frame(String text) {
+        return "{\"content\":\"" + new String(JSON.quoteAsString(text)) + "\"}";
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
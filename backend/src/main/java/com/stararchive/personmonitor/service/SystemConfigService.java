@@ -5,16 +5,28 @@ import com.stararchive.personmonitor.entity.SystemConfig;
 import com.stararchive.personmonitor.repository.SystemConfigRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 
 /**
- * 系统配置服务（key-value 读写，组装 DTO）
+ * 系统配置服务（key-value 读写，组装 DTO）。
+ * <p>
+ * 配置以快照缓存在内存中，读取不查库、只复制一份 DTO（快照本身不对外暴露，调用方修改返回值不影响其他读取方）：
+ * 本实例更新后在事务提交时整体替换快照；
+ * 其他副本通过定时比对 config_version 行（每次更新写入新值）发现变更并重新加载。
+ * 快照变化时发布 {@link ConfigChangedEvent}。
  */
 @Slf4j
 @Service
@@ -58,15 +70,41 @@ public class SystemConfigService {
                     + "请严格以 JSON 格式返回，**只返回一个 JSON 对象**，直接包含 JSON Schema 中定义的字段（不要包在 persons 数组里）。字符串用双引号，数组用 []。";
     private static final String KEY_ONLYOFFICE_DOCUMENT_SERVER_URL = "onlyoffice_document_server_url";
     private static final String KEY_ONLYOFFICE_DOCUMENT_DOWNLOAD_BASE = "onlyoffice_document_download_base";
+    /** 配置版本：每次更新写入新值，各副本据此判断是否需要重新加载 */
+    private static final String KEY_CONFIG_VERSION = "config_version";
 
     private final SystemConfigRepository systemConfigRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** 兜底全量重新加载间隔（毫秒），覆盖直接改库未更新 config_version 的情况 */
+    @Value("${system-config.full-reload-interval-ms:600000}")
+    private long fullReloadIntervalMs = 600_000;
+
+    private volatile Snapshot snapshot;
+
+    /** 配置快照：DTO 只在本类内部持有，对外一律返回副本 */
+    private record Snapshot(String version, SystemConfigDTO config, long loadedAtMillis) {
+    }
+
+    /** 配置快照发生变化（本实例更新或其他副本更新后重新加载） */
+    public record ConfigChangedEvent(SystemConfigDTO config) {
+    }
 
     /**
-     * 获取完整配置（供管理端编辑）
+     * 获取完整配置（供管理端编辑）。返回内存快照的副本，调用方可自由修改。
      */
     public SystemConfigDTO getConfig() {
-        Map<String, String> map = getAllAsMap();
-        return toDTO(map);
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current.config().toBuilder().build();
     }
 
     /**
@@ -107,6 +145,9 @@ public class SystemConfigService {
         map.put(KEY_ONLYOFFICE_DOCUMENT_SERVER_URL, dto.getOnlyofficeDocumentServerUrl() != null ? dto.getOnlyofficeDocumentServerUrl().trim() : "");
         map.put(KEY_ONLYOFFICE_DOCUMENT_DOWNLOAD_BASE, dto.getOnlyofficeDocumentDownloadBase() != null ? dto.getOnlyofficeDocumentDownloadBase().trim() : "");
 
+        String version = UUID.randomUUID().toString();
+        map.put(KEY_CONFIG_VERSION, version);
+
         LocalDateTime now = LocalDateTime.now();
         for (Map.Entry<String, String> e : map.entrySet()) {
             SystemConfig entity = systemConfigRepository.findById(e.getKey())
@@ -115,8 +156,58 @@ public class SystemConfigService {
             entity.setUpdatedTime(now);
             systemConfigRepository.save(entity);
         }
-        log.info("系统配置已更新");
-        return getConfig();
+        // 全部配置项均已写入，直接由写入值构建新快照，事务提交后替换
+        Snapshot updated = new Snapshot(version, toDTO(map), System.currentTimeMillis());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    swap(updated);
+                }
+            });
+        } else {
+            swap(updated);
+        }
+        log.info("系统配置已更新: version={}", version);
+        return updated.config().toBuilder().build();
+    }
+
+    /**
+     * 定时比对 config_version，其他副本更新过配置时重新加载快照；超过兜底间隔时无条件重新加载。
+     */
+    @Scheduled(fixedDelayString = "${system-config.refresh-interval-ms:5000}")
+    public void refreshIfChanged() {
+        Snapshot current = snapshot;
+        if (current == null) return;
+        try {
+            boolean expired = System.currentTimeMillis() - current.loadedAtMillis() >= fullReloadIntervalMs;
+            if (!expired) {
+                String version = systemConfigRepository.findById(KEY_CONFIG_VERSION)
+                        .map(SystemConfig::getConfigValue)
+                        .orElse(null);
+                if (Objects.equals(version, current.version())) return;
+                log.info("系统配置版本变化，重新加载: {} -> {}", current.version(), version);
+            }
+            swap(load());
+        } catch (Exception e) {
+            log.warn("系统配置刷新失败，继续使用当前快照: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot load() {
+        Map<String, String> map = getAllAsMap();
+        return new Snapshot(map.get(KEY_CONFIG_VERSION), toDTO(map), System.currentTimeMillis());
+    }
+
+    private void swap(Snapshot updated) {
+        Snapshot previous;
+        synchronized (this) {
+            previous = snapshot;
+            snapshot = updated;
+        }
+        if (previous == null || !Objects.equals(previous.config(), updated.config())) {
+            eventPublisher.publishEvent(new ConfigChangedEvent(updated.config().toBuilder().build()));
+        }
     }
 
     private Map<String, String> getAllAsMap() {
@@ -0,0 +1,101 @@
+package com.stararchive.personmonitor.scheduler;
+
+import com.stararchive.personmonitor.common.UpdatedTimeCursor;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import com.stararchive.personmonitor.service.PersonPortraitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * PersonPortraitPregenScheduler 单元测试
+ */
+class PersonPortraitPregenSchedulerTest {
+
+    @Mock
+    private PersonRepository personRepository;
+
+    @Mock
+    private PersonPortraitService personPortraitService;
+
+    @InjectMocks
+    private PersonPortraitPregenScheduler scheduler;
+
+    private final Person p1 = person("p1", LocalDateTime.of(2024, 1, 1, 8, 0));
+    private final Person p2 = person("p2", LocalDateTime.of(2024, 1, 1, 9, 0));
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(personPortraitService.isGenerationAvailable()).thenReturn(true);
+        // 游标起点返回 p1、p2；越过 p1 后只返回 p2；越过 p2 后为空
+        when(personRepository.findKeyPersonsUpdatedBetween(eq(UpdatedTimeCursor.EPOCH), eq(""), any(), anyInt()))
+                .thenReturn(List.of(p1, p2));
+        when(personRepository.findKeyPersonsUpdatedBetween(eq(p1.getUpdatedTime()), eq("p1"), any(), anyInt()))
+                .thenReturn(List.of(p2));
+        when(personRepository.findKeyPersonsUpdatedBetween(eq(p2.getUpdatedTime()), eq("p2"), any(), anyInt()))
+                .thenReturn(List.of());
+    }
+
+    @Test
+    void testFailedPersonIsRetriedOnNextRun() {
+        when(personPortraitService.pregeneratePortrait(p1))
+                .thenThrow(new RuntimeException("LLM 调用超时"))
+                .thenReturn(true);
+        when(personPortraitService.pregeneratePortrait(p2)).thenReturn(true);
+
+        scheduler.pregenerate();
+
+        // 失败后本轮停止，游标未越过 p1，p2 留到下一轮
+        verify(personPortraitService, never()).pregeneratePortrait(p2);
+
+        scheduler.pregenerate();
+
+        verify(personRepository, times(2))
+                .findKeyPersonsUpdatedBetween(eq(UpdatedTimeCursor.EPOCH), eq(""), any(), anyInt());
+        verify(personPortraitService, times(2)).pregeneratePortrait(p1);
+        verify(personPortraitService, times(1)).pregeneratePortrait(p2);
+
+        scheduler.pregenerate();
+
+        verify(personRepository).findKeyPersonsUpdatedBetween(eq(p2.getUpdatedTime()), eq("p2"), any(), anyInt());
+    }
+
+    @Test
+    void testPersonIsSkippedAfterMaxAttempts() {
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", 2);
+        when(personPortraitService.pregeneratePortrait(p1)).thenThrow(new RuntimeException("LLM 调用超时"));
+        when(personPortraitService.pregeneratePortrait(p2)).thenReturn(true);
+
+        scheduler.pregenerate();
+        verify(personPortraitService, never()).pregeneratePortrait(p2);
+
+        scheduler.pregenerate();
+
+        // 第 2 次失败后越过 p1，同一轮继续处理 p2
+        verify(personPortraitService, times(2)).pregeneratePortrait(p1);
+        verify(personPortraitService, times(1)).pregeneratePortrait(p2);
+        UpdatedTimeCursor<?> cursor = (UpdatedTimeCursor<?>) ReflectionTestUtils.getField(scheduler, "cursor");
+        assertEquals(p2.getUpdatedTime(), cursor.time());
+    }
+
+    private static Person person(String id, LocalDateTime updatedTime) {
+        Person p = new Person();
+        p.setPersonId(id);
+        p.setUpdatedTime(updatedTime);
+        return p;
+    }
+}
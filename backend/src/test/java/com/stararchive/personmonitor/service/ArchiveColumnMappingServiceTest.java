@@ -0,0 +1,106 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.entity.ArchiveColumnMapping;
+import com.stararchive.personmonitor.repository.ArchiveColumnMappingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * ArchiveColumnMappingService 单元测试：表头自动识别、已保存模板优先、行值规范化
+ */
+class ArchiveColumnMappingServiceTest {
+
+    @Mock
+    private ArchiveColumnMappingRepository mappingRepository;
+
+    private ArchiveColumnMappingService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mappingRepository.findById(anyString())).thenReturn(Optional.empty());
+        service = new ArchiveColumnMappingService(mappingRepository, new ObjectMapper());
+    }
+
+    @Test
+    void resolve_detectsChineseAndEnglishHeaders() {
+        List<String> headers = List.of("姓名", "身份证号", "出生日期", "性别", "phone", "个人简介");
+
+        ArchiveColumnMappingService.ColumnMapping mapping = service.resolve(headers);
+
+        assertFalse(mapping.saved());
+        assertTrue(mapping.isFastPathEligible());
+        assertEquals("original_name", mapping.fieldAt(0));
+        assertEquals("id_card_number", mapping.fieldAt(1));
+        assertEquals("birth_date", mapping.fieldAt(2));
+        assertEquals("gender", mapping.fieldAt(3));
+        assertEquals("phone_numbers", mapping.fieldAt(4));
+        assertNull(mapping.fieldAt(5));
+    }
+
+    @Test
+    void toPersonMap_normalizesValuesAndKeepsFreeTextForLlm() {
+        ArchiveColumnMappingService.ColumnMapping mapping =
+                service.resolve(List.of("姓名", "出生日期", "性别", "手机", "个人简介"));
+
+        List<String> cells = Arrays.asList("张三", "1990/1/2", "M", "13800000000；13900000000", "曾在某公司任职");
+        Map<String, Object> person = service.toPersonMap(mapping, cells);
+
+        assertEquals("张三", person.get("original_name"));
+        assertEquals("张三", person.get("chinese_name"));
+        assertEquals("1990-01-02", person.get("birth_date"));
+        assertEquals("男", person.get("gender"));
+        assertEquals(List.of("13800000000", "13900000000"), person.get("phone_numbers"));
+        assertEquals("个人简介: 曾在某公司任职", service.unmappedText(mapping, cells));
+        assertEquals("", service.unmappedText(mapping, Arrays.asList("李四", null, "女", "", " ")));
+    }
+
+    @Test
+    void normalizeDate_resolvesTwoDigitYearsIntoThePast() {
+        int year = LocalDate.now().getYear();
+        assertEquals("1985-03-04", ArchiveColumnMappingService.normalizeDate("3/4/85"));
+        assertEquals(year + "-01-02", ArchiveColumnMappingService.normalizeDate("1/2/" + String.format("%02d", year % 100)));
+        assertEquals((year - 99) + "-01-02",
+                ArchiveColumnMappingService.normalizeDate("1/2/" + String.format("%02d", (year + 1) % 100)));
+        assertEquals("2001-12-31", ArchiveColumnMappingService.normalizeDate("2001/12/31 00:00:00"));
+        assertEquals("未知", ArchiveColumnMappingService.normalizeDate("未知"));
+    }
+
+    @Test
+    void resolve_prefersSavedTemplate() {
+        List<String> headers = List.of("姓名", "备注");
+        when(mappingRepository.findById(ArchiveColumnMappingService.templateKey(headers))).thenReturn(Optional.of(
+                ArchiveColumnMapping.builder()
+                        .templateKey(ArchiveColumnMappingService.templateKey(headers))
+                        .mappingJson("{\"姓名\":\"chinese_name\",\"备注\":\"_ignore\"}")
+                        .build()));
+
+        ArchiveColumnMappingService.ColumnMapping mapping = service.resolve(headers);
+
+        assertTrue(mapping.saved());
+        assertEquals("chinese_name", mapping.fieldAt(0));
+        assertEquals(ArchiveColumnMappingService.IGNORE, mapping.fieldAt(1));
+        Map<String, Object> person = service.toPersonMap(mapping, List.of("王五", "无需抽取"));
+        assertEquals("王五", person.get("original_name"));
+        assertEquals("", service.unmappedText(mapping, List.of("王五", "无需抽取")));
+    }
+
+    @Test
+    void save_rejectsUnknownField() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.save(List.of("姓名"), Map.of("姓名", "unknown_field"), "admin"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.entity.ArchiveExtractCache;
+import com.stararchive.personmonitor.repository.ArchiveExtractCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * ArchiveExtractCacheService 单元测试：缓存键组成与读写往返
+ */
+class ArchiveExtractCacheServiceTest {
+
+    @Mock
+    private ArchiveExtractCacheRepository cacheRepository;
+
+    private ArchiveExtractCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new ArchiveExtractCacheService(cacheRepository, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "enabled", true);
+    }
+
+    @Test
+    void key_dependsOnTextPromptSchemaAndModel() {
+        ArchiveExtractCacheService.Key base = ArchiveExtractCacheService.Key.of("姓名: 张三", "prompt", "{}", "qwen");
+
+        assertEquals(base.cacheKey(), ArchiveExtractCacheService.Key.of("姓名: 张三", "prompt", "{}", "qwen").cacheKey());
+        assertNotEquals(base.cacheKey(), ArchiveExtractCacheService.Key.of("姓名: 李四", "prompt", "{}", "qwen").cacheKey());
+        assertNotEquals(base.cacheKey(), ArchiveExtractCacheService.Key.of("姓名: 张三", "prompt v2", "{}", "qwen").cacheKey());
+        assertNotEquals(base.cacheKey(), ArchiveExtractCacheService.Key.of("姓名: 张三", "prompt", "{\"a\":1}", "qwen").cacheKey());
+        assertNotEquals(base.cacheKey(), ArchiveExtractCacheService.Key.of("姓名: 张三", "prompt", "{}", "deepseek").cacheKey());
+    }
+
+    @Test
+    void putThenGet_returnsStoredPerson() {
+        ArchiveExtractCacheService.Key key = ArchiveExtractCacheService.Key.of("姓名: 张三", "prompt", "{}", "qwen");
+        Map<String, Object> person = new LinkedHashMap<>();
+        person.put("original_name", "张三");
+        person.put("person_tags", List.of("高消费"));
+
+        service.put(key, person);
+        ArgumentCaptor<ArchiveExtractCache> saved = ArgumentCaptor.forClass(ArchiveExtractCache.class);
+        verify(cacheRepository).save(saved.capture());
+        assertEquals(key.cacheKey(), saved.getValue().getCacheKey());
+        when(cacheRepository.findById(key.cacheKey())).thenReturn(Optional.of(saved.getValue()));
+
+        Optional<Map<String, Object>> hit = service.get(key);
+
+        assertTrue(hit.isPresent());
+        assertEquals("张三", hit.get().get("original_name"));
+        assertEquals(List.of("高消费"), hit.get().get("person_tags"));
+    }
+
+    @Test
+    void disabled_skipsRepository() {
+        ReflectionTestUtils.setField(service, "enabled", false);
+        ArchiveExtractCacheService.Key key = ArchiveExtractCacheService.Key.of("t", "p", "s", "m");
+
+        assertTrue(service.get(key).isEmpty());
+        service.put(key, Map.of("original_name", "张三"));
+        verify(cacheRepository, never()).save(any());
+        verify(cacheRepository, never()).findById(any());
+    }
+}
@@ -0,0 +1,95 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.dto.ArchiveTaskProgressDTO;
+import com.stararchive.personmonitor.entity.ArchiveImportTask;
+import com.stararchive.personmonitor.repository.ArchiveImportTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ArchiveTaskProgressBus 单元测试：相同进度不重复推送、库中落后的进度不回退、其他副本完成的任务推送最终状态
+ */
+class ArchiveTaskProgressBusTest {
+
+    @Mock
+    private ArchiveImportTaskRepository taskRepository;
+
+    private ArchiveTaskProgressBus bus;
+    private SseEmitter emitter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bus = new ArchiveTaskProgressBus(taskRepository);
+        emitter = mock(SseEmitter.class);
+        Map<String, List<SseEmitter>> emitters =
+                (Map<String, List<SseEmitter>>) ReflectionTestUtils.getField(bus, "emittersByUser");
+        emitters.put("alice", new CopyOnWriteArrayList<>(List.of(emitter)));
+    }
+
+    @Test
+    void publish_skipsUnchangedProgress() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        bus.publish(progress("t1", "EXTRACTING", 3, now));
+        bus.publish(progress("t1", "EXTRACTING", 3, now.plusSeconds(1)));
+        bus.publish(progress("t1", "EXTRACTING", 4, now.plusSeconds(2)));
+
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void syncFromDatabase_ignoresStaleRowAndPushesFinalStatus() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        bus.publish(progress("t1", "EXTRACTING", 10, now));
+        // 库中进度按合并间隔写入，落后于已推送的进度
+        when(taskRepository.findByCreatorUsernameAndStatusIn(eq("alice"), anyCollection()))
+                .thenReturn(List.of(task("t1", "EXTRACTING", 8, now.minusSeconds(1))));
+        bus.syncFromDatabase();
+        verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+
+        // 任务在其他副本完成：不再出现在进行中列表，读取最终状态推送
+        when(taskRepository.findByCreatorUsernameAndStatusIn(eq("alice"), anyCollection())).thenReturn(List.of());
+        when(taskRepository.findAllById(List.of("t1"))).thenReturn(List.of(task("t1", "SUCCESS", 12, now.plusSeconds(5))));
+        bus.syncFromDatabase();
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+
+        // 已结束的任务不再重复同步
+        bus.syncFromDatabase();
+        verify(taskRepository, times(1)).findAllById(any());
+    }
+
+    private static ArchiveTaskProgressDTO progress(String taskId, String status, int extractCount, LocalDateTime time) {
+        return ArchiveTaskProgressDTO.builder()
+                .taskId(taskId)
+                .status(status)
+                .extractCount(extractCount)
+                .totalExtractCount(20)
+                .creatorUsername("alice")
+                .updatedTime(time)
+                .build();
+    }
+
+    private static ArchiveImportTask task(String taskId, String status, int extractCount, LocalDateTime time) {
+        return ArchiveImportTask.builder()
+                .taskId(taskId)
+                .status(status)
+                .extractCount(extractCount)
+                .totalExtractCount(20)
+                .creatorUsername("alice")
+                .updatedTime(time)
+                .build();
+    }
+}
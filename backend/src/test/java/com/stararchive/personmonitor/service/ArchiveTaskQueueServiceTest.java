@@ -0,0 +1,149 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.entity.ArchiveImportTask;
+import com.stararchive.personmonitor.repository.ArchiveImportTaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ArchiveTaskQueueService 单元测试：按用户公平领取、回读确认落败、续约失败停止本实例执行、停机先等工作线程再释放租约
+ */
+class ArchiveTaskQueueServiceTest {
+
+    @Mock
+    private ArchiveImportTaskRepository taskRepository;
+
+    @Mock
+    private ArchiveExtractionAsyncExecutor extractionExecutor;
+
+    private ArchiveTaskQueueService queueService;
+
+    /** 让工作线程中的提取保持运行，避免任务结束后自动再次拉取 */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        queueService = new ArchiveTaskQueueService(taskRepository, extractionExecutor);
+        ReflectionTestUtils.setField(queueService, "enabled", true);
+        ReflectionTestUtils.setField(queueService, "maxConcurrentTasks", 1);
+        ReflectionTestUtils.setField(queueService, "leaseSeconds", 90);
+        ReflectionTestUtils.setField(queueService, "configuredInstanceId", "pod-1");
+        ReflectionTestUtils.setField(queueService, "shutdownWaitSeconds", 5);
+        doAnswer(inv -> {
+            release.await();
+            return null;
+        }).when(extractionExecutor).executeExtraction(anyString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(queueService, "enabled", false);
+        release.countDown();
+    }
+
+    @Test
+    void pollAndDispatch_prefersUserWithFewestRunningTasks() {
+        LocalDateTime now = LocalDateTime.now();
+        ArchiveImportTask aRunning = task("a1", "alice", now.minusMinutes(30), now.plusSeconds(60));
+        ArchiveImportTask aQueued = task("a2", "alice", now.minusMinutes(20), null);
+        ArchiveImportTask bQueued = task("b1", "bob", now.minusMinutes(10), null);
+        when(taskRepository.findByStatusInOrderByCreatedTimeAsc(anyCollection(), any()))
+                .thenReturn(List.of(aRunning, aQueued, bQueued));
+        when(taskRepository.tryAcquireLease(anyString(), eq("pod-1"), any(), any())).thenReturn(1);
+        when(taskRepository.findLeaseOwner(anyString())).thenReturn("pod-1");
+
+        int claimed = queueService.pollAndDispatch();
+
+        assertEquals(1, claimed);
+        verify(taskRepository).tryAcquireLease(eq("b1"), eq("pod-1"), any(), any());
+        verify(taskRepository, never()).tryAcquireLease(eq("a1"), anyString(), any(), any());
+        verify(taskRepository, never()).tryAcquireLease(eq("a2"), anyString(), any(), any());
+        verify(extractionExecutor, timeout(1000)).executeExtraction("b1");
+    }
+
+    @Test
+    void pollAndDispatch_lostRaceOnReadBack_doesNotDispatch() {
+        ArchiveImportTask queued = task("t1", "alice", LocalDateTime.now(), null);
+        when(taskRepository.findByStatusInOrderByCreatedTimeAsc(anyCollection(), any())).thenReturn(List.of(queued));
+        when(taskRepository.tryAcquireLease(eq("t1"), eq("pod-1"), any(), any())).thenReturn(1);
+        when(taskRepository.findLeaseOwner("t1")).thenReturn("pod-2");
+
+        assertEquals(0, queueService.pollAndDispatch());
+        verify(extractionExecutor, never()).executeExtraction(anyString());
+    }
+
+    @Test
+    void heartbeat_renewFailure_requestsStop() {
+        ArchiveImportTask queued = task("t1", "alice", LocalDateTime.now(), null);
+        when(taskRepository.findByStatusInOrderByCreatedTimeAsc(anyCollection(), any())).thenReturn(List.of(queued));
+        when(taskRepository.tryAcquireLease(eq("t1"), eq("pod-1"), any(), any())).thenReturn(1);
+        when(taskRepository.findLeaseOwner("t1")).thenReturn("pod-1");
+        queueService.pollAndDispatch();
+        when(taskRepository.renewLease(eq("t1"), eq("pod-1"), any())).thenReturn(0);
+
+        queueService.heartbeat();
+
+        verify(extractionExecutor).requestStop("t1");
+    }
+
+    @Test
+    void releaseAll_waitsForWorkerToStopBeforeReleasingLeases() {
+        claimRunning("t1");
+        doAnswer(inv -> {
+            release.countDown();
+            return null;
+        }).when(extractionExecutor).requestStop("t1");
+
+        queueService.releaseAll();
+
+        // 工作线程停下后自行释放租约，且不再拉取新任务；releaseAll 不重复释放
+        verify(extractionExecutor).requestStop("t1");
+        verify(taskRepository, times(1)).releaseLease("t1", "pod-1");
+        verify(taskRepository, times(1)).findByStatusInOrderByCreatedTimeAsc(anyCollection(), any());
+        assertEquals(0, queueService.pollAndDispatch());
+    }
+
+    @Test
+    void releaseAll_releasesLeaseStillHeldAfterWaitTimesOut() {
+        ReflectionTestUtils.setField(queueService, "shutdownWaitSeconds", 0);
+        claimRunning("t1");
+
+        queueService.releaseAll();
+
+        verify(extractionExecutor).requestStop("t1");
+        verify(taskRepository).releaseLease("t1", "pod-1");
+    }
+
+    /** 领取 taskId 并等待工作线程开始执行（执行阻塞在 release 上） */
+    private void claimRunning(String taskId) {
+        ArchiveImportTask queued = task(taskId, "alice", LocalDateTime.now(), null);
+        when(taskRepository.findByStatusInOrderByCreatedTimeAsc(anyCollection(), any())).thenReturn(List.of(queued));
+        when(taskRepository.tryAcquireLease(eq(taskId), eq("pod-1"), any(), any())).thenReturn(1);
+        when(taskRepository.findLeaseOwner(taskId)).thenReturn("pod-1");
+        assertEquals(1, queueService.pollAndDispatch());
+        verify(extractionExecutor, timeout(1000)).executeExtraction(taskId);
+    }
+
+    private static ArchiveImportTask task(String id, String user, LocalDateTime created, LocalDateTime leaseExpire) {
+        return ArchiveImportTask.builder()
+                .taskId(id)
+                .creatorUsername(user)
+                .status("PENDING")
+                .createdTime(created)
+                .leaseExpireTime(leaseExpire)
+                .build();
+    }
+}
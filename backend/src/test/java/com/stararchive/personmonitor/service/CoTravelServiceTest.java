@@ -0,0 +1,201 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.CoTravelProperties;
+import com.stararchive.personmonitor.dto.PersonCompanionDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.entity.PersonCoTravel;
+import com.stararchive.personmonitor.entity.PersonCoTravelState;
+import com.stararchive.personmonitor.entity.PersonTravel;
+import com.stararchive.personmonitor.repository.PersonCoTravelRepository;
+import com.stararchive.personmonitor.repository.PersonCoTravelStateRepository;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import com.stararchive.personmonitor.repository.PersonTravelRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CoTravelService 单元测试：同车次 / 同城时间窗连接、热点分组跳过、水位推进与同行人查询
+ */
+class CoTravelServiceTest {
+
+    @Mock
+    private PersonTravelRepository personTravelRepository;
+    @Mock
+    private PersonCoTravelRepository coTravelRepository;
+    @Mock
+    private PersonCoTravelStateRepository stateRepository;
+    @Mock
+    private PersonRepository personRepository;
+
+    private CoTravelService service;
+    private CoTravelProperties properties;
+    private final LocalDateTime day = LocalDateTime.of(2026, 10, 1, 0, 0);
+    private String leaseOwner;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new CoTravelProperties();
+        service = new CoTravelService(personTravelRepository, coTravelRepository, stateRepository, personRepository, properties);
+        when(personTravelRepository.findByTicketNumbersBetween(anyCollection(), any(), any())).thenReturn(List.of());
+        when(personTravelRepository.findByDestinationCitiesBetween(anyCollection(), any(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void detect_joinsSameTripByNormalizedTicketAndDate() {
+        PersonTravel fresh = travel(1, "p1", day.plusHours(8), "TRAIN", " g7000 ", "上海");
+        when(personTravelRepository.findByTicketNumbersBetween(anyCollection(), any(), any())).thenReturn(List.of(
+                fresh,
+                travel(2, "p2", day.plusHours(8), "TRAIN", "G7000", "上海"),
+                travel(3, "p3", day.plusDays(1).plusHours(8), "TRAIN", "G7000", "上海"),
+                travel(4, "p1", day.plusHours(8), "TRAIN", "G7000", "上海")));
+        when(personTravelRepository.findByDestinationCitiesBetween(anyCollection(), any(), any())).thenReturn(List.of(
+                fresh, travel(2, "p2", day.plusHours(8), "TRAIN", "G7000", "上海")));
+
+        assertEquals(1, service.detect(List.of(fresh)));
+
+        List<PersonCoTravel> rows = written();
+        assertEquals(Set.of("p1>p2:SAME_TRIP:TRAIN|G7000|2026-10-01", "p2>p1:SAME_TRIP:TRAIN|G7000|2026-10-01"), keys(rows));
+        assertEquals(2L, rows.stream().filter(r -> r.getPersonId().equals("p2")).findFirst().orElseThrow().getTravelId());
+        verify(coTravelRepository).refreshStats(Set.of("p1", "p2"));
+        // 候选按规范化后的票据编号读取，库中的 g7000 / " G7000 " 由查询侧 UPPER(TRIM()) 命中
+        verify(personTravelRepository).findByTicketNumbersBetween(eq(Set.of("G7000")), eq(day), eq(day.plusDays(1)));
+    }
+
+    @Test
+    void detect_joinsSameCityWithinWindowAcrossBuckets() {
+        properties.setCityWindowMinutes(360);
+        PersonTravel fresh = travel(10, "p1", day.plusHours(10), "FLIGHT", "CA1001", "上海");
+        when(personTravelRepository.findByDestinationCitiesBetween(anyCollection(), any(), any())).thenReturn(List.of(
+                travel(11, "p5", day.plusHours(14), "TRAIN", "G1", "上海"),
+                travel(12, "p6", day.plusHours(17), "TRAIN", "G2", "上海"),
+                travel(13, "p7", day.plusHours(10), "TRAIN", "G3", "北京"),
+                travel(14, "p8", day.plusHours(5), "CAR", null, " 上海 ")));
+
+        assertEquals(2, service.detect(List.of(fresh)));
+
+        Set<String> keys = keys(written());
+        assertTrue(keys.contains("p1>p5:SAME_CITY:上海|10|11"));
+        assertTrue(keys.contains("p8>p1:SAME_CITY:上海|10|14"));
+        assertEquals(4, keys.size());
+    }
+
+    @Test
+    void detect_skipsHotspotGroupsAndWritesNothingWithoutPairs() {
+        properties.setMaxGroupSize(2);
+        PersonTravel fresh = travel(1, "p1", day.plusHours(8), "FLIGHT", "MU5101", null);
+        when(personTravelRepository.findByTicketNumbersBetween(anyCollection(), any(), any())).thenReturn(List.of(
+                travel(2, "p2", day.plusHours(8), "FLIGHT", "MU5101", null),
+                travel(3, "p3", day.plusHours(8), "FLIGHT", "MU5101", null)));
+
+        assertEquals(0, service.detect(List.of(fresh)));
+        verify(coTravelRepository, never()).upsertBatch(anyList());
+        verify(coTravelRepository, never()).refreshStats(anyCollection());
+    }
+
+    @Test
+    void runOnce_advancesWatermarkBatchByBatchUnderLease() {
+        properties.setBatchSize(2);
+        PersonCoTravelState state = new PersonCoTravelState(CoTravelService.STATE_KEY, day, 5L, null, null, day);
+        stubLease(state);
+        when(stateRepository.advanceWatermark(anyString(), anyString(), any(), anyLong(), any())).thenReturn(1);
+        PersonTravel a = travel(6, "p1", day, "CAR", null, null);
+        PersonTravel b = travel(7, "p2", day, "CAR", null, null);
+        PersonTravel c = travel(8, "p3", day, "CAR", null, null);
+        c.setCreatedTime(day.plusMinutes(1));
+        when(personTravelRepository.findCreatedAfter(any(), anyLong(), any(), anyInt()))
+                .thenReturn(List.of(a, b))
+                .thenReturn(List.of(c));
+
+        assertEquals(3, service.runOnce());
+        verify(personTravelRepository).findCreatedAfter(eq(day), eq(5L), any(), eq(2));
+        verify(personTravelRepository).findCreatedAfter(eq(day), eq(7L), any(), eq(2));
+        verify(stateRepository).advanceWatermark(eq(CoTravelService.STATE_KEY), eq(leaseOwner), eq(day.plusMinutes(1)), eq(8L), any());
+
+        when(stateRepository.tryAcquireLease(anyString(), anyString(), any(), any())).thenReturn(0);
+        assertEquals(0, service.runOnce());
+    }
+
+    @Test
+    void companions_mapsRowsAndChecksVisibilityAndType() {
+        when(personRepository.findById("p1")).thenReturn(Optional.of(person("p1", true, null)));
+        when(personRepository.findById("p9")).thenReturn(Optional.of(person("p9", false, "alice")));
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"p2", "李四", "SAME_TRIP", 3L, Timestamp.valueOf(day), Timestamp.valueOf(day.plusDays(5))});
+        when(coTravelRepository.findCompanionsVisible("p1", "SAME_TRIP", 1, null, 200)).thenReturn(rows);
+
+        List<PersonCompanionDTO> result = service.companions("p1", "same_trip", 0, 1000, " ");
+        assertEquals(1, result.size());
+        assertEquals("李四", result.get(0).getName());
+        assertEquals(3, result.get(0).getCount());
+        assertEquals(day.plusDays(5), result.get(0).getLastTime());
+
+        assertThrows(IllegalArgumentException.class, () -> service.companions("p1", "SAME_BUS", 1, 10, null));
+        assertThrows(EntityNotFoundException.class, () -> service.companions("p9", null, 1, 10, null));
+        assertThrows(EntityNotFoundException.class, () -> service.companions("missing", null, 1, 10, null));
+        assertTrue(service.companions("p9", null, 1, 10, "alice").isEmpty());
+    }
+
+    private void stubLease(PersonCoTravelState state) {
+        when(stateRepository.existsById(CoTravelService.STATE_KEY)).thenReturn(true);
+        when(stateRepository.tryAcquireLease(eq(CoTravelService.STATE_KEY), anyString(), any(), any()))
+                .thenAnswer(inv -> {
+                    leaseOwner = inv.getArgument(1);
+                    return 1;
+                });
+        when(stateRepository.findLeaseOwner(CoTravelService.STATE_KEY)).thenAnswer(inv -> leaseOwner);
+        when(stateRepository.findById(CoTravelService.STATE_KEY)).thenReturn(Optional.of(state));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PersonCoTravel> written() {
+        ArgumentCaptor<List<PersonCoTravel>> captor = ArgumentCaptor.forClass(List.class);
+        verify(coTravelRepository).upsertBatch(captor.capture());
+        return captor.getValue();
+    }
+
+    /** 证据行统一为 “本人>同行人:类型:事件键” */
+    private static Set<String> keys(Collection<PersonCoTravel> rows) {
+        return rows.stream()
+                .map(r -> r.getPersonId() + ">" + r.getCompanionId() + ":" + r.getCoType() + ":" + r.getOccurKey())
+                .collect(Collectors.toSet());
+    }
+
+    private PersonTravel travel(long id, String personId, LocalDateTime eventTime, String type, String ticket, String city) {
+        PersonTravel t = new PersonTravel();
+        t.setTravelId(id);
+        t.setPersonId(personId);
+        t.setEventTime(eventTime);
+        t.setTravelType(type);
+        t.setTicketNumber(ticket);
+        t.setDestinationCity(city);
+        t.setCreatedTime(day);
+        return t;
+    }
+
+    private Person person(String id, boolean isPublic, String createdBy) {
+        Person p = new Person();
+        p.setPersonId(id);
+        p.setIsPublic(isPublic);
+        p.setCreatedBy(createdBy);
+        p.setDeleted(false);
+        return p;
+    }
+}
@@ -0,0 +1,196 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.EventClusterProperties;
+import com.stararchive.personmonitor.entity.Event;
+import com.stararchive.personmonitor.entity.EventAggregationState;
+import com.stararchive.personmonitor.entity.News;
+import com.stararchive.personmonitor.repository.EventAggregationStateRepository;
+import com.stararchive.personmonitor.repository.EventNewsRepository;
+import com.stararchive.personmonitor.repository.EventRepository;
+import com.stararchive.personmonitor.repository.NewsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * EventAggregationService 单元测试：按水位分批、归入进行中的事件、关闭不活跃事件、租约被占用时跳过
+ */
+class EventAggregationServiceTest {
+
+    @Mock
+    private NewsRepository newsRepository;
+    @Mock
+    private EventRepository eventRepository;
+    @Mock
+    private EventNewsRepository eventNewsRepository;
+    @Mock
+    private EventAggregationStateRepository stateRepository;
+    @Mock
+    private EventService eventService;
+    @Mock
+    private EventSummaryService eventSummaryService;
+
+    private EventAggregationService service;
+    private final EventAggregationState state = new EventAggregationState(EventAggregationService.STATE_KEY,
+            null, null, null, null, null);
+    private final LocalDateTime now = LocalDateTime.now();
+    private String leaseOwner;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new EventAggregationService(newsRepository, eventRepository, eventNewsRepository, stateRepository,
+                eventService, eventSummaryService, new NewsClusteringService(new EventClusterProperties()));
+        when(stateRepository.existsById(EventAggregationService.STATE_KEY)).thenReturn(true);
+        when(stateRepository.tryAcquireLease(eq(EventAggregationService.STATE_KEY), anyString(), any(), any()))
+                .thenAnswer(inv -> {
+                    leaseOwner = inv.getArgument(1);
+                    return 1;
+                });
+        when(stateRepository.findLeaseOwner(EventAggregationService.STATE_KEY)).thenAnswer(inv -> leaseOwner);
+        when(stateRepository.findById(EventAggregationService.STATE_KEY)).thenAnswer(inv -> Optional.of(state));
+        when(stateRepository.advanceWatermark(anyString(), anyString(), any(), anyString(), any())).thenReturn(1);
+        when(eventService.withoutLinkedNews(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(eventSummaryService.summarize(anyList(), anyBoolean())).thenAnswer(inv -> {
+            Map<String, String> summaries = new LinkedHashMap<>();
+            for (News n : (List<News>) inv.getArgument(0)) {
+                summaries.put(n.getNewsId(), n.getTitle());
+            }
+            return summaries;
+        });
+        when(eventRepository.findByStatus(Event.STATUS_OPEN)).thenReturn(List.of());
+    }
+
+    @Test
+    void runOnce_groupsSimilarNewsAndAdvancesWatermark() {
+        News n1 = news("n1", "北京朝阳区发生多车追尾事故，造成三人受伤", now.minusHours(3));
+        News n2 = news("n2", "上海市政府发布新的住房限购政策", now.minusHours(2));
+        News n3 = news("n3", "北京朝阳区发生多车追尾事故致三人受伤", now.minusHours(1));
+        when(newsRepository.findCreatedAfter(any(), anyString(), any(), anyInt())).thenReturn(List.of(n1, n2, n3));
+
+        assertEquals(3, service.runOnce());
+
+        List<Event> saved = savedEvents();
+        assertEquals(2, saved.size());
+        assertEquals(2, saved.get(0).getNewsCount());
+        assertEquals(n1.getPublishTime(), saved.get(0).getFirstPublishTime());
+        assertEquals(n3.getPublishTime(), saved.get(0).getLastPublishTime());
+        assertEquals(Event.STATUS_OPEN, saved.get(0).getStatus());
+        assertEquals(1, saved.get(1).getNewsCount());
+        verify(eventNewsRepository).upsertBatch(argThat(links ->
+                links.size() == 3 && links.get(2).getEventId().equals(saved.get(0).getEventId())));
+        verify(stateRepository).advanceWatermark(eq(EventAggregationService.STATE_KEY), eq(leaseOwner),
+                eq(n3.getCreatedTime()), eq("n3"), any());
+    }
+
+    @Test
+    void runOnce_resumesFromPersistedWatermarkAndAttachesToOpenEvent() {
+        LocalDateTime watermark = now.minusMinutes(10);
+        state.setWatermarkTime(watermark);
+        state.setWatermarkNewsId("n0");
+        Event open = event("evt-open", "上海市政府发布新的住房限购政策", now.minusHours(5));
+        when(eventRepository.findByStatus(Event.STATUS_OPEN)).thenReturn(List.of(open));
+        News n1 = news("n1", "上海市政府发布住房限购新政策", now.minusHours(1));
+        when(newsRepository.findCreatedAfter(eq(watermark), eq("n0"), any(), anyInt())).thenReturn(List.of(n1));
+        when(eventNewsRepository.countByEventIds(anyCollection())).thenReturn(linkCounts("evt-open", 3));
+
+        service.runOnce();
+
+        List<Event> saved = savedEvents();
+        assertEquals(1, saved.size());
+        assertSame(open, saved.get(0));
+        assertEquals(4, open.getNewsCount());
+        assertEquals(n1.getPublishTime(), open.getLastPublishTime());
+    }
+
+    @Test
+    void runOnce_replayAfterFailedLinkWriteDoesNotDoubleCount() {
+        // 上一批事件已写入（news_count 3 -> 4），关联写入失败，n1 未关联；重建后事件带着多计的 4 重放该批
+        Event open = event("evt-open", "上海市政府发布新的住房限购政策", now.minusHours(5));
+        open.setNewsCount(4);
+        when(eventRepository.findByStatus(Event.STATUS_OPEN)).thenReturn(List.of(open));
+        News n1 = news("n1", "上海市政府发布住房限购新政策", now.minusHours(1));
+        when(newsRepository.findCreatedAfter(any(), anyString(), any(), anyInt())).thenReturn(List.of(n1));
+        when(eventNewsRepository.countByEventIds(anyCollection())).thenReturn(linkCounts("evt-open", 3));
+
+        service.runOnce();
+
+        assertEquals(4, savedEvents().get(0).getNewsCount());
+    }
+
+    @Test
+    void runOnce_closesInactiveEventsAndDoesNotAttachToThem() {
+        Event stale = event("evt-stale", "上海市政府发布新的住房限购政策", now.minusDays(2));
+        when(eventRepository.findByStatus(Event.STATUS_OPEN)).thenReturn(List.of(stale));
+        News n1 = news("n1", "上海市政府发布新的住房限购政策", now.minusHours(1));
+        when(newsRepository.findCreatedAfter(any(), anyString(), any(), anyInt())).thenReturn(List.of(n1));
+
+        service.runOnce();
+
+        assertEquals(Event.STATUS_CLOSED, stale.getStatus());
+        assertEquals(3, stale.getNewsCount());
+        List<Event> created = savedEvents();
+        assertEquals(1, created.size());
+        assertNotEquals("evt-stale", created.get(0).getEventId());
+    }
+
+    @Test
+    void runOnce_skipsWhenLeaseHeldByAnotherInstance() {
+        when(stateRepository.tryAcquireLease(anyString(), anyString(), any(), any())).thenReturn(0);
+
+        assertEquals(0, service.runOnce());
+
+        verify(newsRepository, never()).findCreatedAfter(any(), anyString(), any(), anyInt());
+        verify(eventRepository, never()).upsertBatch(any());
+    }
+
+    /** 最后一次批量写入的事件（聚合批次） */
+    @SuppressWarnings("unchecked")
+    private List<Event> savedEvents() {
+        ArgumentCaptor<List<Event>> captor = ArgumentCaptor.forClass(List.class);
+        verify(eventRepository, atLeastOnce()).upsertBatch(captor.capture());
+        return new ArrayList<>(captor.getValue());
+    }
+
+    private static List<Object[]> linkCounts(String eventId, long count) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{eventId, count});
+        return rows;
+    }
+
+    private News news(String id, String title, LocalDateTime publishTime) {
+        News n = new News();
+        n.setNewsId(id);
+        n.setTitle(title);
+        n.setPublishTime(publishTime);
+        n.setCreatedTime(publishTime.plusMinutes(1));
+        n.setMediaName("测试媒体");
+        return n;
+    }
+
+    private static Event event(String id, String title, LocalDateTime lastPublishTime) {
+        return Event.builder()
+                .eventId(id)
+                .title(title)
+                .eventDate(lastPublishTime.toLocalDate())
+                .newsCount(3)
+                .firstPublishTime(lastPublishTime.minusHours(1))
+                .lastPublishTime(lastPublishTime)
+                .status(Event.STATUS_OPEN)
+                .build();
+    }
+}
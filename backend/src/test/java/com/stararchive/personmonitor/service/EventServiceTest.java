@@ -1,6 +1,6 @@
 package com.stararchive.personmonitor.service;
 
-import com.stararchive.personmonitor.config.BailianProperties;
+import com.stararchive.personmonitor.config.EventClusterProperties;
 import com.stararchive.personmonitor.dto.SystemConfigDTO;
 import com.stararchive.personmonitor.entity.Event;
 import com.stararchive.personmonitor.entity.EventNews;
@@ -8,21 +8,19 @@ import com.stararchive.personmonitor.entity.News;
 import com.stararchive.personmonitor.repository.EventNewsRepository;
 import com.stararchive.personmonitor.repository.EventRepository;
 import com.stararchive.personmonitor.repository.NewsRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -44,28 +42,34 @@ class EventServiceTest {
     @Mock
     private SystemConfigService systemConfigService;
     @Mock
-    private BailianProperties bailianProperties;
+    private LlmGatewayService llmGateway;
     @Mock
-    private RestTemplate restTemplate;
+    private LlmResponseCacheService responseCache;
 
     private EventService eventService;
+    private EventSummaryService eventSummaryService;
 
-    private static final String LLM_RESPONSE_SINGLE =
-            "{\"choices\":[{\"message\":{\"content\":\"北京某区发生一起重大交通事故\"}}]}";
-    private static final String LLM_RESPONSE_SAME_TOPIC =
-            "{\"choices\":[{\"message\":{\"content\":\"上海市政府发布新的住房限购政策\"}}]}";
+    private static final String LLM_RESPONSE_SINGLE = "北京某区发生一起重大交通事故";
+    private static final String LLM_RESPONSE_SAME_TOPIC = "上海市政府发布新的住房限购政策";
 
     @BeforeEach
     void setUp() {
+        eventSummaryService = new EventSummaryService(systemConfigService, llmGateway, responseCache);
+        eventSummaryService.init();
         eventService = new EventService(
                 eventRepository,
                 eventNewsRepository,
                 newsRepository,
-                systemConfigService,
-                bailianProperties,
-                new com.fasterxml.jackson.databind.ObjectMapper(),
-                restTemplate
+                eventSummaryService,
+                new NewsClusteringService(new EventClusterProperties())
         );
+        // 缓存未命中：直接调用大模型
+        lenient().when(responseCache.getOrCompute(any(), any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(1)).get());
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventSummaryService.shutdown();
     }
 
     /**
@@ -82,25 +86,21 @@ class EventServiceTest {
         News n2 = createNews("news-2", "朝阳区交通事故致多人受伤", "据报朝阳区交通事故造成多人受伤送医...", t2);
         News n3 = createNews("news-3", "北京一起重大交通事故最新进展", "北京交警通报朝阳区交通事故最新进展...", t3);
 
-        when(eventNewsRepository.findAllNewsIdsInEvents()).thenReturn(Collections.emptyList());
+        when(eventNewsRepository.findNewsIdsInEvents(any())).thenReturn(Collections.emptyList());
         when(newsRepository.findByPublishTimeGreaterThanEqualOrderByPublishTimeAsc(any()))
                 .thenReturn(List.of(n1, n2, n3));
 
-        SystemConfigDTO config = new SystemConfigDTO();
-        config.setLlmApiKey("test-key");
-        config.setLlmBaseUrl("https://dashscope.aliyuncs.com/compatible-mode/v1");
-        config.setLlmModel("qwen-plus");
-        when(systemConfigService.getConfig()).thenReturn(config);
+        when(llmGateway.isConfigured()).thenReturn(true);
+        when(systemConfigService.getConfig()).thenReturn(new SystemConfigDTO());
 
         // 三条新闻都返回同一句摘要，便于聚为一类
-        when(restTemplate.exchange(any(String.class), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
-                .thenReturn(ResponseEntity.ok(LLM_RESPONSE_SINGLE));
+        when(llmGateway.chat(eq("event-summary"), any())).thenReturn(LLM_RESPONSE_SINGLE);
 
         eventService.runDailyExtraction();
 
-        ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
-        verify(eventRepository, times(1)).save(eventCaptor.capture());
-        Event savedEvent = eventCaptor.getValue();
+        List<Event> savedEvents = savedEvents();
+        assertEquals(1, savedEvents.size());
+        Event savedEvent = savedEvents.get(0);
         assertNotNull(savedEvent.getEventId());
         assertTrue(savedEvent.getEventId().startsWith("evt-"));
         assertEquals("北京某区发生一起重大交通事故", savedEvent.getTitle());
@@ -109,9 +109,8 @@ class EventServiceTest {
         assertEquals(t1, savedEvent.getFirstPublishTime());
         assertEquals(t3, savedEvent.getLastPublishTime());
 
-        ArgumentCaptor<EventNews> linkCaptor = ArgumentCaptor.forClass(EventNews.class);
-        verify(eventNewsRepository, times(3)).save(linkCaptor.capture());
-        List<EventNews> links = linkCaptor.getAllValues();
+        List<EventNews> links = savedLinks();
+        assertEquals(3, links.size());
         assertEquals(savedEvent.getEventId(), links.get(0).getEventId());
         assertTrue(links.stream().map(EventNews::getNewsId).toList().containsAll(List.of("news-1", "news-2", "news-3")));
     }
@@ -126,24 +125,21 @@ class EventServiceTest {
         News n1 = createNews("n1", "上海限购松绑", "上海发布住房限购新政...", day1.atStartOfDay().plusHours(10));
         News n2 = createNews("n2", "上海调整限购政策", "上海市进一步调整限购...", day2.atStartOfDay().plusHours(9));
 
-        when(eventNewsRepository.findAllNewsIdsInEvents()).thenReturn(Collections.emptyList());
+        when(eventNewsRepository.findNewsIdsInEvents(any())).thenReturn(Collections.emptyList());
         when(newsRepository.findByPublishTimeGreaterThanEqualOrderByPublishTimeAsc(any()))
                 .thenReturn(List.of(n1, n2));
 
-        SystemConfigDTO config = new SystemConfigDTO();
-        config.setLlmApiKey("test-key");
-        config.setLlmBaseUrl("https://example.com");
-        config.setLlmModel("qwen-plus");
-        when(systemConfigService.getConfig()).thenReturn(config);
+        when(llmGateway.isConfigured()).thenReturn(true);
+        when(systemConfigService.getConfig()).thenReturn(new SystemConfigDTO());
 
-        when(restTemplate.exchange(any(String.class), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
-                .thenReturn(ResponseEntity.ok(LLM_RESPONSE_SAME_TOPIC))
-                .thenReturn(ResponseEntity.ok(LLM_RESPONSE_SAME_TOPIC));
+        when(llmGateway.chat(eq("event-summary"), any()))
+                .thenReturn(LLM_RESPONSE_SAME_TOPIC)
+                .thenReturn(LLM_RESPONSE_SAME_TOPIC);
 
         eventService.runDailyExtraction();
 
-        verify(eventRepository, times(2)).save(any(Event.class));
-        verify(eventNewsRepository, times(2)).save(any(EventNews.class));
+        assertEquals(2, savedEvents().size());
+        assertEquals(2, savedLinks().size());
     }
 
     /**
@@ -151,33 +147,64 @@ class EventServiceTest {
      */
     @Test
     void runDailyExtraction_noCandidates_skipsExtraction() {
-        when(eventNewsRepository.findAllNewsIdsInEvents()).thenReturn(Collections.emptyList());
         when(newsRepository.findByPublishTimeGreaterThanEqualOrderByPublishTimeAsc(any()))
                 .thenReturn(Collections.emptyList());
 
         eventService.runDailyExtraction();
 
-        verify(restTemplate, never()).exchange(any(), any(), any(), eq(String.class));
-        verify(eventRepository, never()).save(any());
-        verify(eventNewsRepository, never()).save(any());
+        verify(llmGateway, never()).chat(any(), any());
+        verify(eventRepository, never()).upsertBatch(any());
+        verify(eventNewsRepository, never()).upsertBatch(any());
     }
 
     /**
-     * 未配置大模型 API Key 时跳过提取。
+     * 未配置大模型 API Key 时不调用大模型，以标题作为摘要聚类落库。
      */
     @Test
-    void runDailyExtraction_noLlmKey_skipsExtraction() {
+    void runDailyExtraction_noLlmKey_fallsBackToTitle() {
         LocalDate yesterday = LocalDate.now().minusDays(1);
         News n1 = createNews("n1", "某新闻", "正文", yesterday.atStartOfDay());
-        when(eventNewsRepository.findAllNewsIdsInEvents()).thenReturn(Collections.emptyList());
+        when(eventNewsRepository.findNewsIdsInEvents(any())).thenReturn(Collections.emptyList());
         when(newsRepository.findByPublishTimeGreaterThanEqualOrderByPublishTimeAsc(any()))
                 .thenReturn(List.of(n1));
-        when(systemConfigService.getConfig()).thenReturn(new SystemConfigDTO());
+        when(llmGateway.isConfigured()).thenReturn(false);
 
         eventService.runDailyExtraction();
 
-        verify(restTemplate, never()).exchange(any(), any(), any(), eq(String.class));
-        verify(eventRepository, never()).save(any());
+        verify(llmGateway, never()).chat(any(), any());
+        Event saved = savedEvents().get(0);
+        assertEquals("某新闻", saved.getTitle());
+        assertEquals(Event.STATUS_CLOSED, saved.getStatus());
+    }
+
+    /**
+     * 已归入事件的新闻不再参与提取。
+     */
+    @Test
+    void runDailyExtraction_skipsNewsAlreadyInEvents() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        News n1 = createNews("n1", "某新闻", "正文", yesterday.atStartOfDay());
+        when(eventNewsRepository.findNewsIdsInEvents(List.of("n1"))).thenReturn(List.of("n1"));
+        when(newsRepository.findByPublishTimeGreaterThanEqualOrderByPublishTimeAsc(any()))
+                .thenReturn(List.of(n1));
+
+        eventService.runDailyExtraction();
+
+        verify(eventRepository, never()).upsertBatch(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Event> savedEvents() {
+        ArgumentCaptor<List<Event>> captor = ArgumentCaptor.forClass(List.class);
+        verify(eventRepository, atLeastOnce()).upsertBatch(captor.capture());
+        return captor.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<EventNews> savedLinks() {
+        ArgumentCaptor<List<EventNews>> captor = ArgumentCaptor.forClass(List.class);
+        verify(eventNewsRepository, atLeastOnce()).upsertBatch(captor.capture());
+        return captor.getAllValues().stream().flatMap(List::stream).toList();
     }
 
     private static News createNews(String newsId, String title, String content, LocalDateTime publishTime) {
@@ -0,0 +1,140 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.dto.SystemConfigDTO;
+import com.stararchive.personmonitor.entity.News;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * EventSummaryService 单元测试：缓存命中不调用大模型、合并请求按编号解析、解析失败逐条重试、单组失败不影响其余组、未配置大模型取标题
+ */
+class EventSummaryServiceTest {
+
+    @Mock
+    private SystemConfigService systemConfigService;
+    @Mock
+    private LlmGatewayService llmGateway;
+    @Mock
+    private LlmResponseCacheService responseCache;
+
+    private EventSummaryService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new EventSummaryService(systemConfigService, llmGateway, responseCache);
+        ReflectionTestUtils.setField(service, "requestsPerSecond", 0);
+        when(systemConfigService.getConfig()).thenReturn(new SystemConfigDTO());
+        when(llmGateway.isConfigured()).thenReturn(true);
+        when(llmGateway.resolveModel(EventSummaryService.SUMMARY_CALLER)).thenReturn("test-model");
+        when(responseCache.get(any())).thenReturn(Optional.empty());
+        when(responseCache.getOrCompute(any(), any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(1)).get());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void summarize_cacheHit_skipsLlm() {
+        service.init();
+        when(responseCache.get(any())).thenReturn(Optional.of("缓存中的摘要"));
+
+        Map<String, String> result = service.summarize(List.of(news("n1", "标题一")), true);
+
+        assertEquals("缓存中的摘要", result.get("n1"));
+        verify(llmGateway, never()).chat(any(), any());
+    }
+
+    @Test
+    void summarize_batchedRequest_parsesSummariesById() {
+        ReflectionTestUtils.setField(service, "newsPerRequest", 3);
+        service.init();
+        when(llmGateway.chat(eq(EventSummaryService.SUMMARY_CALLER), any())).thenReturn(
+                "```json\n[{\"id\":2,\"summary\":\"摘要二\"},{\"id\":1,\"summary\":\"摘要一\"},{\"id\":3,\"summary\":\"摘要三\"}]\n```");
+
+        Map<String, String> result = service.summarize(
+                List.of(news("n1", "标题一"), news("n2", "标题二"), news("n3", "标题三")), true);
+
+        assertEquals(List.of("n1", "n2", "n3"), List.copyOf(result.keySet()));
+        assertEquals("摘要一", result.get("n1"));
+        assertEquals("摘要二", result.get("n2"));
+        assertEquals("摘要三", result.get("n3"));
+        verify(llmGateway, times(1)).chat(any(), any());
+        // 合并结果按单条新闻缓存
+        verify(responseCache, times(3)).put(any(), anyString());
+    }
+
+    @Test
+    void summarize_malformedBatch_retriesMissingItemsOneByOne() {
+        ReflectionTestUtils.setField(service, "newsPerRequest", 2);
+        service.init();
+        when(llmGateway.chat(eq(EventSummaryService.SUMMARY_CALLER), any()))
+                .thenReturn("[{\"id\":1,\"summary\":\"摘要一\"}]")
+                .thenReturn("单条摘要二");
+
+        Map<String, String> result = service.summarize(List.of(news("n1", "标题一"), news("n2", "标题二")), true);
+
+        assertEquals("摘要一", result.get("n1"));
+        assertEquals("单条摘要二", result.get("n2"));
+        verify(llmGateway, times(2)).chat(any(), any());
+    }
+
+    @Test
+    void summarize_failedGroup_doesNotDropSlowerGroups() {
+        ReflectionTestUtils.setField(service, "newsPerRequest", 2);
+        service.init();
+        when(llmGateway.chat(eq(EventSummaryService.SUMMARY_CALLER), any())).thenAnswer(inv -> {
+            if (inv.getArgument(1).toString().contains("正文n1")) {
+                return "[{\"id\":1,\"summary\":\"摘要一\"},{\"id\":2,\"summary\":\"摘要二\"}]";
+            }
+            Thread.sleep(300);
+            return "[{\"id\":1,\"summary\":\"摘要三\"},{\"id\":2,\"summary\":\"摘要四\"}]";
+        });
+        // 第一组写缓存失败，任务以异常结束
+        doThrow(new IllegalStateException("cache down")).when(responseCache).put(any(), eq("摘要一"));
+
+        Map<String, String> result = service.summarize(
+                List.of(news("n1", "标题一"), news("n2", "标题二"), news("n3", "标题三"), news("n4", "标题四")), true);
+
+        assertEquals("摘要一", result.get("n1"));
+        assertEquals("标题二", result.get("n2"));
+        assertEquals("摘要三", result.get("n3"));
+        assertEquals("摘要四", result.get("n4"));
+    }
+
+    @Test
+    void summarize_llmNotConfigured_fallsBackToTruncatedTitle() {
+        service.init();
+        when(llmGateway.isConfigured()).thenReturn(false);
+        String longTitle = "长".repeat(80);
+
+        Map<String, String> result = service.summarize(List.of(news("n1", longTitle), news("n2", null)), true);
+
+        assertEquals(50, result.get("n1").length());
+        assertFalse(result.containsKey("n2"));
+        verify(llmGateway, never()).chat(any(), any());
+    }
+
+    private static News news(String id, String title) {
+        News n = new News();
+        n.setNewsId(id);
+        n.setTitle(title);
+        n.setContent("正文" + id);
+        return n;
+    }
+}
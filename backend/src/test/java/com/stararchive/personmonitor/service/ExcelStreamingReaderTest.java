@@ -0,0 +1,95 @@
+package com.stararchive.personmonitor.service;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Excel 流式读取单元测试：XLSX（XSSF SAX）与 XLS（HSSF 事件模型）逐行回调，长数字不出现科学计数法。
+ */
+class ExcelStreamingReaderTest {
+
+    private final ExcelStreamingReader reader = new ExcelStreamingReader();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void read_xlsx_emitsRowsInOrderWithFullLengthNumbers() throws Exception {
+        Path file = writeWorkbook(new XSSFWorkbook(), "persons.xlsx");
+
+        List<List<String>> rows = readAll(file, "XLSX");
+
+        assertEquals(3, rows.size());
+        assertEquals(List.of("姓名", "证件号", "备注"), rows.get(0));
+        assertEquals("张三", rows.get(1).get(0));
+        assertEquals("440300123456789", rows.get(1).get(1));
+        assertEquals("李四", rows.get(2).get(0));
+        assertNull(rows.get(2).get(1));
+        assertEquals("缺证件号", rows.get(2).get(2));
+    }
+
+    @Test
+    void read_xls_emitsRowsInOrderWithFullLengthNumbers() throws Exception {
+        Path file = writeWorkbook(new HSSFWorkbook(), "persons.xls");
+
+        List<List<String>> rows = readAll(file, "XLS");
+
+        assertEquals(3, rows.size());
+        assertEquals("姓名", rows.get(0).get(0));
+        assertEquals("440300123456789", rows.get(1).get(1));
+        assertEquals("缺证件号", rows.get(2).get(2));
+    }
+
+    @Test
+    void read_handlerExceptionStopsReading() throws Exception {
+        Path file = writeWorkbook(new XSSFWorkbook(), "persons.xlsx");
+        List<Integer> seen = new ArrayList<>();
+
+        InterruptedException thrown = assertThrows(InterruptedException.class, () ->
+                reader.read(file, "XLSX", (sheetIndex, rowIndex, cells) -> {
+                    seen.add(rowIndex);
+                    throw new InterruptedException("stop");
+                }));
+
+        assertEquals("stop", thrown.getMessage());
+        assertEquals(List.of(0), seen);
+    }
+
+    private List<List<String>> readAll(Path file, String type) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        reader.read(file, type, (sheetIndex, rowIndex, cells) -> rows.add(cells));
+        return rows;
+    }
+
+    private Path writeWorkbook(Workbook wb, String name) throws Exception {
+        Path file = tempDir.resolve(name);
+        try (wb; OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = wb.createSheet("人员");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("姓名");
+            header.createCell(1).setCellValue("证件号");
+            header.createCell(2).setCellValue("备注");
+            Row r1 = sheet.createRow(1);
+            r1.createCell(0).setCellValue("张三");
+            r1.createCell(1).setCellValue(440300123456789d);
+            Row r2 = sheet.createRow(2);
+            r2.createCell(0).setCellValue("李四");
+            r2.createCell(2).setCellValue("缺证件号");
+            wb.write(out);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,354 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stararchive.personmonitor.config.BailianProperties;
+import com.stararchive.personmonitor.config.LlmGatewayProperties;
+import com.stararchive.personmonitor.dto.LlmGatewayMetricsDTO;
+import com.stararchive.personmonitor.dto.SystemConfigDTO;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * LlmGatewayService 单元测试：以本地 OpenAI 兼容桩服务验证调用、重试、熔断、流式输出、指标统计，
+ * 以及多端点池的路由固定、故障转移、对冲请求与健康检查
+ */
+class LlmGatewayServiceTest {
+
+    private record StubResponse(int status, String contentType, String body) {
+    }
+
+    /** 本地 OpenAI 兼容桩服务：按顺序返回预置响应，可设置响应延迟 */
+    private static final class Stub {
+        final HttpServer server;
+        final ConcurrentLinkedQueue<StubResponse> responses = new ConcurrentLinkedQueue<>();
+        final List<String> requestBodies = new CopyOnWriteArrayList<>();
+        final AtomicInteger requestCount = new AtomicInteger();
+        volatile long delayMs;
+        /** 大于 0 时流式响应按事件分段发送，段间间隔该毫秒数 */
+        volatile long chunkDelayMs;
+
+        Stub() throws Exception {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/v1/", exchange -> {
+                requestCount.incrementAndGet();
+                requestBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                StubResponse r = responses.poll();
+                if (r == null) r = new StubResponse(500, "application/json", "{\"error\":\"no stub\"}");
+                if (delayMs > 0) {
+                    try {
+                        Thread.sleep(delayMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.getResponseHeaders().add("Content-Type", r.contentType());
+                if (chunkDelayMs > 0) {
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        exchange.sendResponseHeaders(r.status(), 0);
+                        for (String event : r.body().split("(?<=\n\n)")) {
+                            out.write(event.getBytes(StandardCharsets.UTF_8));
+                            out.flush();
+                            Thread.sleep(chunkDelayMs);
+                        }
+                    } catch (IOException | InterruptedException ignored) {
+                        // 客户端已取消
+                    }
+                    return;
+                }
+                byte[] bytes = r.body().getBytes(StandardCharsets.UTF_8);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    exchange.sendResponseHeaders(r.status(), bytes.length);
+                    out.write(bytes);
+                } catch (IOException ignored) {
+                    // 对冲落败的请求已被客户端取消
+                }
+            });
+            server.start();
+        }
+
+        String baseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/";
+        }
+    }
+
+    private Stub system;
+    private final List<Stub> extraStubs = new ArrayList<>();
+    private ConcurrentLinkedQueue<StubResponse> responses;
+    private List<String> requestBodies;
+    private AtomicInteger requestCount;
+
+    private LlmGatewayProperties properties;
+    private LlmGatewayService gateway;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        system = new Stub();
+        responses = system.responses;
+        requestBodies = system.requestBodies;
+        requestCount = system.requestCount;
+
+        SystemConfigDTO config = new SystemConfigDTO();
+        config.setLlmBaseUrl(system.baseUrl());
+        config.setLlmApiKey("test-key");
+        config.setLlmModel("stub-model");
+        SystemConfigService systemConfigService = mock(SystemConfigService.class);
+        when(systemConfigService.getConfig()).thenReturn(config);
+
+        properties = new LlmGatewayProperties();
+        properties.setRetryBaseDelayMs(1);
+        properties.setRetryMaxDelayMs(5);
+        properties.setRequestTimeoutMs(5_000);
+        gateway = new LlmGatewayService(systemConfigService, new BailianProperties(), properties, new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        system.server.stop(0);
+        extraStubs.forEach(stub -> stub.server.stop(0));
+    }
+
+    @Test
+    void chat_returnsContentAndRecordsTokenUsage() {
+        responses.add(json(200, "{\"choices\":[{\"message\":{\"content\":\"你好\"}}],"
+                + "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":3}}"));
+
+        String content = gateway.chat("smart-qa", Map.of("messages", List.of(Map.of("role", "user", "content", "hi"))));
+
+        assertEquals("你好", content);
+        assertTrue(requestBodies.get(0).contains("\"model\":\"stub-model\""));
+        LlmGatewayMetricsDTO.CallerMetrics metrics = callerMetrics("smart-qa");
+        assertEquals(1, metrics.getCalls());
+        assertEquals(0, metrics.getErrors());
+        assertEquals(12, metrics.getPromptTokens());
+        assertEquals(3, metrics.getCompletionTokens());
+    }
+
+    @Test
+    void chat_retriesServerErrorThenSucceeds() {
+        responses.add(json(503, "{\"error\":\"overloaded\"}"));
+        responses.add(json(429, "{\"error\":\"rate limited\"}"));
+        responses.add(json(200, "{\"choices\":[{\"message\":{\"content\":\"ok\"}}]}"));
+
+        assertEquals("ok", gateway.chat("event-summary", Map.of("messages", List.of())));
+        assertEquals(3, requestCount.get());
+        assertEquals(2, callerMetrics("event-summary").getRetries());
+    }
+
+    @Test
+    void chat_doesNotRetryClientError() {
+        responses.add(json(400, "{\"error\":\"bad request\"}"));
+
+        LlmGatewayService.LlmCallException e = assertThrows(LlmGatewayService.LlmCallException.class,
+                () -> gateway.chat("text2sql", Map.of("messages", List.of())));
+
+        assertFalse(e.isRetryable());
+        assertEquals(1, requestCount.get());
+        assertEquals(1, callerMetrics("text2sql").getErrors());
+    }
+
+    @Test
+    void circuitBreaker_opensAfterConsecutiveFailures() {
+        properties.setMaxAttempts(1);
+        properties.setBreakerFailureThreshold(2);
+        properties.setBreakerOpenMs(60_000);
+        responses.add(json(500, "{}"));
+        responses.add(json(500, "{}"));
+
+        assertThrows(LlmGatewayService.LlmCallException.class, () -> gateway.chat("archive-extract", Map.of()));
+        assertThrows(LlmGatewayService.LlmCallException.class, () -> gateway.chat("archive-extract", Map.of()));
+        LlmGatewayService.LlmCallException rejected = assertThrows(LlmGatewayService.LlmCallException.class,
+                () -> gateway.chat("archive-extract", Map.of()));
+
+        assertTrue(rejected.isRejected());
+        assertEquals(2, requestCount.get());
+        assertEquals("OPEN", gateway.metrics().getEndpoints().get(0).getBreakerState());
+        assertEquals(1, callerMetrics("archive-extract").getRejected());
+    }
+
+    @Test
+    void chatStream_deliversDeltasInOrder() {
+        responses.add(new StubResponse(200, "text/event-stream",
+                "data: {\"choices\":[{\"delta\":{\"content\":\"画像\"}}]}\n\n"
+                        + "data: {\"choices\":[{\"delta\":{\"content\":\"分析\"}}]}\n\n"
+                        + "data: [DONE]\n\n"));
+        List<String> deltas = new ArrayList<>();
+
+        String full = gateway.chatStream("portrait-stream", Map.of("messages", List.of()), deltas::add);
+
+        assertEquals(List.of("画像", "分析"), deltas);
+        assertEquals("画像分析", full);
+        assertTrue(requestBodies.get(0).contains("\"stream\":true"));
+    }
+
+    @Test
+    void chatStream_cancellationAbortsUpstreamAndKeepsReceivedDeltas() throws Exception {
+        system.chunkDelayMs = 5_000;
+        responses.add(new StubResponse(200, "text/event-stream",
+                "data: {\"choices\":[{\"delta\":{\"content\":\"第一段\"}}]}\n\n"
+                        + "data: {\"choices\":[{\"delta\":{\"content\":\"第二段\"}}]}\n\n"
+                        + "data: [DONE]\n\n"));
+        LlmGatewayService.Cancellation cancellation = new LlmGatewayService.Cancellation();
+        List<String> deltas = new CopyOnWriteArrayList<>();
+
+        long start = System.currentTimeMillis();
+        LlmGatewayService.LlmCallException e = assertThrows(LlmGatewayService.LlmCallException.class,
+                () -> gateway.chatStream("smart-qa-stream", Map.of("messages", List.of()), delta -> {
+                    deltas.add(delta);
+                    // 收到首段后模拟前端断开
+                    new Thread(cancellation::cancel).start();
+                }, cancellation));
+
+        assertTrue(e.isCallerAborted());
+        assertTrue(System.currentTimeMillis() - start < 3_000);
+        assertEquals(List.of("第一段"), deltas);
+        LlmGatewayMetricsDTO.CallerMetrics metrics = callerMetrics("smart-qa-stream");
+        assertEquals(1, metrics.getAborted());
+        assertEquals(0, metrics.getErrors());
+        LlmGatewayMetricsDTO.EndpointMetrics endpoint = gateway.metrics().getEndpoints().get(0);
+        assertEquals(0, endpoint.getInFlight());
+        assertEquals("CLOSED", endpoint.getBreakerState());
+        assertEquals(0, endpoint.getConsecutiveFailures());
+    }
+
+    @Test
+    void chatStream_stalledStreamFailsAfterIdleTimeout() {
+        properties.setStreamIdleTimeoutMs(300);
+        system.chunkDelayMs = 5_000;
+        responses.add(new StubResponse(200, "text/event-stream",
+                "data: {\"choices\":[{\"delta\":{\"content\":\"第一段\"}}]}\n\n"
+                        + "data: [DONE]\n\n"));
+        List<String> deltas = new CopyOnWriteArrayList<>();
+
+        long start = System.currentTimeMillis();
+        LlmGatewayService.LlmCallException e = assertThrows(LlmGatewayService.LlmCallException.class,
+                () -> gateway.chatStream("portrait-stream", Map.of("messages", List.of()), deltas::add));
+
+        assertFalse(e.isCallerAborted());
+        assertFalse(e.isRetryable());
+        assertTrue(System.currentTimeMillis() - start < 3_000);
+        assertEquals(List.of("第一段"), deltas);
+        assertEquals(1, requestCount.get());
+        assertEquals(1, callerMetrics("portrait-stream").getErrors());
+        LlmGatewayMetricsDTO.EndpointMetrics endpoint = gateway.metrics().getEndpoints().get(0);
+        assertEquals(0, endpoint.getInFlight());
+        assertEquals(1, endpoint.getConsecutiveFailures());
+    }
+
+    @Test
+    void chatStream_cancelledBeforeStartDoesNotSendRequest() {
+        LlmGatewayService.Cancellation cancellation = new LlmGatewayService.Cancellation();
+        cancellation.cancel();
+
+        LlmGatewayService.LlmCallException e = assertThrows(LlmGatewayService.LlmCallException.class,
+                () -> gateway.chatStream("portrait-stream", Map.of("messages", List.of()), delta -> { }, cancellation));
+
+        assertTrue(e.isCallerAborted());
+        assertEquals(0, requestCount.get());
+    }
+
+    @Test
+    void bulkCaller_isPinnedToBulkEndpoint_interactiveFallsBackToSystemEndpoint() throws Exception {
+        Stub bulk = poolEndpoint("batch", 1, List.of("bulk"), "batch-model");
+        bulk.responses.add(json(200, "{\"choices\":[{\"message\":{\"content\":\"bulk\"}}]}"));
+        responses.add(json(200, "{\"choices\":[{\"message\":{\"content\":\"system\"}}]}"));
+
+        assertEquals("bulk", gateway.chat("archive-extract", Map.of("messages", List.of())));
+        assertEquals("system", gateway.chat("smart-qa", Map.of("messages", List.of())));
+
+        assertTrue(bulk.requestBodies.get(0).contains("\"model\":\"batch-model\""));
+        assertEquals(1, requestCount.get());
+        assertEquals("batch-model", gateway.resolveModel("archive-extract"));
+        assertEquals("stub-model", gateway.resolveModel("smart-qa"));
+    }
+
+    @Test
+    void chat_failsOverToAnotherEndpointOnRetryableError() throws Exception {
+        Stub broken = poolEndpoint("broken", 10, List.of("interactive"), null);
+        Stub healthy = poolEndpoint("healthy", 1, List.of("interactive"), null);
+        broken.responses.add(json(503, "{}"));
+        healthy.responses.add(json(200, "{\"choices\":[{\"message\":{\"content\":\"ok\"}}]}"));
+
+        assertEquals("ok", gateway.chat("semantic-match", Map.of("messages", List.of())));
+        assertEquals(1, broken.requestCount.get());
+        assertEquals(1, healthy.requestCount.get());
+        assertEquals(0, requestCount.get());
+    }
+
+    @Test
+    void hedgedCaller_usesFasterEndpointWhenPrimaryIsSlow() throws Exception {
+        properties.setHedgeDelayMs(100);
+        Stub slow = poolEndpoint("slow", 10, List.of("interactive"), null);
+        Stub fast = poolEndpoint("fast", 1, List.of("interactive"), null);
+        slow.delayMs = 3_000;
+        slow.responses.add(json(200, "{\"choices\":[{\"message\":{\"content\":\"slow\"}}]}"));
+        fast.responses.add(json(200, "{\"choices\":[{\"message\":{\"content\":\"fast\"}}]}"));
+
+        long start = System.currentTimeMillis();
+        String content = gateway.chat("text2sql", Map.of("messages", List.of()));
+
+        assertEquals("fast", content);
+        assertTrue(System.currentTimeMillis() - start < 2_000);
+        LlmGatewayMetricsDTO.CallerMetrics metrics = callerMetrics("text2sql");
+        assertEquals(1, metrics.getHedges());
+        assertEquals(1, metrics.getHedgeWins());
+        assertTrue(gateway.metrics().getEndpoints().stream().allMatch(e -> e.getInFlight() == 0));
+    }
+
+    @Test
+    void healthCheck_skipsUnhealthyEndpoint() throws Exception {
+        Stub down = poolEndpoint("down", 10, List.of("interactive"), null);
+        Stub up = poolEndpoint("up", 1, List.of("interactive"), null);
+        down.server.stop(0);
+        up.responses.add(json(200, "{}"));
+        up.responses.add(json(200, "{\"choices\":[{\"message\":{\"content\":\"up\"}}]}"));
+
+        gateway.checkEndpointHealth();
+
+        assertEquals("up", gateway.chat("semantic-match", Map.of("messages", List.of())));
+        assertEquals(0, callerMetrics("semantic-match").getRetries());
+    }
+
+    private Stub poolEndpoint(String name, int weight, List<String> routes, String model) throws Exception {
+        Stub stub = new Stub();
+        extraStubs.add(stub);
+        LlmGatewayProperties.EndpointConfig endpoint = new LlmGatewayProperties.EndpointConfig();
+        endpoint.setName(name);
+        endpoint.setBaseUrl(stub.baseUrl());
+        endpoint.setApiKey("pool-key");
+        endpoint.setModel(model);
+        endpoint.setWeight(weight);
+        endpoint.setRoutes(routes);
+        properties.getEndpoints().add(endpoint);
+        return stub;
+    }
+
+    private LlmGatewayMetricsDTO.CallerMetrics callerMetrics(String caller) {
+        return gateway.metrics().getCallers().stream()
+                .filter(c -> caller.equals(c.getCaller()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static StubResponse json(int status, String body) {
+        return new StubResponse(status, "application/json", body);
+    }
+}
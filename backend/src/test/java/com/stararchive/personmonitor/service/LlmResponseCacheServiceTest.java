@@ -0,0 +1,123 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.entity.LlmResponseCache;
+import com.stararchive.personmonitor.repository.LlmResponseCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * LlmResponseCacheService 单元测试：命中复用、空结果不缓存、同一范围替换与失效、并发未命中只调用一次
+ */
+class LlmResponseCacheServiceTest {
+
+    @Mock
+    private LlmResponseCacheRepository cacheRepository;
+
+    private LlmResponseCacheService cache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new LlmResponseCacheService(cacheRepository);
+        when(cacheRepository.findById(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void getOrCompute_cachesNonBlankResult() {
+        LlmResponseCacheService.Key key = key("news:n1", "新闻 v1");
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("摘要", cache.getOrCompute(key, () -> { calls.incrementAndGet(); return "摘要"; }));
+        assertEquals("摘要", cache.getOrCompute(key, () -> { calls.incrementAndGet(); return "摘要"; }));
+
+        assertEquals(1, calls.get());
+        verify(cacheRepository).deleteByScopeKey("news:n1");
+        verify(cacheRepository).save(argThat(c -> "摘要".equals(c.getResponse()) && "news:n1".equals(c.getScopeKey())));
+    }
+
+    @Test
+    void getOrCompute_doesNotCacheBlankResult() {
+        LlmResponseCacheService.Key key = key("rule:r1", "规则");
+
+        assertNull(cache.getOrCompute(key, () -> null));
+
+        verify(cacheRepository, never()).save(any());
+    }
+
+    @Test
+    void get_readsPersistedRowAndInvalidateScopeEvictsIt() {
+        LlmResponseCacheService.Key key = key("news:n1", "新闻");
+        when(cacheRepository.findById(key.cacheKey())).thenReturn(Optional.of(LlmResponseCache.builder()
+                .cacheKey(key.cacheKey())
+                .scopeKey("news:n1")
+                .response("摘要")
+                .expireTime(LocalDateTime.now().plusHours(1))
+                .build()));
+        assertEquals(Optional.of("摘要"), cache.get(key));
+
+        cache.invalidateScope("news:n1");
+        when(cacheRepository.findById(key.cacheKey())).thenReturn(Optional.empty());
+
+        assertTrue(cache.get(key).isEmpty());
+        verify(cacheRepository).deleteByScopeKey("news:n1");
+    }
+
+    @Test
+    void get_ignoresExpiredRow() {
+        LlmResponseCacheService.Key key = key("news:n2", "新闻");
+        when(cacheRepository.findById(key.cacheKey())).thenReturn(Optional.of(LlmResponseCache.builder()
+                .cacheKey(key.cacheKey())
+                .response("旧摘要")
+                .expireTime(LocalDateTime.now().minusMinutes(1))
+                .build()));
+
+        assertTrue(cache.get(key).isEmpty());
+    }
+
+    @Test
+    void getOrCompute_concurrentMissesShareOneCall() throws Exception {
+        LlmResponseCacheService.Key key = key("rule:r2", "规则");
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.getOrCompute(key, () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "SELECT person_id FROM person";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.getOrCompute(key, () -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("SELECT person_id FROM person", first.get(5, TimeUnit.SECONDS));
+        assertEquals("SELECT person_id FROM person", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    private static LlmResponseCacheService.Key key(String scope, String input) {
+        return LlmResponseCacheService.Key.of("test", "qwen-plus", "系统提示词", input, scope);
+    }
+}
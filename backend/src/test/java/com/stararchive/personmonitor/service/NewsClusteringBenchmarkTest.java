@@ -0,0 +1,159 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.EventClusterProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 新闻聚类性能对比：原逐簇逐条词集合 Jaccard（O(n²)）与 MinHash + LSH，单日 5 万条合成摘要。
+ * 默认不执行，运行: mvn test -Dtest=NewsClusteringBenchmarkTest -Dbenchmark=true
+ * <p>
+ * 原算法在 5 万条上耗时过长，只在较小规模上实测，按平方关系外推到 5 万条；
+ * 召回率为同一主题的新闻落在同一事件中的比例（按主题内两两计），纯度为每个事件中占多数的主题所占比例。
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class NewsClusteringBenchmarkTest {
+
+    private static final int TARGET_SIZE = 50_000;
+    private static final int VARIANTS_PER_TOPIC = 10;
+
+    private record Item(int topic, String text) {
+    }
+
+    @Test
+    void compareLegacyJaccardWithMinHashLsh() {
+        NewsClusteringService service = new NewsClusteringService(new EventClusterProperties());
+        List<Item> warmup = generate(5_000, 7);
+        service.cluster(warmup, Item::text);
+        legacyCluster(warmup.subList(0, 1_000), 0.25);
+
+        System.out.printf("%-10s %8s %12s %10s %8s %8s%n", "算法", "条数", "耗时(ms)", "事件数", "召回率", "纯度");
+        long legacyMs = 0;
+        int legacyN = 0;
+        for (int n : new int[]{1_000, 2_000, 5_000}) {
+            List<Item> items = generate(n, 42);
+            long start = System.nanoTime();
+            List<List<Item>> clusters = legacyCluster(items, 0.25);
+            legacyMs = (System.nanoTime() - start) / 1_000_000;
+            legacyN = n;
+            report("legacy", n, legacyMs, clusters);
+        }
+        for (int n : new int[]{1_000, 2_000, 5_000, TARGET_SIZE}) {
+            List<Item> items = generate(n, 42);
+            long start = System.nanoTime();
+            List<List<Item>> clusters = service.cluster(items, Item::text);
+            report("minhash", n, (System.nanoTime() - start) / 1_000_000, clusters);
+        }
+        double ratio = (double) TARGET_SIZE / legacyN;
+        System.out.printf("legacy 外推到 %d 条约 %.0f ms（按 n² 增长）%n", TARGET_SIZE, legacyMs * ratio * ratio);
+    }
+
+    /** 合成数据：每个主题一句 20~40 字的基准摘要，衍生若干条随机替换、删除、追加少量字的变体，整体打乱 */
+    private static List<Item> generate(int size, long seed) {
+        Random random = new Random(seed);
+        List<Item> items = new ArrayList<>(size);
+        int topics = Math.max(1, size / VARIANTS_PER_TOPIC);
+        for (int t = 0; t < topics; t++) {
+            String base = randomHan(random, 20 + random.nextInt(21));
+            for (int v = 0; v < VARIANTS_PER_TOPIC && items.size() < size; v++) {
+                items.add(new Item(t, v == 0 ? base : mutate(random, base)));
+            }
+        }
+        Collections.shuffle(items, random);
+        return items;
+    }
+
+    private static String mutate(Random random, String base) {
+        StringBuilder sb = new StringBuilder(base);
+        int edits = 1 + random.nextInt(3);
+        for (int e = 0; e < edits; e++) {
+            int pos = random.nextInt(sb.length());
+            switch (random.nextInt(3)) {
+                case 0 -> sb.setCharAt(pos, randomHan(random, 1).charAt(0));
+                case 1 -> sb.deleteCharAt(pos);
+                default -> sb.insert(pos, randomHan(random, 1));
+            }
+        }
+        if (random.nextBoolean()) sb.append("，").append(randomHan(random, 2 + random.nextInt(4)));
+        return sb.toString();
+    }
+
+    /** 从常用汉字区间随机取字（区间较窄，不同主题之间也会有共同字片段） */
+    private static String randomHan(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (0x4E00 + random.nextInt(3_000));
+        }
+        return new String(chars);
+    }
+
+    /** 原 EventService 聚类：每条与已有每个事件的每条比较词集合 Jaccard，命中即加入 */
+    private static List<List<Item>> legacyCluster(List<Item> list, double threshold) {
+        List<List<Item>> clusters = new ArrayList<>();
+        for (Item item : list) {
+            Set<String> ws = words(item.text());
+            List<Item> found = null;
+            for (List<Item> cluster : clusters) {
+                for (Item c : cluster) {
+                    if (jaccard(ws, words(c.text())) >= threshold) {
+                        found = cluster;
+                        break;
+                    }
+                }
+                if (found != null) break;
+            }
+            if (found != null) found.add(item);
+            else clusters.add(new ArrayList<>(List.of(item)));
+        }
+        return clusters;
+    }
+
+    private static Set<String> words(String s) {
+        return Arrays.stream(s.replaceAll("\\p{P}", " ").split("\\s+")).filter(w -> w.length() >= 2).collect(Collectors.toSet());
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) return 1.0;
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        Set<String> inter = new HashSet<>(a);
+        inter.retainAll(b);
+        return (double) inter.size() / union.size();
+    }
+
+    private static void report(String name, int n, long elapsedMs, List<List<Item>> clusters) {
+        Map<Integer, Map<Integer, Integer>> topicClusterCounts = new HashMap<>();
+        long majority = 0;
+        for (int c = 0; c < clusters.size(); c++) {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Item item : clusters.get(c)) {
+                counts.merge(item.topic(), 1, Integer::sum);
+                topicClusterCounts.computeIfAbsent(item.topic(), k -> new HashMap<>()).merge(c, 1, Integer::sum);
+            }
+            majority += counts.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+        long samePairs = 0;
+        long totalPairs = 0;
+        for (Map<Integer, Integer> byCluster : topicClusterCounts.values()) {
+            long size = byCluster.values().stream().mapToLong(Integer::longValue).sum();
+            totalPairs += size * (size - 1) / 2;
+            for (int count : byCluster.values()) {
+                samePairs += (long) count * (count - 1) / 2;
+            }
+        }
+        double recall = totalPairs == 0 ? 1.0 : (double) samePairs / totalPairs;
+        System.out.printf("%-10s %8d %12d %10d %8.3f %8.3f%n", name, n, elapsedMs, clusters.size(), recall,
+                (double) majority / n);
+    }
+}
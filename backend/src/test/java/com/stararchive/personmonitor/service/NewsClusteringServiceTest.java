@@ -0,0 +1,94 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.EventClusterProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NewsClusteringService 单元测试：中文近似摘要归为同一事件、不同主题分开、按日期分桶、大量相同摘要不退化
+ */
+class NewsClusteringServiceTest {
+
+    private record Item(String id, LocalDate date, String text) {
+    }
+
+    private final NewsClusteringService service = new NewsClusteringService(new EventClusterProperties());
+
+    @Test
+    void cluster_groupsSimilarChineseSummariesWithoutWhitespace() {
+        List<Item> items = List.of(
+                item("a1", "北京朝阳区发生多车追尾事故，造成三人受伤"),
+                item("b1", "上海市政府发布新的住房限购政策"),
+                item("a2", "北京朝阳区发生多车追尾事故致三人受伤"),
+                item("b2", "上海市政府发布住房限购新政策"),
+                item("c1", "台风“海葵”将于明日登陆福建沿海"));
+
+        List<List<Item>> clusters = service.cluster(items, Item::text);
+
+        assertEquals(List.of(List.of("a1", "a2"), List.of("b1", "b2"), List.of("c1")), ids(clusters));
+    }
+
+    @Test
+    void clusterByDate_neverMergesAcrossDatesAndOrdersByDate() {
+        LocalDate d1 = LocalDate.of(2024, 5, 1);
+        LocalDate d2 = LocalDate.of(2024, 5, 2);
+        List<Item> items = List.of(
+                new Item("late", d2, "上海市政府发布新的住房限购政策"),
+                new Item("early1", d1, "上海市政府发布新的住房限购政策"),
+                new Item("early2", d1, "上海市政府发布新的住房限购政策。"));
+
+        List<List<Item>> clusters = service.clusterByDate(items, Item::date, Item::text);
+
+        assertEquals(List.of(List.of("early1", "early2"), List.of("late")), ids(clusters));
+    }
+
+    @Test
+    void cluster_largeBucketOfIdenticalSummariesFormsOneEvent() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            items.add(item("n" + i, "某地发布暴雨红色预警"));
+        }
+        items.add(item("other", "央行宣布下调存款准备金率"));
+
+        long start = System.nanoTime();
+        List<List<Item>> clusters = service.cluster(items, Item::text);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(2, clusters.size());
+        assertEquals(20_000, clusters.get(0).size());
+        assertTrue(elapsedMs < 10_000, "elapsedMs=" + elapsedMs);
+    }
+
+    @Test
+    void cluster_keepsBlankSummariesAsSingletons() {
+        List<List<Item>> clusters = service.cluster(List.of(item("x", "。。"), item("y", "  ")), Item::text);
+
+        assertEquals(List.of(List.of("x"), List.of("y")), ids(clusters));
+    }
+
+    @Test
+    void jaccard_overCharacterShingles() {
+        int[] a = NewsClusteringService.shingles("北京朝阳", 2);
+        int[] b = NewsClusteringService.shingles("北京 朝阳，", 2);
+        int[] c = NewsClusteringService.shingles("朝阳区", 2);
+
+        assertEquals(3, a.length);
+        assertEquals(1.0, NewsClusteringService.jaccard(a, b));
+        assertEquals(0.25, NewsClusteringService.jaccard(a, c));
+    }
+
+    private static Item item(String id, String text) {
+        return new Item(id, LocalDate.of(2024, 5, 1), text);
+    }
+
+    private static List<List<String>> ids(List<List<Item>> clusters) {
+        Function<List<Item>, List<String>> toIds = c -> c.stream().map(Item::id).toList();
+        return clusters.stream().map(toIds).toList();
+    }
+}
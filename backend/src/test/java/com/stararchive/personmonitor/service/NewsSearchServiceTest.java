@@ -0,0 +1,138 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.NewsSearchProperties;
+import com.stararchive.personmonitor.dto.NewsSearchHitDTO;
+import com.stararchive.personmonitor.dto.NewsSearchResultDTO;
+import com.stararchive.personmonitor.entity.News;
+import com.stararchive.personmonitor.repository.NewsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * NewsSearchService 单元测试：BM25 排序、相关度与时间游标翻页、高亮转义、切词回退与参数校验
+ */
+class NewsSearchServiceTest {
+
+    @Mock
+    private NewsRepository newsRepository;
+
+    private NewsSearchService service;
+    private final LocalDateTime now = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new NewsSearchService(newsRepository, new NewsSearchProperties());
+        when(newsRepository.tokenize("限购政策")).thenReturn(List.of("限购", "政策"));
+        when(newsRepository.count()).thenReturn(10_000L);
+        when(newsRepository.countMatching("限购")).thenReturn(50L);
+        when(newsRepository.countMatching("政策")).thenReturn(2_000L);
+    }
+
+    @Test
+    void search_byRelevance_ranksRareTermAndTitleHitsFirst() {
+        News titleHit = news("n1", "上海发布限购政策", "市政府今日发布通知。", now.minusDays(3));
+        News contentHit = news("n2", "楼市观察", "多地调整政策，上海也出台限购措施。", now.minusDays(1));
+        News commonOnly = news("n3", "财政政策解读", "政策层面继续发力，政策效果显现。", now);
+        when(newsRepository.searchMatching(eq("限购政策"), eq(false), isNull(), isNull(), isNull(), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(commonOnly, contentHit, titleHit));
+
+        NewsSearchResultDTO result = service.search("限购政策", false, null, null, null, null, null, 20);
+
+        List<String> ids = result.getItems().stream().map(NewsSearchHitDTO::getNewsId).toList();
+        assertEquals(List.of("n1", "n2", "n3"), ids);
+        assertTrue(result.getItems().get(0).getScore() > result.getItems().get(1).getScore());
+        assertEquals("上海发布<em>限购政策</em>", result.getItems().get(0).getHighlightTitle());
+        assertFalse(result.isHasMore());
+        assertNull(result.getNextCursor());
+        assertEquals(List.of("限购", "政策"), result.getTerms());
+    }
+
+    @Test
+    void search_byRelevance_pagesThroughRankedWindowWithCursor() {
+        when(newsRepository.searchMatching(anyString(), anyBoolean(), any(), any(), any(), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(
+                        news("n1", "限购", "", now),
+                        news("n2", "限购 限购", "", now),
+                        news("n3", "限购 限购 限购", "", now)));
+
+        NewsSearchResultDTO first = service.search("限购政策", false, null, null, null, "relevance", null, 2);
+        assertEquals(2, first.getItems().size());
+        assertTrue(first.isHasMore());
+
+        NewsSearchResultDTO second = service.search("限购政策", false, null, null, null, "relevance", first.getNextCursor(), 2);
+        assertEquals(1, second.getItems().size());
+        assertFalse(second.isHasMore());
+        List<String> all = List.of(first.getItems().get(0).getNewsId(), first.getItems().get(1).getNewsId(),
+                second.getItems().get(0).getNewsId());
+        assertEquals(List.of("n3", "n2", "n1"), all);
+    }
+
+    @Test
+    void search_byTime_usesKeysetCursor() {
+        News n1 = news("n1", "限购", "", now);
+        News n2 = news("n2", "限购", "", now.minusHours(1));
+        News n3 = news("n3", "限购", "", now.minusHours(2));
+        LocalDateTime start = now.minusDays(7);
+        when(newsRepository.searchMatching(eq("限购政策"), eq(true), eq("经济"), eq(start), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(n1, n2, n3));
+        when(newsRepository.searchMatching(eq("限购政策"), eq(true), eq("经济"), eq(start), isNull(), eq(n2.getPublishTime()), eq("n2"), eq(3)))
+                .thenReturn(List.of(n3));
+
+        NewsSearchResultDTO first = service.search("限购政策", true, " 经济 ", start, null, "time", null, 2);
+        assertEquals(List.of("n1", "n2"), first.getItems().stream().map(NewsSearchHitDTO::getNewsId).toList());
+        assertTrue(first.isHasMore());
+
+        NewsSearchResultDTO second = service.search("限购政策", true, "经济", start, null, "time", first.getNextCursor(), 2);
+        assertEquals(List.of("n3"), second.getItems().stream().map(NewsSearchHitDTO::getNewsId).toList());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void search_rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> service.search(" ", false, null, null, null, null, null, 20));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.search("限购", false, null, now, now.minusDays(1), null, null, 20));
+        assertThrows(IllegalArgumentException.class, () -> service.search("限购", false, null, null, null, "hot", null, 20));
+        assertThrows(IllegalArgumentException.class, () -> service.search("限购", false, null, null, null, "time", "%%%", 20));
+        verify(newsRepository, never()).searchMatching(any(), anyBoolean(), any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void analyze_fallsBackToLocalTokenizeWhenTokenizeUnavailable() {
+        when(newsRepository.tokenize(anyString())).thenThrow(new RuntimeException("function not found"));
+
+        assertEquals(List.of("上海", "海限", "限购", "doris"), service.analyze("上海限购 Doris"));
+    }
+
+    @Test
+    void highlight_escapesHtmlAndCutsSnippetAroundFirstHit() {
+        String content = "<b>" + "无关内容".repeat(30) + "上海出台限购措施" + "后续".repeat(30);
+
+        String snippet = NewsSearchService.highlight(content, List.of("限购"), 40);
+
+        assertTrue(snippet.startsWith("…"));
+        assertTrue(snippet.endsWith("…"));
+        assertTrue(snippet.contains("上海出台<em>限购</em>措施"));
+        assertEquals("&lt;b&gt;<em>限购</em>", NewsSearchService.highlight("<b>限购", List.of("限购"), 100));
+    }
+
+    private static News news(String id, String title, String content, LocalDateTime publishTime) {
+        News n = new News();
+        n.setNewsId(id);
+        n.setTitle(title);
+        n.setContent(content);
+        n.setPublishTime(publishTime);
+        n.setMediaName("测试媒体");
+        return n;
+    }
+}
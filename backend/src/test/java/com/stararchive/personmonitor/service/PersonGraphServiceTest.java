@@ -0,0 +1,165 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.PersonGraphProperties;
+import com.stararchive.personmonitor.dto.PersonGraphDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PersonGraphService / PersonGraphIndex 单元测试：关系人姓名解析、k 跳邻域、最短路径、共同联系人、可见性与增量重建
+ */
+class PersonGraphServiceTest {
+
+    @Mock
+    private PersonRepository personRepository;
+
+    private PersonGraphService service;
+    private final LocalDateTime now = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new PersonGraphService(personRepository, new PersonGraphProperties());
+    }
+
+    @Test
+    void neighbourhood_resolvesUniqueNamesAndKeepsAmbiguousOnesExternal() {
+        loadSample();
+
+        PersonGraphDTO oneHop = service.neighbourhood("p1", 1, 100, null);
+        assertEquals(Map.of("p1", 0, "p2", 1, "~王五", 1), distances(oneHop));
+        assertEquals(Set.of("p1-p2:同事", "p1-~王五:朋友"), edges(oneHop));
+        assertTrue(oneHop.getNodes().stream().filter(n -> n.getId().equals("~王五")).allMatch(PersonGraphDTO.Node::isExternal));
+
+        // 外部联系人不向外扩展；私有档案 p3 对匿名用户不可见
+        PersonGraphDTO twoHops = service.neighbourhood("p1", 2, 100, null);
+        assertEquals(Map.of("p1", 0, "p2", 1, "~王五", 1, "p7", 2), distances(twoHops));
+        assertTrue(edges(twoHops).contains("p2-p7:客户"));
+    }
+
+    @Test
+    void neighbourhood_appliesVisibilityAndNodeLimit() {
+        loadSample();
+
+        PersonGraphDTO alice = service.neighbourhood("p1", 3, 100, "alice");
+        assertEquals(Map.of("p1", 0, "p2", 1, "~王五", 1, "p3", 2, "p7", 2, "p4", 3), distances(alice));
+
+        PersonGraphDTO limited = service.neighbourhood("p1", 3, 2, "alice");
+        assertEquals(2, limited.getNodes().size());
+        assertTrue(limited.isTruncated());
+
+        assertThrows(EntityNotFoundException.class, () -> service.neighbourhood("p3", 1, 100, null));
+        assertThrows(EntityNotFoundException.class, () -> service.neighbourhood("~王五", 1, 100, null));
+        assertThrows(IllegalArgumentException.class, () -> service.neighbourhood("p1", 4, 100, null));
+    }
+
+    @Test
+    void shortestPath_findsPathThroughVisiblePersonsOnly() {
+        loadSample();
+
+        PersonGraphDTO path = service.shortestPath("p1", "p4", 6, "alice");
+        assertEquals(List.of("p1", "p2", "p3", "p4"), path.getNodes().stream().map(PersonGraphDTO.Node::getId).toList());
+        assertEquals(List.of("同事", "同学", "亲属"), path.getEdges().stream().map(PersonGraphDTO.Edge::getRelation).toList());
+
+        assertTrue(service.shortestPath("p1", "p4", 6, null).getNodes().isEmpty());
+        assertTrue(service.shortestPath("p1", "p4", 2, "alice").getNodes().isEmpty());
+        assertEquals(List.of("p7", "p2", "p1"),
+                service.shortestPath("p7", "p1", 2, null).getNodes().stream().map(PersonGraphDTO.Node::getId).toList());
+    }
+
+    @Test
+    void commonContacts_includesPersonsAndSameNamedExternals() {
+        loadSample();
+
+        PersonGraphDTO common = service.commonContacts("p1", "p7", null);
+        assertEquals(Set.of("p2", "~王五"), common.getNodes().stream()
+                .filter(n -> n.getDistance() == 1).map(PersonGraphDTO.Node::getId).collect(Collectors.toSet()));
+        assertTrue(edges(common).containsAll(Set.of("p1-p2:同事", "p2-p7:客户", "p1-~王五:朋友", "p7-~王五:邻居")));
+    }
+
+    @Test
+    void refresh_rebuildsSnapshotWhenNameResolutionChanges() {
+        loadSample();
+        Person deleted = person("p5", "王五", true, null, null);
+        deleted.setDeleted(true);
+        deleted.setUpdatedTime(now.plusMinutes(1));
+        when(personRepository.findUpdatedBetween(any(), anyString(), any(), anyInt()))
+                .thenReturn(List.of(deleted))
+                .thenReturn(List.of());
+
+        assertEquals(1, service.refresh());
+        // 全量加载后从加载开始前重读，只读取更新满 ingest-lag-seconds 的档案
+        verify(personRepository).findUpdatedBetween(argThat(t -> t.isBefore(LocalDateTime.now().minusSeconds(59))), eq(""),
+                argThat(u -> !u.isAfter(LocalDateTime.now().minusSeconds(30))), anyInt());
+
+        // 同名档案只剩 p6，关系人“王五”解析到 p6
+        PersonGraphDTO common = service.commonContacts("p1", "p7", null);
+        assertTrue(common.getNodes().stream().anyMatch(n -> "p6".equals(n.getPersonId())));
+        assertTrue(common.getNodes().stream().noneMatch(PersonGraphDTO.Node::isExternal));
+    }
+
+    @Test
+    void queriesFailBeforeLoad() {
+        assertThrows(IllegalStateException.class, () -> service.neighbourhood("p1", 1, 10, null));
+        assertEquals(0, service.refresh());
+    }
+
+    private void loadSample() {
+        Person p3 = person("p3", "赵六", false, "alice", "[{\"name\":\"孙七\",\"relation\":\"亲属\"}]");
+        List<Person> all = List.of(
+                person("p1", "张三", true, null,
+                        "[{\"name\":\"李四\",\"relation\":\"同事\",\"brief\":\"\"},{\"name\":\"王五\",\"relation\":\"朋友\"}]"),
+                person("p2", "李四", true, null, "[{\"name\":\"赵六\",\"relation\":\"同学\"}]"),
+                p3,
+                person("p4", "孙七", true, null, null),
+                person("p5", "王五", true, null, null),
+                person("p6", "王五", true, null, null),
+                person("p7", "钱八", true, null,
+                        "[{\"name\":\"王 五\",\"relation\":\"邻居\"},{\"name\":\"李四\",\"relation\":\"客户\"}]"));
+        when(personRepository.findPageAfterId(anyString(), anyInt())).thenAnswer(inv -> {
+            String after = inv.getArgument(0);
+            return all.stream().filter(p -> p.getPersonId().compareTo(after) > 0).toList();
+        });
+        service.loadAll();
+        assertTrue(service.isReady());
+    }
+
+    private static Map<String, Integer> distances(PersonGraphDTO graph) {
+        return graph.getNodes().stream().collect(Collectors.toMap(PersonGraphDTO.Node::getId, PersonGraphDTO.Node::getDistance));
+    }
+
+    /** 无向边统一为“较小 id-较大 id:关系” */
+    private static Set<String> edges(PersonGraphDTO graph) {
+        return graph.getEdges().stream()
+                .map(e -> (e.getFrom().compareTo(e.getTo()) < 0 ? e.getFrom() + "-" + e.getTo() : e.getTo() + "-" + e.getFrom())
+                        + ":" + e.getRelation())
+                .collect(Collectors.toSet());
+    }
+
+    private Person person(String id, String name, boolean isPublic, String createdBy, String related) {
+        Person p = new Person();
+        p.setPersonId(id);
+        p.setChineseName(name);
+        p.setIsPublic(isPublic);
+        p.setCreatedBy(createdBy);
+        p.setRelatedPersons(related);
+        p.setDeleted(false);
+        p.setUpdatedTime(now);
+        return p;
+    }
+}
@@ -0,0 +1,184 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.PersonIdentifierProperties;
+import com.stararchive.personmonitor.dto.PersonIdentifierLookupResultDTO;
+import com.stararchive.personmonitor.dto.PersonIdentifierMatchDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.entity.PersonIdentifier;
+import com.stararchive.personmonitor.repository.PersonIdentifierRepository;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PersonIdentifierService 单元测试：标识规范化、按人物增量同步、批量反查与可见性过滤
+ */
+class PersonIdentifierServiceTest {
+
+    @Mock
+    private PersonIdentifierRepository personIdentifierRepository;
+    @Mock
+    private PersonRepository personRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PersonIdentifierService service;
+    private PersonIdentifierProperties properties;
+    private final LocalDateTime now = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new PersonIdentifierProperties();
+        service = new PersonIdentifierService(personIdentifierRepository, personRepository, properties, transactionManager);
+    }
+
+    @Test
+    void normalize_producesCanonicalIdentifiers() {
+        assertEquals("+8613800138000", PersonIdentifierService.normalize("phone", "138-0013-8000", "86"));
+        assertEquals("+8613800138000", PersonIdentifierService.normalize("phone", "+86 138 0013 8000", "86"));
+        assertEquals("+8613800138000", PersonIdentifierService.normalize("phone", "8613800138000", "86"));
+        assertEquals("+861012345678", PersonIdentifierService.normalize("phone", "(010) 1234-5678", "86"));
+        assertEquals("+442079460958", PersonIdentifierService.normalize("phone", "0044 20 7946 0958", "86"));
+        assertNull(PersonIdentifierService.normalize("phone", "12-34", "86"));
+        assertNull(PersonIdentifierService.normalize("phone", "call me", "86"));
+
+        assertEquals("wang.wu@example.com", PersonIdentifierService.normalize("email", " mailto:Wang.Wu@Example.COM ", "86"));
+        assertNull(PersonIdentifierService.normalize("email", "not-an-email", "86"));
+        assertEquals("E12345678", PersonIdentifierService.normalize("passport", "e1234 5678", "86"));
+
+        assertEquals("jack", PersonIdentifierService.normalize("twitter", "https://x.com/Jack?lang=en", "86"));
+        assertEquals("jack", PersonIdentifierService.normalize("twitter", "@Jack", "86"));
+        assertEquals("john-doe-123", PersonIdentifierService.normalize("linkedin", "https://cn.linkedin.com/in/John-Doe-123/", "86"));
+        assertEquals("10001", PersonIdentifierService.normalize("facebook", "https://m.facebook.com/profile.php?id=10001&ref=x", "86"));
+        assertEquals("zuck", PersonIdentifierService.normalize("facebook", "fb.com/zuck", "86"));
+        assertNull(PersonIdentifierService.normalize("twitter", "https://facebook.com/zuck", "86"));
+        assertEquals("jack", PersonIdentifierService.normalize("twitter", "www.x.com/jack", "86"));
+        assertNull(PersonIdentifierService.normalize("twitter", "https://www.netflix.com/jack", "86"));
+    }
+
+    @Test
+    void sync_deletesStaleRowsAndRewritesCurrentOnes() {
+        Person p = person("p1", true, null);
+        p.setPhoneNumbers(List.of("13800138000", "+86 138 0013 8000"));
+        p.setEmails(List.of("A@B.com"));
+        when(personIdentifierRepository.findByPersonIds(List.of("p1"))).thenReturn(List.of(
+                row("+8613800138000", "phone", "p1", true, null),
+                row("old@b.com", "email", "p1", true, null)));
+
+        service.sync(p);
+
+        List<PersonIdentifier> deleted = captured(true);
+        assertEquals(List.of("old@b.com"), deleted.stream().map(PersonIdentifier::getIdentifier).toList());
+        List<PersonIdentifier> written = captured(false);
+        assertEquals(List.of("+8613800138000", "a@b.com"), written.stream().map(PersonIdentifier::getIdentifier).toList());
+    }
+
+    @Test
+    void sync_removesAllIdentifiersOfDeletedPersonAndSwallowsFailures() {
+        Person p = person("p1", true, null);
+        p.setEmails(List.of("a@b.com"));
+        p.setDeleted(true);
+        when(personIdentifierRepository.findByPersonIds(anyCollection()))
+                .thenReturn(List.of(row("a@b.com", "email", "p1", true, null)));
+
+        service.sync(p);
+        assertEquals(1, captured(true).size());
+        assertTrue(captured(false).isEmpty());
+
+        when(personIdentifierRepository.findByPersonIds(anyCollection())).thenThrow(new RuntimeException("doris down"));
+        assertDoesNotThrow(() -> service.sync(person("p2", true, null)));
+    }
+
+    @Test
+    void sync_waitsForCallerCommitAndRunsInItsOwnTransaction() {
+        Person p = person("p1", true, null);
+        p.setEmails(List.of("a@b.com"));
+        when(personIdentifierRepository.findByPersonIds(anyCollection())).thenReturn(List.of());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.sync(p);
+            verifyNoInteractions(personIdentifierRepository, transactionManager);
+
+            // 调用方回滚：不写入
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            verifyNoInteractions(personIdentifierRepository);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of("a@b.com"), captured(false).stream().map(PersonIdentifier::getIdentifier).toList());
+        verify(transactionManager).getTransaction(argThat(d -> d.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    @Test
+    void lookup_infersTypesAndFiltersByVisibility() {
+        when(personIdentifierRepository.findByIdentifiers(anyCollection())).thenReturn(List.of(
+                row("+8613800138000", "phone", "p1", true, null),
+                row("+8613800138000", "phone", "p2", false, "alice"),
+                row("jack", "twitter", "p3", true, null)));
+
+        List<String> values = List.of("138 0013 8000", "@Jack", "nobody@example.com", "138 0013 8000", "https://www.netflix.com/jack");
+        PersonIdentifierLookupResultDTO anonymous = service.lookup(null, values, null);
+        assertEquals(List.of("phone", "twitter"), anonymous.getMatches().stream().map(PersonIdentifierMatchDTO::getType).toList());
+        assertEquals(List.of("p1"), anonymous.getMatches().get(0).getPersonIds());
+        assertEquals("138 0013 8000", anonymous.getMatches().get(0).getValue());
+        assertEquals(List.of("nobody@example.com", "https://www.netflix.com/jack"), anonymous.getUnmatched());
+
+        PersonIdentifierLookupResultDTO alice = service.lookup("phone", List.of("13800138000"), "alice");
+        assertEquals(List.of("p1", "p2"), alice.getMatches().get(0).getPersonIds());
+    }
+
+    @Test
+    void lookup_queriesInChunksAndRejectsInvalidRequests() {
+        properties.setQueryBatchSize(2);
+        when(personIdentifierRepository.findByIdentifiers(anyCollection())).thenReturn(List.of());
+
+        service.lookup("email", List.of("a@x.com", "b@x.com", "c@x.com"), null);
+        verify(personIdentifierRepository, times(2)).findByIdentifiers(anyCollection());
+
+        properties.setMaxLookupSize(2);
+        assertThrows(IllegalArgumentException.class, () -> service.lookup(null, List.of("1", "2", "3"), null));
+        assertThrows(IllegalArgumentException.class, () -> service.lookup(null, Collections.emptyList(), null));
+        assertThrows(IllegalArgumentException.class, () -> service.lookup("wechat", List.of("abc"), null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PersonIdentifier> captured(boolean deleted) {
+        ArgumentCaptor<List<PersonIdentifier>> captor = ArgumentCaptor.forClass(List.class);
+        if (deleted) verify(personIdentifierRepository, atLeastOnce()).deleteBatch(captor.capture());
+        else verify(personIdentifierRepository, atLeastOnce()).upsertBatch(captor.capture());
+        return captor.getValue();
+    }
+
+    private Person person(String id, boolean isPublic, String createdBy) {
+        Person p = new Person();
+        p.setPersonId(id);
+        p.setIsPublic(isPublic);
+        p.setCreatedBy(createdBy);
+        p.setDeleted(false);
+        p.setUpdatedTime(now);
+        return p;
+    }
+
+    private PersonIdentifier row(String identifier, String type, String personId, boolean isPublic, String createdBy) {
+        return new PersonIdentifier(identifier, type, personId, isPublic, createdBy, now);
+    }
+}
@@ -0,0 +1,119 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.entity.PersonPortrait;
+import com.stararchive.personmonitor.repository.PersonPortraitRepository;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import com.stararchive.personmonitor.repository.SysUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PersonPortraitService 单元测试：已保存画像直接返回、生成后按版本保存、档案变更后重新生成、预生成跳过已是最新版本的人物、大模型无内容时不计为已生成
+ */
+class PersonPortraitServiceTest {
+
+    @Mock
+    private PersonRepository personRepository;
+    @Mock
+    private SysUserRepository sysUserRepository;
+    @Mock
+    private LlmGatewayService llmGateway;
+    @Mock
+    private PersonPortraitRepository portraitRepository;
+
+    private PersonPortraitService service;
+    private Person person;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new PersonPortraitService(personRepository, sysUserRepository, llmGateway, portraitRepository,
+                new LlmStreamRegistry());
+        person = new Person();
+        person.setPersonId("p1");
+        person.setChineseName("张三");
+        person.setIsPublic(true);
+        when(personRepository.findById("p1")).thenReturn(Optional.of(person));
+        when(portraitRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(llmGateway.isConfigured()).thenReturn(true);
+        when(llmGateway.resolveModel(anyString())).thenReturn("stub-model");
+    }
+
+    @Test
+    void generate_storesPortraitAndRemovesOlderVersions() {
+        when(llmGateway.chat(eq("portrait"), anyMap())).thenReturn("  画像正文  ");
+
+        assertEquals("画像正文", service.generatePortraitAnalysis("p1", null));
+
+        ArgumentCaptor<PersonPortrait> saved = ArgumentCaptor.forClass(PersonPortrait.class);
+        verify(portraitRepository).save(saved.capture());
+        assertEquals("p1", saved.getValue().getPersonId());
+        assertEquals("画像正文", saved.getValue().getContent());
+        assertEquals("ON_DEMAND", saved.getValue().getSource());
+        verify(portraitRepository).deleteOtherVersions("p1", saved.getValue().getPortraitId());
+    }
+
+    @Test
+    void generate_returnsStoredPortraitWithoutCallingLlm() {
+        when(llmGateway.chat(anyString(), anyMap())).thenReturn("画像正文");
+        service.generatePortraitAnalysis("p1", null);
+        ArgumentCaptor<PersonPortrait> saved = ArgumentCaptor.forClass(PersonPortrait.class);
+        verify(portraitRepository).save(saved.capture());
+        when(portraitRepository.findById(saved.getValue().getPortraitId())).thenReturn(Optional.of(saved.getValue()));
+        when(llmGateway.isConfigured()).thenReturn(false);
+
+        assertEquals("画像正文", service.generatePortraitAnalysis("p1", null));
+
+        verify(llmGateway, times(1)).chat(anyString(), anyMap());
+    }
+
+    @Test
+    void generate_regeneratesAfterArchiveChanges() {
+        when(llmGateway.chat(anyString(), anyMap())).thenReturn("旧画像", "新画像");
+        service.generatePortraitAnalysis("p1", null);
+        ArgumentCaptor<PersonPortrait> saved = ArgumentCaptor.forClass(PersonPortrait.class);
+        verify(portraitRepository).save(saved.capture());
+        PersonPortrait old = saved.getValue();
+        when(portraitRepository.findById(old.getPortraitId())).thenReturn(Optional.of(old));
+
+        person.setOrganization("新机构");
+
+        assertEquals("新画像", service.generatePortraitAnalysis("p1", null));
+        verify(portraitRepository, times(2)).save(saved.capture());
+        assertNotEquals(old.getPortraitId(), saved.getValue().getPortraitId());
+        assertNotEquals(old.getPersonVersion(), saved.getValue().getPersonVersion());
+    }
+
+    @Test
+    void pregenerate_skipsPersonWithCurrentVersion() {
+        when(llmGateway.chat(eq("portrait-pregen"), anyMap())).thenReturn("预生成画像");
+
+        assertTrue(service.pregeneratePortrait(person));
+        ArgumentCaptor<PersonPortrait> saved = ArgumentCaptor.forClass(PersonPortrait.class);
+        verify(portraitRepository).save(saved.capture());
+        assertEquals("PREGEN", saved.getValue().getSource());
+        when(portraitRepository.findById(saved.getValue().getPortraitId())).thenReturn(Optional.of(saved.getValue()));
+
+        assertFalse(service.pregeneratePortrait(person));
+        verify(llmGateway, times(1)).chat(anyString(), anyMap());
+    }
+
+    @Test
+    void pregenerate_reportsNotGeneratedWhenLlmReturnsNoContent() {
+        when(llmGateway.chat(eq("portrait-pregen"), anyMap())).thenReturn(null);
+
+        assertFalse(service.pregeneratePortrait(person));
+        verify(llmGateway).chat(eq("portrait-pregen"), anyMap());
+        verify(portraitRepository, never()).save(any());
+    }
+}
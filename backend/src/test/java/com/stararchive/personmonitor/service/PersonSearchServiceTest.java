@@ -0,0 +1,267 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.common.Pinyin;
+import com.stararchive.personmonitor.config.PersonSearchProperties;
+import com.stararchive.personmonitor.dto.PersonSuggestionDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PersonSearchService / PersonSearchIndex / PersonSuggestIndex 单元测试：姓名与别名匹配、拼音与首字母、证件号精确与片段匹配、可见性、
+ * 增量刷新与重建、前缀联想
+ */
+class PersonSearchServiceTest {
+
+    @Mock
+    private PersonRepository personRepository;
+
+    private PersonSearchService service;
+    private final LocalDateTime now = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        PersonSearchProperties properties = new PersonSearchProperties();
+        properties.setLoadBatchSize(2);
+        service = new PersonSearchService(personRepository, properties);
+    }
+
+    @Test
+    void pinyin_convertsCommonCharacters() {
+        assertEquals("zhangsan", Pinyin.full("张三"));
+        assertEquals("zs", Pinyin.initials("张 三"));
+        assertEquals("lvxiaoming", Pinyin.full("吕晓明"));
+        assertEquals("wangjohn", Pinyin.full("王John"));
+        assertNull(Pinyin.full("John Smith"));
+        // GB2312 二级字与 GBK 扩展字
+        assertEquals("wangting", Pinyin.full("王婷"));
+        assertEquals("zyxhl", Pinyin.initials("梓怡萱晗璐"));
+        assertEquals("liuyu", Pinyin.full("刘昱"));
+        // 查不到读音的字（扩展 B 区）不生成截断的键
+        assertNull(Pinyin.full("王\uD840\uDC00"));
+        assertNull(Pinyin.initials("王\uD840\uDC00"));
+    }
+
+    @Test
+    void search_matchesNamesAliasesAndPinyinWithRanking() {
+        load(person("p1", "张三", "Zhang San", List.of("老张"), now),
+                person("p2", "张三丰", null, null, now),
+                person("p3", "李四", "Li Si", List.of("张三的朋友"), now));
+
+        assertEquals(List.of("p1", "p2", "p3"), ids("张三"));
+        assertEquals(List.of("p1"), ids("老张"));
+        // 原始姓名完全匹配优先于拼音前缀；别名“张三的朋友”的全拼 / 首字母也以 zhangsan / zs 开头
+        assertEquals(List.of("p1", "p2", "p3"), ids("zhangsan"));
+        assertEquals(List.of("p1", "p2", "p3"), ids("zs"));
+        assertEquals(List.of("p3"), ids("li si"));
+        assertEquals(3, service.search("张", null, 0, 10).total());
+    }
+
+    @Test
+    void search_identifiersMatchAfterNormalisationAndDocumentFragments() {
+        Person p = person("p1", "王五", null, null, now);
+        p.setPassportNumber("E1234 5678");
+        p.setPhoneNumbers(List.of("+86 138-0013-8000"));
+        p.setEmails(List.of("Wang.Wu@Example.com"));
+        p.setIdCardNumber("11010519491231002x");
+        load(p, person("p2", "王五六", null, null, now));
+
+        assertEquals(List.of("p1"), ids("e12345678"));
+        assertEquals(List.of("p1"), ids("8613800138000"));
+        assertEquals(List.of("p1"), ids("wang.wu@example.com"));
+        assertEquals(List.of("p1"), ids("11010519491231002X"));
+        // 证件号片段（4 位以上）也能命中，精确命中排在片段命中之前
+        assertEquals(List.of("p1"), ids("E1234"));
+        assertEquals(List.of("p1"), ids("19491231"));
+        assertEquals(List.of(), ids("E12"));
+        assertEquals(List.of(), ids("1949x231"));
+        Person other = person("p3", "钱七", null, null, now);
+        other.setIdNumber("E12345678901");
+        load(p, person("p2", "王五六", null, null, now), other);
+        assertEquals(List.of("p1", "p3"), ids("E12345678"));
+    }
+
+    @Test
+    void search_appliesVisibilityAndSoftDelete() {
+        Person secret = person("p1", "赵六", null, null, now);
+        secret.setIsPublic(false);
+        secret.setCreatedBy("alice");
+        Person removed = person("p2", "赵六", null, null, now);
+        removed.setDeleted(true);
+        load(secret, removed);
+
+        assertEquals(List.of(), ids("赵六"));
+        assertEquals(List.of("p1"), service.search("赵六", "alice", 0, 10).personIds());
+    }
+
+    @Test
+    void search_pagesByOffsetWithUpdatedTimeTieBreak() {
+        load(person("p1", "陈明", null, null, now.minusDays(2)),
+                person("p2", "陈明", null, null, now),
+                person("p3", "陈明", null, null, now.minusDays(1)));
+
+        PersonSearchIndex.Result first = service.search("陈明", null, 0, 2);
+        PersonSearchIndex.Result second = service.search("陈明", null, 2, 2);
+        assertEquals(List.of("p2", "p3"), first.personIds());
+        assertEquals(List.of("p1"), second.personIds());
+        assertEquals(3, first.total());
+    }
+
+    @Test
+    void refresh_appliesUpdatesAndCompactsWhenManyEntriesAreStale() {
+        load(person("p1", "周杰", null, null, now), person("p2", "周杰", null, null, now));
+        Person renamed = person("p1", "周伦", null, null, now.plusMinutes(1));
+        Person deleted = person("p2", "周杰", null, null, now.plusMinutes(2));
+        deleted.setDeleted(true);
+        when(personRepository.findUpdatedBetween(any(), anyString(), any(), anyInt()))
+                .thenReturn(List.of(renamed, deleted))
+                .thenReturn(List.of());
+
+        LocalDateTime before = LocalDateTime.now();
+        assertEquals(2, service.refresh());
+
+        assertEquals(List.of(), ids("周杰"));
+        assertEquals(List.of("p1"), ids("周伦"));
+        assertEquals(List.of("p1"), ids("zl"));
+        verify(personRepository).findUpdatedBetween(eq(now.plusMinutes(2)), eq("p2"), any(), eq(2));
+        // 只读取更新满 ingest-lag-seconds 的档案，一轮内上界不变
+        ArgumentCaptor<LocalDateTime> until = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(personRepository, times(2)).findUpdatedBetween(any(), anyString(), until.capture(), eq(2));
+        assertFalse(until.getValue().isAfter(LocalDateTime.now().minusSeconds(30)));
+        assertFalse(until.getValue().isBefore(before.minusSeconds(30)));
+        assertEquals(until.getAllValues().get(0), until.getAllValues().get(1));
+    }
+
+    @Test
+    void suggest_matchesPrefixesOfNamesOrganisationsAndTagsRankedByWeight() {
+        Person p1 = person("p1", "张三", "Zhang San", null, now);
+        p1.setOrganization("中山大学");
+        p1.setPersonTags(List.of("学者"));
+        Person p2 = person("p2", "张伟", null, null, now);
+        p2.setIsKeyPerson(true);
+        p2.setOrganization("中山大学");
+        load(p1, p2, person("p3", "李中", null, List.of("中山"), now));
+
+        assertEquals(List.of("中山大学", "中山"), texts("中山"));
+        assertEquals(2, service.suggest("中山", null, 10).get(0).getWeight());
+        assertEquals(List.of("张伟", "张三"), texts("张"));
+        assertEquals(List.of("张伟", "Zhang San", "张三"), texts("zha"));
+        assertEquals(List.of("中山大学"), texts("zsdx"));
+        assertEquals(List.of("学者"), texts("xuez"));
+        assertEquals(List.of("张伟"), texts("张", 1));
+        assertEquals(List.of(), texts(" "));
+        assertEquals(List.of(), texts("王"));
+    }
+
+    @Test
+    void suggest_appliesVisibilityPerCreator() {
+        Person secret = person("p1", "赵六", null, null, now);
+        secret.setIsPublic(false);
+        secret.setCreatedBy("alice");
+        secret.setOrganization("赵氏集团");
+        Person open = person("p2", "赵七", null, null, now);
+        open.setOrganization("赵氏集团");
+        load(secret, open);
+
+        assertEquals(List.of("赵七", "赵氏集团"), texts("赵"));
+        assertEquals(1, service.suggest("赵氏", null, 10).get(0).getWeight());
+        List<PersonSuggestionDTO> alice = service.suggest("赵", "alice", 10);
+        // 公开与本人非公开档案中的同名机构合并为一条，权重相加
+        assertEquals(List.of("赵氏集团", "赵七", "赵六"), alice.stream().map(PersonSuggestionDTO::getText).toList());
+        assertEquals(2, alice.get(0).getWeight());
+        assertEquals("p1", alice.get(2).getPersonId());
+    }
+
+    @Test
+    void suggest_followsIncrementalUpdatesAndDeletes() {
+        Person p1 = person("p1", "周杰", null, null, now);
+        p1.setOrganization("华语乐坛");
+        Person p2 = person("p2", "周星", null, null, now);
+        p2.setOrganization("华语乐坛");
+        load(p1, p2);
+        assertEquals(2, service.suggest("华语", null, 10).get(0).getWeight());
+
+        Person renamed = person("p1", "吴杰", null, null, now.plusMinutes(1));
+        Person deleted = person("p2", "周星", null, null, now.plusMinutes(2));
+        deleted.setDeleted(true);
+        Person added = person("p3", "周润", null, null, now.plusMinutes(3));
+        when(personRepository.findUpdatedBetween(any(), anyString(), any(), anyInt()))
+                .thenReturn(List.of(renamed, deleted, added))
+                .thenReturn(List.of());
+        service.refresh();
+
+        assertEquals(List.of("周润"), texts("周"));
+        assertEquals(List.of("吴杰"), texts("wj"));
+        assertEquals(List.of(), texts("华语"));
+    }
+
+    @Test
+    void suggestIndex_keepsNodeCachesConsistentAcrossSplitsAndMerges() {
+        PersonSuggestIndex index = new PersonSuggestIndex(2);
+        index.seal();
+        index.upsert(person("p1", "abc", null, null, now));
+        index.upsert(person("p2", "abd", null, null, now));
+        Person key = person("p3", "ab", null, null, now);
+        key.setIsKeyPerson(true);
+        index.upsert(key);
+
+        assertEquals(List.of("ab", "abc"), index.suggest("a", null, 10).stream().map(PersonSuggestIndex.Suggestion::text).toList());
+        index.remove("p3");
+        assertEquals(List.of("abc", "abd"), index.suggest("ab", null, 10).stream().map(PersonSuggestIndex.Suggestion::text).toList());
+        index.remove("p1");
+        assertEquals(List.of("abd"), index.suggest("a", null, 10).stream().map(PersonSuggestIndex.Suggestion::text).toList());
+        assertEquals(List.of(), index.suggest("abc", null, 10));
+    }
+
+    private void load(Person... persons) {
+        List<Person> all = List.of(persons);
+        when(personRepository.findPageAfterId(anyString(), anyInt())).thenAnswer(inv -> {
+            String after = inv.getArgument(0);
+            int limit = inv.getArgument(1);
+            return all.stream()
+                    .filter(p -> p.getPersonId().compareTo(after) > 0)
+                    .sorted((a, b) -> a.getPersonId().compareTo(b.getPersonId()))
+                    .limit(limit)
+                    .toList();
+        });
+        service.loadAll();
+        assertTrue(service.isReady());
+    }
+
+    private List<String> texts(String prefix) {
+        return texts(prefix, 10);
+    }
+
+    private List<String> texts(String prefix, int limit) {
+        return service.suggest(prefix, null, limit).stream().map(PersonSuggestionDTO::getText).toList();
+    }
+
+    private List<String> ids(String keyword) {
+        return service.search(keyword, null, 0, 10).personIds();
+    }
+
+    private static Person person(String id, String chineseName, String originalName, List<String> aliases,
+                                 LocalDateTime updatedTime) {
+        Person p = new Person();
+        p.setPersonId(id);
+        p.setChineseName(chineseName);
+        p.setOriginalName(originalName);
+        p.setAliasNames(aliases);
+        p.setIsPublic(true);
+        p.setDeleted(false);
+        p.setUpdatedTime(updatedTime);
+        return p;
+    }
+}
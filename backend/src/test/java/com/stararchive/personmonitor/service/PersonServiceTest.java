@@ -19,10 +19,13 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 /**
@@ -41,6 +44,9 @@ class PersonServiceTest {
     
     @Mock
     private TagRepository tagRepository;
+
+    @Mock
+    private PersonSearchService personSearchService;
     
     @InjectMocks
     private PersonService personService;
@@ -92,4 +98,32 @@ class PersonServiceTest {
             personService.getPersonDetail("not-exist", null);
         });
     }
+
+    @Test
+    void testKeywordSearchRechecksVisibilityWhenIndexIsStale() {
+        // 索引尚未刷新：p2 已改为他人私有，p4 已软删，仍在索引命中中
+        when(personSearchService.isReady()).thenReturn(true);
+        when(personSearchService.search(eq("张"), eq("alice"), eq(0), anyInt()))
+                .thenReturn(new PersonSearchIndex.Result(List.of("p1", "p2", "p3", "p4"), 4));
+        when(personRepository.findAllById(List.of("p1", "p2", "p3", "p4"))).thenReturn(List.of(
+                person("p1", true, "bob", false),
+                person("p2", false, "bob", false),
+                person("p3", false, "alice", false),
+                person("p4", true, "alice", true)));
+
+        PageResponse<PersonCardDTO> result = personService.getPersonListFiltered(0, 10, null, null, null, null,
+                null, null, null, null, "张", false, " alice ");
+
+        assertEquals(List.of("p1", "p3"), result.getContent().stream().map(PersonCardDTO::getPersonId).toList());
+    }
+
+    private static Person person(String id, boolean isPublic, String createdBy, boolean deleted) {
+        Person p = new Person();
+        p.setPersonId(id);
+        p.setChineseName("张" + id);
+        p.setIsPublic(isPublic);
+        p.setCreatedBy(createdBy);
+        p.setDeleted(deleted);
+        return p;
+    }
 }
@@ -0,0 +1,189 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.PersonTimelineProperties;
+import com.stararchive.personmonitor.dto.PersonTravelDTO;
+import com.stararchive.personmonitor.dto.PersonTravelStatsDTO;
+import com.stararchive.personmonitor.dto.PersonTravelTimelineDTO;
+import com.stararchive.personmonitor.entity.Person;
+import com.stararchive.personmonitor.entity.PersonTravel;
+import com.stararchive.personmonitor.repository.PersonRepository;
+import com.stararchive.personmonitor.repository.PersonTravelRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PersonTravelTimelineService / PersonTravelTimeline 单元测试：游标翻页、热点人物紧凑缓存、统计与参数校验
+ */
+class PersonTravelTimelineServiceTest {
+
+    @Mock
+    private PersonTravelRepository travelRepository;
+    @Mock
+    private PersonRepository personRepository;
+
+    private PersonTravelTimelineService service;
+    private PersonTimelineProperties properties;
+    private final LocalDateTime day = LocalDateTime.of(2026, 1, 31, 8, 0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new PersonTimelineProperties();
+        service = new PersonTravelTimelineService(travelRepository, personRepository, properties);
+        Person p = new Person();
+        p.setPersonId("p1");
+        p.setIsPublic(true);
+        p.setDeleted(false);
+        when(personRepository.findById("p1")).thenReturn(Optional.of(p));
+    }
+
+    @Test
+    void timeline_pagesFromDatabaseWithCursor() {
+        properties.setCacheEnabled(false);
+        when(travelRepository.findTimelinePage(eq("p1"), any(), any(), any(), anyLong(), eq(3)))
+                .thenReturn(List.of(travel(5, day.plusDays(2), "上海"), travel(4, day.plusDays(1), "北京"), travel(3, day.plusDays(1), "北京")))
+                .thenReturn(List.of(travel(3, day.plusDays(1), "北京")));
+
+        PersonTravelTimelineDTO first = service.timeline("p1", null, null, null, 2, null);
+        assertEquals(List.of(5L, 4L), ids(first));
+        assertTrue(first.isHasMore());
+        verify(travelRepository).findTimelinePage(eq("p1"), any(), any(), eq(LocalDateTime.of(9999, 12, 31, 23, 59, 59)), eq(Long.MAX_VALUE), eq(3));
+
+        PersonTravelTimelineDTO second = service.timeline("p1", null, null, first.getNextCursor(), 2, null);
+        assertEquals(List.of(3L), ids(second));
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+        verify(travelRepository).findTimelinePage(eq("p1"), any(), any(), eq(day.plusDays(1)), eq(4L), eq(3));
+    }
+
+    @Test
+    void timeline_servesHotPersonsFromCompactCache() {
+        properties.setHotViews(2);
+        List<PersonTravel> all = sample();
+        when(travelRepository.findTimelinePage(eq("p1"), any(), any(), any(), anyLong(), anyInt())).thenReturn(all);
+
+        service.timeline("p1", null, null, null, 2, null);
+        verify(travelRepository, times(1)).findTimelinePage(eq("p1"), any(), any(), any(), anyLong(), anyInt());
+
+        // 第二次查看达到热点阈值：整条载入（按 max-cached-rows + 1 读取），之后的翻页不再查库
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            PersonTravelTimelineDTO page = service.timeline("p1", null, null, cursor, 2, null);
+            seen.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(List.of(6L, 5L, 4L, 3L, 2L, 1L), seen);
+        verify(travelRepository).findTimelinePage(eq("p1"), any(), any(), any(), eq(Long.MAX_VALUE), eq(20_001));
+        verify(travelRepository, times(2)).findTimelinePage(eq("p1"), any(), any(), any(), anyLong(), anyInt());
+
+        PersonTravelTimelineDTO ranged = service.timeline("p1", day.plusDays(1), day.plusDays(29), null, 10, null);
+        assertEquals(List.of(4L, 3L), ids(ranged));
+        PersonTravelDTO row = ranged.getItems().get(0);
+        assertEquals("北京", row.getDestinationCity());
+        assertEquals("G7000", row.getTicketNumber());
+        assertEquals("p1", row.getPersonId());
+        assertNull(row.getVisaType());
+    }
+
+    @Test
+    void stats_aggregatesInMemoryForHotPersons() {
+        properties.setHotViews(1);
+        when(travelRepository.findTimelinePage(eq("p1"), any(), any(), any(), anyLong(), anyInt())).thenReturn(sample());
+
+        PersonTravelStatsDTO stats = service.stats("p1", null, null, 2, null);
+        assertEquals(6, stats.getTotal());
+        assertEquals(day.minusDays(40), stats.getFirstTime());
+        assertEquals(day.plusDays(30), stats.getLastTime());
+        assertEquals(List.of("2025-12", "2026-01", "2026-02", "2026-03"),
+                stats.getMonths().stream().map(PersonTravelStatsDTO.Month::getMonth).toList());
+        PersonTravelStatsDTO.Month feb = stats.getMonths().get(2);
+        assertEquals(2, feb.getCount());
+        assertEquals(Map.of("TRAIN", 2), feb.getByType());
+        assertEquals(List.of("北京", "上海"),
+                stats.getTopDestinations().stream().map(PersonTravelStatsDTO.Destination::getCity).toList());
+        assertEquals(3, stats.getTopDestinations().get(0).getCount());
+
+        PersonTravelStatsDTO ranged = service.stats("p1", day, day.plusDays(1), 10, null);
+        assertEquals(3, ranged.getTotal());
+        verify(travelRepository, never()).findMonthlyCountsByPerson(any(), any(), any());
+    }
+
+    @Test
+    void stats_mapsDatabaseAggregatesForColdPersons() {
+        List<Object[]> summary = new ArrayList<>();
+        summary.add(new Object[]{3L, Timestamp.valueOf(day), Timestamp.valueOf(day.plusDays(1))});
+        List<Object[]> monthly = new ArrayList<>();
+        monthly.add(new Object[]{"2026-01", "FLIGHT", 1L});
+        monthly.add(new Object[]{"2026-02", "TRAIN", 2L});
+        List<Object[]> cities = new ArrayList<>();
+        cities.add(new Object[]{"北京", 2L});
+        when(travelRepository.findTimelineSummary(eq("p1"), any(), any())).thenReturn(summary);
+        when(travelRepository.findMonthlyCountsByPerson(eq("p1"), any(), any())).thenReturn(monthly);
+        when(travelRepository.findTopDestinationCitiesByPerson(eq("p1"), any(), any(), eq(5))).thenReturn(cities);
+
+        PersonTravelStatsDTO stats = service.stats("p1", null, null, 5, null);
+        assertEquals(3, stats.getTotal());
+        assertEquals(day.plusDays(1), stats.getLastTime());
+        assertEquals(2, stats.getMonths().size());
+        assertEquals(Map.of("TRAIN", 2), stats.getMonths().get(1).getByType());
+        assertEquals("北京", stats.getTopDestinations().get(0).getCity());
+    }
+
+    @Test
+    void rejectsInvalidRequestsAndSkipsOversizedTimelines() {
+        assertThrows(IllegalArgumentException.class, () -> service.timeline("p1", null, null, "not-a-cursor", 10, null));
+        assertThrows(IllegalArgumentException.class, () -> service.timeline("p1", day, day.minusDays(1), null, 10, null));
+        assertThrows(EntityNotFoundException.class, () -> service.timeline("missing", null, null, null, 10, null));
+
+        properties.setHotViews(1);
+        properties.setMaxCachedRows(3);
+        when(travelRepository.findTimelinePage(eq("p1"), any(), any(), any(), anyLong(), anyInt())).thenReturn(sample());
+        assertNull(service.compact("p1"));
+        assertNull(service.compact("p1"));
+        verify(travelRepository, times(2)).findTimelinePage(eq("p1"), any(), any(), any(), anyLong(), eq(4));
+    }
+
+    private static List<Long> ids(PersonTravelTimelineDTO page) {
+        return page.getItems().stream().map(PersonTravelDTO::getTravelId).toList();
+    }
+
+    /** 按 (event_time, travel_id) 倒序，与库中查询的排序一致；3、4 发生时间相同 */
+    private List<PersonTravel> sample() {
+        PersonTravel flight = travel(2, day, "上海");
+        flight.setTravelType("FLIGHT");
+        return List.of(
+                travel(6, day.plusDays(30), "上海"),
+                travel(5, day.plusDays(29).plusMinutes(1), "北京"),
+                travel(4, day.plusDays(1), "北京"),
+                travel(3, day.plusDays(1), "北京"),
+                flight,
+                travel(1, day.minusDays(40), null));
+    }
+
+    private PersonTravel travel(long id, LocalDateTime time, String city) {
+        PersonTravel t = new PersonTravel();
+        t.setTravelId(id);
+        t.setPersonId("p1");
+        t.setPersonName("张三");
+        t.setEventTime(time);
+        t.setTravelType("TRAIN");
+        t.setTicketNumber("G7000");
+        t.setDestinationCity(city);
+        return t;
+    }
+}
@@ -0,0 +1,123 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.entity.QaMessage;
+import com.stararchive.personmonitor.entity.QaSessionSummary;
+import com.stararchive.personmonitor.repository.QaMessageRepository;
+import com.stararchive.personmonitor.repository.QaSessionSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * QaConversationMemoryService 单元测试：只读取窗口内消息、摘要随提示词传入、按 token 预算舍弃最早消息、增量折叠摘要
+ */
+class QaConversationMemoryServiceTest {
+
+    @Mock
+    private QaMessageRepository qaMessageRepository;
+    @Mock
+    private QaSessionSummaryRepository summaryRepository;
+    @Mock
+    private LlmGatewayService llmGateway;
+
+    private QaConversationMemoryService memory;
+    private final List<QaMessage> messages = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        memory = new QaConversationMemoryService(qaMessageRepository, summaryRepository, llmGateway);
+        when(summaryRepository.findById("s1")).thenReturn(Optional.empty());
+        when(qaMessageRepository.countBySessionId("s1")).thenAnswer(inv -> (long) messages.size());
+        when(qaMessageRepository.findSliceBySessionId(eq("s1"), anyLong(), anyInt())).thenAnswer(inv -> {
+            int offset = (int) (long) inv.getArgument(1);
+            int limit = inv.getArgument(2);
+            return messages.subList(Math.min(offset, messages.size()), Math.min(offset + limit, messages.size()));
+        });
+    }
+
+    @Test
+    void historyMessages_readsOnlyTailWithinWindow() {
+        addMessages(40);
+
+        List<Map<String, String>> history = memory.historyMessages("s1");
+
+        verify(qaMessageRepository, never()).findBySessionIdOrderByCreatedTimeAsc(anyString());
+        verify(qaMessageRepository).findSliceBySessionId("s1", 24L, 16);
+        assertEquals(16, history.size());
+        assertEquals("消息39", history.get(history.size() - 1).get("content"));
+    }
+
+    @Test
+    void historyMessages_prependsSummaryAndSkipsSummarizedMessages() {
+        addMessages(14);
+        QaSessionSummary summary = new QaSessionSummary("s1", "此前讨论了张三的出行记录", 6, LocalDateTime.now());
+        when(summaryRepository.findById("s1")).thenReturn(Optional.of(summary));
+
+        List<Map<String, String>> history = memory.historyMessages("s1");
+
+        assertEquals("system", history.get(0).get("role"));
+        assertTrue(history.get(0).get("content").contains("此前讨论了张三的出行记录"));
+        assertEquals(9, history.size());
+        assertEquals("消息6", history.get(1).get("content"));
+    }
+
+    @Test
+    void historyMessages_dropsOldestMessagesOverTokenBudgetButKeepsCurrentQuestion() {
+        addMessages(3);
+        messages.get(0).setContent("长".repeat(2_000));
+        messages.get(1).setContent("长".repeat(2_000));
+        messages.get(2).setContent("当前问题" + "长".repeat(4_000));
+
+        List<Map<String, String>> history = memory.historyMessages("s1");
+
+        assertEquals(1, history.size());
+        assertTrue(history.get(0).get("content").startsWith("当前问题"));
+    }
+
+    @Test
+    void updateSummary_foldsMessagesBeforeWindowIncrementally() {
+        addMessages(16);
+        when(llmGateway.chat(eq(QaConversationMemoryService.SUMMARY_CALLER), anyMap())).thenReturn(" 新摘要 ");
+
+        assertEquals(6, memory.updateSummary("s1"));
+
+        ArgumentCaptor<QaSessionSummary> saved = ArgumentCaptor.forClass(QaSessionSummary.class);
+        verify(summaryRepository).save(saved.capture());
+        assertEquals("新摘要", saved.getValue().getSummary());
+        assertEquals(6, saved.getValue().getSummarizedCount());
+        verify(qaMessageRepository).findSliceBySessionId("s1", 0L, 6);
+
+        when(summaryRepository.findById("s1")).thenReturn(Optional.of(saved.getValue()));
+        addMessages(2);
+        assertEquals(0, memory.updateSummary("s1"));
+        verify(llmGateway, times(1)).chat(anyString(), anyMap());
+    }
+
+    @Test
+    void estimateTokens_countsCjkPerCharacterAndAsciiPerFourChars() {
+        assertEquals(2, QaConversationMemoryService.estimateTokens("你好"));
+        assertEquals(2, QaConversationMemoryService.estimateTokens("abcdefgh"));
+        assertEquals(0, QaConversationMemoryService.estimateTokens(null));
+    }
+
+    private void addMessages(int count) {
+        int start = messages.size();
+        for (int i = start; i < start + count; i++) {
+            messages.add(new QaMessage("m" + i, "s1", i % 2 == 0 ? QaMessage.ROLE_USER : QaMessage.ROLE_ASSISTANT,
+                    "消息" + i, LocalDateTime.now()));
+        }
+    }
+}
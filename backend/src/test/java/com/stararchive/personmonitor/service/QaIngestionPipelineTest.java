@@ -0,0 +1,153 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.config.QaIngestionProperties;
+import com.stararchive.personmonitor.dto.QaIngestionMetricsDTO;
+import com.stararchive.personmonitor.entity.QaChunk;
+import com.stararchive.personmonitor.entity.QaDocument;
+import com.stararchive.personmonitor.repository.QaChunkRepository;
+import com.stararchive.personmonitor.repository.QaDocumentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * QaIngestionPipeline 单元测试：按批嵌入与批量写库、多文档并发完成、失败时清理分块、文档中途删除
+ */
+class QaIngestionPipelineTest {
+
+    @Mock
+    private QaDocumentRepository qaDocumentRepository;
+    @Mock
+    private QaChunkRepository qaChunkRepository;
+    @Mock
+    private SeaweedFSService seaweedFSService;
+    @Mock
+    private ArchiveExtractionAsyncExecutor archiveExtractionAsyncExecutor;
+    @Mock
+    private EmbeddingService embeddingService;
+
+    private QaIngestionPipeline pipeline;
+    private final List<QaChunk> inserted = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        QaIngestionProperties properties = new QaIngestionProperties();
+        properties.setEmbedBatchSize(4);
+        properties.setParseWorkers(2);
+        pipeline = new QaIngestionPipeline(qaDocumentRepository, qaChunkRepository, seaweedFSService,
+                archiveExtractionAsyncExecutor, embeddingService, properties);
+        when(qaDocumentRepository.updateStatus(anyString(), anyString(), any(), any())).thenReturn(1);
+        when(seaweedFSService.download(anyString())).thenAnswer(inv -> ("text-of-" + inv.getArgument(0)).getBytes(StandardCharsets.UTF_8));
+        when(archiveExtractionAsyncExecutor.parseFileToTextFromBytes(any(), anyString())).thenReturn("字".repeat(4_500));
+        when(embeddingService.embedBatch(anyList())).thenAnswer(inv -> {
+            List<float[]> vectors = new ArrayList<>();
+            for (int i = 0; i < ((List<?>) inv.getArgument(0)).size(); i++) {
+                vectors.add(new float[]{0.5f, 1f});
+            }
+            return vectors;
+        });
+        when(qaChunkRepository.insertBatch(anyList())).thenAnswer(inv -> {
+            List<QaChunk> rows = inv.getArgument(0);
+            inserted.addAll(rows);
+            return rows.size();
+        });
+        pipeline.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    void submit_embedsAndPersistsChunksInBatches() throws Exception {
+        assertTrue(pipeline.submit(doc("d1")));
+
+        verify(qaDocumentRepository, timeout(5_000)).updateStatus("d1", QaDocument.STATUS_READY, 10, null);
+        // 4500 字按 500 字、重叠 50 字切成 10 块，每批 4 块
+        verify(embeddingService, times(3)).embedBatch(anyList());
+        verify(qaChunkRepository, times(3)).insertBatch(anyList());
+        assertEquals(10, inserted.size());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9),
+                inserted.stream().map(QaChunk::getSeq).sorted().toList());
+        assertEquals("[0.5,1.0]", inserted.get(0).getEmbedding());
+        verify(qaDocumentRepository).updateStatus("d1", QaDocument.STATUS_PARSING, 0, null);
+        verify(qaDocumentRepository).updateStatus("d1", QaDocument.STATUS_EMBEDDING, 0, null);
+    }
+
+    @Test
+    void submit_processesManyDocumentsConcurrently() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            pipeline.submit(doc("d" + i));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            verify(qaDocumentRepository, timeout(5_000)).updateStatus("d" + i, QaDocument.STATUS_READY, 10, null);
+        }
+        assertEquals(200, inserted.size());
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (pipeline.metrics().getReadyDocuments() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        QaIngestionMetricsDTO metrics = pipeline.metrics();
+        assertEquals(20, metrics.getReadyDocuments());
+        assertEquals(0, metrics.getInProgressDocuments());
+        assertEquals(200, metrics.getPersistedChunks());
+        assertEquals(List.of("download", "parse", "chunk", "embed", "persist"),
+                metrics.getStages().stream().map(QaIngestionMetricsDTO.StageMetrics::getStage).toList());
+    }
+
+    @Test
+    void submit_marksDocumentFailedAndCleansChunksWhenStageThrows() {
+        when(embeddingService.embedBatch(anyList())).thenThrow(new IllegalStateException("嵌入服务不可用"));
+
+        pipeline.submit(doc("d1"));
+
+        verify(qaDocumentRepository, timeout(5_000)).updateStatus("d1", QaDocument.STATUS_FAILED, 0, "嵌入服务不可用");
+        verify(qaChunkRepository, atLeast(2)).deleteByDocId("d1");
+        verify(qaDocumentRepository, after(200).never()).updateStatus(eq("d1"), eq(QaDocument.STATUS_READY), any(), any());
+        assertEquals(1, pipeline.metrics().getFailedDocuments());
+    }
+
+    @Test
+    void submit_failsWhenFileCannotBeDownloaded() {
+        when(seaweedFSService.download(anyString())).thenReturn(new byte[0]);
+
+        pipeline.submit(doc("d1"));
+
+        verify(qaDocumentRepository, timeout(5_000)).updateStatus("d1", QaDocument.STATUS_FAILED, 0, "无法下载文件");
+        verifyNoInteractions(archiveExtractionAsyncExecutor);
+    }
+
+    @Test
+    void submit_removesChunksWhenDocumentDeletedDuringIngestion() {
+        when(qaDocumentRepository.updateStatus("d1", QaDocument.STATUS_READY, 10, null)).thenReturn(0);
+
+        pipeline.submit(doc("d1"));
+
+        verify(qaChunkRepository, timeout(5_000).times(2)).deleteByDocId("d1");
+        assertEquals(0, pipeline.metrics().getReadyDocuments());
+    }
+
+    private static QaDocument doc(String id) {
+        QaDocument doc = new QaDocument();
+        doc.setId(id);
+        doc.setKbId("kb1");
+        doc.setFileName(id + ".txt");
+        doc.setFilePathId("path/" + id);
+        doc.setStatus(QaDocument.STATUS_PENDING);
+        return doc;
+    }
+}
@@ -0,0 +1,132 @@
+package com.stararchive.personmonitor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SseTokenWriter 单元测试：按帧长合并、窗口到期定时发送、慢客户端不阻塞其他流、JSON 转义、发送失败后中止
+ */
+class SseTokenWriterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    /** 记录发送的 JSON 帧，可模拟发送失败 */
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> frames = new CopyOnWriteArrayList<>();
+        volatile boolean broken;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (broken) throw new IOException("Broken pipe");
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                if (MediaType.APPLICATION_JSON.equals(data.getMediaType())) {
+                    frames.add((String) data.getData());
+                }
+            }
+        }
+    }
+
+    @Test
+    void append_coalescesDeltasIntoFramesBySize() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseTokenWriter writer = new SseTokenWriter(emitter, 60_000, 10, 60_000);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            writer.append("字" + i);
+            expected.append("字").append(i);
+        }
+        writer.flush();
+
+        assertTrue(emitter.frames.size() < 50, "frames=" + emitter.frames.size());
+        assertEquals(expected.toString(), joinContent(emitter.frames));
+        assertEquals(emitter.frames.size(), writer.frames());
+    }
+
+    @Test
+    void append_flushesOnTimerWhenUpstreamPauses() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseTokenWriter writer = new SseTokenWriter(emitter, 30, 1_000, 60_000);
+
+        writer.append("你");
+        writer.append("好");
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (emitter.frames.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("你好", joinContent(emitter.frames));
+        assertEquals(1, emitter.frames.size());
+    }
+
+    @Test
+    void timerFlushOfOneStreamIsNotBlockedByAnotherSlowClient() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(builder);
+            }
+        };
+        RecordingEmitter fast = new RecordingEmitter();
+        SseTokenWriter slowWriter = new SseTokenWriter(slow, 20, 1_000, 60_000);
+        SseTokenWriter fastWriter = new SseTokenWriter(fast, 20, 1_000, 60_000);
+        try {
+            slowWriter.append("慢");
+            Thread.sleep(100);
+            fastWriter.append("快");
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (fast.frames.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("快", joinContent(fast.frames));
+            assertTrue(slow.frames.isEmpty());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void frame_escapesJsonSpecialCharacters() throws Exception {
+        String text = "引号\" 反斜杠\\ 换行\n制表\t";
+
+        String frame = SseTokenWriter.frame(text);
+
+        assertEquals(text, objectMapper.readTree(frame).path("content").asText());
+    }
+
+    @Test
+    void append_throwsAfterSendFailure() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SseTokenWriter writer = new SseTokenWriter(emitter, 60_000, 1, 60_000);
+        emitter.broken = true;
+
+        assertThrows(IOException.class, () -> writer.append("a"));
+        assertThrows(IOException.class, () -> writer.append("b"));
+        assertThrows(IOException.class, writer::flush);
+    }
+
+    private String joinContent(List<String> frames) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (String frame : frames) {
+            sb.append(objectMapper.readTree(frame).path("content").asText());
+        }
+        return sb.toString();
+    }
+}
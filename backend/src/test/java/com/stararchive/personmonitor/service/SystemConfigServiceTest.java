@@ -0,0 +1,89 @@
+package com.stararchive.personmonitor.service;
+
+import com.stararchive.personmonitor.dto.SystemConfigDTO;
+import com.stararchive.personmonitor.entity.SystemConfig;
+import com.stararchive.personmonitor.repository.SystemConfigRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * SystemConfigService 单元测试：配置快照缓存、更新后替换快照、按 config_version 感知其他副本的变更
+ */
+class SystemConfigServiceTest {
+
+    @Mock
+    private SystemConfigRepository systemConfigRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SystemConfigService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new SystemConfigService(systemConfigRepository, eventPublisher);
+        when(systemConfigRepository.findAllByOrderByConfigKeyAsc()).thenReturn(List.of(
+                row("config_version", "v1"), row("llm_model", "qwen-plus"), row("system_name", "档案")));
+    }
+
+    @Test
+    void getConfig_readsDatabaseOnceAndReturnsCopies() {
+        SystemConfigDTO first = service.getConfig();
+        SystemConfigDTO second = service.getConfig();
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals("qwen-plus", first.getLlmModel());
+        // 返回副本：调用方修改不影响快照
+        first.setLlmModel("changed");
+        assertEquals("qwen-plus", service.getConfig().getLlmModel());
+        verify(systemConfigRepository, times(1)).findAllByOrderByConfigKeyAsc();
+    }
+
+    @Test
+    void updateConfig_swapsSnapshotWithoutReloading() {
+        service.getConfig();
+        when(systemConfigRepository.findById(anyString())).thenReturn(Optional.empty());
+        SystemConfigDTO dto = new SystemConfigDTO();
+        dto.setLlmModel("deepseek-chat");
+
+        service.updateConfig(dto);
+
+        assertEquals("deepseek-chat", service.getConfig().getLlmModel());
+        verify(systemConfigRepository, times(1)).findAllByOrderByConfigKeyAsc();
+        verify(systemConfigRepository).save(argThat(c -> "config_version".equals(c.getConfigKey())));
+        verify(eventPublisher, times(1)).publishEvent(any(SystemConfigService.ConfigChangedEvent.class));
+    }
+
+    @Test
+    void refreshIfChanged_reloadsOnlyWhenVersionChanges() {
+        service.getConfig();
+        when(systemConfigRepository.findById("config_version")).thenReturn(Optional.of(row("config_version", "v1")));
+        service.refreshIfChanged();
+        verify(systemConfigRepository, times(1)).findAllByOrderByConfigKeyAsc();
+
+        // 其他副本更新了配置
+        when(systemConfigRepository.findById("config_version")).thenReturn(Optional.of(row("config_version", "v2")));
+        when(systemConfigRepository.findAllByOrderByConfigKeyAsc()).thenReturn(List.of(
+                row("config_version", "v2"), row("llm_model", "qwen-max")));
+        service.refreshIfChanged();
+
+        assertEquals("qwen-max", service.getConfig().getLlmModel());
+        verify(systemConfigRepository, times(2)).findAllByOrderByConfigKeyAsc();
+    }
+
+    private static SystemConfig row(String key, String value) {
+        return new SystemConfig(key, value, LocalDateTime.now());
+    }
+}
@@ -1,6 +1,7 @@
 -- ==========================================
 -- 人员档案 - 数据库初始化脚本
 -- Doris 4.0
+-- 会删除并重建整个库，仅用于新建环境；已有库升级按顺序执行 08、09 增量迁移脚本
 -- ==========================================
 DROP DATABASE IF EXISTS `person_monitor`;
 CREATE DATABASE IF NOT EXISTS `person_monitor`;
@@ -85,6 +86,23 @@ ALTER TABLE person ADD INDEX idx_belonging_group (belonging_group) USING INVERTE
 ALTER TABLE person ADD INDEX idx_is_public (is_public) USING INVERTED;
 ALTER TABLE person ADD INDEX idx_created_by (created_by) USING INVERTED;
 
+-- 1.1 人物标识反查表：规范化后的手机号（E.164）、邮箱、护照号、社交账号 → 人物；随档案写入与导入合并同步维护
+CREATE TABLE IF NOT EXISTS person_identifier
+(
+    `identifier` VARCHAR(320) NOT NULL COMMENT '规范化后的标识值',
+    `id_type` VARCHAR(20) NOT NULL COMMENT '标识类型：phone/email/passport/twitter/linkedin/facebook',
+    `person_id` VARCHAR(200) NOT NULL COMMENT '人物编号',
+    `is_public` BOOLEAN DEFAULT 1 COMMENT '档案是否公开（冗余自 person，用于反查时的可见性过滤）',
+    `created_by` VARCHAR(100) COMMENT '档案创建人（冗余自 person）',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`identifier`, `id_type`, `person_id`)
+COMMENT "人物标识反查表"
+DISTRIBUTED BY HASH(identifier) BUCKETS 8
+PROPERTIES ("replication_num" = "1", "enable_unique_key_merge_on_write" = "true");
+
+ALTER TABLE person_identifier ADD INDEX idx_person_id (person_id) USING INVERTED;
+
 -- 2. 人物行为活动数据人物行程表 (Unique Key 模型)
 CREATE TABLE IF NOT EXISTS person_travel
 (
@@ -126,6 +144,65 @@ ALTER TABLE person_travel ADD INDEX idx_departure (departure) USING INVERTED;
 ALTER TABLE person_travel ADD INDEX idx_destination (destination) USING INVERTED;
 ALTER TABLE person_travel ADD INDEX idx_person_id (person_id) USING INVERTED;
 ALTER TABLE person_travel ADD INDEX idx_ticket (ticket_number) USING INVERTED;
+ALTER TABLE person_travel ADD INDEX idx_destination_city (destination_city) USING INVERTED;
+
+-- 2.1 同行证据表 (Unique Key 模型)：同一车次/航班（SAME_TRIP）或时间窗内到达同一城市（SAME_CITY）的两人，双向各存一行
+CREATE TABLE IF NOT EXISTS person_co_travel
+(
+    `person_id` VARCHAR(200) NOT NULL COMMENT '人物编号',
+    `companion_id` VARCHAR(200) NOT NULL COMMENT '同行人物编号',
+    `co_type` VARCHAR(20) NOT NULL COMMENT '同行类型: SAME_TRIP-同车次/航班, SAME_CITY-同时段到达同城',
+    `occur_key` VARCHAR(500) NOT NULL COMMENT '同行事件键: SAME_TRIP 为 行程类型|票据编号|日期，SAME_CITY 为 城市|较小行程ID|较大行程ID',
+    `occur_time` DATETIME NOT NULL COMMENT '同行发生时间（两条行程中较早的发生时间）',
+    `travel_id` BIGINT COMMENT '本人行程ID',
+    `companion_travel_id` BIGINT COMMENT '同行人行程ID',
+    `place` VARCHAR(300) COMMENT '票据编号或到达城市',
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+)
+UNIQUE KEY(`person_id`, `companion_id`, `co_type`, `occur_key`)
+COMMENT "人物同行证据表"
+DISTRIBUTED BY HASH(person_id) BUCKETS 16
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 2.2 同行次数表 (Unique Key 模型)：由同行证据按 (person_id, companion_id, co_type) 汇总，检测任务每批重算涉及人物的行
+CREATE TABLE IF NOT EXISTS person_co_travel_stat
+(
+    `person_id` VARCHAR(200) NOT NULL COMMENT '人物编号',
+    `companion_id` VARCHAR(200) NOT NULL COMMENT '同行人物编号',
+    `co_type` VARCHAR(20) NOT NULL COMMENT '同行类型: SAME_TRIP, SAME_CITY',
+    `co_count` INT NOT NULL COMMENT '同行次数',
+    `first_time` DATETIME COMMENT '首次同行时间',
+    `last_time` DATETIME COMMENT '最近同行时间',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`person_id`, `companion_id`, `co_type`)
+COMMENT "人物同行次数表"
+DISTRIBUTED BY HASH(person_id) BUCKETS 16
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 2.3 同行检测状态表 (Unique Key 模型)：行程入库水位与单副本执行租约
+CREATE TABLE IF NOT EXISTS person_co_travel_state
+(
+    `state_key` VARCHAR(64) NOT NULL COMMENT '检测任务标识',
+    `watermark_time` DATETIME COMMENT '已处理到的行程入库时间（person_travel.created_time）',
+    `watermark_travel_id` BIGINT COMMENT '同一入库时间内已处理到的行程ID',
+    `lease_owner` VARCHAR(200) COMMENT '当前执行检测的后端实例编号',
+    `lease_expire_time` DATETIME COMMENT '租约到期时间',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`state_key`)
+COMMENT "人物同行检测状态表"
+DISTRIBUTED BY HASH(state_key) BUCKETS 1
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
 
 -- 3.人物社交动态表 (Unique Key 模型)
 CREATE TABLE IF NOT EXISTS person_social_dynamic
@@ -201,9 +278,9 @@ PROPERTIES (
     "dynamic_partition.buckets" = "16"
 );
 
--- 新闻全文检索索引
-ALTER TABLE news ADD INDEX idx_title (title) USING INVERTED PROPERTIES("parser" = "standard");
-ALTER TABLE news ADD INDEX idx_content (content) USING INVERTED PROPERTIES("parser" = "standard");
+-- 新闻全文检索索引（中文分词，细粒度模式；support_phrase 供 MATCH_PHRASE 短语检索；已有库的索引迁移见 08-rebuild-news-fulltext-index.sql）
+ALTER TABLE news ADD INDEX idx_title (title) USING INVERTED PROPERTIES("parser" = "chinese", "parser_mode" = "fine_grained", "support_phrase" = "true");
+ALTER TABLE news ADD INDEX idx_content (content) USING INVERTED PROPERTIES("parser" = "chinese", "parser_mode" = "fine_grained", "support_phrase" = "true");
 ALTER TABLE news ADD INDEX idx_tags (tags) USING INVERTED;
 ALTER TABLE news ADD INDEX idx_category (category) USING INVERTED;
 ALTER TABLE news ADD INDEX idx_publish_time (publish_time) USING INVERTED;
@@ -221,6 +298,7 @@ CREATE TABLE IF NOT EXISTS event
     `news_count` INT DEFAULT 0 COMMENT '关联新闻数量（冗余）',
     `first_publish_time` DATETIME COMMENT '最早关联新闻发布时间',
     `last_publish_time` DATETIME COMMENT '最晚关联新闻发布时间',
+    `status` VARCHAR(20) COMMENT '聚合状态：OPEN 仍接收新新闻 / CLOSED 已关闭（空视为已关闭）',
     `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
 )
@@ -245,6 +323,26 @@ PROPERTIES ("replication_num" = "1", "enable_unique_key_merge_on_write" = "true"
 ALTER TABLE event ADD INDEX idx_event_date (event_date) USING INVERTED;
 ALTER TABLE event_news ADD INDEX idx_event_id (event_id) USING INVERTED;
 ALTER TABLE event_news ADD INDEX idx_news_id (news_id) USING INVERTED;
+ALTER TABLE event ADD INDEX idx_status (status) USING INVERTED;
+ALTER TABLE news ADD INDEX idx_created_time (created_time) USING INVERTED;
+
+-- 4.3 事件增量聚合状态表（新闻入库水位与单副本执行租约）
+CREATE TABLE IF NOT EXISTS event_aggregation_state
+(
+    `state_key` VARCHAR(64) NOT NULL COMMENT '聚合任务标识',
+    `watermark_time` DATETIME COMMENT '已处理到的新闻入库时间（news.created_time）',
+    `watermark_news_id` VARCHAR(64) COMMENT '同一入库时间内已处理到的新闻编号',
+    `lease_owner` VARCHAR(200) COMMENT '当前执行聚合的后端实例编号',
+    `lease_expire_time` DATETIME COMMENT '租约到期时间',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`state_key`)
+COMMENT "事件增量聚合状态表"
+DISTRIBUTED BY HASH(state_key) BUCKETS 1
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
 
 -- 5. 标签表 (Unique Key 模型)
 CREATE TABLE IF NOT EXISTS tag
@@ -469,7 +567,11 @@ CREATE TABLE IF NOT EXISTS archive_import_task
     `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
     `completed_time` DATETIME COMMENT '任务完成时间（状态变为 SUCCESS 或 FAILED 时写入）',
-    `similar_match_fields` VARCHAR(500) COMMENT '相似档案判定属性组合，逗号分隔：originalName,birthDate,gender,nationality'
+    `similar_match_fields` VARCHAR(500) COMMENT '相似档案判定属性组合，逗号分隔：originalName,birthDate,gender,nationality',
+    `content_hash` VARCHAR(64) COMMENT '文件内容 SHA-256，相同内容复用已上传的 SeaweedFS 文件',
+    `processed_row_count` INT DEFAULT 0 COMMENT '断点：已处理的数据行数（含未提取到人物的行），进程重启后从下一行继续',
+    `lease_owner` VARCHAR(200) COMMENT '工作队列租约持有实例（多副本下领取任务的后端实例编号）',
+    `lease_expire_time` DATETIME COMMENT '租约到期时间：持有实例定期心跳续约，到期未续约的任务可被其他实例领取'
 )
 UNIQUE KEY(`task_id`)
 COMMENT "人员档案导入任务表"
@@ -482,6 +584,8 @@ PROPERTIES (
 ALTER TABLE archive_import_task ADD INDEX idx_status (status) USING INVERTED;
 ALTER TABLE archive_import_task ADD INDEX idx_creator (creator_user_id) USING INVERTED;
 ALTER TABLE archive_import_task ADD INDEX idx_created_time (created_time) USING INVERTED;
+ALTER TABLE archive_import_task ADD INDEX idx_content_hash (content_hash) USING INVERTED;
+ALTER TABLE archive_import_task ADD INDEX idx_lease_expire_time (lease_expire_time) USING INVERTED;
 
 -- 10.2 档案提取结果表
 CREATE TABLE IF NOT EXISTS archive_extract_result
@@ -498,7 +602,8 @@ CREATE TABLE IF NOT EXISTS archive_extract_result
     `confirmed` BOOLEAN DEFAULT 0 COMMENT '用户是否确认导入',
     `imported` BOOLEAN DEFAULT 0 COMMENT '是否已导入 person 表',
     `imported_person_id` VARCHAR(300) COMMENT '导入后的人物编号',
-    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `source_row_index` INT COMMENT '来源数据行号（表格从 1 开始，文档为 1），断点续跑时跳过已有结果的行'
 )
 UNIQUE KEY(`result_id`)
 COMMENT "档案提取结果表（结构化参考 person 表，人工确认后导入）"
@@ -535,6 +640,82 @@ ALTER TABLE archive_similar_match ADD INDEX idx_task_id (task_id) USING INVERTED
 ALTER TABLE archive_similar_match ADD INDEX idx_result_id (result_id) USING INVERTED;
 ALTER TABLE archive_similar_match ADD INDEX idx_person_id (person_id) USING INVERTED;
 
+-- 10.4 表格列映射模板表（Excel/CSV 表头 → 人物字段，命中时跳过大模型直接转换）
+CREATE TABLE IF NOT EXISTS archive_column_mapping
+(
+    `template_key` VARCHAR(64) NOT NULL COMMENT '模板编号：规范化表头序列的 SHA-256',
+    `header_signature` STRING COMMENT '表头列名序列（JSON 数组）',
+    `mapping_json` STRING COMMENT '列映射 JSON：{"列名":"人物字段"}，字段为 _ignore 表示忽略该列，未出现的列交给大模型',
+    `creator_username` VARCHAR(200) COMMENT '保存人用户名',
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`template_key`)
+COMMENT "档案融合表格列映射模板表"
+DISTRIBUTED BY HASH(template_key) BUCKETS 1
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 10.5 大模型抽取结果缓存表（相同文本、提示词、Schema 与模型的抽取结果复用，重试与重复上传不再重复调用大模型）
+CREATE TABLE IF NOT EXISTS archive_extract_cache
+(
+    `cache_key` VARCHAR(64) NOT NULL COMMENT '缓存键：SHA-256(text_hash|prompt_version|schema_version|model)',
+    `text_hash` VARCHAR(64) COMMENT '抽取文本 SHA-256',
+    `prompt_version` VARCHAR(64) COMMENT '提示词指纹：系统提示词、参考标签表与文件名的 SHA-256',
+    `schema_version` VARCHAR(64) COMMENT '人物 JSON Schema 内容 SHA-256',
+    `model` VARCHAR(200) COMMENT '大模型名称',
+    `result_json` STRING COMMENT '大模型抽取的人物 JSON',
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+)
+UNIQUE KEY(`cache_key`)
+COMMENT "档案融合大模型抽取结果缓存表"
+DISTRIBUTED BY HASH(cache_key) BUCKETS 8
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+CREATE TABLE IF NOT EXISTS person_portrait
+(
+    `portrait_id` VARCHAR(64) NOT NULL COMMENT '主键：SHA-256(person_id|person_version|prompt_version)',
+    `person_id` VARCHAR(200) COMMENT '人物编号',
+    `person_version` VARCHAR(64) COMMENT '档案版本：组装后的人物基本信息 SHA-256',
+    `prompt_version` VARCHAR(64) COMMENT '提示词版本：画像系统提示词 SHA-256',
+    `model` VARCHAR(200) COMMENT '生成画像所用模型',
+    `content` STRING COMMENT '画像正文',
+    `source` VARCHAR(20) COMMENT '生成来源：ON_DEMAND / PREGEN',
+    `generated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '生成时间'
+)
+UNIQUE KEY(`portrait_id`)
+COMMENT "智能画像结果表（按档案版本与提示词版本保存，重点人员后台预生成）"
+DISTRIBUTED BY HASH(portrait_id) BUCKETS 8
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+CREATE TABLE IF NOT EXISTS llm_response_cache
+(
+    `cache_key` VARCHAR(64) NOT NULL COMMENT '缓存键：SHA-256(caller|model|prompt_hash|input_hash)',
+    `caller` VARCHAR(64) COMMENT '调用方，如 text2sql、event-summary',
+    `scope_key` VARCHAR(200) COMMENT '失效范围，如 news:{newsId}、rule:{规则指纹}',
+    `model` VARCHAR(200) COMMENT '大模型名称',
+    `prompt_hash` VARCHAR(64) COMMENT '系统提示词 SHA-256',
+    `input_hash` VARCHAR(64) COMMENT '输入内容 SHA-256',
+    `response` STRING COMMENT '大模型响应',
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `expire_time` DATETIME COMMENT '过期时间'
+)
+UNIQUE KEY(`cache_key`)
+COMMENT "大模型响应缓存表（Text2Sql、事件摘要等确定性调用）"
+DISTRIBUTED BY HASH(cache_key) BUCKETS 8
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
 -- 系统配置表（key-value，控制系统名称、Logo、前端 base URL、各导航与核心板块显示隐藏）
 CREATE TABLE IF NOT EXISTS system_config
 (
@@ -743,3 +924,16 @@ DISTRIBUTED BY HASH(id) BUCKETS 16
 PROPERTIES ("replication_num" = "1", "enable_unique_key_merge_on_write" = "true");
 
 ALTER TABLE qa_message ADD INDEX idx_session_id (session_id) USING INVERTED;
+
+-- 会话滚动摘要表（早于历史窗口的消息增量折叠为摘要，随提示词传入大模型）
+CREATE TABLE IF NOT EXISTS qa_session_summary
+(
+    `session_id` VARCHAR(64) NOT NULL COMMENT '会话ID',
+    `summary` STRING COMMENT '已折叠消息的摘要',
+    `summarized_count` INT DEFAULT 0 COMMENT '已折叠进摘要的最早消息条数（按 created_time, id 排序）',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`session_id`)
+COMMENT "智能问答-会话滚动摘要"
+DISTRIBUTED BY HASH(session_id) BUCKETS 8
+PROPERTIES ("replication_num" = "1", "enable_unique_key_merge_on_write" = "true");
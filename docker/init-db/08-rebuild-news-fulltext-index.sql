@@ -0,0 +1,16 @@
+-- 新闻全文检索索引迁移：title / content 倒排索引由默认（不分词）改为中文分词（细粒度，support_phrase 供 MATCH_PHRASE）
+-- 用于 01 建表时尚未使用中文分词的已有库单独执行；新建库由 01 直接建好，无需执行
+-- 倒排索引的分词属性不能原地修改，需删除后重建；ADD INDEX 只作用于新写入的数据，历史数据由 BUILD INDEX 补建
+USE `person_monitor`;
+
+DROP INDEX IF EXISTS idx_title ON news;
+DROP INDEX IF EXISTS idx_content ON news;
+
+ALTER TABLE news ADD INDEX idx_title (title) USING INVERTED PROPERTIES("parser" = "chinese", "parser_mode" = "fine_grained", "support_phrase" = "true");
+ALTER TABLE news ADD INDEX idx_content (content) USING INVERTED PROPERTIES("parser" = "chinese", "parser_mode" = "fine_grained", "support_phrase" = "true");
+
+BUILD INDEX idx_title ON news;
+BUILD INDEX idx_content ON news;
+
+-- 构建进度：State 为 FINISHED 后新闻列表关键词筛选与 /news/search 对历史新闻生效
+SHOW BUILD INDEX WHERE TableName = "news";
@@ -0,0 +1,226 @@
+-- 增量迁移：为按 01 旧版本建表的已有库补齐本轮新增的列、索引与表；新建库由 01 直接建好，无需执行
+-- 按顺序执行一次；ADD COLUMN 为轻量 Schema Change，ADD INDEX 只作用于新写入的数据，历史数据由文末 BUILD INDEX 补建
+-- 新列均可为空或有默认值：event.status 为空视为已关闭，archive_import_task.processed_row_count 默认 0（从头处理）
+USE `person_monitor`;
+SET NAMES 'utf8';
+
+-- ==================== 已有表新增列 ====================
+
+-- 档案导入任务：内容哈希（文件去重复用）、断点行数、工作队列租约
+ALTER TABLE archive_import_task ADD COLUMN (
+    `content_hash` VARCHAR(64) COMMENT '文件内容 SHA-256，相同内容复用已上传的 SeaweedFS 文件',
+    `processed_row_count` INT DEFAULT 0 COMMENT '断点：已处理的数据行数（含未提取到人物的行），进程重启后从下一行继续',
+    `lease_owner` VARCHAR(200) COMMENT '工作队列租约持有实例（多副本下领取任务的后端实例编号）',
+    `lease_expire_time` DATETIME COMMENT '租约到期时间：持有实例定期心跳续约，到期未续约的任务可被其他实例领取'
+);
+
+-- 档案提取结果：来源数据行号（断点续跑）
+ALTER TABLE archive_extract_result ADD COLUMN `source_row_index` INT COMMENT '来源数据行号（表格从 1 开始，文档为 1），断点续跑时跳过已有结果的行';
+
+-- 事件：增量聚合状态
+ALTER TABLE event ADD COLUMN `status` VARCHAR(20) COMMENT '聚合状态：OPEN 仍接收新新闻 / CLOSED 已关闭（空视为已关闭）';
+
+-- ==================== 已有表新增索引 ====================
+
+ALTER TABLE archive_import_task ADD INDEX idx_content_hash (content_hash) USING INVERTED;
+ALTER TABLE archive_import_task ADD INDEX idx_lease_expire_time (lease_expire_time) USING INVERTED;
+ALTER TABLE event ADD INDEX idx_status (status) USING INVERTED;
+ALTER TABLE news ADD INDEX idx_created_time (created_time) USING INVERTED;
+ALTER TABLE person_travel ADD INDEX idx_destination_city (destination_city) USING INVERTED;
+
+-- ==================== 新增表（与 01 一致） ====================
+
+-- 1.1 人物标识反查表：规范化后的手机号（E.164）、邮箱、护照号、社交账号 → 人物；随档案写入与导入合并同步维护
+CREATE TABLE IF NOT EXISTS person_identifier
+(
+    `identifier` VARCHAR(320) NOT NULL COMMENT '规范化后的标识值',
+    `id_type` VARCHAR(20) NOT NULL COMMENT '标识类型：phone/email/passport/twitter/linkedin/facebook',
+    `person_id` VARCHAR(200) NOT NULL COMMENT '人物编号',
+    `is_public` BOOLEAN DEFAULT 1 COMMENT '档案是否公开（冗余自 person，用于反查时的可见性过滤）',
+    `created_by` VARCHAR(100) COMMENT '档案创建人（冗余自 person）',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`identifier`, `id_type`, `person_id`)
+COMMENT "人物标识反查表"
+DISTRIBUTED BY HASH(identifier) BUCKETS 8
+PROPERTIES ("replication_num" = "1", "enable_unique_key_merge_on_write" = "true");
+
+ALTER TABLE person_identifier ADD INDEX idx_person_id (person_id) USING INVERTED;
+
+-- 2.1 同行证据表 (Unique Key 模型)：同一车次/航班（SAME_TRIP）或时间窗内到达同一城市（SAME_CITY）的两人，双向各存一行
+CREATE TABLE IF NOT EXISTS person_co_travel
+(
+    `person_id` VARCHAR(200) NOT NULL COMMENT '人物编号',
+    `companion_id` VARCHAR(200) NOT NULL COMMENT '同行人物编号',
+    `co_type` VARCHAR(20) NOT NULL COMMENT '同行类型: SAME_TRIP-同车次/航班, SAME_CITY-同时段到达同城',
+    `occur_key` VARCHAR(500) NOT NULL COMMENT '同行事件键: SAME_TRIP 为 行程类型|票据编号|日期，SAME_CITY 为 城市|较小行程ID|较大行程ID',
+    `occur_time` DATETIME NOT NULL COMMENT '同行发生时间（两条行程中较早的发生时间）',
+    `travel_id` BIGINT COMMENT '本人行程ID',
+    `companion_travel_id` BIGINT COMMENT '同行人行程ID',
+    `place` VARCHAR(300) COMMENT '票据编号或到达城市',
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+)
+UNIQUE KEY(`person_id`, `companion_id`, `co_type`, `occur_key`)
+COMMENT "人物同行证据表"
+DISTRIBUTED BY HASH(person_id) BUCKETS 16
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 2.2 同行次数表 (Unique Key 模型)：由同行证据按 (person_id, companion_id, co_type) 汇总，检测任务每批重算涉及人物的行
+CREATE TABLE IF NOT EXISTS person_co_travel_stat
+(
+    `person_id` VARCHAR(200) NOT NULL COMMENT '人物编号',
+    `companion_id` VARCHAR(200) NOT NULL COMMENT '同行人物编号',
+    `co_type` VARCHAR(20) NOT NULL COMMENT '同行类型: SAME_TRIP, SAME_CITY',
+    `co_count` INT NOT NULL COMMENT '同行次数',
+    `first_time` DATETIME COMMENT '首次同行时间',
+    `last_time` DATETIME COMMENT '最近同行时间',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`person_id`, `companion_id`, `co_type`)
+COMMENT "人物同行次数表"
+DISTRIBUTED BY HASH(person_id) BUCKETS 16
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 2.3 同行检测状态表 (Unique Key 模型)：行程入库水位与单副本执行租约
+CREATE TABLE IF NOT EXISTS person_co_travel_state
+(
+    `state_key` VARCHAR(64) NOT NULL COMMENT '检测任务标识',
+    `watermark_time` DATETIME COMMENT '已处理到的行程入库时间（person_travel.created_time）',
+    `watermark_travel_id` BIGINT COMMENT '同一入库时间内已处理到的行程ID',
+    `lease_owner` VARCHAR(200) COMMENT '当前执行检测的后端实例编号',
+    `lease_expire_time` DATETIME COMMENT '租约到期时间',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`state_key`)
+COMMENT "人物同行检测状态表"
+DISTRIBUTED BY HASH(state_key) BUCKETS 1
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 4.3 事件增量聚合状态表（新闻入库水位与单副本执行租约）
+CREATE TABLE IF NOT EXISTS event_aggregation_state
+(
+    `state_key` VARCHAR(64) NOT NULL COMMENT '聚合任务标识',
+    `watermark_time` DATETIME COMMENT '已处理到的新闻入库时间（news.created_time）',
+    `watermark_news_id` VARCHAR(64) COMMENT '同一入库时间内已处理到的新闻编号',
+    `lease_owner` VARCHAR(200) COMMENT '当前执行聚合的后端实例编号',
+    `lease_expire_time` DATETIME COMMENT '租约到期时间',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`state_key`)
+COMMENT "事件增量聚合状态表"
+DISTRIBUTED BY HASH(state_key) BUCKETS 1
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 10.4 表格列映射模板表（Excel/CSV 表头 → 人物字段，命中时跳过大模型直接转换）
+CREATE TABLE IF NOT EXISTS archive_column_mapping
+(
+    `template_key` VARCHAR(64) NOT NULL COMMENT '模板编号：规范化表头序列的 SHA-256',
+    `header_signature` STRING COMMENT '表头列名序列（JSON 数组）',
+    `mapping_json` STRING COMMENT '列映射 JSON：{"列名":"人物字段"}，字段为 _ignore 表示忽略该列，未出现的列交给大模型',
+    `creator_username` VARCHAR(200) COMMENT '保存人用户名',
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`template_key`)
+COMMENT "档案融合表格列映射模板表"
+DISTRIBUTED BY HASH(template_key) BUCKETS 1
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 10.5 大模型抽取结果缓存表（相同文本、提示词、Schema 与模型的抽取结果复用，重试与重复上传不再重复调用大模型）
+CREATE TABLE IF NOT EXISTS archive_extract_cache
+(
+    `cache_key` VARCHAR(64) NOT NULL COMMENT '缓存键：SHA-256(text_hash|prompt_version|schema_version|model)',
+    `text_hash` VARCHAR(64) COMMENT '抽取文本 SHA-256',
+    `prompt_version` VARCHAR(64) COMMENT '提示词指纹：系统提示词、参考标签表与文件名的 SHA-256',
+    `schema_version` VARCHAR(64) COMMENT '人物 JSON Schema 内容 SHA-256',
+    `model` VARCHAR(200) COMMENT '大模型名称',
+    `result_json` STRING COMMENT '大模型抽取的人物 JSON',
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+)
+UNIQUE KEY(`cache_key`)
+COMMENT "档案融合大模型抽取结果缓存表"
+DISTRIBUTED BY HASH(cache_key) BUCKETS 8
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 智能画像结果表（按档案版本与提示词版本保存，重点人员后台预生成）
+CREATE TABLE IF NOT EXISTS person_portrait
+(
+    `portrait_id` VARCHAR(64) NOT NULL COMMENT '主键：SHA-256(person_id|person_version|prompt_version)',
+    `person_id` VARCHAR(200) COMMENT '人物编号',
+    `person_version` VARCHAR(64) COMMENT '档案版本：组装后的人物基本信息 SHA-256',
+    `prompt_version` VARCHAR(64) COMMENT '提示词版本：画像系统提示词 SHA-256',
+    `model` VARCHAR(200) COMMENT '生成画像所用模型',
+    `content` STRING COMMENT '画像正文',
+    `source` VARCHAR(20) COMMENT '生成来源：ON_DEMAND / PREGEN',
+    `generated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '生成时间'
+)
+UNIQUE KEY(`portrait_id`)
+COMMENT "智能画像结果表（按档案版本与提示词版本保存，重点人员后台预生成）"
+DISTRIBUTED BY HASH(portrait_id) BUCKETS 8
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 大模型响应缓存表（Text2Sql、事件摘要等确定性调用）
+CREATE TABLE IF NOT EXISTS llm_response_cache
+(
+    `cache_key` VARCHAR(64) NOT NULL COMMENT '缓存键：SHA-256(caller|model|prompt_hash|input_hash)',
+    `caller` VARCHAR(64) COMMENT '调用方，如 text2sql、event-summary',
+    `scope_key` VARCHAR(200) COMMENT '失效范围，如 news:{newsId}、rule:{规则指纹}',
+    `model` VARCHAR(200) COMMENT '大模型名称',
+    `prompt_hash` VARCHAR(64) COMMENT '系统提示词 SHA-256',
+    `input_hash` VARCHAR(64) COMMENT '输入内容 SHA-256',
+    `response` STRING COMMENT '大模型响应',
+    `created_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `expire_time` DATETIME COMMENT '过期时间'
+)
+UNIQUE KEY(`cache_key`)
+COMMENT "大模型响应缓存表（Text2Sql、事件摘要等确定性调用）"
+DISTRIBUTED BY HASH(cache_key) BUCKETS 8
+PROPERTIES (
+    "replication_num" = "1",
+    "enable_unique_key_merge_on_write" = "true"
+);
+
+-- 会话滚动摘要表（早于历史窗口的消息增量折叠为摘要，随提示词传入大模型）
+CREATE TABLE IF NOT EXISTS qa_session_summary
+(
+    `session_id` VARCHAR(64) NOT NULL COMMENT '会话ID',
+    `summary` STRING COMMENT '已折叠消息的摘要',
+    `summarized_count` INT DEFAULT 0 COMMENT '已折叠进摘要的最早消息条数（按 created_time, id 排序）',
+    `updated_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间'
+)
+UNIQUE KEY(`session_id`)
+COMMENT "智能问答-会话滚动摘要"
+DISTRIBUTED BY HASH(session_id) BUCKETS 8
+PROPERTIES ("replication_num" = "1", "enable_unique_key_merge_on_write" = "true");
+
+-- ==================== 历史数据补建索引 ====================
+
+BUILD INDEX idx_content_hash ON archive_import_task;
+BUILD INDEX idx_lease_expire_time ON archive_import_task;
+BUILD INDEX idx_status ON event;
+BUILD INDEX idx_created_time ON news;
+BUILD INDEX idx_destination_city ON person_travel;
+
+-- 构建进度：State 为 FINISHED 后新索引对历史数据生效
+SHOW BUILD INDEX;
@@ -19,6 +19,10 @@ const STATUS_MAP: Record<string, { color: string; text: string }> = {
   FAILED: { color: 'error', text: '失败' },
 };
 
+const IN_PROGRESS_STATUSES = ['PENDING', 'EXTRACTING', 'MATCHING'];
+/** 进度推送断开后重新连接的间隔，期间按轮询刷新 */
+const STREAM_RETRY_MS = 10000;
+
 const WorkspaceFusion = () => {
   const navigate = useNavigate();
   const user = useAppSelector((state) => state.auth?.user);
@@ -55,12 +59,50 @@ const WorkspaceFusion = () => {
     loadTasks();
   }, [loadTasks]);
 
-  const hasInProgressTasks = taskList.some((t) => ['PENDING', 'EXTRACTING', 'MATCHING'].includes(t.status ?? ''));
+  const hasInProgressTasks = taskList.some((t) => IN_PROGRESS_STATUSES.includes(t.status ?? ''));
+  const [streamConnected, setStreamConnected] = useState(false);
+  const [streamRetry, setStreamRetry] = useState(0);
+
+  /** 有进行中任务时订阅进度推送：进度原地更新，任务结束时重新加载列表（完成时间、耗时等） */
   useEffect(() => {
     if (!hasInProgressTasks) return;
+    let retryTimer: ReturnType<typeof setTimeout> | undefined;
+    const unsubscribe = archiveFusionAPI.subscribeTaskProgress({
+      onOpen: () => setStreamConnected(true),
+      // 连接建立时重新加载一次，补上断线期间结束的任务
+      onSnapshot: () => loadTasks(true),
+      onProgress: (p) => {
+        if (!IN_PROGRESS_STATUSES.includes(p.status)) {
+          loadTasks(true);
+          return;
+        }
+        setTaskList((prev) => prev.map((t) => (t.taskId === p.taskId
+          ? {
+            ...t,
+            status: p.status,
+            extractCount: p.extractCount ?? t.extractCount,
+            totalExtractCount: p.totalExtractCount ?? t.totalExtractCount,
+          }
+          : t)));
+      },
+      onClose: () => {
+        setStreamConnected(false);
+        retryTimer = setTimeout(() => setStreamRetry((n) => n + 1), STREAM_RETRY_MS);
+      },
+    });
+    return () => {
+      unsubscribe();
+      if (retryTimer) clearTimeout(retryTimer);
+      setStreamConnected(false);
+    };
+  }, [hasInProgressTasks, loadTasks, streamRetry]);
+
+  /** 推送未连接（连接失败、断开或代理不支持）时回退为定时轮询 */
+  useEffect(() => {
+    if (!hasInProgressTasks || streamConnected) return;
     const timer = setInterval(() => loadTasks(true), 2500);
     return () => clearInterval(timer);
-  }, [hasInProgressTasks, loadTasks]);
+  }, [hasInProgressTasks, streamConnected, loadTasks]);
 
   const handleBatchUpload = useCallback(async () => {
     const files = fileList
@@ -1,5 +1,5 @@
 import axios from 'axios';
-import type { ArchiveImportTaskDTO, OnlyOfficePreviewConfigDTO } from '@/types/archiveFusion';
+import type { ArchiveImportTaskDTO, ArchiveTaskProgressDTO, OnlyOfficePreviewConfigDTO } from '@/types/archiveFusion';
 import { getStoredAuthUsername } from '@/utils/authStorage';
 
 /** 前端与 API 统一前缀 */
@@ -247,6 +247,9 @@ export const personAPI = {
         { timeout: 60000 }
       )
       .then((res) => res.data?.data ?? ''),
+  /** 停止流式智能画像生成（关闭画像面板时调用） */
+  stopPortraitAnalysisStream: (personId: string) =>
+    apiClient.delete<boolean>(`/persons/${personId}/portrait-analysis/stream`),
   /**
    * 智能画像流式接口（SSE）。通过 onChunk 逐块追加内容，onDone/onError 结束。
    * 用于前端流式展示，避免长时间 loading。
@@ -652,6 +655,8 @@ export const smartQAAPI = {
   updateSessionTitle: (id: string, body: { title: string }) => apiClient.put<QaSessionDTO>(`/smart-qa/sessions/${id}`, body),
   deleteSession: (id: string) => apiClient.delete(`/smart-qa/sessions/${id}`),
   listMessages: (sessionId: string) => apiClient.get<QaMessageDTO[]>(`/smart-qa/sessions/${sessionId}/messages`),
+  /** 停止会话中进行中的流式回复，已生成内容会保存为回复 */
+  stopChat: (sessionId: string) => apiClient.post<boolean>(`/smart-qa/sessions/${sessionId}/stop`),
   /**
    * 流式问答：POST 后读取 SSE，每收到 content 调用 onChunk，结束时调用 onDone(messageId)。
    * 返回 Promise，失败时 reject。
@@ -774,6 +779,69 @@ export const archiveFusionAPI = {
   /** 任务列表按当前登录用户过滤（X-Username），仅返回该用户创建的导入任务 */
   listTasks: (params: { page?: number; size?: number }) =>
     apiClient.get('/workspace/archive-fusion/tasks', { params }),
+  /**
+   * 订阅当前用户任务进度（SSE）。用 fetch 读取流以携带 X-Username：snapshot 为连接时进行中的任务，progress 为单个任务的变化。
+   * 连接建立后调用 onOpen；连接失败或断开时调用 onClose（调用方据此回退轮询），主动取消不触发。返回取消订阅函数。
+   */
+  subscribeTaskProgress: (callbacks: {
+    onOpen: () => void;
+    onSnapshot: (tasks: ArchiveTaskProgressDTO[]) => void;
+    onProgress: (task: ArchiveTaskProgressDTO) => void;
+    onClose: () => void;
+  }) => {
+    const controller = new AbortController();
+    const username = apiUsername ?? getStoredAuthUsername() ?? '';
+    const dispatch = (event: string, payload: string) => {
+      if (!payload) return;
+      try {
+        const data = JSON.parse(payload) as unknown;
+        if (event === 'snapshot' && Array.isArray(data)) callbacks.onSnapshot(data as ArchiveTaskProgressDTO[]);
+        else if (event === 'progress' && data) callbacks.onProgress(data as ArchiveTaskProgressDTO);
+      } catch {
+        // ignore non-JSON events
+      }
+    };
+    fetch(`${BASE_PATH}/api/workspace/archive-fusion/tasks/progress-stream`, {
+      method: 'GET',
+      headers: { Accept: 'text/event-stream', ...(username ? { 'X-Username': username } : {}) },
+      signal: controller.signal,
+    })
+      .then(async (response) => {
+        const reader = response.ok ? response.body?.getReader() : undefined;
+        if (!reader) return;
+        callbacks.onOpen();
+        const decoder = new TextDecoder();
+        let buffer = '';
+        let event = 'message';
+        let data = '';
+        while (true) {
+          const { done, value } = await reader.read();
+          if (done) break;
+          buffer += decoder.decode(value, { stream: true });
+          const lines = buffer.split('\n');
+          buffer = lines.pop() ?? '';
+          for (const rawLine of lines) {
+            const line = rawLine.replace(/\r$/, '');
+            if (line === '') {
+              dispatch(event, data);
+              event = 'message';
+              data = '';
+            } else if (line.startsWith('event:')) {
+              event = line.slice(6).trim();
+            } else if (line.startsWith('data:')) {
+              data += (data ? '\n' : '') + line.slice(5).trimStart();
+            }
+          }
+        }
+      })
+      .catch(() => {
+        // 连接失败或被取消，由 finally 统一处理
+      })
+      .finally(() => {
+        if (!controller.signal.aborted) callbacks.onClose();
+      });
+    return () => controller.abort();
+  },
   /** 失败任务重新导入：仅 FAILED 状态可调用，后台重新触发异步提取 */
   retryTask: (taskId: string) =>
     apiClient.put<ArchiveImportTaskDTO>(`/workspace/archive-fusion/tasks/${taskId}/retry`),
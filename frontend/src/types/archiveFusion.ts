@@ -24,6 +24,19 @@ export interface ArchiveImportTaskDTO {
   similarMatchFields?: string;
 }
 
+/** 档案融合任务实时进度（SSE 推送，与后端 ArchiveTaskProgressDTO 对应） */
+export interface ArchiveTaskProgressDTO {
+  taskId: string;
+  status: string;
+  /** 待提取人物总数（Excel 流式读取过程中随读取行数增长） */
+  totalExtractCount?: number;
+  /** 已提取人物数量 */
+  extractCount?: number;
+  errorMessage?: string;
+  creatorUsername?: string;
+  updatedTime?: string;
+}
+
 /** 相似判定可选属性（与后端 originalName,birthDate,gender,nationality 对应） */
 export const SIMILAR_MATCH_FIELD_OPTIONS: { key: string; label: string }[] = [
   { key: 'originalName', label: '人物原文姓名' },